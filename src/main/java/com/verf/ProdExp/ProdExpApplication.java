@@ -1,6 +1,10 @@
 package com.verf.ProdExp;
 
+import com.verf.ProdExp.config.CachingProperties;
+import com.verf.ProdExp.config.JobProperties;
+import com.verf.ProdExp.config.MailDeliveryProperties;
 import com.verf.ProdExp.config.NotificationProperties;
+import com.verf.ProdExp.config.ProductProperties;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
@@ -10,7 +14,7 @@ import org.springframework.scheduling.annotation.EnableScheduling;
 @SpringBootApplication
 @EnableCaching
 @EnableScheduling
-@EnableConfigurationProperties(NotificationProperties.class)
+@EnableConfigurationProperties({NotificationProperties.class, MailDeliveryProperties.class, ProductProperties.class, JobProperties.class, CachingProperties.class})
 public class ProdExpApplication {
 
 	public static void main(String[] args) {
@@ -0,0 +1,53 @@
+package com.verf.ProdExp.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "app.cache")
+public class CachingProperties {
+    // Redis pub/sub channel on which instances tell each other to drop local entries.
+    private String invalidationChannel = "cache:invalidate";
+    // Cache values at least this large are deflated before they go to Redis; 0 turns compression off.
+    private DataSize compressAbove = DataSize.ofKilobytes(1);
+    // Compressed values that would inflate past this are dropped as corrupt instead of being read.
+    private DataSize maxInflatedSize = DataSize.ofMegabytes(16);
+    // Used for any cache without its own entry below.
+    private Spec defaults = new Spec();
+    // Per cache name, e.g. aiRecommendations.
+    private Map<String, Spec> caches = new HashMap<>();
+
+    public Spec specFor(String cacheName) {
+        return caches.getOrDefault(cacheName, defaults);
+    }
+
+    // Redis key prefix for a cache: "<keyPrefix>:" when configured, otherwise "<cacheName>:"
+    public String keyPrefixFor(String cacheName) {
+        Spec spec = caches.get(cacheName);
+        String prefix = spec == null || spec.getKeyPrefix() == null || spec.getKeyPrefix().isBlank() ? cacheName : spec.getKeyPrefix();
+        return prefix + ":";
+    }
+
+    @Getter
+    @Setter
+    public static class Spec {
+        // Time to live in Redis (shared by all instances).
+        private Duration ttl = Duration.ofHours(24);
+        // Time to live in the local in-process tier; also bounds staleness if an invalidation message is missed.
+        private Duration localTtl = Duration.ofMinutes(5);
+        // Approximate memory budget of the local tier; 0 turns it off and the cache goes straight to Redis.
+        private DataSize localMaxSize = DataSize.ofMegabytes(16);
+        // Short Redis key prefix, e.g. "ai" instead of the cache name; must be unique across caches.
+        private String keyPrefix;
+        // Class of the non-string values the cache holds (e.g. a record); JSON of any other class is not read back.
+        // Unset means the cache only holds strings.
+        private Class<?> valueType;
+    }
+}
@@ -0,0 +1,157 @@
+package com.verf.ProdExp.config;
+
+import org.jspecify.annotations.Nullable;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+import tools.jackson.core.JacksonException;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Redis cache values without Java serialization. The first byte says what follows:
+ * <ul>
+ *     <li>{@code 0x01}: a String as raw UTF-8</li>
+ *     <li>{@code 0x02}: a 2-byte class name length, the class name, then the value as JSON</li>
+ * </ul>
+ * The {@code 0x80} bit is set when everything after the first byte is deflated, which happens for payloads of at
+ * least {@code compressAbove} bytes. A serializer belongs to one cache and only reads JSON back into that cache's
+ * configured value type: the recorded class name is checked against it, never loaded, so whatever sits in Redis
+ * cannot pick the class Jackson instantiates. Values must be non-generic (records, plain objects).
+ */
+public class CompactValueSerializer implements RedisSerializer<Object> {
+
+    private static final byte STRING = 0x01;
+    private static final byte JSON = 0x02;
+    private static final byte DEFLATED = (byte) 0x80;
+
+    private final JsonMapper jsonMapper;
+    private final int compressAbove;
+    private final int maxInflatedBytes;
+    private final @Nullable Class<?> valueType;
+
+    // compressAbove <= 0 turns compression off; deflated values growing past maxInflatedBytes are rejected; without
+    // a valueType the cache only holds strings
+    public CompactValueSerializer(JsonMapper jsonMapper, int compressAbove, int maxInflatedBytes, @Nullable Class<?> valueType) {
+        this.jsonMapper = jsonMapper;
+        this.compressAbove = compressAbove;
+        this.maxInflatedBytes = maxInflatedBytes;
+        this.valueType = valueType;
+    }
+
+    @Override
+    public byte @Nullable [] serialize(@Nullable Object value) throws SerializationException {
+        if (value == null) return null;
+
+        byte format;
+        byte[] payload;
+        if (value instanceof String s) {
+            format = STRING;
+            payload = s.getBytes(StandardCharsets.UTF_8);
+        } else {
+            if (value.getClass() != valueType) {
+                throw new SerializationException("Cannot cache " + value.getClass().getName() + "; this cache holds "
+                        + (valueType == null ? "strings" : valueType.getName()));
+            }
+            format = JSON;
+            byte[] type = value.getClass().getName().getBytes(StandardCharsets.UTF_8);
+            byte[] json;
+            try {
+                json = jsonMapper.writeValueAsBytes(value);
+            } catch (JacksonException ex) {
+                throw new SerializationException("Cannot write " + value.getClass().getName() + " as JSON", ex);
+            }
+            payload = ByteBuffer.allocate(2 + type.length + json.length)
+                    .putShort((short) type.length).put(type).put(json).array();
+        }
+
+        if (compressAbove > 0 && payload.length >= compressAbove) {
+            byte[] deflated = deflate(payload);
+            // Incompressible data stays as it is
+            if (deflated.length < payload.length) {
+                format |= DEFLATED;
+                payload = deflated;
+            }
+        }
+
+        byte[] out = new byte[payload.length + 1];
+        out[0] = format;
+        System.arraycopy(payload, 0, out, 1, payload.length);
+        return out;
+    }
+
+    @Override
+    public @Nullable Object deserialize(byte @Nullable [] bytes) throws SerializationException {
+        if (bytes == null || bytes.length == 0) return null;
+
+        byte format = bytes[0];
+        byte[] payload = Arrays.copyOfRange(bytes, 1, bytes.length);
+        if ((format & DEFLATED) != 0) payload = inflate(payload, maxInflatedBytes);
+
+        switch (format & ~DEFLATED) {
+            case STRING:
+                return new String(payload, StandardCharsets.UTF_8);
+            case JSON:
+                ByteBuffer buffer = ByteBuffer.wrap(payload);
+                int typeLength = Short.toUnsignedInt(buffer.getShort());
+                String type = new String(payload, 2, typeLength, StandardCharsets.UTF_8);
+                if (valueType == null || !valueType.getName().equals(type)) {
+                    throw new SerializationException("Cached " + type + " is not the type of this cache");
+                }
+                try {
+                    return jsonMapper.readValue(payload, 2 + typeLength, payload.length - 2 - typeLength, valueType);
+                } catch (JacksonException ex) {
+                    throw new SerializationException("Cannot read cached " + type, ex);
+                }
+            default:
+                throw new SerializationException("Unknown cache value format " + format);
+        }
+    }
+
+    private static byte[] deflate(byte[] data) {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(data);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(data.length / 2);
+            byte[] chunk = new byte[4096];
+            while (!deflater.finished()) {
+                out.write(chunk, 0, deflater.deflate(chunk));
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] inflate(byte[] data, int maxBytes) {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(data);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(Math.min(maxBytes, data.length * 3));
+            byte[] chunk = new byte[4096];
+            while (!inflater.finished()) {
+                int n = inflater.inflate(chunk);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new SerializationException("Truncated compressed cache value");
+                }
+                // A small value can inflate to gigabytes; stop before it does
+                if (out.size() + n > maxBytes) {
+                    throw new SerializationException("Compressed cache value inflates past " + maxBytes + " bytes");
+                }
+                out.write(chunk, 0, n);
+            }
+            return out.toByteArray();
+        } catch (DataFormatException ex) {
+            throw new SerializationException("Corrupt compressed cache value", ex);
+        } finally {
+            inflater.end();
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.verf.ProdExp.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "app.jobs")
+public class JobProperties {
+    // When false this instance does not pick up jobs; they can still be submitted and run elsewhere.
+    private boolean enabled = true;
+    // Jobs run in parallel on this instance.
+    private int workers = 2;
+    // Documents read per batch; each batch is one checkpoint.
+    private int batchSize = 500;
+    // Pause between batches so a large job does not monopolise Mongo.
+    private long throttleMs = 50;
+    // A job whose worker has not checkpointed for this long is considered abandoned and resumed by another worker.
+    private long leaseSeconds = 120;
+    private long pollIntervalMs = 2000;
+}
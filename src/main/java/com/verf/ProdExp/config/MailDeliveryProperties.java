@@ -0,0 +1,33 @@
+package com.verf.ProdExp.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "app.mail")
+public class MailDeliveryProperties {
+    // "smtp" (default) sends every message through JavaMailSender; "mailtrap" batches digests over HTTP.
+    private String provider = "smtp";
+    private Mailtrap mailtrap = new Mailtrap();
+
+    @Getter
+    @Setter
+    public static class Mailtrap {
+        private String token;
+        // Point this at a local HTTP stand-in (e.g. http://localhost:8025) for local testing.
+        private String baseUrl = "https://send.api.mailtrap.io";
+        private String fromEmail = "noreply@example.com";
+        private String fromName = "Verfalarm";
+        private String category = "reminder-digest";
+        // Mailtrap accepts at most 500 messages per batch request.
+        private int batchSize = 50;
+        private int maxRetries = 3;
+        private long retryBackoffMs = 500;
+        private long connectTimeoutMs = 5000;
+        private long readTimeoutMs = 30000;
+        // Send via SMTP when a batch (or single message inside it) cannot be delivered over HTTP.
+        private boolean fallbackToSmtp = true;
+    }
+}
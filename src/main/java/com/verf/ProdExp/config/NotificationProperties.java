@@ -15,6 +15,8 @@ public class NotificationProperties {
     private String cron = "0 0 * * * *";
     private String timezone = "UTC";
     private int batchSize = 200;
+    // Max product rows rendered per digest; larger digests show the most urgent rows plus summary counts.
+    private int digestMaxRows = 50;
 
     public ZoneId zoneId() {
         try {
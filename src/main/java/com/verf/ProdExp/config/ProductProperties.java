@@ -0,0 +1,98 @@
+package com.verf.ProdExp.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "app.products")
+public class ProductProperties {
+    private Pagination pagination = new Pagination();
+    private Search search = new Search();
+    private Backfill backfill = new Backfill();
+    private Autocomplete autocomplete = new Autocomplete();
+    private Fuzzy fuzzy = new Fuzzy();
+    private StatusRecompute statusRecompute = new StatusRecompute();
+    private Archive archive = new Archive();
+    private Coalescing coalescing = new Coalescing();
+    private BulkImport bulkImport = new BulkImport();
+
+    @Getter
+    @Setter
+    public static class Pagination {
+        // When true, paged list/search queries fetch rows and total in one $facet aggregation instead of count + find.
+        private boolean facetTotals = false;
+    }
+
+    @Getter
+    @Setter
+    public static class Search {
+        // Largest set of product ids a prefix search resolves through product_search_terms; broader queries match
+        // name and tags with a regex over the user's products instead of sending a huge $in.
+        private int maxPrefixCandidates = 1000;
+    }
+
+    @Getter
+    @Setter
+    public static class Backfill {
+        // When true, jobs that fill in derived fields missing on existing products (e.g. percentageLeft) are queued at startup.
+        private boolean enabled = true;
+    }
+
+    @Getter
+    @Setter
+    public static class Autocomplete {
+        // Users whose suggestion tries are kept in memory; least recently used are evicted first.
+        private int maxUsers = 1000;
+        // Upper bound on staleness from writes handled by other instances.
+        private long ttlSeconds = 600;
+        private int maxLimit = 50;
+    }
+
+    @Getter
+    @Setter
+    public static class Fuzzy {
+        // Users whose trigram indexes are kept in memory; least recently used are evicted first.
+        private int maxUsers = 500;
+        private long ttlSeconds = 600;
+        private int maxLimit = 100;
+    }
+
+    @Getter
+    @Setter
+    public static class StatusRecompute {
+        // Fleet-wide server-side recompute, so products turn EXPIRED on the day they expire without a user request.
+        private boolean enabled = true;
+        private String cron = "0 5 0 * * *";
+    }
+
+    @Getter
+    @Setter
+    public static class Archive {
+        // Moves products that have been FINISHED or EXPIRED for afterDays to products_archive on a schedule.
+        private boolean enabled = true;
+        private int afterDays = 30;
+        private String cron = "0 30 1 * * *";
+    }
+
+    @Getter
+    @Setter
+    public static class Coalescing {
+        // Buffers quantity-consumed PATCHes per product and writes the latest value once per window. Buffers are
+        // per instance, so only enable with a single instance or sticky sessions.
+        private boolean enabled = false;
+        // How long after the first buffered change a product is flushed.
+        private long windowMs = 2000;
+        private long flushIntervalMs = 250;
+    }
+
+    @Getter
+    @Setter
+    public static class BulkImport {
+        // Rows validated and inserted per insertMany; also how far the streamed report lags behind the input
+        private int batchSize = 500;
+        // Rows beyond this are not read; the report says the import was truncated
+        private long maxRows = 100_000;
+    }
+}
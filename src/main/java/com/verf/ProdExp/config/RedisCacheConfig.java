@@ -5,23 +5,65 @@ import org.springframework.context.annotation.Configuration;
 import org.springframework.data.redis.cache.RedisCacheConfiguration;
 import org.springframework.data.redis.cache.RedisCacheManager;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.data.redis.serializer.RedisSerializationContext;
+import tools.jackson.databind.json.JsonMapper;
 
-import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
 
 @Configuration
 public class RedisCacheConfig {
 
+    // Redis is the shared tier; each instance answers hot keys from its own in-process tier in front of it
     @Bean
-    public RedisCacheManager cacheManager(
-            RedisConnectionFactory connectionFactory) {
+    public TwoLevelCacheManager cacheManager(RedisConnectionFactory connectionFactory,
+                                             CachingProperties cachingProperties,
+                                             StringRedisTemplate redisTemplate,
+                                             JsonMapper jsonMapper) {
 
         RedisCacheConfiguration config =
                 RedisCacheConfiguration.defaultCacheConfig()
-                        .entryTtl(Duration.ofHours(24))
-                        .disableCachingNullValues();
+                        .entryTtl(cachingProperties.getDefaults().getTtl())
+                        .disableCachingNullValues()
+                        .computePrefixWith(cachingProperties::keyPrefixFor)
+                        .serializeValuesWith(values(jsonMapper, cachingProperties, cachingProperties.getDefaults()));
 
-        return RedisCacheManager.builder(connectionFactory)
+        Map<String, RedisCacheConfiguration> perCache = new HashMap<>();
+        cachingProperties.getCaches().forEach((name, spec) -> perCache.put(name, config.entryTtl(spec.getTtl())
+                .serializeValuesWith(values(jsonMapper, cachingProperties, spec))));
+
+        RedisCacheManager redisCacheManager = RedisCacheManager.builder(connectionFactory)
                 .cacheDefaults(config)
+                .withInitialCacheConfigurations(perCache)
                 .build();
+        // Not a bean of its own, so initialise it here
+        redisCacheManager.afterPropertiesSet();
+
+        return new TwoLevelCacheManager(redisCacheManager, cachingProperties, redisTemplate);
+    }
+
+    // Raw UTF-8 strings / JSON instead of Java serialization, deflated above a size threshold; one serializer per
+    // cache so JSON is only ever read back into that cache's own value type
+    private static RedisSerializationContext.SerializationPair<Object> values(JsonMapper jsonMapper,
+                                                                             CachingProperties cachingProperties,
+                                                                             CachingProperties.Spec spec) {
+        return RedisSerializationContext.SerializationPair.fromSerializer(new CompactValueSerializer(jsonMapper,
+                (int) cachingProperties.getCompressAbove().toBytes(),
+                (int) Math.min(Integer.MAX_VALUE - 8, cachingProperties.getMaxInflatedSize().toBytes()),
+                spec.getValueType()));
+    }
+
+    // Shared pub/sub container; other listeners (e.g. AuthVersionRegistry) register themselves on it
+    @Bean
+    public RedisMessageListenerContainer redisMessageListenerContainer(RedisConnectionFactory connectionFactory,
+                                                                       TwoLevelCacheManager cacheManager,
+                                                                       CachingProperties cachingProperties) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        container.addMessageListener(cacheManager, new ChannelTopic(cachingProperties.getInvalidationChannel()));
+        return container;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,161 @@
+package com.verf.ProdExp.config;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.jspecify.annotations.Nullable;
+import org.springframework.cache.Cache;
+import org.springframework.cache.support.SimpleValueWrapper;
+
+import java.time.Duration;
+import java.util.concurrent.Callable;
+
+/**
+ * A Spring {@link Cache} that answers from an in-process Caffeine map first and falls back to the shared cache
+ * (Redis) on a miss, copying the value into the local tier. Writes go to the shared cache first; the local tier is
+ * then updated here and {@link Invalidator} tells other instances to drop their copy.
+ * <p>
+ * Local entries are keyed by the key's string form, like the Redis keys, so an invalidation message can name them.
+ * Cached values are handed out as-is from the local tier and must not be mutated by callers.
+ */
+public class TwoLevelCache implements Cache {
+
+    // Rough per-entry overhead (map node, wrapper, key object) added to every weight
+    private static final int ENTRY_OVERHEAD = 64;
+    // Weight for values whose size is not cheap to estimate
+    private static final int DEFAULT_VALUE_WEIGHT = 256;
+
+    @FunctionalInterface
+    public interface Invalidator {
+        // Tell other instances to drop a key (or the whole cache when key is null)
+        void publish(String cacheName, @Nullable String key);
+    }
+
+    private final String name;
+    private final Cache shared;
+    private final com.github.benmanes.caffeine.cache.Cache<String, Object> local;
+    private final Invalidator invalidator;
+
+    public TwoLevelCache(String name, Cache shared, long localMaxBytes, Duration localTtl, Invalidator invalidator) {
+        this.name = name;
+        this.shared = shared;
+        this.invalidator = invalidator;
+        this.local = Caffeine.newBuilder()
+                .maximumWeight(localMaxBytes)
+                .<String, Object>weigher(TwoLevelCache::weigh)
+                .expireAfterWrite(localTtl)
+                .build();
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return shared.getNativeCache();
+    }
+
+    @Override
+    public @Nullable ValueWrapper get(Object key) {
+        String localKey = localKey(key);
+        Object value = local.getIfPresent(localKey);
+        if (value != null) return new SimpleValueWrapper(value);
+
+        ValueWrapper wrapper = shared.get(key);
+        if (wrapper != null && wrapper.get() != null) local.put(localKey, wrapper.get());
+        return wrapper;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> @Nullable T get(Object key, @Nullable Class<T> type) {
+        ValueWrapper wrapper = get(key);
+        Object value = wrapper == null ? null : wrapper.get();
+        if (value != null && type != null && !type.isInstance(value)) {
+            throw new IllegalStateException("Cached value is not of required type [" + type.getName() + "]: " + value);
+        }
+        return (T) value;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> @Nullable T get(Object key, Callable<T> valueLoader) {
+        ValueWrapper wrapper = get(key);
+        if (wrapper != null) return (T) wrapper.get();
+
+        // The shared cache runs the loader at most once per key on this instance
+        T value = shared.get(key, valueLoader);
+        if (value != null) local.put(localKey(key), value);
+        return value;
+    }
+
+    @Override
+    public void put(Object key, @Nullable Object value) {
+        shared.put(key, value);
+        storeLocally(key, value);
+        invalidator.publish(name, localKey(key));
+    }
+
+    @Override
+    public @Nullable ValueWrapper putIfAbsent(Object key, @Nullable Object value) {
+        ValueWrapper existing = shared.putIfAbsent(key, value);
+        if (existing != null) {
+            storeLocally(key, existing.get());
+            return existing;
+        }
+        storeLocally(key, value);
+        invalidator.publish(name, localKey(key));
+        return null;
+    }
+
+    @Override
+    public void evict(Object key) {
+        shared.evict(key);
+        local.invalidate(localKey(key));
+        invalidator.publish(name, localKey(key));
+    }
+
+    @Override
+    public boolean evictIfPresent(Object key) {
+        boolean present = shared.evictIfPresent(key);
+        local.invalidate(localKey(key));
+        invalidator.publish(name, localKey(key));
+        return present;
+    }
+
+    @Override
+    public void clear() {
+        shared.clear();
+        local.invalidateAll();
+        invalidator.publish(name, null);
+    }
+
+    // Applies an invalidation received from another instance; the shared tier already has the change.
+    public void evictLocal(@Nullable String key) {
+        if (key == null) local.invalidateAll();
+        else local.invalidate(key);
+    }
+
+    long localSize() {
+        local.cleanUp();
+        return local.estimatedSize();
+    }
+
+    private void storeLocally(Object key, @Nullable Object value) {
+        if (value == null) local.invalidate(localKey(key));
+        else local.put(localKey(key), value);
+    }
+
+    private static String localKey(Object key) {
+        return key instanceof String s ? s : String.valueOf(key);
+    }
+
+    // Approximate retained size in bytes, so the bound is memory rather than entry count
+    static int weigh(String key, Object value) {
+        long bytes = ENTRY_OVERHEAD + 2L * key.length();
+        if (value instanceof CharSequence s) bytes += 40 + 2L * s.length();
+        else if (value instanceof byte[] b) bytes += 16 + b.length;
+        else bytes += DEFAULT_VALUE_WEIGHT;
+        return (int) Math.min(Integer.MAX_VALUE, bytes);
+    }
+}
@@ -0,0 +1,88 @@
+package com.verf.ProdExp.config;
+
+import org.jspecify.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Puts a per-instance {@link TwoLevelCache} in front of each cache of the shared (Redis) manager. Instances keep
+ * their local tiers in step over a Redis pub/sub channel: every write or eviction publishes
+ * {@code origin \t cache [\t key]} (no key = clear) and the other instances drop that entry locally.
+ */
+public class TwoLevelCacheManager implements CacheManager, MessageListener {
+
+    private static final Logger log = LoggerFactory.getLogger(TwoLevelCacheManager.class);
+
+    private final CacheManager shared;
+    private final CachingProperties properties;
+    private final StringRedisTemplate redis;
+    // Lets an instance ignore its own messages; its local tier is already up to date
+    private final String origin = UUID.randomUUID().toString();
+    private final ConcurrentHashMap<String, Cache> caches = new ConcurrentHashMap<>();
+    // Local-only caches outside the cache abstraction (e.g. PrincipalCache) that follow the same channel
+    private final ConcurrentHashMap<String, Consumer<@Nullable String>> localCaches = new ConcurrentHashMap<>();
+
+    public TwoLevelCacheManager(CacheManager shared, CachingProperties properties, StringRedisTemplate redis) {
+        this.shared = shared;
+        this.properties = properties;
+        this.redis = redis;
+    }
+
+    @Override
+    public @Nullable Cache getCache(String name) {
+        Cache cache = caches.get(name);
+        if (cache != null) return cache;
+        Cache sharedCache = shared.getCache(name);
+        if (sharedCache == null) return null;
+
+        CachingProperties.Spec spec = properties.specFor(name);
+        long localBytes = spec.getLocalMaxSize().toBytes();
+        Cache created = localBytes <= 0 ? sharedCache
+                : new TwoLevelCache(name, sharedCache, localBytes, spec.getLocalTtl(), this::publish);
+        return caches.computeIfAbsent(name, k -> created);
+    }
+
+    @Override
+    public Collection<String> getCacheNames() {
+        return shared.getCacheNames();
+    }
+
+    // evictLocal receives the key to drop, or null to clear, whenever another instance invalidates cacheName
+    public void registerLocal(String cacheName, Consumer<@Nullable String> evictLocal) {
+        localCaches.put(cacheName, evictLocal);
+    }
+
+    // Tells the other instances to drop key (null = everything) from their local copy of cacheName
+    public void publish(String cacheName, @Nullable String key) {
+        String message = origin + '\t' + cacheName + (key == null ? "" : '\t' + key);
+        try {
+            redis.convertAndSend(properties.getInvalidationChannel(), message);
+        } catch (Exception ex) {
+            // Other instances fall back to their local TTL
+            log.warn("Publishing cache invalidation for {} failed: {}", cacheName, ex.getMessage());
+        }
+    }
+
+    @Override
+    public void onMessage(Message message, byte @Nullable [] pattern) {
+        String[] parts = new String(message.getBody(), StandardCharsets.UTF_8).split("\t", 3);
+        if (parts.length < 2 || origin.equals(parts[0])) return;
+        String key = parts.length == 3 ? parts[2] : null;
+        if (caches.get(parts[1]) instanceof TwoLevelCache cache) {
+            cache.evictLocal(key);
+        }
+        Consumer<@Nullable String> local = localCaches.get(parts[1]);
+        if (local != null) local.accept(key);
+    }
+}
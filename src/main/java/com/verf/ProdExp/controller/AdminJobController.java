@@ -0,0 +1,77 @@
+package com.verf.ProdExp.controller;
+
+import com.verf.ProdExp.dto.MaintenanceJobRequest;
+import com.verf.ProdExp.dto.MaintenanceJobResponse;
+import com.verf.ProdExp.entity.MaintenanceJobStatus;
+import com.verf.ProdExp.exception.BadRequestException;
+import com.verf.ProdExp.service.MaintenanceJobService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.*;
+
+import jakarta.validation.Valid;
+import java.net.URI;
+
+// Background maintenance jobs: submit, watch progress, cancel and retry.
+@RestController
+@RequestMapping("/api/admin/jobs")
+@RequiredArgsConstructor
+@Validated
+public class AdminJobController {
+
+    private final MaintenanceJobService maintenanceJobService;
+
+    @PostMapping
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<MaintenanceJobResponse> submit(@Valid @RequestBody MaintenanceJobRequest request) {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        MaintenanceJobResponse job = maintenanceJobService.submit(request.type(), request.params(), auth == null ? null : auth.getName());
+        return ResponseEntity.accepted().location(URI.create("/api/admin/jobs/" + job.id())).body(job);
+    }
+
+    @GetMapping
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Page<MaintenanceJobResponse>> list(@RequestParam(required = false) String status,
+                                                             @RequestParam(required = false, defaultValue = "0") int pageNumber,
+                                                             @RequestParam(required = false, defaultValue = "20") int pageSize) {
+        if (pageNumber < 0) throw new BadRequestException("pageNumber must be >= 0");
+        if (pageSize <= 0) throw new BadRequestException("pageSize must be > 0");
+
+        MaintenanceJobStatus parsed = null;
+        if (status != null) {
+            try {
+                parsed = MaintenanceJobStatus.valueOf(status.toUpperCase());
+            } catch (IllegalArgumentException e) {
+                throw new BadRequestException("Invalid status value: " + status);
+            }
+        }
+        PageRequest pageable = PageRequest.of(pageNumber, pageSize, Sort.by("createdAt").descending());
+        return ResponseEntity.ok(maintenanceJobService.list(parsed, pageable));
+    }
+
+    // Users may poll jobs they submitted themselves (e.g. recompute-statuses?async=true)
+    @GetMapping("/{id}")
+    @PreAuthorize("hasRole('ADMIN') or @securityService.isJobRequester(#id)")
+    public ResponseEntity<MaintenanceJobResponse> get(@PathVariable String id) {
+        return ResponseEntity.ok(maintenanceJobService.get(id));
+    }
+
+    @PostMapping("/{id}/cancel")
+    @PreAuthorize("hasRole('ADMIN') or @securityService.isJobRequester(#id)")
+    public ResponseEntity<MaintenanceJobResponse> cancel(@PathVariable String id) {
+        return ResponseEntity.ok(maintenanceJobService.cancel(id));
+    }
+
+    @PostMapping("/{id}/retry")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<MaintenanceJobResponse> retry(@PathVariable String id) {
+        return ResponseEntity.ok(maintenanceJobService.retry(id));
+    }
+}
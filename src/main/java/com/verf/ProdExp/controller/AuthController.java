@@ -72,7 +72,7 @@ public class AuthController {
                 return ResponseEntity.status(403).build();
             }
 
-            String token = jwtProvider.generateToken(user.getId());
+            String token = jwtProvider.generateToken(user);
             return ResponseEntity.ok(new AuthResponse(token, "Bearer", user.getId()));
         } catch (AuthenticationException e) {
             return ResponseEntity.status(401).build();
@@ -114,7 +114,8 @@ public class AuthController {
             String userId = optUserId.get();
             log.info("Token verified for userId={}", userId);
             // generate JWT and include in redirect so frontend can auto-login
-            String jwt = jwtProvider.generateToken(userId);
+            User verifiedUser = userRepository.findById(userId).orElseThrow(() -> new RuntimeException("User not found after verification"));
+            String jwt = jwtProvider.generateToken(verifiedUser);
             String encodedJwt = URLEncoder.encode(jwt, StandardCharsets.UTF_8);
             // include token as both query param and fragment to be robust across clients
             target = frontendBaseUrl + "/verify-success?status=success&token=" + encodedJwt + "#status=success&token=" + encodedJwt;
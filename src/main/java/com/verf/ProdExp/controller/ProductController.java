@@ -1,23 +1,39 @@
 package com.verf.ProdExp.controller;
 
+import com.verf.ProdExp.dto.AutocompleteSuggestion;
+import com.verf.ProdExp.dto.BulkProductRequest;
+import com.verf.ProdExp.dto.BulkProductResponse;
+import com.verf.ProdExp.dto.ConsumptionWeekResponse;
+import com.verf.ProdExp.dto.CursorPage;
+import com.verf.ProdExp.dto.MaintenanceJobResponse;
 import com.verf.ProdExp.dto.ProductRequest;
 import com.verf.ProdExp.dto.ProductResponse;
+import com.verf.ProdExp.dto.ProductSearchHit;
 import com.verf.ProdExp.dto.QuantityConsumedUpdateRequest;
 import com.verf.ProdExp.dto.RecommendationRequest;
 import com.verf.ProdExp.entity.NotificationFrequency;
 import com.verf.ProdExp.entity.Status;
 import com.verf.ProdExp.exception.BadRequestException;
+import com.verf.ProdExp.mapper.ProductFields;
 import com.verf.ProdExp.service.AiRecommendationService;
+import com.verf.ProdExp.service.ConsumptionService;
+import com.verf.ProdExp.service.ProductExportService;
+import com.verf.ProdExp.service.ProductBulkService;
+import com.verf.ProdExp.service.ProductImportService;
+import com.verf.ProdExp.service.ProductAutocompleteService;
+import com.verf.ProdExp.service.ProductFuzzySearchService;
 import com.verf.ProdExp.service.ProductService;
 import com.verf.ProdExp.service.AIRateLimiterService;
 import lombok.RequiredArgsConstructor;
+import org.jspecify.annotations.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.authentication.AuthenticationCredentialsNotFoundException;
@@ -27,8 +43,12 @@ import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
+import java.io.IOException;
+import java.io.InputStream;
 import java.net.URI;
 import java.util.*;
 
@@ -42,9 +62,15 @@ public class ProductController {
 
     private final ProductService productService;
     private final AiRecommendationService aiRecommendationService;
+    private final ProductAutocompleteService productAutocompleteService;
+    private final ProductFuzzySearchService productFuzzySearchService;
     private final AIRateLimiterService aiRateLimiterService;
+    private final ConsumptionService consumptionService;
+    private final ProductBulkService productBulkService;
+    private final ProductImportService productImportService;
+    private final ProductExportService productExportService;
 
-    // Allowed sort keys. "percentageLeft" is computed client-side in this controller.
+    // Allowed sort keys. "percentageLeft" is a derived field persisted on the product.
     // Keep in sync with exposed fields on ProductResponse.
     private static final Set<String> ALLOWED_SORT_FIELDS = Set.of(
             "name",
@@ -74,6 +100,37 @@ public class ProductController {
         throw new AuthenticationCredentialsNotFoundException("Unable to determine authenticated user id");
     }
 
+    private boolean isAdmin() {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        return auth != null && auth.getAuthorities().stream().anyMatch(a -> "ROLE_ADMIN".equals(a.getAuthority()));
+    }
+
+    private List<Status> parseStatuses(List<String> status) {
+        if (status == null || status.isEmpty()) return null;
+        List<Status> statuses = new ArrayList<>();
+        for (String s : status) {
+            try {
+                statuses.add(Status.valueOf(s.toUpperCase()));
+            } catch (IllegalArgumentException e) {
+                throw new BadRequestException("Invalid status value: " + s);
+            }
+        }
+        return statuses;
+    }
+
+    private List<NotificationFrequency> parseFrequencies(List<String> notificationFrequency) {
+        if (notificationFrequency == null || notificationFrequency.isEmpty()) return null;
+        List<NotificationFrequency> frequencies = new ArrayList<>();
+        for (String nf : notificationFrequency) {
+            try {
+                frequencies.add(NotificationFrequency.valueOf(nf.toUpperCase()));
+            } catch (IllegalArgumentException e) {
+                throw new BadRequestException("Invalid notificationFrequency value: " + nf);
+            }
+        }
+        return frequencies;
+    }
+
     @PostMapping
     @PreAuthorize("hasRole('USER')")
     public ResponseEntity<ProductResponse> create(@Valid @RequestBody ProductRequest request) {
@@ -107,13 +164,19 @@ public class ProductController {
 
     @GetMapping("/user/{userId}")
     @PreAuthorize("hasRole('ADMIN') or @securityService.isUserMatching(#userId)")
-    public ResponseEntity<Page<ProductResponse>> getByUser(@PathVariable String userId,
-                                                           @RequestParam(required = false, defaultValue = "0") int pageNumber,
-                                                           @RequestParam(required = false, defaultValue = "10") int pageSize,
-                                                           @RequestParam(required = false, defaultValue = "name") String sortBy,
-                                                           @RequestParam(required = false, defaultValue = "asc") String sortDirection,
-                                                           @RequestParam(required = false) List<String> status,
-                                                           @RequestParam(required = false) List<String> notificationFrequency) {
+    public ResponseEntity<Slice<?>> getByUser(@PathVariable String userId,
+                                                            @RequestParam(required = false, defaultValue = "0") int pageNumber,
+                                                            @RequestParam(required = false, defaultValue = "10") int pageSize,
+                                                            @RequestParam(required = false, defaultValue = "name") String sortBy,
+                                                            @RequestParam(required = false, defaultValue = "asc") String sortDirection,
+                                                            @RequestParam(required = false) List<String> status,
+                                                            @RequestParam(required = false) List<String> notificationFrequency,
+                                                            // withTotal=false skips the count query and returns a Slice (no totalElements/totalPages)
+                                                            @RequestParam(required = false, defaultValue = "true") boolean withTotal,
+                                                            // Sparse fieldset, e.g. fields=name,expirationDate,status (id is always returned)
+                                                            @RequestParam(required = false) List<String> fields,
+                                                            // Also list products moved to the archive (long finished/expired)
+                                                            @RequestParam(required = false, defaultValue = "false") boolean includeArchived) {
         if (pageNumber < 0) throw new BadRequestException("pageNumber must be >= 0");
         if (pageSize <= 0) throw new BadRequestException("pageSize must be > 0");
 
@@ -121,64 +184,39 @@ public class ProductController {
             throw new BadRequestException("Invalid sortBy field: " + sortBy + ". Allowed: " + ALLOWED_SORT_FIELDS);
         }
 
-        List<Status> statuses = null;
-        if (status != null && !status.isEmpty()) {
-            statuses = new ArrayList<>();
-            for (String s : status) {
-                try {
-                    statuses.add(Status.valueOf(s.toUpperCase()));
-                } catch (IllegalArgumentException e) {
-                    throw new BadRequestException("Invalid status value: " + s);
-                }
-            }
-        }
+        List<Status> statuses = parseStatuses(status);
+        List<NotificationFrequency> frequencies = parseFrequencies(notificationFrequency);
+        Set<String> selected = ProductFields.parse(fields);
 
-        List<NotificationFrequency> frequencies = null;
-        if (notificationFrequency != null && !notificationFrequency.isEmpty()) {
-            frequencies = new ArrayList<>();
-            for (String nf : notificationFrequency) {
-                try {
-                    frequencies.add(NotificationFrequency.valueOf(nf.toUpperCase()));
-                } catch (IllegalArgumentException e) {
-                    throw new BadRequestException("Invalid notificationFrequency value: " + nf);
-                }
-            }
-        }
-
-        // Handle computed sort key without persisting it on the entity
-        if ("percentageLeft".equals(sortBy)) {
-            // Fetch all matching products (bounded only by integer max page size)
-            PageRequest fetchAll = PageRequest.of(0, Integer.MAX_VALUE);
-            Page<ProductResponse> allProducts = productService.getByUser(fetchAll, userId, statuses, frequencies);
-
-            // Sort by (bought - consumed)/bought * 100
-            List<ProductResponse> allSorted = new ArrayList<>(allProducts.getContent());
-            allSorted.sort(Comparator.comparingDouble(p -> {
-                double bought = p.quantityBought() == null ? 0.0 : p.quantityBought();
-                double consumed = p.quantityConsumed() == null ? 0.0 : p.quantityConsumed();
-                if (bought == 0.0) return 0.0;
-                return ((bought - consumed) / bought) * 100.0;
-            }));
-
-            if ("desc".equalsIgnoreCase(sortDirection)) {
-                Collections.reverse(allSorted);
-            }
+        Sort sort = sortDirection.equalsIgnoreCase("asc") ? Sort.by(sortBy).ascending() : Sort.by(sortBy).descending();
+        PageRequest pageable = PageRequest.of(pageNumber, pageSize, sort);
+        Slice<ProductResponse> result = withTotal
+                ? productService.getByUser(pageable, userId, statuses, frequencies, selected, includeArchived)
+                : productService.getSliceByUser(pageable, userId, statuses, frequencies, selected, includeArchived);
+        return ResponseEntity.ok(narrow(result, selected));
+    }
 
-            // Materialize the requested page from the sorted list
-            int start = pageNumber * pageSize;
-            int end = Math.min(start + pageSize, allSorted.size());
-            List<ProductResponse> pageContent = start < allSorted.size()
-                    ? allSorted.subList(start, end)
-                    : Collections.emptyList();
+    // Cursor-based listing: pass back nextCursor from the previous response to get the following page.
+    // Unlike pageNumber paging, each page costs the same regardless of depth and is stable under concurrent changes.
+    @GetMapping("/user/{userId}/cursor")
+    @PreAuthorize("hasRole('ADMIN') or @securityService.isUserMatching(#userId)")
+    public ResponseEntity<CursorPage<ProductResponse>> getByUserCursor(@PathVariable String userId,
+                                                                       @RequestParam(required = false) String cursor,
+                                                                       @RequestParam(required = false, defaultValue = "10") int pageSize,
+                                                                       @RequestParam(required = false, defaultValue = "name") String sortBy,
+                                                                       @RequestParam(required = false, defaultValue = "asc") String sortDirection,
+                                                                       @RequestParam(required = false) List<String> status,
+                                                                       @RequestParam(required = false) List<String> notificationFrequency) {
+        if (pageSize <= 0) throw new BadRequestException("pageSize must be > 0");
 
-            PageRequest pageable = PageRequest.of(pageNumber, pageSize);
-            Page<ProductResponse> result = new PageImpl<>(pageContent, pageable, allSorted.size());
-            return ResponseEntity.ok(result);
+        if (!ALLOWED_SORT_FIELDS.contains(sortBy)) {
+            throw new BadRequestException("Invalid sortBy field: " + sortBy + ". Allowed: " + ALLOWED_SORT_FIELDS);
         }
 
-        Sort sort = sortDirection.equalsIgnoreCase("asc") ? Sort.by(sortBy).ascending() : Sort.by(sortBy).descending();
-        PageRequest pageable = PageRequest.of(pageNumber, pageSize, sort);
-        return ResponseEntity.ok(productService.getByUser(pageable, userId, statuses, frequencies));
+        Sort.Direction direction = sortDirection.equalsIgnoreCase("asc") ? Sort.Direction.ASC : Sort.Direction.DESC;
+        CursorPage<ProductResponse> page = productService.getByUserCursor(userId, parseStatuses(status), parseFrequencies(notificationFrequency),
+                sortBy, direction, cursor, pageSize);
+        return ResponseEntity.ok(page);
     }
 
     @PutMapping("/{id}")
@@ -200,41 +238,41 @@ public class ProductController {
     }
 
     @PatchMapping("/{id}/quantity-consumed")
-    @PreAuthorize("hasRole('ADMIN') or @securityService.isProductOwner(#id)")
+    @PreAuthorize("hasRole('ADMIN') or @securityService.ownsProduct(#id)")
     public ResponseEntity<ProductResponse> updateQuantityConsumed(@PathVariable String id,
                                                                   @Valid @RequestBody QuantityConsumedUpdateRequest request) {
         return ResponseEntity.ok(productService.updateQuantityConsumed(id, request));
     }
 
     @PatchMapping("/{id}/notification-frequency")
-    @PreAuthorize("hasRole('ADMIN') or @securityService.isProductOwner(#id)")
+    @PreAuthorize("hasRole('ADMIN') or @securityService.ownsProduct(#id)")
     public ResponseEntity<ProductResponse> updateNotificationFrequency(@PathVariable String id,
                                                                        @Valid @RequestBody com.verf.ProdExp.dto.NotificationFrequencyUpdateRequest request) {
         return ResponseEntity.ok(productService.updateNotificationFrequency(id, request.notificationFrequency()));
     }
 
     @DeleteMapping("/{id}/notification-frequency-override")
-    @PreAuthorize("hasRole('ADMIN') or @securityService.isProductOwner(#id)")
+    @PreAuthorize("hasRole('ADMIN') or @securityService.ownsProduct(#id)")
     public ResponseEntity<ProductResponse> clearNotificationFrequencyOverride(@PathVariable String id) {
         return ResponseEntity.ok(productService.clearNotificationFrequencyOverride(id));
     }
 
     @PutMapping("/{id}/tags")
-    @PreAuthorize("hasRole('ADMIN') or @securityService.isProductOwner(#id)")
+    @PreAuthorize("hasRole('ADMIN') or @securityService.ownsProduct(#id)")
     public ResponseEntity<ProductResponse> replaceTags(@PathVariable String id,
                                                        @Valid @RequestBody com.verf.ProdExp.dto.TagsUpdateRequest request) {
         return ResponseEntity.ok(productService.replaceTags(id, request.tags()));
     }
 
     @PostMapping("/{id}/tags")
-    @PreAuthorize("hasRole('ADMIN') or @securityService.isProductOwner(#id)")
+    @PreAuthorize("hasRole('ADMIN') or @securityService.ownsProduct(#id)")
     public ResponseEntity<ProductResponse> addTags(@PathVariable String id,
                                                    @Valid @RequestBody com.verf.ProdExp.dto.TagsUpdateRequest request) {
         return ResponseEntity.ok(productService.addTags(id, request.tags()));
     }
 
     @DeleteMapping("/{id}/tags")
-    @PreAuthorize("hasRole('ADMIN') or @securityService.isProductOwner(#id)")
+    @PreAuthorize("hasRole('ADMIN') or @securityService.ownsProduct(#id)")
     public ResponseEntity<ProductResponse> removeTags(@PathVariable String id,
                                                       @Valid @RequestBody com.verf.ProdExp.dto.TagsUpdateRequest request) {
         return ResponseEntity.ok(productService.removeTags(id, request.tags()));
@@ -247,9 +285,72 @@ public class ProductController {
         return ResponseEntity.noContent().build();
     }
 
+    // Many consume/tag/frequency/delete operations in one request: one ownership query and one bulk write instead of
+    // a check, a read and a write per product. Always 200; each operation carries its own status in the results.
+    @PostMapping("/bulk")
+    @PreAuthorize("hasRole('USER') or hasRole('ADMIN')")
+    public ResponseEntity<BulkProductResponse> bulk(@Valid @RequestBody BulkProductRequest request) {
+        // Users can only touch their own products; admins any
+        String ownerId = isAdmin() ? null : getAuthenticatedUserId();
+        return ResponseEntity.ok(productBulkService.apply(request.operations(), ownerId));
+    }
+
+    // Imports products for the caller from an NDJSON (one ProductRequest per line) or CSV body (header row with
+    // name, quantityBought, quantityConsumed, unit, purchaseDate, expirationDate, tags separated by ';').
+    // Streams back one NDJSON line per row ({row, status, id, error}) as batches are inserted, then {"summary": ...}.
+    @PostMapping(value = "/import", consumes = {"application/x-ndjson", "text/csv"}, produces = "application/x-ndjson")
+    @PreAuthorize("hasRole('USER')")
+    public ResponseEntity<StreamingResponseBody> importProducts(@RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType,
+                                                                HttpServletRequest request) throws IOException {
+        String userId = getAuthenticatedUserId();
+        ProductImportService.Format format = MediaType.parseMediaType(contentType).isCompatibleWith(MediaType.parseMediaType("text/csv"))
+                ? ProductImportService.Format.CSV
+                : ProductImportService.Format.NDJSON;
+        InputStream body = request.getInputStream();
+        StreamingResponseBody report = out -> productImportService.importProducts(userId, body, format, out);
+        return ResponseEntity.ok().contentType(MediaType.parseMediaType("application/x-ndjson")).body(report);
+    }
+
+    // Backup of one user's products as NDJSON (one ProductResponse per line), streamed from a Mongo cursor.
+    // gzip=true sends a .ndjson.gz file instead.
+    @GetMapping("/user/{userId}/export")
+    @PreAuthorize("hasRole('ADMIN') or @securityService.isUserMatching(#userId)")
+    public ResponseEntity<StreamingResponseBody> exportByUser(@PathVariable String userId,
+                                                              @RequestParam(required = false, defaultValue = "false") boolean includeArchived,
+                                                              @RequestParam(required = false, defaultValue = "false") boolean gzip) {
+        return export(userId, includeArchived, gzip, "products-" + userId);
+    }
+
+    // Every product of every user; replaces loading the whole collection through getAll()
+    @GetMapping("/export")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<StreamingResponseBody> exportAll(@RequestParam(required = false, defaultValue = "false") boolean includeArchived,
+                                                           @RequestParam(required = false, defaultValue = "false") boolean gzip) {
+        return export(null, includeArchived, gzip, "products");
+    }
+
+    private ResponseEntity<StreamingResponseBody> export(@Nullable String userId, boolean includeArchived, boolean gzip, String baseName) {
+        StreamingResponseBody body = out -> productExportService.exportNdjson(userId, includeArchived, gzip, out);
+        String filename = baseName + (gzip ? ".ndjson.gz" : ".ndjson");
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(gzip ? "application/gzip" : "application/x-ndjson"))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"")
+                .body(body);
+    }
+
     @PostMapping("/user/{userId}/recompute-statuses")
     @PreAuthorize("hasRole('ADMIN') or @securityService.isUserMatching(#userId)")
-    public ResponseEntity<Map<String, Object>> recomputeStatusesForUser(@PathVariable String userId) {
+    public ResponseEntity<Map<String, Object>> recomputeStatusesForUser(@PathVariable String userId,
+                                                                        // async=true queues a resumable background job and returns its id immediately
+                                                                        @RequestParam(required = false, defaultValue = "false") boolean async) {
+        if (async) {
+            MaintenanceJobResponse job = productService.submitRecomputeStatusesJob(userId, getAuthenticatedUserId());
+            Map<String, Object> resp = new HashMap<>();
+            resp.put("jobId", job.id());
+            resp.put("status", job.status());
+            resp.put("userId", userId);
+            return ResponseEntity.accepted().location(URI.create("/api/admin/jobs/" + job.id())).body(resp);
+        }
         int updated = productService.recomputeStatusesForUser(userId);
         Map<String, Object> resp = new HashMap<>();
         resp.put("updatedCount", updated);
@@ -259,12 +360,15 @@ public class ProductController {
 
     @GetMapping("/user/{userId}/search")
     @PreAuthorize("hasRole('ADMIN') or @securityService.isUserMatching(#userId)")
-    public ResponseEntity<Page<ProductResponse>> searchByUser(@PathVariable String userId,
+    public ResponseEntity<Slice<?>> searchByUser(@PathVariable String userId,
                                                                                              @RequestParam(required = false, defaultValue = "") String q,
                                                                                              @RequestParam(required = false, defaultValue = "0") int pageNumber,
                                                                                              @RequestParam(required = false, defaultValue = "10") int pageSize,
                                                                                              @RequestParam(required = false, defaultValue = "name") String sortBy,
-                                                                                             @RequestParam(required = false, defaultValue = "asc") String sortDirection) {
+                                                                                             @RequestParam(required = false, defaultValue = "asc") String sortDirection,
+                                                                                             @RequestParam(required = false, defaultValue = "true") boolean withTotal,
+                                                                                             @RequestParam(required = false) List<String> fields,
+                                                                                             @RequestParam(required = false, defaultValue = "false") boolean includeArchived) {
         if (pageNumber < 0) throw new BadRequestException("pageNumber must be >= 0");
         if (pageSize <= 0) throw new BadRequestException("pageSize must be > 0");
 
@@ -275,7 +379,45 @@ public class ProductController {
         Sort sort = sortDirection.equalsIgnoreCase("asc") ? Sort.by(sortBy).ascending() : Sort.by(sortBy).descending();
         org.springframework.data.domain.PageRequest pageable = org.springframework.data.domain.PageRequest.of(pageNumber, pageSize, sort);
 
-        return ResponseEntity.ok(productService.searchByUser(pageable, userId, q == null ? "" : q));
+        Set<String> selected = ProductFields.parse(fields);
+        Slice<ProductResponse> result = withTotal
+                ? productService.searchByUser(pageable, userId, q == null ? "" : q, selected, includeArchived)
+                : productService.searchSliceByUser(pageable, userId, q == null ? "" : q, selected, includeArchived);
+        return ResponseEntity.ok(narrow(result, selected));
+    }
+
+    // Typo-tolerant search ranked by relevance ("stawberry" finds "Strawberry jam"); returns at most limit hits with scores.
+    @GetMapping("/user/{userId}/search/fuzzy")
+    @PreAuthorize("hasRole('ADMIN') or @securityService.isUserMatching(#userId)")
+    public ResponseEntity<List<ProductSearchHit>> fuzzySearchByUser(@PathVariable String userId,
+                                                                    @RequestParam(required = false, defaultValue = "") String q,
+                                                                    @RequestParam(required = false, defaultValue = "20") int limit) {
+        if (limit <= 0) throw new BadRequestException("limit must be > 0");
+        return ResponseEntity.ok(productFuzzySearchService.search(userId, q, limit));
+    }
+
+    // Net consumption per week (per unit) from the pre-aggregated rollups, oldest first, current week last.
+    @GetMapping("/user/{userId}/consumption/weekly")
+    @PreAuthorize("hasRole('ADMIN') or @securityService.isUserMatching(#userId)")
+    public ResponseEntity<List<ConsumptionWeekResponse>> weeklyConsumption(@PathVariable String userId,
+                                                                           @RequestParam(required = false, defaultValue = "12") int weeks) {
+        return ResponseEntity.ok(consumptionService.weeklyByUser(userId, weeks));
+    }
+
+    // Type-ahead suggestions (names and tags) served from memory; meant to be called on every keystroke instead of /search.
+    @GetMapping("/user/{userId}/autocomplete")
+    @PreAuthorize("hasRole('ADMIN') or @securityService.isUserMatching(#userId)")
+    public ResponseEntity<List<AutocompleteSuggestion>> autocomplete(@PathVariable String userId,
+                                                                     @RequestParam(required = false, defaultValue = "") String q,
+                                                                     @RequestParam(required = false, defaultValue = "10") int limit) {
+        if (limit <= 0) throw new BadRequestException("limit must be > 0");
+        return ResponseEntity.ok(productAutocompleteService.suggest(userId, q, limit));
+    }
+
+    // Applies a sparse fieldset to the JSON output; Page stays a Page so totals are preserved.
+    private Slice<?> narrow(Slice<ProductResponse> result, @Nullable Set<String> fields) {
+        if (fields == null) return result;
+        return result.map(r -> ProductFields.select(r, fields));
     }
 
     @GetMapping("/ai-recommend")
@@ -5,11 +5,17 @@ import com.verf.ProdExp.service.UserService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 
 import jakarta.validation.Valid;
 
+import java.net.URI;
+import java.util.HashMap;
+import java.util.Map;
+
 @RestController
 @RequestMapping("/api/users")
 @RequiredArgsConstructor
@@ -32,9 +38,18 @@ public class UserController {
 
     @DeleteMapping("/{id}")
     @PreAuthorize("hasRole('ADMIN') or @securityService.isUserMatching(#id)")
-    public ResponseEntity<Void> delete(@PathVariable String id) {
-        userService.delete(id);
-        return ResponseEntity.noContent().build();
+    public ResponseEntity<Map<String, Object>> delete(@PathVariable String id) {
+        // The account is disabled right away; products and the rest are removed by a background job
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        MaintenanceJobResponse job = userService.delete(id, auth == null ? null : auth.getName());
+        Map<String, Object> resp = new HashMap<>();
+        resp.put("jobId", job.id());
+        resp.put("status", job.status());
+        resp.put("userId", id);
+        // Only admins can follow the job; the user's own token stops working as soon as the account is disabled
+        boolean isAdmin = auth != null && auth.getAuthorities().stream().anyMatch(a -> "ROLE_ADMIN".equals(a.getAuthority()));
+        if (!isAdmin) return ResponseEntity.accepted().body(resp);
+        return ResponseEntity.accepted().location(URI.create("/api/admin/jobs/" + job.id())).body(resp);
     }
 
     @PatchMapping("/{id}/email")
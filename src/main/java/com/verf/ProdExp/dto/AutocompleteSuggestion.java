@@ -0,0 +1,10 @@
+package com.verf.ProdExp.dto;
+
+public record AutocompleteSuggestion(
+        String text,
+        // NAME or TAG
+        String type,
+        // Number of the user's products behind this suggestion
+        int count
+) {
+}
@@ -0,0 +1,21 @@
+package com.verf.ProdExp.dto;
+
+import com.verf.ProdExp.entity.NotificationFrequency;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+
+import java.util.List;
+
+// One entry of POST /api/products/bulk. Only the field the operation needs is read:
+// quantityConsumed for CONSUME, tags for the tag operations, notificationFrequency for SET_FREQUENCY.
+public record BulkProductOperation(
+        @NotBlank String id,
+        @NotNull Op op,
+        Double quantityConsumed,
+        List<String> tags,
+        NotificationFrequency notificationFrequency
+) {
+    public enum Op {
+        CONSUME, ADD_TAGS, REMOVE_TAGS, REPLACE_TAGS, SET_FREQUENCY, CLEAR_FREQUENCY_OVERRIDE, DELETE
+    }
+}
@@ -0,0 +1,14 @@
+package com.verf.ProdExp.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+
+public record BulkProductRequest(
+        // Applied in order per product; operations on different products are independent
+        @NotEmpty @Size(max = 500) List<@NotNull @Valid BulkProductOperation> operations
+) {
+}
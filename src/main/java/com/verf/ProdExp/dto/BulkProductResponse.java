@@ -0,0 +1,11 @@
+package com.verf.ProdExp.dto;
+
+import java.util.List;
+
+public record BulkProductResponse(
+        int succeeded,
+        int failed,
+        // One entry per operation, in request order
+        List<BulkProductResult> results
+) {
+}
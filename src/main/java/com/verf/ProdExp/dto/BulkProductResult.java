@@ -0,0 +1,16 @@
+package com.verf.ProdExp.dto;
+
+import org.jspecify.annotations.Nullable;
+
+public record BulkProductResult(
+        // Position of the operation in the request
+        int index,
+        String id,
+        BulkProductOperation.Op op,
+        // HTTP-style outcome: 200, 204 (deleted), 400, 404, 409 (changed concurrently; retry) or 500
+        int status,
+        @Nullable String error,
+        // The product after every operation on it in this request; null for deletes and failures
+        @Nullable ProductResponse product
+) {
+}
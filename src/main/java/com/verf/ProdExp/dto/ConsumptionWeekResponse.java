@@ -0,0 +1,13 @@
+package com.verf.ProdExp.dto;
+
+import java.time.LocalDate;
+import java.util.Map;
+
+public record ConsumptionWeekResponse(
+        // Monday of the week
+        LocalDate weekStart,
+        // Net quantity consumed per unit (Unit name -> amount)
+        Map<String, Double> consumedByUnit,
+        int events
+) {
+}
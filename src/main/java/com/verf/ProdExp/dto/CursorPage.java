@@ -0,0 +1,12 @@
+package com.verf.ProdExp.dto;
+
+import java.util.List;
+
+public record CursorPage<T>(
+        List<T> content,
+        int size,
+        boolean hasNext,
+        // Opaque token for the next page; null when there are no more results
+        String nextCursor
+) {
+}
@@ -0,0 +1,11 @@
+package com.verf.ProdExp.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import java.util.Map;
+
+public record MaintenanceJobRequest(
+        // Handler type, e.g. "recompute-statuses"
+        @NotBlank String type,
+        Map<String, String> params
+) {
+}
@@ -0,0 +1,26 @@
+package com.verf.ProdExp.dto;
+
+import com.verf.ProdExp.entity.MaintenanceJobStatus;
+
+import java.time.Instant;
+import java.util.Map;
+
+public record MaintenanceJobResponse(
+        String id,
+        String type,
+        Map<String, String> params,
+        MaintenanceJobStatus status,
+        // Last _id processed; a retried or resumed job continues after it
+        String cursor,
+        long processed,
+        long updated,
+        int attempts,
+        boolean cancelRequested,
+        String lastError,
+        String requestedBy,
+        Instant createdAt,
+        Instant startedAt,
+        Instant updatedAt,
+        Instant finishedAt
+) {
+}
@@ -0,0 +1,13 @@
+package com.verf.ProdExp.dto;
+
+import org.jspecify.annotations.Nullable;
+
+public record ProductImportRowResult(
+        // NDJSON: line number; CSV: line the record starts on
+        long row,
+        // 201 inserted, 400 invalid row, 500 insert failed
+        int status,
+        @Nullable String id,
+        @Nullable String error
+) {
+}
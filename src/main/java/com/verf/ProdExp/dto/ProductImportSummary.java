@@ -0,0 +1,10 @@
+package com.verf.ProdExp.dto;
+
+public record ProductImportSummary(
+        long rows,
+        long imported,
+        long failed,
+        // True when the input had more rows than app.products.bulkImport.maxRows; the rest was not read
+        boolean truncated
+) {
+}
@@ -24,6 +24,8 @@ public record ProductResponse(
         NotificationFrequencySource notificationFrequencySource,
         Instant lastNotificationSentAt,
         Instant nextNotificationAt,
-        List<String> tags
+        List<String> tags,
+        // Set when the product was moved to the archive (only returned with includeArchived=true)
+        Instant archivedAt
 ) {
 }
@@ -0,0 +1,8 @@
+package com.verf.ProdExp.dto;
+
+public record ProductSearchHit(
+        ProductResponse product,
+        // Relevance in [0, 1]: mostly term coverage, with expiry urgency as a tie-breaker
+        double score
+) {
+}
@@ -0,0 +1,50 @@
+package com.verf.ProdExp.entity;
+
+import lombok.*;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+import java.time.LocalDate;
+
+// Append-only consumption log, bucketed to one document per product per day and grown with $inc upserts.
+// consumed is the net change in quantityConsumed that day (corrections downwards are negative).
+@Document("consumption_daily")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@CompoundIndexes({
+        @CompoundIndex(
+                name = "product_day_idx",
+                def = "{'productId': 1, 'day': 1}",
+                unique = true
+        ),
+        // Per-user history views and cleanup on user deletion
+        @CompoundIndex(
+                name = "user_day_idx",
+                def = "{'userId': 1, 'day': 1}"
+        )
+})
+public class ConsumptionDaily {
+
+    @Id
+    private String id;
+
+    private String productId;
+
+    private String userId;
+
+    private LocalDate day;
+
+    private Unit unit;
+
+    private double consumed;
+
+    // Number of quantity-consumed changes recorded in the bucket
+    private int events;
+
+    private Instant lastEventAt;
+}
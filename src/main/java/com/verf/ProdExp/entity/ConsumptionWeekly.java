@@ -0,0 +1,39 @@
+package com.verf.ProdExp.entity;
+
+import lombok.*;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDate;
+import java.util.Map;
+
+// Per-user weekly rollup of consumption_daily, maintained incrementally with the same $inc as the daily bucket.
+@Document("consumption_weekly")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@CompoundIndexes({
+        @CompoundIndex(
+                name = "user_week_idx",
+                def = "{'userId': 1, 'weekStart': 1}",
+                unique = true
+        )
+})
+public class ConsumptionWeekly {
+
+    @Id
+    private String id;
+
+    private String userId;
+
+    // Monday of the ISO week
+    private LocalDate weekStart;
+
+    // Quantities in different units cannot be added up, so totals are kept per Unit name
+    private Map<String, Double> consumedByUnit;
+
+    private int events;
+}
@@ -0,0 +1,69 @@
+package com.verf.ProdExp.entity;
+
+import lombok.*;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+import java.util.Map;
+
+// A resumable bulk maintenance run. Work is done in _id order; cursor is the last _id fully processed, so a job
+// picked up again after a crash or retry continues from its checkpoint instead of starting over.
+@Document("maintenance_jobs")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@CompoundIndexes({
+        // Supports claiming pending jobs and jobs whose worker lease has expired
+        @CompoundIndex(
+                name = "status_lease_idx",
+                def = "{'status': 1, 'leaseUntil': 1}"
+        )
+})
+public class MaintenanceJob {
+
+    @Id
+    private String id;
+
+    // MaintenanceJobHandler.type() that executes this job
+    private String type;
+
+    // Handler-specific arguments, e.g. userId to scope a run to one user
+    private Map<String, String> params;
+
+    // Set for jobs that must not run twice for the same target, e.g. "delete-user:<userId>" (see
+    // MaintenanceJobHandler.dedupeKey). activeKey carries the same value only while the job is PENDING or RUNNING;
+    // its unique index is what rejects a second active job.
+    private String dedupeKey;
+    @Indexed(unique = true, sparse = true)
+    private String activeKey;
+
+    private MaintenanceJobStatus status;
+
+    // Last _id processed; null until the first batch is checkpointed
+    private String cursor;
+
+    private long processed;
+    private long updated;
+
+    // Times the job has been claimed by a worker, including resumes after an expired lease
+    private int attempts;
+
+    private boolean cancelRequested;
+
+    // Instance currently running the job and how long its claim is valid without a checkpoint
+    private String leaseOwner;
+    private Instant leaseUntil;
+
+    private String lastError;
+    private String requestedBy;
+
+    private Instant createdAt;
+    private Instant startedAt;
+    private Instant updatedAt;
+    private Instant finishedAt;
+}
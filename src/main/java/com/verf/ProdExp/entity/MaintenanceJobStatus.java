@@ -0,0 +1,9 @@
+package com.verf.ProdExp.entity;
+
+public enum MaintenanceJobStatus {
+    PENDING,
+    RUNNING,
+    COMPLETED,
+    FAILED,
+    CANCELLED
+}
@@ -17,21 +17,30 @@ import java.util.List;
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
-@Builder
+@Builder(toBuilder = true)
 @CompoundIndexes({
-        // Supports (userId, nameTokens) queries for prefix/tag searches
-        @CompoundIndex(
-                name = "user_name_tokens_idx",
-                def = "{'userId': 1, 'nameTokens': 1}"
-        ),
         // Supports scheduler scans over active products by status/next run/user.
         @CompoundIndex(
                 name = "status_next_notification_user_idx",
                 def = "{'status': 1, 'nextNotificationAt': 1, 'userId': 1}"
+        ),
+        // Supports sortBy=percentageLeft listings per user.
+        @CompoundIndex(
+                name = "user_percentage_left_idx",
+                def = "{'userId': 1, 'percentageLeft': 1}"
+        ),
+        // Lets ownership checks be answered from the index alone (see ProductRepositoryImpl.findOwnerId).
+        @CompoundIndex(
+                name = Product.OWNER_INDEX,
+                def = "{'_id': 1, 'userId': 1}"
         )
 })
 public class Product {
 
+    // Cold tier for products that have been FINISHED or EXPIRED for a while; same document shape plus archivedAt.
+    public static final String ARCHIVE_COLLECTION = "products_archive";
+    public static final String OWNER_INDEX = "id_user_idx";
+
     @Id
     private String id;
     @NonNull
@@ -40,8 +49,6 @@ public class Product {
     private String name;
     // Normalized copy of name for case-insensitive search
     private String nameLower;
-    // Search tokens derived from name/tags (prefix-friendly)
-    private List<String> nameTokens;
     @NonNull
     private Double quantityBought;
     @NonNull
@@ -56,6 +63,9 @@ public class Product {
 
     private Status status;
 
+    // Derived (quantityBought - quantityConsumed) / quantityBought * 100, persisted so it can be sorted on in Mongo.
+    private Double percentageLeft;
+
     // Controls reminder cadence for this product
     private NotificationFrequency notificationFrequency;
     // Manual reminder cadence override; when non-null it takes precedence over auto-calculated frequency.
@@ -72,4 +82,7 @@ public class Product {
     private Instant createdAt;
     @LastModifiedDate
     private Instant updatedAt;
+
+    // Only set on documents in ARCHIVE_COLLECTION
+    private Instant archivedAt;
 }
@@ -0,0 +1,40 @@
+package com.verf.ProdExp.entity;
+
+import lombok.*;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+// One search posting per (userId, term, productId). Terms are whole lowercase words from the product name and tags;
+// prefix search is a range scan over (userId, term). Postings of archived products are kept so includeArchived
+// searches find them; postings only go when their product is deleted (hot or archived) or re-indexed.
+@Document("product_search_terms")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@CompoundIndexes({
+        @CompoundIndex(
+                name = "user_term_product_idx",
+                def = "{'userId': 1, 'term': 1, 'productId': 1}",
+                unique = true
+        )
+})
+public class ProductSearchTerm {
+
+    @Id
+    private String id;
+
+    private String userId;
+
+    private String term;
+
+    // Supports replacing/removing the postings of a single product
+    @Indexed(name = "product_idx")
+    private String productId;
+
+    // SearchTokenizer.VERSION that produced the term; absent on postings written before versioning (version 1)
+    private Integer tokenizerVersion;
+}
@@ -47,6 +47,15 @@ public class User {
     @Builder.Default
     private boolean emailVerified = false;
 
+    // Bumped when the user is disabled or their roles change; tokens carrying an older value are rejected.
+    // Indexed so the revoked users (authVersion > 0) can be read without a collection scan.
+    @Indexed
+    @Builder.Default
+    private long authVersion = 0;
+
+    // Set when deletion was requested; the account is disabled and a background job removes its data
+    private Instant deletionRequestedAt;
+
     @Builder.Default
     private Set<String> oauthProviders = new java.util.HashSet<>(); // e.g. {"GITHUB"}, {"GOOGLE"}, {"GITHUB","GOOGLE"}
 
@@ -0,0 +1,79 @@
+package com.verf.ProdExp.mapper;
+
+import com.verf.ProdExp.dto.ProductResponse;
+import com.verf.ProdExp.exception.BadRequestException;
+import org.jspecify.annotations.Nullable;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.RecordComponent;
+import java.util.*;
+
+/**
+ * Sparse fieldsets for product list endpoints (?fields=name,expirationDate,status).
+ * The same selection narrows the Mongo projection and the JSON output.
+ */
+public final class ProductFields {
+
+    // Fields that are never read from Mongo unless explicitly needed (search-only data).
+    public static final List<String> SEARCH_ONLY_FIELDS = List.of("nameLower");
+
+    // ProductResponse component name -> accessor, in declaration order
+    private static final Map<String, Method> ACCESSORS = new LinkedHashMap<>();
+
+    static {
+        for (RecordComponent c : ProductResponse.class.getRecordComponents()) {
+            ACCESSORS.put(c.getName(), c.getAccessor());
+        }
+    }
+
+    private ProductFields() {
+    }
+
+    /**
+     * Parses the fields request parameter; null means "all fields". Accepts repeated params and comma-separated values.
+     * id is always included so clients can address the returned rows.
+     */
+    public static @Nullable Set<String> parse(@Nullable List<String> raw) {
+        if (raw == null || raw.isEmpty()) return null;
+
+        Set<String> fields = new LinkedHashSet<>();
+        for (String value : raw) {
+            if (value == null) continue;
+            for (String part : value.split(",")) {
+                String f = part.trim();
+                if (f.isEmpty()) continue;
+                if (!ACCESSORS.containsKey(f)) {
+                    throw new BadRequestException("Invalid field: " + f + ". Allowed: " + ACCESSORS.keySet());
+                }
+                fields.add(f);
+            }
+        }
+        if (fields.isEmpty()) return null;
+        fields.add("id");
+        return fields;
+    }
+
+    // Document fields to load for the selected response fields.
+    public static List<String> documentFields(Set<String> fields) {
+        List<String> out = new ArrayList<>(fields.size());
+        for (String f : fields) {
+            // notificationFrequencySource is derived from whether an override is set
+            out.add("notificationFrequencySource".equals(f) ? "notificationFrequencyOverride" : f);
+        }
+        return out;
+    }
+
+    // Narrows a response to the selected fields, keeping ProductResponse's field order.
+    public static Map<String, Object> select(ProductResponse response, Set<String> fields) {
+        Map<String, Object> out = new LinkedHashMap<>();
+        for (Map.Entry<String, Method> e : ACCESSORS.entrySet()) {
+            if (!fields.contains(e.getKey())) continue;
+            try {
+                out.put(e.getKey(), e.getValue().invoke(response));
+            } catch (ReflectiveOperationException ex) {
+                throw new IllegalStateException("Cannot read ProductResponse." + e.getKey(), ex);
+            }
+        }
+        return out;
+    }
+}
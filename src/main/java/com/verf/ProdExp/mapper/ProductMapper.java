@@ -6,6 +6,7 @@ import com.verf.ProdExp.entity.NotificationFrequencySource;
 import com.verf.ProdExp.entity.Product;
 import com.verf.ProdExp.entity.Status;
 import com.verf.ProdExp.entity.NotificationFrequency;
+import com.verf.ProdExp.util.SearchTokenizer;
 
 import java.time.LocalDate;
 import java.util.ArrayList;
@@ -18,25 +19,12 @@ public class ProductMapper {
 
     public static Product toEntity(ProductRequest req) {
         String nameLower = req.name() == null ? null : req.name().toLowerCase().trim();
-        List<String> tokens = nameLower == null ? null : tokenizeName(nameLower);
 
-        // Merge tag tokens with name tokens (preserve order, avoid duplicates)
-        if (req.tags() != null && !req.tags().isEmpty()) {
-            List<String> tagTokens = tokensFromTags(req.tags());
-            if (tokens == null) tokens = tagTokens;
-            else {
-                Set<String> merged = new LinkedHashSet<>(tokens);
-                merged.addAll(tagTokens);
-                tokens = new ArrayList<>(merged);
-            }
-        }
-
-        return Product.builder()
+        Product product = Product.builder()
                 .id(null)
                 .userId(req.userId())
                 .name(req.name())
                 .nameLower(nameLower)
-                .nameTokens(tokens)
                 .quantityBought(req.quantityBought())
                 .quantityConsumed(req.quantityConsumed())
                 .unit(req.unit())
@@ -50,6 +38,8 @@ public class ProductMapper {
                 .createdAt(null)
                 .updatedAt(null)
                 .build();
+        product.setPercentageLeft(computePercentageLeft(product));
+        return product;
     }
 
     public static ProductResponse toResponse(Product p) {
@@ -70,7 +60,8 @@ public class ProductMapper {
                 p.getNotificationFrequencyOverride() == null ? NotificationFrequencySource.AUTO : NotificationFrequencySource.MANUAL,
                 p.getLastNotificationSentAt(),
                 p.getNextNotificationAt(),
-                p.getTags() == null || p.getTags().isEmpty() ? List.of() : List.copyOf(p.getTags())
+                p.getTags() == null || p.getTags().isEmpty() ? List.of() : List.copyOf(p.getTags()),
+                p.getArchivedAt()
         );
     }
 
@@ -86,69 +77,34 @@ public class ProductMapper {
         return Status.AVAILABLE;
     }
 
-    public static List<String> tokenizeName(String lowername) {
-        if (lowername == null) return List.of();
-
-        String normalized = lowername.toLowerCase().trim();
-
-        String[] words = normalized.split("\\W+");
-        Set<String> tokens = new LinkedHashSet<>();
-
-        for (String word : words) {
-            if (word.length() < 2) continue;
-
-            // Build all prefixes for quick prefix-based search (a, ap, app, ...)
-            for (int i = 1; i <= word.length(); i++) {
-                tokens.add(word.substring(0, i));
-            }
-        }
-        return new ArrayList<>(tokens);
+    // Share of the bought quantity still left, 0-100. Products with nothing bought count as 0.
+    public static double computePercentageLeft(Product p) {
+        double bought = p.getQuantityBought() == null ? 0.0 : p.getQuantityBought();
+        double consumed = p.getQuantityConsumed() == null ? 0.0 : p.getQuantityConsumed();
+        if (bought == 0.0) return 0.0;
+        return ((bought - consumed) / bought) * 100.0;
     }
 
-    // Generate tokens for tags similar to name tokens (prefix-friendly)
-    public static List<String> tokensFromTags(List<String> tags) {
-        if (tags == null || tags.isEmpty()) return List.of();
-        Set<String> tokens = new LinkedHashSet<>();
-        for (String t : tags) {
-            if (t == null) continue;
-            String lower = t.toLowerCase().trim();
-            if (lower.isEmpty()) continue;
-            String[] words = lower.split("\\W+");
-            for (String w : words) {
-                if (w.length() < 2) continue;
-                tokens.add(w.substring(0, w.length()/2));
-                tokens.add(w);
-            }
+    // Whole-word search terms for a product (name + tags), stored one per entry in product_search_terms.
+    // Prefix matching is done with range queries over the sorted terms, so prefixes are not stored.
+    public static Set<String> searchTerms(Product product) {
+        if (product == null) return Set.of();
+        Set<String> terms = new LinkedHashSet<>(tokenizeWords(product.getNameLower()));
+        if (product.getTags() != null) {
+            for (String t : product.getTags()) terms.addAll(tokenizeWords(t));
         }
-        return new ArrayList<>(tokens);
+        return terms;
     }
 
-    // Recompute and persist combined tokens from nameLower + tags (idempotent)
-    public static void recomputeNameTokens(Product product) {
-        if (product == null) return;
-        Set<String> merged = new LinkedHashSet<>();
-        if (product.getNameLower() != null && !product.getNameLower().isBlank()) {
-            List<String> nameTokens = tokenizeName(product.getNameLower());
-            merged.addAll(nameTokens);
-        }
-        if (product.getTags() != null && !product.getTags().isEmpty()) {
-            List<String> tagTokens = tokensFromTags(product.getTags());
-            merged.addAll(tagTokens);
-        }
-        product.setNameTokens(merged.isEmpty() ? null : new ArrayList<>(merged));
+    // Distinct search words (2+ chars) as produced by SearchTokenizer; used for both indexing and querying.
+    public static List<String> tokenizeWords(String text) {
+        List<String> tokens = SearchTokenizer.tokenize(text, 2);
+        return tokens.size() <= 1 ? tokens : new ArrayList<>(new LinkedHashSet<>(tokens));
     }
 
-    // Centralize name normalization/token updates on the entity
+    // Centralize name normalization on the entity; search terms are indexed after the product is saved
     public static void applyNameFields(Product product, String name) {
         product.setName(name);
-        if (name == null) {
-            product.setNameLower(null);
-            product.setNameTokens(null);
-            return;
-        }
-        String nameLower = name.toLowerCase().trim();
-        product.setNameLower(nameLower);
-        // Include existing tags when recomputing tokens
-        recomputeNameTokens(product);
+        product.setNameLower(name == null ? null : name.toLowerCase().trim());
     }
 }
@@ -0,0 +1,18 @@
+package com.verf.ProdExp.repository;
+
+import com.verf.ProdExp.entity.ConsumptionDaily;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface ConsumptionDailyRepository extends MongoRepository<ConsumptionDaily, String>, ConsumptionDailyRepositoryCustom {
+    List<ConsumptionDaily> findByProductIdAndDayGreaterThanEqual(String productId, LocalDate from);
+    boolean existsByProductId(String productId);
+    void deleteByProductId(String productId);
+    void deleteByProductIdIn(Collection<String> productIds);
+    void deleteByUserId(String userId);
+}
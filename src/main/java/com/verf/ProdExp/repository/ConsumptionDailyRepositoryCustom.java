@@ -0,0 +1,18 @@
+package com.verf.ProdExp.repository;
+
+import com.verf.ProdExp.entity.Unit;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+
+public interface ConsumptionDailyRepositoryCustom {
+    // Adds delta to the product's bucket for day and to the user's weekly rollup; both are $inc upserts.
+    void recordConsumption(String userId, String productId, Unit unit, double delta, LocalDate day, Instant at);
+
+    // Same for many products at once: one unordered bulk of daily upserts and one of weekly upserts.
+    void recordConsumptions(List<Consumption> consumptions, LocalDate day, Instant at);
+
+    record Consumption(String userId, String productId, Unit unit, double delta) {
+    }
+}
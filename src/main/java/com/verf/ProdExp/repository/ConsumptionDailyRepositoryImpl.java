@@ -0,0 +1,82 @@
+package com.verf.ProdExp.repository;
+
+import com.verf.ProdExp.entity.ConsumptionDaily;
+import com.verf.ProdExp.entity.ConsumptionWeekly;
+import com.verf.ProdExp.entity.Unit;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Repository;
+
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.temporal.TemporalAdjusters;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@Repository
+@RequiredArgsConstructor
+public class ConsumptionDailyRepositoryImpl implements ConsumptionDailyRepositoryCustom {
+
+    private final MongoTemplate mongoTemplate;
+
+    @Override
+    public void recordConsumption(String userId, String productId, Unit unit, double delta, LocalDate day, Instant at) {
+        recordConsumptions(List.of(new Consumption(userId, productId, unit, delta)), day, at);
+    }
+
+    @Override
+    public void recordConsumptions(List<Consumption> consumptions, LocalDate day, Instant at) {
+        if (consumptions.isEmpty()) return;
+
+        BulkOperations daily = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, ConsumptionDaily.class);
+        for (Consumption c : consumptions) daily.upsert(dailyBucket(c, day), dailyUpdate(c, at));
+        daily.execute();
+
+        BulkOperations weekly = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, ConsumptionWeekly.class);
+        LocalDate weekStart = weekStart(day);
+        for (Map.Entry<String, Update> e : weeklyUpdates(consumptions).entrySet()) {
+            weekly.upsert(new Query(Criteria.where("userId").is(e.getKey()).and("weekStart").is(weekStart)), e.getValue());
+        }
+        weekly.execute();
+    }
+
+    private static Query dailyBucket(Consumption c, LocalDate day) {
+        return new Query(Criteria.where("productId").is(c.productId()).and("day").is(day));
+    }
+
+    private static Update dailyUpdate(Consumption c, Instant at) {
+        return new Update()
+                .setOnInsert("userId", c.userId())
+                .set("unit", c.unit())
+                .inc("consumed", c.delta())
+                .inc("events", 1)
+                .max("lastEventAt", at);
+    }
+
+    // One $inc per user: several products of the same user would otherwise race for the same weekly upsert
+    static Map<String, Update> weeklyUpdates(List<Consumption> consumptions) {
+        Map<String, Map<Unit, Double>> byUnit = new LinkedHashMap<>();
+        Map<String, Integer> events = new LinkedHashMap<>();
+        for (Consumption c : consumptions) {
+            byUnit.computeIfAbsent(c.userId(), u -> new LinkedHashMap<>()).merge(c.unit(), c.delta(), Double::sum);
+            events.merge(c.userId(), 1, Integer::sum);
+        }
+        Map<String, Update> updates = new LinkedHashMap<>();
+        byUnit.forEach((userId, deltas) -> {
+            Update u = new Update().inc("events", events.get(userId));
+            deltas.forEach((unit, delta) -> u.inc("consumedByUnit." + unit.name(), delta));
+            updates.put(userId, u);
+        });
+        return updates;
+    }
+
+    private static LocalDate weekStart(LocalDate day) {
+        return day.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+    }
+}
@@ -0,0 +1,14 @@
+package com.verf.ProdExp.repository;
+
+import com.verf.ProdExp.entity.ConsumptionWeekly;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface ConsumptionWeeklyRepository extends MongoRepository<ConsumptionWeekly, String> {
+    List<ConsumptionWeekly> findByUserIdAndWeekStartGreaterThanEqualOrderByWeekStartAsc(String userId, LocalDate from);
+    void deleteByUserId(String userId);
+}
@@ -0,0 +1,18 @@
+package com.verf.ProdExp.repository;
+
+import com.verf.ProdExp.entity.MaintenanceJob;
+import com.verf.ProdExp.entity.MaintenanceJobStatus;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.Optional;
+
+@Repository
+public interface MaintenanceJobRepository extends MongoRepository<MaintenanceJob, String>, MaintenanceJobRepositoryCustom {
+    Page<MaintenanceJob> findByStatus(MaintenanceJobStatus status, Pageable pageable);
+    boolean existsByTypeAndStatusIn(String type, Collection<MaintenanceJobStatus> statuses);
+    Optional<MaintenanceJob> findByActiveKey(String activeKey);
+}
@@ -0,0 +1,30 @@
+package com.verf.ProdExp.repository;
+
+import com.verf.ProdExp.entity.MaintenanceJob;
+import com.verf.ProdExp.entity.MaintenanceJobStatus;
+import org.jspecify.annotations.Nullable;
+
+import java.time.Instant;
+
+// State transitions are single findAndModify calls guarded by status and lease owner, so several instances can poll
+// the same collection without running a job twice.
+public interface MaintenanceJobRepositoryCustom {
+    // Atomically takes the oldest pending job, or a running job whose lease expired, for the given owner.
+    @Nullable MaintenanceJob claimNext(String owner, Instant now, Instant leaseUntil);
+
+    // Records a finished batch and extends the lease. Returns the updated job, or null when the lease was lost.
+    @Nullable MaintenanceJob checkpoint(String id, String owner, @Nullable String cursor, long processedDelta, long updatedDelta, Instant leaseUntil);
+
+    // Moves a job held by owner to a terminal status; no-op when the lease was lost.
+    void finish(String id, String owner, MaintenanceJobStatus status, @Nullable String error, Instant now);
+
+    // Hands a running job back to the queue (e.g. on shutdown) so the next poll resumes it without waiting for the lease.
+    void release(String id, String owner, Instant now);
+
+    // Cancels a pending job directly and flags a running one for its worker; returns the job or null if not found.
+    @Nullable MaintenanceJob requestCancel(String id, Instant now);
+
+    // Puts a failed or cancelled job back to pending, keeping its cursor; returns null if the job is not retryable.
+    // Throws DuplicateKeyException when another job with the same dedupeKey is active meanwhile.
+    @Nullable MaintenanceJob resetForRetry(String id, Instant now);
+}
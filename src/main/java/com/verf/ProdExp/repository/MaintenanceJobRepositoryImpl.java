@@ -0,0 +1,125 @@
+package com.verf.ProdExp.repository;
+
+import com.verf.ProdExp.entity.MaintenanceJob;
+import com.verf.ProdExp.entity.MaintenanceJobStatus;
+import lombok.RequiredArgsConstructor;
+import org.jspecify.annotations.Nullable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.AggregationUpdate;
+import org.springframework.data.mongodb.core.aggregation.Fields;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+
+@Repository
+@RequiredArgsConstructor
+public class MaintenanceJobRepositoryImpl implements MaintenanceJobRepositoryCustom {
+
+    private static final FindAndModifyOptions RETURN_NEW = FindAndModifyOptions.options().returnNew(true);
+
+    private final MongoTemplate mongoTemplate;
+
+    @Override
+    public @Nullable MaintenanceJob claimNext(String owner, Instant now, Instant leaseUntil) {
+        Query q = claimable(now).with(Sort.by(Sort.Order.asc("createdAt")));
+        Update u = new Update()
+                .set("status", MaintenanceJobStatus.RUNNING)
+                .set("leaseOwner", owner)
+                .set("leaseUntil", leaseUntil)
+                .set("updatedAt", now)
+                .inc("attempts", 1);
+        MaintenanceJob claimed = mongoTemplate.findAndModify(q, u, RETURN_NEW, MaintenanceJob.class);
+        if (claimed != null && claimed.getStartedAt() == null) {
+            mongoTemplate.updateFirst(new Query(Criteria.where("id").is(claimed.getId())), new Update().set("startedAt", now), MaintenanceJob.class);
+            claimed.setStartedAt(now);
+        }
+        return claimed;
+    }
+
+    @Override
+    public @Nullable MaintenanceJob checkpoint(String id, String owner, @Nullable String cursor, long processedDelta, long updatedDelta, Instant leaseUntil) {
+        Update u = new Update()
+                .inc("processed", processedDelta)
+                .inc("updated", updatedDelta)
+                .set("leaseUntil", leaseUntil)
+                .set("updatedAt", Instant.now());
+        if (cursor != null) u.set("cursor", cursor);
+        return mongoTemplate.findAndModify(heldBy(id, owner), u, RETURN_NEW, MaintenanceJob.class);
+    }
+
+    @Override
+    public void finish(String id, String owner, MaintenanceJobStatus status, @Nullable String error, Instant now) {
+        Update u = new Update()
+                .set("status", status)
+                .set("lastError", error)
+                .set("finishedAt", now)
+                .set("updatedAt", now)
+                .unset("activeKey")
+                .unset("leaseOwner")
+                .unset("leaseUntil");
+        mongoTemplate.updateFirst(heldBy(id, owner), u, MaintenanceJob.class);
+    }
+
+    @Override
+    public void release(String id, String owner, Instant now) {
+        Update u = new Update()
+                .set("status", MaintenanceJobStatus.PENDING)
+                .set("updatedAt", now)
+                .unset("leaseOwner")
+                .unset("leaseUntil");
+        mongoTemplate.updateFirst(heldBy(id, owner), u, MaintenanceJob.class);
+    }
+
+    @Override
+    public @Nullable MaintenanceJob requestCancel(String id, Instant now) {
+        Query pending = new Query(Criteria.where("id").is(id).and("status").is(MaintenanceJobStatus.PENDING));
+        MaintenanceJob cancelled = mongoTemplate.findAndModify(pending,
+                new Update().set("status", MaintenanceJobStatus.CANCELLED).set("finishedAt", now).set("updatedAt", now).unset("activeKey"),
+                RETURN_NEW, MaintenanceJob.class);
+        if (cancelled != null) return cancelled;
+
+        // A running job stops at its next checkpoint
+        Query running = new Query(Criteria.where("id").is(id).and("status").is(MaintenanceJobStatus.RUNNING));
+        MaintenanceJob flagged = mongoTemplate.findAndModify(running,
+                new Update().set("cancelRequested", true).set("updatedAt", now), RETURN_NEW, MaintenanceJob.class);
+        if (flagged != null) return flagged;
+
+        return mongoTemplate.findById(id, MaintenanceJob.class);
+    }
+
+    @Override
+    public @Nullable MaintenanceJob resetForRetry(String id, Instant now) {
+        // A pipeline update so activeKey can be restored from dedupeKey (left absent when the job has none)
+        AggregationUpdate u = AggregationUpdate.update()
+                .set("status").toValue(MaintenanceJobStatus.PENDING.name())
+                .set("cancelRequested").toValue(false)
+                .set("updatedAt").toValue(now)
+                .set("activeKey").toValueOf(Fields.field("dedupeKey"))
+                .unset("lastError", "finishedAt");
+        return mongoTemplate.findAndModify(retryable(id), u, RETURN_NEW, MaintenanceJob.class);
+    }
+
+    static Query claimable(Instant now) {
+        return new Query(new Criteria().orOperator(
+                Criteria.where("status").is(MaintenanceJobStatus.PENDING),
+                // Worker died or was stopped mid-run: resume from the last checkpoint
+                Criteria.where("status").is(MaintenanceJobStatus.RUNNING).and("leaseUntil").lt(now)
+        ));
+    }
+
+    static Query retryable(String id) {
+        return new Query(Criteria.where("id").is(id)
+                .and("status").in(MaintenanceJobStatus.FAILED, MaintenanceJobStatus.CANCELLED));
+    }
+
+    static Query heldBy(String id, String owner) {
+        return new Query(Criteria.where("id").is(id)
+                .and("status").is(MaintenanceJobStatus.RUNNING)
+                .and("leaseOwner").is(owner));
+    }
+}
@@ -0,0 +1,18 @@
+package com.verf.ProdExp.repository;
+
+import org.springframework.data.domain.Sort;
+
+/**
+ * Keyset position for cursor pagination: the sort key and id of the last product returned.
+ * {@code lastValue} is null either for the first page ({@code lastId == null}) or when the last product had no value for the sort field.
+ */
+public record ProductCursor(String sortBy, Sort.Direction direction, Object lastValue, String lastId) {
+
+    public static ProductCursor first(String sortBy, Sort.Direction direction) {
+        return new ProductCursor(sortBy, direction, null, null);
+    }
+
+    public boolean isFirst() {
+        return lastId == null;
+    }
+}
@@ -0,0 +1,28 @@
+package com.verf.ProdExp.repository;
+
+import com.verf.ProdExp.entity.Product;
+import org.jspecify.annotations.Nullable;
+
+import java.time.Instant;
+import java.util.Set;
+
+/**
+ * One product's share of a bulk write (see {@link ProductRepositoryCustom#bulkApply}).
+ * <p>
+ * When {@code fields} is empty the patch only adds/removes tags; those are written with $addToSet/$pullAll and
+ * apply on top of whatever is stored. Otherwise the listed fields are $set from {@code product} and the write only
+ * happens if the stored updatedAt still equals {@code readUpdatedAt}, so nothing written after the read is lost.
+ */
+public record ProductPatch(
+        Product product,
+        // updatedAt of the document as it was read
+        @Nullable Instant readUpdatedAt,
+        // Product fields to $set (e.g. quantityConsumed, status, tags); empty for tag-only patches
+        Set<String> fields,
+        Set<String> addTags,
+        Set<String> removeTags
+) {
+    public boolean guarded() {
+        return !fields.isEmpty();
+    }
+}
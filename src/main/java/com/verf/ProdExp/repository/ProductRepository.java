@@ -6,20 +6,27 @@ import com.verf.ProdExp.entity.NotificationFrequency;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
 
 @Repository
 public interface ProductRepository extends MongoRepository<Product, String>, ProductRepositoryCustom {
+    // Read-only listings below skip the search-only fields (ProductFields.SEARCH_ONLY_FIELDS), so their results must
+    // not be saved back. A fields-only @Query keeps the query derived from the method name.
+    @Query(value = "{ 'userId': ?0 }", fields = "{ 'nameLower': 0 }")
     Page<Product> findByUserId(String userId, Pageable pageable);
+    // Full documents; used by paths that modify and save the products
     List<Product> findAllByUserId(String userId);
     void deleteByUserId(String userId);
+    @Query(fields = "{ 'nameLower': 0 }")
     List<Product> findByUserIdAndNameLowerStartingWith(
             String userId,
             String nameLower
     );
 
     // Indexed prefix search by normalized name for simple use-cases
+    @Query(fields = "{ 'nameLower': 0 }")
     Page<Product> findByUserIdAndNameLowerStartingWith(String userId, String nameLower, Pageable pageable);
 }
@@ -3,17 +3,138 @@ package com.verf.ProdExp.repository;
 import com.verf.ProdExp.entity.NotificationFrequency;
 import com.verf.ProdExp.entity.Product;
 import com.verf.ProdExp.entity.Status;
+import org.jspecify.annotations.Nullable;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
 
+// List/search queries load only the given document fields; null fields loads everything except search-only data (nameLower).
+// Results are read-only views and must not be saved back. includeArchived also returns matches from products_archive,
+// merged into the same sort order.
 public interface ProductRepositoryCustom {
-    Page<com.verf.ProdExp.entity.Product> findByUserIdWithFilters(String userId, List<Status> statuses, List<NotificationFrequency> frequencies, Pageable pageable);
+    Page<com.verf.ProdExp.entity.Product> findByUserIdWithFilters(String userId, List<Status> statuses, List<NotificationFrequency> frequencies, Pageable pageable, @Nullable Set<String> fields, boolean includeArchived);
 
-    // Paginated search over nameTokens field using AND semantics for provided tokens
-    Page<com.verf.ProdExp.entity.Product> searchByUserNameTokens(String userId, List<String> tokens, Pageable pageable);
+    // Count-free variant: fetches size+1 rows to determine whether a next slice exists.
+    Slice<Product> findSliceByUserIdWithFilters(String userId, List<Status> statuses, List<NotificationFrequency> frequencies, Pageable pageable, @Nullable Set<String> fields, boolean includeArchived);
+
+    // Keyset (cursor) pagination: the next `limit` products after the cursor position, ordered by (sort field, id).
+    List<Product> findByUserIdAfterCursor(String userId, List<Status> statuses, List<NotificationFrequency> frequencies, ProductCursor cursor, int limit);
+
+    // Paginated prefix search over product_search_terms using AND semantics for provided tokens
+    Page<com.verf.ProdExp.entity.Product> searchByUserTerms(String userId, List<String> tokens, Pageable pageable, @Nullable Set<String> fields, boolean includeArchived);
+
+    // Count-free variant of searchByUserTerms.
+    Slice<Product> searchSliceByUserTerms(String userId, List<String> tokens, Pageable pageable, @Nullable Set<String> fields, boolean includeArchived);
+
+    // Only id, userId, name, nameLower, tags and expirationDate; used to build in-memory search indexes.
+    List<Product> findSearchFieldsByUserId(String userId);
+
+    // Ids of the next batch in _id order after afterId (from the start when null), optionally for one user.
+    // Used by resumable maintenance jobs to pick an _id range without loading documents.
+    List<String> findIdsAfterId(@Nullable String userId, @Nullable String afterId, int limit);
+
+    // Server-side equivalent of ProductMapper.computeStatus: a few updateMany calls that only touch documents whose
+    // stored status is wrong. Scoped to one user and/or the _id range (afterId, upToId] when given; null means no
+    // bound. Returns the number of documents modified.
+    long recomputeStatuses(@Nullable String userId, @Nullable String afterId, @Nullable String upToId, LocalDate today);
+
+    // Next batch in _id order of products that have been terminal long enough to archive: EXPIRED on or before
+    // expiredOnOrBefore, or FINISHED and last modified before finishedBefore.
+    List<Product> findArchivableAfterId(@Nullable String afterId, LocalDate expiredOnOrBefore, Instant finishedBefore, int limit);
+
+    // Inserts new products with one unordered insertMany. Ids and timestamps are assigned here when missing.
+    // Returns an error message per position in products for documents that were not inserted.
+    Map<Integer, String> insertAll(List<Product> products);
+
+    // Copies the products into products_archive (unordered upserts) and deletes them from products (one unordered
+    // bulk of guarded removes). Products that changed since they were read (updatedAt differs, or status left
+    // FINISHED/EXPIRED) stay hot and out of the archive. Search postings are left in place: they are what
+    // includeArchived searches match. Returns the products actually moved.
+    List<Product> archive(List<Product> products, Instant archivedAt);
+
+    Optional<Product> findArchivedById(String id);
+
+    boolean deleteArchivedById(String id);
+
+    long deleteArchivedByUserId(String userId);
+
+    // Owner of a live or archived product, or null when it does not exist. Covered by the {_id, userId} index.
+    @Nullable String findOwnerId(String id);
+
+    // Batch helpers for the user deletion job
+    List<String> findArchivedIdsByUserId(String userId, int limit);
+
+    long deleteArchivedByIds(Collection<String> ids);
+
+    // Indexes for products_archive, which is not mapped by @Document and so gets no automatic index creation.
+    void ensureArchiveIndexes();
+
+    // Single-round-trip PATCH operations (findAndModify). All return null when no product matched.
+
+    // Sets quantityConsumed with status and percentageLeft derived in the same write. Only matches when
+    // quantityConsumed <= quantityBought. Returns the document as it was before the change.
+    @Nullable Product setQuantityConsumed(String id, double quantityConsumed, LocalDate today);
+
+    // Writes notificationFrequency/nextNotificationAt computed from product, unless a concurrent write changed
+    // the quantities, dates or override they were derived from. Returns true when written.
+    boolean updateScheduleIfUnchanged(Product product);
+
+    @Nullable Product setNotificationOverride(String id, NotificationFrequency override, @Nullable Instant nextNotificationAt);
+
+    // Unsets the override only; the caller derives the auto schedule from the returned document.
+    @Nullable Product clearNotificationOverride(String id);
+
+    // The rest return the updated document.
+    @Nullable Product replaceTags(String id, @Nullable List<String> tags);
+
+    @Nullable Product addTags(String id, Collection<String> tags);
+
+    @Nullable Product removeTags(String id, Collection<String> tags);
+
+    // Products among ids, restricted to ownerId unless it is null; one $in query.
+    List<Product> findAllByIdAndOwner(Collection<String> ids, @Nullable String ownerId);
+
+    // Archived products among ids, restricted to ownerId unless it is null.
+    List<Product> findArchivedByIdAndOwner(Collection<String> ids, @Nullable String ownerId);
+
+    // Outcome of bulkApply: the write error per product id, and the patched ids whose write did not land because
+    // the product changed or disappeared after it was read. Every other patch and delete was applied.
+    record BulkOutcome(Map<String, String> errors, Set<String> conflicts) {
+    }
+
+    // One unordered bulk write: each patch (see ProductPatch) and a delete of the live deleteIds. Every write
+    // sets updatedAt to stamp, which is also how landed guarded writes are told apart from skipped ones.
+    BulkOutcome bulkApply(List<ProductPatch> patches, Collection<String> deleteIds, Instant stamp);
+
+    // Cursor over all products (of one user unless userId is null) in _id order, archive after hot. Documents are
+    // fetched in batches as the stream is consumed; the caller must close it.
+    Stream<Product> streamAll(@Nullable String userId, boolean includeArchived);
 
     // Scheduler scan across active products in batches.
     Page<Product> findActiveCandidatesForNotifications(Pageable pageable);
+
+    // Ids of the next batch in _id order of products written before percentageLeft existed.
+    List<String> findIdsWithoutPercentageLeft(@Nullable String afterId, int limit);
+
+    // Computes percentageLeft server-side on those of ids that still lack it; returns the number updated.
+    long backfillPercentageLeft(Collection<String> ids);
+
+    // Next batch in _id order of products still carrying the legacy nameTokens array; only userId, nameLower and
+    // tags are read, which is all their search terms need.
+    List<Product> findWithLegacyNameTokensAfterId(@Nullable String afterId, int limit);
+
+    // Drops the legacy nameTokens array from ids; returns the number updated.
+    long clearLegacyNameTokens(Collection<String> ids);
+
+    // Drops the index over the legacy nameTokens array, if it is still there.
+    void dropLegacyNameTokensIndex();
 }
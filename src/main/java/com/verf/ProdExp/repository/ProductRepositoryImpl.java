@@ -1,78 +1,511 @@
 package com.verf.ProdExp.repository;
 
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.InsertManyOptions;
+import com.mongodb.client.model.ReplaceOneModel;
+import com.mongodb.client.model.ReplaceOptions;
+import com.verf.ProdExp.config.ProductProperties;
 import com.verf.ProdExp.entity.NotificationFrequency;
 import com.verf.ProdExp.entity.Product;
 import com.verf.ProdExp.entity.Status;
+import com.verf.ProdExp.mapper.ProductFields;
 import lombok.RequiredArgsConstructor;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.jspecify.annotations.Nullable;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
 import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationExpression;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.aggregation.AggregationUpdate;
+import org.springframework.data.mongodb.core.aggregation.ArithmeticOperators;
+import org.springframework.data.mongodb.core.aggregation.BooleanOperators;
+import org.springframework.data.mongodb.core.aggregation.ComparisonOperators;
+import org.springframework.data.mongodb.core.aggregation.ConditionalOperators;
+import org.springframework.data.mongodb.core.aggregation.UnionWithOperation;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.index.IndexOperations;
 import org.springframework.data.mongodb.core.query.Criteria;
 import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Repository;
 
+import java.time.Instant;
+import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
 
 @Repository
 @RequiredArgsConstructor
 public class ProductRepositoryImpl implements ProductRepositoryCustom {
 
+    // Pre-product_search_terms storage: every prefix of every word, inline on the product
+    private static final String LEGACY_TOKENS_FIELD = "nameTokens";
+    private static final String LEGACY_TOKENS_INDEX = "user_name_tokens_idx";
+    private static final int EXPORT_BATCH_SIZE = 500;
+    private static final FindAndModifyOptions RETURN_NEW = FindAndModifyOptions.options().returnNew(true);
+
     private final MongoTemplate mongoTemplate;
+    private final ProductProperties productProperties;
+    private final ProductSearchTermRepository searchTermRepository;
+
+    @Override
+    public Page<Product> findByUserIdWithFilters(String userId, List<Status> statuses, List<NotificationFrequency> frequencies, Pageable pageable, @Nullable Set<String> fields, boolean includeArchived) {
+        return findPage(userFilterCriteria(userId, statuses, frequencies), pageable, fields, includeArchived);
+    }
+
+    @Override
+    public Slice<Product> findSliceByUserIdWithFilters(String userId, List<Status> statuses, List<NotificationFrequency> frequencies, Pageable pageable, @Nullable Set<String> fields, boolean includeArchived) {
+        return findSlice(userFilterCriteria(userId, statuses, frequencies), pageable, fields, includeArchived);
+    }
 
     @Override
-    public Page<Product> findByUserIdWithFilters(String userId, List<Status> statuses, List<NotificationFrequency> frequencies, Pageable pageable) {
+    public List<Product> findByUserIdAfterCursor(String userId, List<Status> statuses, List<NotificationFrequency> frequencies, ProductCursor cursor, int limit) {
+        Criteria criteria = userFilterCriteria(userId, statuses, frequencies);
+        if (!cursor.isFirst()) {
+            criteria = new Criteria().andOperator(criteria, keysetCriteria(cursor));
+        }
+
+        // id breaks ties so the order is total and every position is resumable
+        Query q = new Query(criteria)
+                .with(Sort.by(cursor.direction(), cursor.sortBy()).and(Sort.by(cursor.direction(), "id")))
+                .limit(limit);
+        project(q, null);
+        return mongoTemplate.find(q, Product.class);
+    }
+
+    @Override
+    public Page<Product> searchByUserTerms(String userId, List<String> tokens, Pageable pageable, @Nullable Set<String> fields, boolean includeArchived) {
+        Criteria criteria = tokenSearchCriteria(userId, tokens);
+        if (criteria == null) return Page.empty(pageable);
+        return findPage(criteria, pageable, fields, includeArchived);
+    }
+
+    @Override
+    public Slice<Product> searchSliceByUserTerms(String userId, List<String> tokens, Pageable pageable, @Nullable Set<String> fields, boolean includeArchived) {
+        Criteria criteria = tokenSearchCriteria(userId, tokens);
+        if (criteria == null) return new SliceImpl<>(List.of(), pageable, false);
+        return findSlice(criteria, pageable, fields, includeArchived);
+    }
+
+    @Override
+    public List<Product> findSearchFieldsByUserId(String userId) {
+        Query q = new Query(Criteria.where("userId").is(userId));
+        q.fields().include("userId").include("name").include("nameLower").include("tags").include("expirationDate");
+        return mongoTemplate.find(q, Product.class);
+    }
+
+    @Override
+    public List<String> findIdsAfterId(@Nullable String userId, @Nullable String afterId, int limit) {
         Query q = new Query();
-        List<Criteria> criteria = new ArrayList<>();
-        criteria.add(Criteria.where("userId").is(userId));
+        if (userId != null) q.addCriteria(Criteria.where("userId").is(userId));
+        if (afterId != null) q.addCriteria(Criteria.where("id").gt(afterId));
+        q.fields().include("id");
+        q.with(Sort.by(Sort.Order.asc("id"))).limit(limit);
+        return mongoTemplate.find(q, Product.class).stream().map(Product::getId).toList();
+    }
 
-        if (statuses != null && !statuses.isEmpty()) {
-            criteria.add(Criteria.where("status").in(statuses));
+    @Override
+    public long recomputeStatuses(@Nullable String userId, @Nullable String afterId, @Nullable String upToId, LocalDate today) {
+        long updated = 0;
+        for (Map.Entry<Status, Criteria> e : statusCorrections(today).entrySet()) {
+            updated += setStatusWhere(e.getValue(), e.getKey(), userId, afterId, upToId);
         }
+        return updated;
+    }
 
-        if (frequencies != null && !frequencies.isEmpty()) {
-            criteria.add(Criteria.where("notificationFrequency").in(frequencies));
+    // Per status, the documents whose stored status should be it but is not. Same precedence as computeStatus:
+    // FINISHED (something bought and all of it consumed), then EXPIRED (expirationDate <= today), otherwise
+    // AVAILABLE. $ne also matches documents without a status.
+    static Map<Status, Criteria> statusCorrections(LocalDate today) {
+        AggregationExpression finished = BooleanOperators.And.and(
+                ComparisonOperators.Gt.valueOf("quantityBought").greaterThanValue(0),
+                ComparisonOperators.Gte.valueOf("quantityConsumed").greaterThanEqualTo("quantityBought"));
+        AggregationExpression notFinished = BooleanOperators.Not.not(finished);
+
+        Map<Status, Criteria> corrections = new EnumMap<>(Status.class);
+        corrections.put(Status.FINISHED, Criteria.expr(finished).and("status").ne(Status.FINISHED));
+        corrections.put(Status.EXPIRED, Criteria.expr(notFinished).and("expirationDate").lte(today).and("status").ne(Status.EXPIRED));
+        corrections.put(Status.AVAILABLE, Criteria.expr(notFinished).and("expirationDate").gt(today).and("status").ne(Status.AVAILABLE));
+        return corrections;
+    }
+
+    private long setStatusWhere(Criteria condition, Status status, @Nullable String userId, @Nullable String afterId, @Nullable String upToId) {
+        Query q = new Query(condition);
+        if (userId != null) q.addCriteria(Criteria.where("userId").is(userId));
+        if (afterId != null || upToId != null) {
+            Criteria range = Criteria.where("id");
+            if (afterId != null) range = range.gt(afterId);
+            if (upToId != null) range = range.lte(upToId);
+            q.addCriteria(range);
         }
+        return mongoTemplate.updateMulti(q, new Update().set("status", status), Product.class).getModifiedCount();
+    }
 
-        q.addCriteria(new Criteria().andOperator(criteria.toArray(new Criteria[0])));
+    @Override
+    public List<Product> findArchivableAfterId(@Nullable String afterId, LocalDate expiredOnOrBefore, Instant finishedBefore, int limit) {
+        Criteria expired = Criteria.where("status").is(Status.EXPIRED).and("expirationDate").lte(expiredOnOrBefore);
+        // FINISHED has no timestamp of its own; the last write is what finished it. Documents without updatedAt are old.
+        Criteria finished = Criteria.where("status").is(Status.FINISHED)
+                .orOperator(Criteria.where("updatedAt").lt(finishedBefore), Criteria.where("updatedAt").exists(false));
 
-        long total = mongoTemplate.count(q, Product.class);
+        Query q = new Query(new Criteria().orOperator(expired, finished));
+        if (afterId != null) q.addCriteria(Criteria.where("id").gt(afterId));
+        q.with(Sort.by(Sort.Order.asc("id"))).limit(limit);
+        return mongoTemplate.find(q, Product.class);
+    }
 
-        // apply sort & pagination from pageable
-        if (pageable.getSort().isSorted()) {
-            pageable.getSort().forEach(order -> q.with(org.springframework.data.domain.Sort.by(order)));
+    @Override
+    public Map<Integer, String> insertAll(List<Product> products) {
+        if (products.isEmpty()) return Map.of();
+
+        Instant now = Instant.now();
+        List<Document> docs = new ArrayList<>(products.size());
+        for (Product p : products) {
+            // Written as raw documents, so auditing does not run; ids are set up front so callers can index by them
+            if (p.getId() == null) p.setId(new ObjectId().toHexString());
+            if (p.getCreatedAt() == null) p.setCreatedAt(now);
+            p.setUpdatedAt(now);
+            Document doc = new Document();
+            mongoTemplate.getConverter().write(p, doc);
+            docs.add(doc);
+        }
+        try {
+            mongoTemplate.getCollection(mongoTemplate.getCollectionName(Product.class)).insertMany(docs, new InsertManyOptions().ordered(false));
+            return Map.of();
+        } catch (MongoBulkWriteException ex) {
+            Map<Integer, String> failures = new HashMap<>();
+            ex.getWriteErrors().forEach(e -> failures.put(e.getIndex(), e.getMessage()));
+            return failures;
         }
+    }
 
-        q.with(pageable);
+    @Override
+    public List<Product> archive(List<Product> products, Instant archivedAt) {
+        if (products.isEmpty()) return List.of();
 
-        List<Product> list = mongoTemplate.find(q, Product.class);
-        return new PageImpl<>(list, pageable, total);
+        // Upserted rather than inserted: a copy left by an interrupted earlier run is replaced by this version
+        List<ReplaceOneModel<Document>> copies = new ArrayList<>(products.size());
+        for (Product p : products) {
+            p.setArchivedAt(archivedAt);
+            Document doc = new Document();
+            mongoTemplate.getConverter().write(p, doc);
+            copies.add(new ReplaceOneModel<>(new Document("_id", doc.get("_id")), doc, new ReplaceOptions().upsert(true)));
+        }
+        mongoTemplate.getCollection(Product.ARCHIVE_COLLECTION).bulkWrite(copies, new BulkWriteOptions().ordered(false));
+
+        // One unordered bulk of guarded removes. A product written to since it was read (e.g. quantity corrected,
+        // or no longer terminal) stays hot. The bulk result only has a total, so unless every remove landed, read
+        // back which products are still hot.
+        BulkOperations removes = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Product.class);
+        for (Product p : products) removes.remove(archiveRemoveQuery(p));
+        int removed = removes.execute().getDeletedCount();
+
+        List<Product> moved = new ArrayList<>(products);
+        Set<String> notMoved = new HashSet<>();
+        if (removed < products.size()) {
+            Query q = new Query(Criteria.where("id").in(products.stream().map(Product::getId).toList()));
+            q.fields().include("id");
+            for (Product p : mongoTemplate.find(q, Product.class)) notMoved.add(p.getId());
+            moved.removeIf(p -> notMoved.contains(p.getId()));
+            // A product its owner deleted while this ran is gone too and cannot be told apart from a moved one; it
+            // stays archived, where the owner can delete it again
+        }
+        // Their copies would be stale; a still-terminal one is archived next run
+        if (!notMoved.isEmpty()) {
+            mongoTemplate.remove(new Query(Criteria.where("id").in(notMoved)), Product.class, Product.ARCHIVE_COLLECTION);
+        }
+        return moved;
+    }
+
+    // Matches the hot document only if it is still terminal and unchanged since it was read (same updatedAt)
+    static Query archiveRemoveQuery(Product p) {
+        return new Query(Criteria.where("id").is(p.getId())
+                .and("status").in(Status.FINISHED, Status.EXPIRED)
+                .and("updatedAt").is(p.getUpdatedAt()));
     }
 
     @Override
-    public Page<Product> searchByUserNameTokens(String userId, List<String> tokens, Pageable pageable) {
-        Query q = new Query();
-        List<Criteria> criteria = new ArrayList<>();
-        criteria.add(Criteria.where("userId").is(userId));
+    public Optional<Product> findArchivedById(String id) {
+        return Optional.ofNullable(mongoTemplate.findById(id, Product.class, Product.ARCHIVE_COLLECTION));
+    }
 
-        if (tokens != null && !tokens.isEmpty()) {
-            // require all tokens to exist in the nameTokens array field (AND semantics). This can use the compound index (userId, nameTokens).
-            criteria.add(Criteria.where("nameTokens").all(tokens));
+    @Override
+    public boolean deleteArchivedById(String id) {
+        return mongoTemplate.remove(new Query(Criteria.where("id").is(id)), Product.class, Product.ARCHIVE_COLLECTION).getDeletedCount() > 0;
+    }
+
+    @Override
+    public long deleteArchivedByUserId(String userId) {
+        return mongoTemplate.remove(new Query(Criteria.where("userId").is(userId)), Product.class, Product.ARCHIVE_COLLECTION).getDeletedCount();
+    }
+
+    @Override
+    public @Nullable String findOwnerId(String id) {
+        // The hint keeps the planner off the plain _id lookup, which always fetches the document
+        Query q = new Query(Criteria.where("id").is(id)).withHint(Product.OWNER_INDEX);
+        q.fields().include("userId");
+        Product owner = mongoTemplate.findOne(q, Product.class);
+        if (owner == null) {
+            Query archived = new Query(Criteria.where("id").is(id));
+            archived.fields().include("userId");
+            owner = mongoTemplate.findOne(archived, Product.class, Product.ARCHIVE_COLLECTION);
         }
+        return owner == null ? null : owner.getUserId();
+    }
 
-        q.addCriteria(new Criteria().andOperator(criteria.toArray(new Criteria[0])));
+    @Override
+    public List<String> findArchivedIdsByUserId(String userId, int limit) {
+        Query q = new Query(Criteria.where("userId").is(userId)).limit(limit);
+        q.fields().include("id");
+        return mongoTemplate.find(q, Product.class, Product.ARCHIVE_COLLECTION).stream().map(Product::getId).toList();
+    }
 
-        long total = mongoTemplate.count(q, Product.class);
+    @Override
+    public long deleteArchivedByIds(Collection<String> ids) {
+        if (ids.isEmpty()) return 0;
+        return mongoTemplate.remove(new Query(Criteria.where("id").in(ids)), Product.class, Product.ARCHIVE_COLLECTION).getDeletedCount();
+    }
 
-        if (pageable.getSort().isSorted()) {
-            pageable.getSort().forEach(order -> q.with(org.springframework.data.domain.Sort.by(order)));
+    @Override
+    public void ensureArchiveIndexes() {
+        IndexOperations indexOps = mongoTemplate.indexOps(Product.ARCHIVE_COLLECTION);
+        // Archived listings are always per user; expirationDate is the usual sort for history views
+        indexOps.createIndex(new Index().on("userId", Sort.Direction.ASC).on("expirationDate", Sort.Direction.ASC)
+                .named("user_expiration_idx"));
+    }
+
+    @Override
+    public @Nullable Product setQuantityConsumed(String id, double quantityConsumed, LocalDate today) {
+        Query q = new Query(Criteria.where("id").is(id).and("quantityBought").gte(quantityConsumed));
+        AggregationUpdate update = AggregationUpdate.update()
+                .set("quantityConsumed").toValue(quantityConsumed)
+                .set("status").toValue(statusAfterConsuming(quantityConsumed, today))
+                .set("percentageLeft").toValue(percentageLeftAfterConsuming(quantityConsumed))
+                .set("updatedAt").toValue(Instant.now());
+        // The previous document is returned so the caller knows the consumed delta; the new derived values are
+        // reproduced from it with the same rules.
+        return mongoTemplate.findAndModify(q, update, FindAndModifyOptions.options().returnNew(false), Product.class);
+    }
+
+    // Same rules as ProductMapper.computeStatus, evaluated against the stored quantityBought and expirationDate so
+    // the write needs no prior read.
+    static AggregationExpression statusAfterConsuming(double quantityConsumed, LocalDate today) {
+        AggregationExpression finished = BooleanOperators.And.and(
+                ComparisonOperators.Gt.valueOf("quantityBought").greaterThanValue(0),
+                ComparisonOperators.Lte.valueOf("quantityBought").lessThanEqualToValue(quantityConsumed));
+        return ConditionalOperators.switchCases(
+                        ConditionalOperators.Switch.CaseOperator.when(finished).then(Status.FINISHED.name()),
+                        ConditionalOperators.Switch.CaseOperator.when(
+                                ComparisonOperators.Lte.valueOf("expirationDate").lessThanEqualToValue(today)).then(Status.EXPIRED.name()))
+                .defaultTo(Status.AVAILABLE.name());
+    }
+
+    // Same formula as ProductMapper.computePercentageLeft, against the stored quantityBought.
+    static AggregationExpression percentageLeftAfterConsuming(double quantityConsumed) {
+        return ConditionalOperators
+                .when(ComparisonOperators.Gt.valueOf("quantityBought").greaterThanValue(0))
+                .then(ArithmeticOperators.Multiply.valueOf(
+                                ArithmeticOperators.Divide.valueOf(
+                                                ArithmeticOperators.Subtract.valueOf("quantityBought").subtract(quantityConsumed))
+                                        .divideBy("quantityBought"))
+                        .multiplyBy(100))
+                .otherwise(0.0);
+    }
+
+    @Override
+    public boolean updateScheduleIfUnchanged(Product product) {
+        // Only lands when the inputs of the schedule are still what it was computed from
+        Query q = new Query(Criteria.where("id").is(product.getId())
+                .and("quantityBought").is(product.getQuantityBought())
+                .and("quantityConsumed").is(product.getQuantityConsumed())
+                .and("purchaseDate").is(product.getPurchaseDate())
+                .and("expirationDate").is(product.getExpirationDate())
+                .and("notificationFrequencyOverride").is(product.getNotificationFrequencyOverride()));
+        Update u = new Update()
+                .set("notificationFrequency", product.getNotificationFrequency())
+                .set("nextNotificationAt", product.getNextNotificationAt());
+        return mongoTemplate.updateFirst(q, u, Product.class).getModifiedCount() > 0;
+    }
+
+    @Override
+    public @Nullable Product setNotificationOverride(String id, NotificationFrequency override, @Nullable Instant nextNotificationAt) {
+        Update u = new Update()
+                .set("notificationFrequencyOverride", override)
+                .set("notificationFrequency", override)
+                .set("nextNotificationAt", nextNotificationAt)
+                .set("updatedAt", Instant.now());
+        return mongoTemplate.findAndModify(new Query(Criteria.where("id").is(id)), u, RETURN_NEW, Product.class);
+    }
+
+    @Override
+    public @Nullable Product clearNotificationOverride(String id) {
+        Update u = new Update().unset("notificationFrequencyOverride").set("updatedAt", Instant.now());
+        return mongoTemplate.findAndModify(new Query(Criteria.where("id").is(id)), u, RETURN_NEW, Product.class);
+    }
+
+    @Override
+    public @Nullable Product replaceTags(String id, @Nullable List<String> tags) {
+        Update u = tags == null || tags.isEmpty() ? new Update().unset("tags") : new Update().set("tags", tags);
+        u.set("updatedAt", Instant.now());
+        return mongoTemplate.findAndModify(new Query(Criteria.where("id").is(id)), u, RETURN_NEW, Product.class);
+    }
+
+    @Override
+    public @Nullable Product addTags(String id, Collection<String> tags) {
+        Update u = new Update().addToSet("tags").each(tags.toArray()).set("updatedAt", Instant.now());
+        return mongoTemplate.findAndModify(new Query(Criteria.where("id").is(id)), u, RETURN_NEW, Product.class);
+    }
+
+    @Override
+    public @Nullable Product removeTags(String id, Collection<String> tags) {
+        Update u = new Update().pullAll("tags", tags.toArray()).set("updatedAt", Instant.now());
+        return mongoTemplate.findAndModify(new Query(Criteria.where("id").is(id)), u, RETURN_NEW, Product.class);
+    }
+
+    @Override
+    public List<Product> findAllByIdAndOwner(Collection<String> ids, @Nullable String ownerId) {
+        if (ids.isEmpty()) return List.of();
+        Query q = new Query(Criteria.where("id").in(ids));
+        if (ownerId != null) q.addCriteria(Criteria.where("userId").is(ownerId));
+        return mongoTemplate.find(q, Product.class);
+    }
+
+    @Override
+    public List<Product> findArchivedByIdAndOwner(Collection<String> ids, @Nullable String ownerId) {
+        if (ids.isEmpty()) return List.of();
+        Query q = new Query(Criteria.where("id").in(ids));
+        if (ownerId != null) q.addCriteria(Criteria.where("userId").is(ownerId));
+        return mongoTemplate.find(q, Product.class, Product.ARCHIVE_COLLECTION);
+    }
+
+    @Override
+    public BulkOutcome bulkApply(List<ProductPatch> patches, Collection<String> deleteIds, Instant stamp) {
+        if (patches.isEmpty() && deleteIds.isEmpty()) return new BulkOutcome(Map.of(), Set.of());
+
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Product.class);
+        // Product id(s) behind each queued operation, by position, to map write errors back
+        List<Collection<String>> targets = new ArrayList<>(patches.size() + 1);
+        for (ProductPatch patch : patches) {
+            for (Update u : patchUpdates(patch, stamp)) {
+                bulk.updateOne(patchFilter(patch), u);
+                targets.add(List.of(patch.product().getId()));
+            }
+        }
+        if (!deleteIds.isEmpty()) {
+            bulk.remove(new Query(Criteria.where("id").in(deleteIds)));
+            targets.add(deleteIds);
         }
 
-        q.with(pageable);
+        Map<String, String> errors = Map.of();
+        try {
+            bulk.execute();
+        } catch (BulkOperationException ex) {
+            errors = bulkErrors(targets, ex.getErrors());
+        }
 
-        List<Product> list = mongoTemplate.find(q, Product.class);
-        return new PageImpl<>(list, pageable, total);
+        // A bulk result only has totals, so read back which patched products carry this write's stamp
+        Map<String, String> failed = errors;
+        Set<String> check = new HashSet<>();
+        for (ProductPatch patch : patches) {
+            if (!failed.containsKey(patch.product().getId())) check.add(patch.product().getId());
+        }
+        Set<String> conflicts = new HashSet<>();
+        if (!check.isEmpty()) {
+            Query q = new Query(Criteria.where("id").in(check));
+            q.fields().include("id").include("updatedAt");
+            Map<String, Instant> stored = new HashMap<>();
+            for (Product p : mongoTemplate.find(q, Product.class)) stored.put(p.getId(), p.getUpdatedAt());
+            for (ProductPatch patch : patches) {
+                String id = patch.product().getId();
+                if (!check.contains(id)) continue;
+                // Tag-only writes apply on top of anything, so only a vanished product is a conflict for them
+                boolean landed = patch.guarded() ? stamp.equals(stored.get(id)) : stored.containsKey(id);
+                if (!landed) conflicts.add(id);
+            }
+        }
+        return new BulkOutcome(errors, conflicts);
+    }
+
+    // The owner was checked when the product was loaded; do not write if it moved since. Guarded patches also
+    // require the updatedAt that was read.
+    static Query patchFilter(ProductPatch patch) {
+        Criteria c = Criteria.where("id").is(patch.product().getId()).and("userId").is(patch.product().getUserId());
+        if (patch.guarded()) c = c.and("updatedAt").is(patch.readUpdatedAt());
+        return new Query(c);
+    }
+
+    // $addToSet and $pullAll on tags cannot share one update document, so a tag-only patch may need two
+    // (the sets are disjoint, so their order does not matter).
+    static List<Update> patchUpdates(ProductPatch patch, Instant stamp) {
+        Product p = patch.product();
+        if (patch.guarded()) {
+            Update u = new Update().set("updatedAt", stamp);
+            for (String field : patch.fields()) {
+                Object value = switch (field) {
+                    case "quantityConsumed" -> p.getQuantityConsumed();
+                    case "status" -> p.getStatus();
+                    case "percentageLeft" -> p.getPercentageLeft();
+                    case "notificationFrequency" -> p.getNotificationFrequency();
+                    case "nextNotificationAt" -> p.getNextNotificationAt();
+                    case "notificationFrequencyOverride" -> p.getNotificationFrequencyOverride();
+                    case "tags" -> p.getTags() == null || p.getTags().isEmpty() ? null : p.getTags();
+                    default -> throw new IllegalArgumentException("Field cannot be bulk patched: " + field);
+                };
+                if (value == null) u.unset(field);
+                else u.set(field, value);
+            }
+            return List.of(u);
+        }
+        List<Update> updates = new ArrayList<>(2);
+        if (!patch.addTags().isEmpty()) {
+            updates.add(new Update().addToSet("tags").each(patch.addTags().toArray()).set("updatedAt", stamp));
+        }
+        if (!patch.removeTags().isEmpty()) {
+            updates.add(new Update().pullAll("tags", patch.removeTags().toArray()).set("updatedAt", stamp));
+        }
+        return updates;
+    }
+
+    // Maps each bulk write error (by operation index) to the product ids that operation covered
+    static Map<String, String> bulkErrors(List<? extends Collection<String>> targets, List<BulkWriteError> errors) {
+        Map<String, String> failures = new HashMap<>();
+        for (BulkWriteError error : errors) {
+            for (String id : targets.get(error.getIndex())) failures.putIfAbsent(id, error.getMessage());
+        }
+        return failures;
+    }
+
+    @Override
+    public Stream<Product> streamAll(@Nullable String userId, boolean includeArchived) {
+        Query q = userId == null ? new Query() : new Query(Criteria.where("userId").is(userId));
+        q.with(Sort.by(Sort.Order.asc("id"))).cursorBatchSize(EXPORT_BATCH_SIZE);
+        Stream<Product> hot = mongoTemplate.stream(q, Product.class);
+        if (!includeArchived) return hot;
+        // Opened lazily so the archive cursor only exists once the hot one is drained; concat closes both
+        Stream<Product> archived = Stream.of(Product.ARCHIVE_COLLECTION)
+                .flatMap(c -> mongoTemplate.stream(q, Product.class, c));
+        return Stream.concat(hot, archived);
     }
 
     @Override
@@ -105,4 +538,234 @@ public class ProductRepositoryImpl implements ProductRepositoryCustom {
         List<Product> list = mongoTemplate.find(q, Product.class);
         return new PageImpl<>(list, pageable, total);
     }
+
+    @Override
+    public List<String> findIdsWithoutPercentageLeft(@Nullable String afterId, int limit) {
+        Query q = new Query(Criteria.where("percentageLeft").exists(false));
+        if (afterId != null) q.addCriteria(Criteria.where("id").gt(afterId));
+        q.fields().include("id");
+        q.with(Sort.by(Sort.Order.asc("id"))).limit(limit);
+        return mongoTemplate.find(q, Product.class).stream().map(Product::getId).toList();
+    }
+
+    @Override
+    public long backfillPercentageLeft(Collection<String> ids) {
+        if (ids.isEmpty()) return 0;
+        // Same formula as ProductMapper.computePercentageLeft, evaluated by one pipeline-style updateMany.
+        ConditionalOperators.Cond percentageLeft = ConditionalOperators
+                .when(ComparisonOperators.Gt.valueOf("quantityBought").greaterThanValue(0))
+                .then(ArithmeticOperators.Multiply.valueOf(
+                                ArithmeticOperators.Divide.valueOf(
+                                                ArithmeticOperators.Subtract.valueOf("quantityBought").subtract("quantityConsumed"))
+                                        .divideBy("quantityBought"))
+                        .multiplyBy(100))
+                .otherwise(0.0);
+
+        Query q = new Query(Criteria.where("id").in(ids).and("percentageLeft").exists(false));
+        AggregationUpdate update = AggregationUpdate.update().set("percentageLeft").toValue(percentageLeft);
+        return mongoTemplate.updateMulti(q, update, Product.class).getModifiedCount();
+    }
+
+    @Override
+    public List<Product> findWithLegacyNameTokensAfterId(@Nullable String afterId, int limit) {
+        Query q = new Query(Criteria.where(LEGACY_TOKENS_FIELD).exists(true));
+        if (afterId != null) q.addCriteria(Criteria.where("id").gt(afterId));
+        q.fields().include("userId").include("nameLower").include("tags");
+        q.with(Sort.by(Sort.Order.asc("id"))).limit(limit);
+        return mongoTemplate.find(q, Product.class);
+    }
+
+    @Override
+    public long clearLegacyNameTokens(Collection<String> ids) {
+        if (ids.isEmpty()) return 0;
+        Query q = new Query(Criteria.where("id").in(ids));
+        return mongoTemplate.updateMulti(q, new Update().unset(LEGACY_TOKENS_FIELD), Product.class).getModifiedCount();
+    }
+
+    @Override
+    public void dropLegacyNameTokensIndex() {
+        IndexOperations indexOps = mongoTemplate.indexOps(Product.class);
+        boolean hasLegacyIndex = indexOps.getIndexInfo().stream().anyMatch(i -> LEGACY_TOKENS_INDEX.equals(i.getName()));
+        if (hasLegacyIndex) {
+            indexOps.dropIndex(LEGACY_TOKENS_INDEX);
+        }
+    }
+
+    private Criteria userFilterCriteria(String userId, List<Status> statuses, List<NotificationFrequency> frequencies) {
+        List<Criteria> criteria = new ArrayList<>();
+        criteria.add(Criteria.where("userId").is(userId));
+
+        if (statuses != null && !statuses.isEmpty()) {
+            criteria.add(Criteria.where("status").in(statuses));
+        }
+
+        if (frequencies != null && !frequencies.isEmpty()) {
+            criteria.add(Criteria.where("notificationFrequency").in(frequencies));
+        }
+
+        return new Criteria().andOperator(criteria.toArray(new Criteria[0]));
+    }
+
+    // Resolves tokens to product ids via the search term index (or a regex when too many match); null when nothing can match.
+    private @Nullable Criteria tokenSearchCriteria(String userId, List<String> tokens) {
+        List<Criteria> criteria = new ArrayList<>();
+        criteria.add(Criteria.where("userId").is(userId));
+
+        if (tokens != null && !tokens.isEmpty()) {
+            // every token must prefix-match some term of the product (AND semantics)
+            int limit = Math.max(1, productProperties.getSearch().getMaxPrefixCandidates());
+            Set<String> ids = searchTermRepository.findProductIdsMatchingAllPrefixes(userId, tokens, limit);
+            if (ids == null) {
+                // Too broad for an $in (e.g. a one-letter prefix): filter the user's products directly
+                criteria.addAll(wordPrefixCriteria(tokens));
+            } else if (ids.isEmpty()) {
+                return null;
+            } else {
+                criteria.add(Criteria.where("id").in(ids));
+            }
+        }
+
+        return new Criteria().andOperator(criteria.toArray(new Criteria[0]));
+    }
+
+    // Per token: a word of the name or of a tag starts with it. Approximates the search terms (names are only
+    // lower-cased here, not folded, so accented spellings can be missed); used only for very broad queries.
+    static List<Criteria> wordPrefixCriteria(List<String> tokens) {
+        List<Criteria> out = new ArrayList<>(tokens.size());
+        for (String token : tokens) {
+            Pattern wordStart = Pattern.compile("(^|[^\\p{L}\\p{N}_])" + Pattern.quote(token), Pattern.CASE_INSENSITIVE);
+            out.add(new Criteria().orOperator(Criteria.where("nameLower").regex(wordStart), Criteria.where("tags").regex(wordStart)));
+        }
+        return out;
+    }
+
+    // Matches documents strictly after the cursor in (field, id) order. Mongo sorts null/missing values first
+    // ascending and last descending, which the null branches mirror.
+    private Criteria keysetCriteria(ProductCursor cursor) {
+        String field = cursor.sortBy();
+        Object value = cursor.lastValue();
+        boolean asc = cursor.direction().isAscending();
+
+        if (value == null) {
+            Criteria sameKey = new Criteria().andOperator(
+                    Criteria.where(field).is(null),
+                    asc ? Criteria.where("id").gt(cursor.lastId()) : Criteria.where("id").lt(cursor.lastId())
+            );
+            return asc ? new Criteria().orOperator(sameKey, Criteria.where(field).ne(null)) : sameKey;
+        }
+
+        Criteria sameKey = new Criteria().andOperator(
+                Criteria.where(field).is(value),
+                asc ? Criteria.where("id").gt(cursor.lastId()) : Criteria.where("id").lt(cursor.lastId())
+        );
+        if (asc) {
+            return new Criteria().orOperator(Criteria.where(field).gt(value), sameKey);
+        }
+        return new Criteria().orOperator(Criteria.where(field).lt(value), sameKey, Criteria.where(field).is(null));
+    }
+
+    // Read-side projection: the requested fields only, or everything but the search-only fields.
+    private void project(Query q, @Nullable Set<String> fields) {
+        if (fields == null) {
+            ProductFields.SEARCH_ONLY_FIELDS.forEach(f -> q.fields().exclude(f));
+        } else {
+            ProductFields.documentFields(fields).forEach(f -> q.fields().include(f));
+        }
+    }
+
+    // Page with total: either count + find, or a single $facet aggregation when configured or when the archive is included.
+    private Page<Product> findPage(Criteria criteria, Pageable pageable, @Nullable Set<String> fields, boolean includeArchived) {
+        if (includeArchived || productProperties.getPagination().isFacetTotals()) {
+            return findPageWithFacet(criteria, pageable, fields, includeArchived);
+        }
+
+        Query q = new Query(criteria);
+        long total = mongoTemplate.count(q, Product.class);
+
+        // apply sort & pagination from pageable
+        q.with(pageable);
+        project(q, fields);
+
+        List<Product> list = mongoTemplate.find(q, Product.class);
+        return new PageImpl<>(list, pageable, total);
+    }
+
+    private Page<Product> findPageWithFacet(Criteria criteria, Pageable pageable, @Nullable Set<String> fields, boolean includeArchived) {
+        List<AggregationOperation> rowStages = pageStages(pageable, fields, pageable.isPaged() ? pageable.getPageSize() : -1);
+
+        List<AggregationOperation> stages = sourceStages(criteria, includeArchived);
+        stages.add(Aggregation.facet(rowStages.toArray(new AggregationOperation[0])).as("rows")
+                .and(Aggregation.count().as("total")).as("total"));
+
+        Document result = mongoTemplate.aggregate(Aggregation.newAggregation(stages), Product.class, Document.class).getUniqueMappedResult();
+        if (result == null) {
+            return new PageImpl<>(List.of(), pageable, 0);
+        }
+
+        List<Product> list = readRows(result.getList("rows", Document.class, List.of()));
+        List<Document> totals = result.getList("total", Document.class, List.of());
+        long total = totals.isEmpty() ? 0L : ((Number) totals.get(0).get("total")).longValue();
+        return new PageImpl<>(list, pageable, total);
+    }
+
+    // Slice without total: fetch one extra row to learn whether a next slice exists.
+    private Slice<Product> findSlice(Criteria criteria, Pageable pageable, @Nullable Set<String> fields, boolean includeArchived) {
+        int fetch = pageable.isPaged() ? pageable.getPageSize() + 1 : -1;
+        List<Product> list;
+        if (includeArchived) {
+            List<AggregationOperation> stages = sourceStages(criteria, true);
+            stages.addAll(pageStages(pageable, fields, fetch));
+            List<Document> rows = mongoTemplate.aggregate(Aggregation.newAggregation(stages), Product.class, Document.class).getMappedResults();
+            list = readRows(rows);
+        } else {
+            Query q = new Query(criteria).with(pageable.getSort());
+            if (pageable.isPaged()) {
+                q.skip(pageable.getOffset()).limit(fetch);
+            }
+            project(q, fields);
+            list = mongoTemplate.find(q, Product.class);
+        }
+
+        boolean hasNext = pageable.isPaged() && list.size() > pageable.getPageSize();
+        if (hasNext) {
+            list = list.subList(0, pageable.getPageSize());
+        }
+        return new SliceImpl<>(list, pageable, hasNext);
+    }
+
+    // $match on products, plus the same match over products_archive merged in with $unionWith when requested.
+    private List<AggregationOperation> sourceStages(Criteria criteria, boolean includeArchived) {
+        List<AggregationOperation> stages = new ArrayList<>();
+        stages.add(Aggregation.match(criteria));
+        if (includeArchived) {
+            stages.add(UnionWithOperation.unionWith(Product.ARCHIVE_COLLECTION)
+                    .pipeline(Aggregation.match(criteria))
+                    .mapFieldsTo(Product.class));
+        }
+        return stages;
+    }
+
+    // sort, skip, limit (none when negative) and projection for one page of aggregated rows.
+    private List<AggregationOperation> pageStages(Pageable pageable, @Nullable Set<String> fields, int limit) {
+        List<AggregationOperation> stages = new ArrayList<>();
+        if (pageable.getSort().isSorted()) {
+            stages.add(Aggregation.sort(pageable.getSort()));
+        }
+        stages.add(Aggregation.skip(pageable.isPaged() ? pageable.getOffset() : 0L));
+        if (limit >= 0) {
+            stages.add(Aggregation.limit(limit));
+        }
+        stages.add(fields == null
+                ? Aggregation.project().andExclude(ProductFields.SEARCH_ONLY_FIELDS.toArray(new String[0]))
+                : Aggregation.project(ProductFields.documentFields(fields).toArray(new String[0])));
+        return stages;
+    }
+
+    private List<Product> readRows(List<Document> rows) {
+        List<Product> list = new ArrayList<>(rows.size());
+        for (Document row : rows) {
+            list.add(mongoTemplate.getConverter().read(Product.class, row));
+        }
+        return list;
+    }
 }
@@ -0,0 +1,14 @@
+package com.verf.ProdExp.repository;
+
+import com.verf.ProdExp.entity.ProductSearchTerm;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+
+@Repository
+public interface ProductSearchTermRepository extends MongoRepository<ProductSearchTerm, String>, ProductSearchTermRepositoryCustom {
+    void deleteByProductId(String productId);
+    void deleteByProductIdIn(Collection<String> productIds);
+    void deleteByUserId(String userId);
+}
@@ -0,0 +1,32 @@
+package com.verf.ProdExp.repository;
+
+import com.verf.ProdExp.entity.ProductSearchTerm;
+import org.jspecify.annotations.Nullable;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+public interface ProductSearchTermRepositoryCustom {
+    // Makes the postings of a product exactly the given terms at the current tokenizer version (adds missing, removes stale).
+    void replaceTerms(String userId, String productId, Collection<String> terms);
+
+    // The same for many products, in one unordered bulk write.
+    void replaceTerms(List<Postings> products);
+
+    // Postings for products that have none yet (e.g. just inserted), in one unordered bulk of upserts.
+    void addTerms(String userId, Map<String, ? extends Collection<String>> termsByProductId);
+
+    // Next batch in _id order of postings written by an older SearchTokenizer version (only id and productId are
+    // read), so re-indexing can walk them without collecting every product id first.
+    List<ProductSearchTerm> findOutdatedAfterId(@Nullable String afterId, int limit);
+
+    // Ids of the user's products that have, for every prefix, at least one term starting with it (AND semantics).
+    // Returns null when a step would produce more than limit candidates, so callers can pick a path without ids.
+    @Nullable Set<String> findProductIdsMatchingAllPrefixes(String userId, List<String> prefixes, int limit);
+
+    // Every search term of one product
+    record Postings(String userId, String productId, Collection<String> terms) {
+    }
+}
@@ -0,0 +1,137 @@
+package com.verf.ProdExp.repository;
+
+import com.verf.ProdExp.entity.ProductSearchTerm;
+import com.verf.ProdExp.util.SearchTokenizer;
+import lombok.RequiredArgsConstructor;
+import org.bson.Document;
+import org.jspecify.annotations.Nullable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Repository;
+
+import java.util.*;
+
+@Repository
+@RequiredArgsConstructor
+public class ProductSearchTermRepositoryImpl implements ProductSearchTermRepositoryCustom {
+
+    private final MongoTemplate mongoTemplate;
+
+    @Override
+    public void replaceTerms(String userId, String productId, Collection<String> terms) {
+        replaceTerms(List.of(new Postings(userId, productId, terms)));
+    }
+
+    @Override
+    public void replaceTerms(List<Postings> products) {
+        if (products.isEmpty()) return;
+        // No read of the existing postings: wanted terms are upserted (a no-op when present at this version) and
+        // the rest removed, so the whole batch is one round trip
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, ProductSearchTerm.class);
+        for (Postings p : products) {
+            Set<String> wanted = new HashSet<>(p.terms());
+            bulk.remove(staleQuery(p.userId(), p.productId(), wanted));
+            for (String term : wanted) upsertPosting(bulk, p.userId(), p.productId(), term);
+        }
+        bulk.execute();
+    }
+
+    // Postings of the product that are not wanted, including any left behind under a previous owner. Upserts never
+    // match these, so removes and upserts of one product can share an unordered bulk.
+    static Query staleQuery(String userId, String productId, Set<String> wanted) {
+        return new Query(new Criteria().andOperator(
+                Criteria.where("productId").is(productId),
+                new Criteria().orOperator(Criteria.where("term").nin(wanted), Criteria.where("userId").ne(userId))
+        ));
+    }
+
+    @Override
+    public void addTerms(String userId, Map<String, ? extends Collection<String>> termsByProductId) {
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, ProductSearchTerm.class);
+        boolean any = false;
+        for (Map.Entry<String, ? extends Collection<String>> e : termsByProductId.entrySet()) {
+            for (String term : new HashSet<>(e.getValue())) {
+                upsertPosting(bulk, userId, e.getKey(), term);
+                any = true;
+            }
+        }
+        if (any) bulk.execute();
+    }
+
+    private static void upsertPosting(BulkOperations bulk, String userId, String productId, String term) {
+        Query key = new Query(new Criteria().andOperator(
+                Criteria.where("userId").is(userId),
+                Criteria.where("term").is(term),
+                Criteria.where("productId").is(productId)
+        ));
+        bulk.upsert(key, new Update()
+                .setOnInsert("userId", userId)
+                .setOnInsert("term", term)
+                .setOnInsert("productId", productId)
+                .set("tokenizerVersion", SearchTokenizer.VERSION));
+    }
+
+    @Override
+    public List<ProductSearchTerm> findOutdatedAfterId(@Nullable String afterId, int limit) {
+        // $ne also matches postings without the field
+        Query q = new Query(Criteria.where("tokenizerVersion").ne(SearchTokenizer.VERSION));
+        if (afterId != null) q.addCriteria(Criteria.where("id").gt(afterId));
+        q.fields().include("id").include("productId");
+        q.with(Sort.by(Sort.Order.asc("id"))).limit(limit);
+        return mongoTemplate.find(q, ProductSearchTerm.class);
+    }
+
+    @Override
+    public @Nullable Set<String> findProductIdsMatchingAllPrefixes(String userId, List<String> prefixes, int limit) {
+        // Longest prefixes first: they are usually the most selective and let the intersection empty out early
+        List<String> ordered = prefixes.stream().distinct().sorted(Comparator.comparingInt(String::length).reversed()).toList();
+
+        Set<String> result = null;
+        for (String prefix : ordered) {
+            // The $in is bounded by limit, since the previous step was
+            Criteria criteria = result == null ? prefixRange(userId, prefix)
+                    : new Criteria().andOperator(prefixRange(userId, prefix), Criteria.where("productId").in(result));
+            // Covered by user_term_product_idx; one row per product, and at most limit + 1 of them leave the server
+            Aggregation agg = Aggregation.newAggregation(
+                    Aggregation.match(criteria),
+                    Aggregation.group("productId"),
+                    Aggregation.limit(limit + 1L));
+            Set<String> ids = new HashSet<>();
+            for (Document d : mongoTemplate.aggregate(agg, ProductSearchTerm.class, Document.class)) {
+                ids.add(d.getString("_id"));
+            }
+            if (ids.size() > limit) return null;
+            result = ids;
+            if (result.isEmpty()) break;
+        }
+        return result == null ? Set.of() : result;
+    }
+
+    // Terms of the user starting with prefix, as an index range
+    private static Criteria prefixRange(String userId, String prefix) {
+        Criteria c = Criteria.where("userId").is(userId).and("term").gte(prefix);
+        String upper = prefixUpperBound(prefix);
+        return upper == null ? c : c.lt(upper);
+    }
+
+    // Smallest string greater than every string starting with prefix: the last code point incremented (dropping
+    // trailing U+10FFFF). Code point order is the UTF-8 byte order Mongo compares in. Null when there is none.
+    static @Nullable String prefixUpperBound(String prefix) {
+        int end = prefix.length();
+        while (end > 0) {
+            int cp = prefix.codePointBefore(end);
+            int start = end - Character.charCount(cp);
+            if (cp < Character.MAX_CODE_POINT) {
+                int next = cp + 1 == Character.MIN_SURROGATE ? Character.MAX_SURROGATE + 1 : cp + 1;
+                return prefix.substring(0, start) + Character.toString(next);
+            }
+            end = start;
+        }
+        return null;
+    }
+}
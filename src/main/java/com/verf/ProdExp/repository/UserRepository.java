@@ -2,12 +2,18 @@ package com.verf.ProdExp.repository;
 
 import com.verf.ProdExp.entity.User;
 import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface UserRepository extends MongoRepository<User, String> {
     Optional<User> findByEmail(String email);
     boolean existsByEmail(String email);
+
+    // Users whose access has been revoked at least once; only id and authVersion are read
+    @Query(value = "{ 'authVersion': { $gt: 0 } }", fields = "{ 'authVersion': 1 }")
+    List<User> findRevoked();
 }
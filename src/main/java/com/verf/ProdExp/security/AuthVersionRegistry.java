@@ -0,0 +1,123 @@
+package com.verf.ProdExp.security;
+
+import com.verf.ProdExp.entity.User;
+import com.verf.ProdExp.repository.UserRepository;
+import org.jspecify.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Current authVersion of every user whose access has been revoked at least once (disabled, role change, deletion).
+ * Users never revoked are absent and implicitly at version 0, so the map stays small. Stateless tokens are checked
+ * against the local copy only. Changes are pushed over pub/sub; a periodic reload from the users collection (the
+ * persisted source) repairs anything a failed or missed message left out.
+ * <p>
+ * Deleted users are no longer in the users collection, so their versions are kept in a Redis hash until every
+ * token issued before the deletion has expired.
+ */
+@Component
+public class AuthVersionRegistry implements MessageListener {
+
+    private static final Logger log = LoggerFactory.getLogger(AuthVersionRegistry.class);
+
+    // userId -> authVersion of deleted users
+    private static final String KEY = "auth_versions";
+    // userId -> epoch millis after which the KEY entry can go
+    private static final String RETIRE_KEY = "auth_versions:retire_at";
+    private static final String CHANNEL = "auth_versions:changed";
+
+    private final StringRedisTemplate redis;
+    private final UserRepository userRepository;
+    private final long tokenLifetimeSeconds;
+    private final ConcurrentHashMap<String, Long> versions = new ConcurrentHashMap<>();
+
+    public AuthVersionRegistry(StringRedisTemplate redis,
+                               RedisMessageListenerContainer listenerContainer,
+                               UserRepository userRepository,
+                               @Value("${app.jwt.expiration-seconds:3600}") long tokenLifetimeSeconds) {
+        this.redis = redis;
+        this.userRepository = userRepository;
+        this.tokenLifetimeSeconds = tokenLifetimeSeconds;
+        listenerContainer.addMessageListener(this, new ChannelTopic(CHANNEL));
+    }
+
+    public boolean isCurrent(String userId, long tokenVersion) {
+        return tokenVersion >= versions.getOrDefault(userId, 0L);
+    }
+
+    // Called after the new version has been saved on the user
+    public void publish(String userId, long version) {
+        versions.merge(userId, version, Math::max);
+        try {
+            redis.convertAndSend(CHANNEL, userId + '\t' + version);
+        } catch (Exception ex) {
+            // The version is saved on the user, so every instance still picks it up on its next reload
+            log.error("Broadcasting authVersion {} for user {} failed; other instances accept older tokens until their next reload: {}",
+                    version, userId, ex.getMessage());
+        }
+    }
+
+    // Called by the user deletion job before the user document goes. Keeps the version in Redis until tokens
+    // issued before deletionRequestedAt have expired, and removes it right away when they already have.
+    public void retire(String userId, long version, @Nullable Instant deletionRequestedAt) {
+        Instant retireAt = (deletionRequestedAt == null ? Instant.now() : deletionRequestedAt).plusSeconds(tokenLifetimeSeconds);
+        if (!retireAt.isAfter(Instant.now())) {
+            redis.opsForHash().delete(KEY, userId);
+            redis.opsForHash().delete(RETIRE_KEY, userId);
+            versions.remove(userId);
+            return;
+        }
+        redis.opsForHash().put(KEY, userId, Long.toString(version));
+        redis.opsForHash().put(RETIRE_KEY, userId, Long.toString(retireAt.toEpochMilli()));
+    }
+
+    @Override
+    public void onMessage(Message message, byte @Nullable [] pattern) {
+        String[] parts = new String(message.getBody(), StandardCharsets.UTF_8).split("\t", 2);
+        if (parts.length < 2) return;
+        try {
+            versions.merge(parts[0], Long.parseLong(parts[1]), Math::max);
+        } catch (NumberFormatException ex) {
+            log.warn("Ignoring malformed authVersion message: {}", parts[1]);
+        }
+    }
+
+    @Scheduled(initialDelay = 0, fixedDelayString = "${app.jwt.authVersionReloadMs:30000}")
+    public void reload() {
+        try {
+            for (User u : userRepository.findRevoked()) {
+                versions.merge(u.getId(), u.getAuthVersion(), Math::max);
+            }
+        } catch (Exception ex) {
+            log.warn("Reloading auth versions from users failed: {}", ex.getMessage());
+        }
+        try {
+            long now = System.currentTimeMillis();
+            for (Map.Entry<Object, Object> e : redis.opsForHash().entries(RETIRE_KEY).entrySet()) {
+                // Any instance may do this; deleting a hash field twice is harmless
+                if (Long.parseLong(String.valueOf(e.getValue())) > now) continue;
+                redis.opsForHash().delete(KEY, e.getKey());
+                redis.opsForHash().delete(RETIRE_KEY, e.getKey());
+                versions.remove(String.valueOf(e.getKey()));
+            }
+            for (Map.Entry<Object, Object> e : redis.opsForHash().entries(KEY).entrySet()) {
+                versions.merge(String.valueOf(e.getKey()), Long.parseLong(String.valueOf(e.getValue())), Math::max);
+            }
+        } catch (Exception ex) {
+            log.warn("Reloading auth versions of deleted users failed: {}", ex.getMessage());
+        }
+    }
+}
@@ -9,8 +9,8 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.User;
 import org.springframework.security.core.userdetails.UserDetails;
-import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
@@ -23,7 +23,8 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
     private static final Logger log = LoggerFactory.getLogger(JwtAuthenticationFilter.class);
 
     private final JwtProvider jwtProvider;
-    private final UserDetailsService userDetailsService; // should be the repo-backed service (Primary)
+    private final PrincipalCache principalCache;
+    private final AuthVersionRegistry authVersionRegistry;
 
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
@@ -48,15 +49,28 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
             }
 
             if (token != null && !token.isBlank()) {
-                String subject = jwtProvider.validateAndGetSubject(token);
+                JwtProvider.VerifiedToken verified = jwtProvider.verify(token);
+                String subject = verified.subject();
                 log.debug("JWT validated, subject={}", subject);
-                UserDetails userDetails = userDetailsService.loadUserByUsername(subject);
-                if (userDetails != null) {
+                UserDetails userDetails;
+                if (jwtProvider.isStateless() && verified.hasAuthClaims()) {
+                    // Roles come from the signed token; revocation is a version comparison against local state
+                    userDetails = authVersionRegistry.isCurrent(subject, verified.authVersion())
+                            ? User.withUsername(subject).password("").authorities(JwtUserDetailsService.toAuthorities(verified.roles())).build()
+                            : User.withUsername(subject).password("").disabled(true).build();
+                } else {
+                    // The subject is the user id; authorities and the enabled flag come from the short-lived cache
+                    userDetails = principalCache.get(subject);
+                }
+                if (userDetails != null && !userDetails.isEnabled()) {
+                    // Disabled (or pending deletion) accounts lose access immediately, even with a valid token
+                    log.debug("Ignoring token for disabled or revoked user id={}", subject);
+                } else if (userDetails != null) {
                     UsernamePasswordAuthenticationToken auth = new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
                     SecurityContextHolder.getContext().setAuthentication(auth);
                     log.debug("Authentication set for user id={}", subject);
                 } else {
-                    log.warn("UserDetailsService returned null for subject={}", subject);
+                    log.warn("No user details for subject={}", subject);
                 }
             } else {
                 log.debug("No JWT token provided in request");
@@ -5,12 +5,16 @@ import com.auth0.jwt.JWT;
 import com.auth0.jwt.algorithms.Algorithm;
 import com.auth0.jwt.exceptions.JWTVerificationException;
 import com.auth0.jwt.interfaces.DecodedJWT;
+import com.auth0.jwt.interfaces.Claim;
 import com.auth0.jwt.interfaces.JWTVerifier;
+import com.verf.ProdExp.entity.User;
+import org.jspecify.annotations.Nullable;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import java.time.Instant;
 import java.util.Date;
+import java.util.List;
 
 @Component
 public class JwtProvider {
@@ -18,27 +22,49 @@ public class JwtProvider {
     private final Algorithm algorithm;
     private final JWTVerifier verifier;
     private final long expirationSeconds;
+    private final boolean stateless;
+
+    // roles and authVersion are null for tokens issued without them (older tokens)
+    public record VerifiedToken(String subject, @Nullable List<String> roles, @Nullable Long authVersion) {
+        public boolean hasAuthClaims() {
+            return roles != null && authVersion != null;
+        }
+    }
 
     public JwtProvider(@Value("${app.jwt.secret:default_jwt_change_me}") String secret,
-                       @Value("${app.jwt.expiration-seconds:3600}") long expirationSeconds) {
+                       @Value("${app.jwt.expiration-seconds:3600}") long expirationSeconds,
+                       @Value("${app.jwt.stateless:false}") boolean stateless) {
         this.algorithm = Algorithm.HMAC256(secret);
         this.verifier = JWT.require(algorithm).build();
         this.expirationSeconds = expirationSeconds;
+        this.stateless = stateless;
+    }
+
+    // When true the filter trusts the roles in the token and checks only the auth version, without loading the user
+    public boolean isStateless() {
+        return stateless;
     }
 
-    public String generateToken(String subject) {
+    // Token carrying the user's roles and authVersion (claims "roles" and "av")
+    public String generateToken(User user) {
         Instant now = Instant.now();
         return JWT.create()
-                .withSubject(subject)
+                .withSubject(user.getId())
+                .withClaim("roles", user.getRoles() == null ? List.of() : List.copyOf(user.getRoles()))
+                .withClaim("av", user.getAuthVersion())
                 .withIssuedAt(Date.from(now))
                 .withExpiresAt(Date.from(now.plusSeconds(expirationSeconds)))
                 .sign(algorithm);
     }
 
-    public String validateAndGetSubject(String token) {
+    public VerifiedToken verify(String token) {
         try {
             DecodedJWT decoded = verifier.verify(token);
-            return decoded.getSubject();
+            Claim roles = decoded.getClaim("roles");
+            Claim authVersion = decoded.getClaim("av");
+            return new VerifiedToken(decoded.getSubject(),
+                    roles.isMissing() || roles.isNull() ? null : roles.asList(String.class),
+                    authVersion.isMissing() || authVersion.isNull() ? null : authVersion.asLong());
         } catch (JWTVerificationException e) {
             throw new RuntimeException("Invalid JWT token", e);
         }
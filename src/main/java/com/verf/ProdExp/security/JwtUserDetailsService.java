@@ -1,5 +1,6 @@
 package com.verf.ProdExp.security;
 
+import com.verf.ProdExp.entity.User;
 import com.verf.ProdExp.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
 import org.springframework.context.annotation.Primary;
@@ -10,6 +11,7 @@ import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
 
+import java.util.Collection;
 import java.util.Set;
 import java.util.stream.Collectors;
 
@@ -22,19 +24,32 @@ public class JwtUserDetailsService implements UserDetailsService {
 
     @Override
     public UserDetails loadUserByUsername(String usernameOrId) throws UsernameNotFoundException {
-        // Try by email first, then by id
+        // Try by email first (form login), then by id
         return userRepository.findByEmail(usernameOrId)
                 .or(() -> userRepository.findById(usernameOrId))
-                .map(u -> org.springframework.security.core.userdetails.User.builder()
-                        .username(u.getId()) // store id as principal name to be consistent with JWT subject
-                        .password(u.getPassword())
-                        .disabled(!u.isEnabled())
-                        .authorities(toAuthorities(u.getRoles()))
-                        .build()
-                ).orElseThrow(() -> new UsernameNotFoundException("User '" + usernameOrId + "' not found"));
+                .map(u -> toUserDetails(u, u.getPassword()))
+                .orElseThrow(() -> new UsernameNotFoundException("User '" + usernameOrId + "' not found"));
     }
 
-    private Set<GrantedAuthority> toAuthorities(Set<String> roles) {
+    /**
+     * Lookup by id only, for JWT subjects. No password is carried: the token has already been verified.
+     */
+    public UserDetails loadUserById(String id) throws UsernameNotFoundException {
+        return userRepository.findById(id)
+                .map(u -> toUserDetails(u, ""))
+                .orElseThrow(() -> new UsernameNotFoundException("User '" + id + "' not found"));
+    }
+
+    private UserDetails toUserDetails(User u, String password) {
+        return org.springframework.security.core.userdetails.User.builder()
+                .username(u.getId()) // store id as principal name to be consistent with JWT subject
+                .password(password)
+                .disabled(!u.isEnabled())
+                .authorities(toAuthorities(u.getRoles()))
+                .build();
+    }
+
+    static Set<GrantedAuthority> toAuthorities(Collection<String> roles) {
         if (roles == null) return Set.of();
         return roles.stream()
                 .map(r -> r.startsWith("ROLE_") ? r : "ROLE_" + r)
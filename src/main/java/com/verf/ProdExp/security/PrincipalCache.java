@@ -0,0 +1,61 @@
+package com.verf.ProdExp.security;
+
+import com.verf.ProdExp.config.TwoLevelCacheManager;
+import com.verf.ProdExp.util.LruCache;
+import org.jspecify.annotations.Nullable;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Authorities and enabled flag per user id, so an authenticated request does not start with a Mongo read.
+ * {@link com.verf.ProdExp.service.impl.UserServiceImpl} invalidates a user whenever their enabled flag or password
+ * changes; the eviction is broadcast to the other instances over the cache invalidation channel, and the short TTL
+ * bounds staleness if a message is lost.
+ */
+@Component
+public class PrincipalCache {
+
+    public static final String NAME = "principals";
+
+    private final JwtUserDetailsService userDetailsService;
+    private final TwoLevelCacheManager cacheManager;
+    private final LruCache<String, UserDetails> principals;
+    // Bumped on every invalidation so a load that raced one is served once but not cached
+    private final AtomicLong invalidations = new AtomicLong();
+
+    public PrincipalCache(JwtUserDetailsService userDetailsService,
+                          TwoLevelCacheManager cacheManager,
+                          @Value("${app.security.principalCache.maxEntries:10000}") int maxEntries,
+                          @Value("${app.security.principalCache.ttlSeconds:30}") long ttlSeconds) {
+        this.userDetailsService = userDetailsService;
+        this.cacheManager = cacheManager;
+        this.principals = new LruCache<>(maxEntries, ttlSeconds * 1000L);
+        cacheManager.registerLocal(NAME, this::evictLocal);
+    }
+
+    public UserDetails get(String userId) throws UsernameNotFoundException {
+        UserDetails cached = principals.get(userId);
+        if (cached != null) return cached;
+
+        long before = invalidations.get();
+        UserDetails loaded = userDetailsService.loadUserById(userId);
+        if (invalidations.get() != before) return loaded;
+        return principals.putIfAbsent(userId, loaded);
+    }
+
+    // Call after the change has been saved
+    public void invalidate(String userId) {
+        evictLocal(userId);
+        cacheManager.publish(NAME, userId);
+    }
+
+    private void evictLocal(@Nullable String userId) {
+        invalidations.incrementAndGet();
+        if (userId == null) principals.clear();
+        else principals.remove(userId);
+    }
+}
@@ -1,6 +1,8 @@
 package com.verf.ProdExp.security;
 
-import com.verf.ProdExp.repository.ProductRepository;
+import com.verf.ProdExp.repository.MaintenanceJobRepository;
+import com.verf.ProdExp.entity.Product;
+import com.verf.ProdExp.service.RequestProductLoader;
 import lombok.RequiredArgsConstructor;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -9,21 +11,28 @@ import org.springframework.stereotype.Component;
 @Component("securityService")
 @RequiredArgsConstructor
 public class SecurityService {
-    private final ProductRepository repository;
+    private final RequestProductLoader productLoader;
+    private final MaintenanceJobRepository maintenanceJobRepository;
 
     /**
      * Returns true if the current authenticated principal username equals the userId on the product.
      * Returns false if product not found or no authenticated user.
+     * Loads the whole product; the service call that follows in the same request reuses it.
      */
     public boolean isProductOwner(String productId) {
         if (productId == null) return false;
-        return repository.findById(productId)
-                .map(p -> {
-                    String owner = p.getUserId();
-                    String current = currentUsername();
-                    return current != null && current.equals(owner);
-                })
-                .orElse(false);
+        Product product = productLoader.findLiveOrArchived(productId);
+        return product != null && isUserMatching(product.getUserId());
+    }
+
+    /**
+     * Same check as {@link #isProductOwner} for endpoints that never read the product itself (single-update
+     * PATCHes): answered from the {_id, userId} index without fetching the document.
+     */
+    public boolean ownsProduct(String productId) {
+        if (productId == null) return false;
+        String owner = productLoader.findOwnerId(productId);
+        return owner != null && isUserMatching(owner);
     }
 
     /**
@@ -35,6 +44,17 @@ public class SecurityService {
         return current != null && current.equals(userId);
     }
 
+    /**
+     * Returns true if the current authenticated user submitted the given maintenance job.
+     */
+    public boolean isJobRequester(String jobId) {
+        if (jobId == null) return false;
+        String current = currentUsername();
+        return current != null && maintenanceJobRepository.findById(jobId)
+                .map(j -> current.equals(j.getRequestedBy()))
+                .orElse(false);
+    }
+
     private String currentUsername() {
         Authentication auth = SecurityContextHolder.getContext().getAuthentication();
         if (auth == null || !auth.isAuthenticated()) return null;
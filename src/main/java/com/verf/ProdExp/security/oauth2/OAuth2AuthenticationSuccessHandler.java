@@ -33,7 +33,7 @@ public class OAuth2AuthenticationSuccessHandler extends SimpleUrlAuthenticationS
             throw new IllegalStateException("Unsupported principal type: " + principal.getClass());
         }
         System.out.println(frontendBaseUrl);
-        String token = jwtProvider.generateToken(user.getId());
+        String token = jwtProvider.generateToken(user);
         String redirectUrl = UriComponentsBuilder
                 .fromUriString(frontendBaseUrl + "/oauth2/callback")
                 .queryParam("token", token)
@@ -13,4 +13,9 @@ public interface AIRateLimiterService {
      * Get remaining allowed requests for the authenticated user for today.
      */
     long getRemaining(String userId);
+
+    /**
+     * Drop today's counter for the user (used when the user is deleted).
+     */
+    void reset(String userId);
 }
@@ -0,0 +1,21 @@
+package com.verf.ProdExp.service;
+
+import com.verf.ProdExp.dto.ConsumptionWeekResponse;
+import com.verf.ProdExp.entity.Product;
+import org.jspecify.annotations.Nullable;
+
+import java.util.List;
+
+public interface ConsumptionService {
+    // Logs a change of quantityConsumed (new - old) against today's bucket and the user's weekly rollup; 0 is ignored
+    void record(Product product, double delta);
+    // Same for many products in one go (one bulk write per collection); zero deltas are skipped
+    void recordAll(List<Delta> deltas);
+    // Average consumed per day over the recent window, or null when the product has no logged consumption at all
+    @Nullable Double recentDailyAverage(Product product);
+    // The last `weeks` weeks including the current one, oldest first; weeks without consumption are zero
+    List<ConsumptionWeekResponse> weeklyByUser(String userId, int weeks);
+
+    record Delta(Product product, double delta) {
+    }
+}
@@ -5,9 +5,20 @@ import com.verf.ProdExp.entity.User;
 
 import java.time.ZoneId;
 import java.util.List;
+import java.util.Set;
 
 public interface MailService {
     void sendVerificationEmail(User user, String rawToken);
     void sendWelcomeEmail(User user);
     void sendProductReminderDigest(User user, List<Product> dueProducts, ZoneId zoneId);
+
+    /**
+     * Sends several reminder digests in one call. Returns the ids of users whose digest was delivered;
+     * users missing from the result keep their due timestamps and are retried on the next run.
+     * Backends that cannot batch fall back to one message per digest.
+     */
+    Set<String> sendProductReminderDigests(List<ReminderDigest> digests, ZoneId zoneId);
+
+    record ReminderDigest(User user, List<Product> dueProducts) {
+    }
 }
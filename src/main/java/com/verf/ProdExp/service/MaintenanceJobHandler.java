@@ -0,0 +1,40 @@
+package com.verf.ProdExp.service;
+
+import org.jspecify.annotations.Nullable;
+
+import java.util.Map;
+
+/**
+ * One kind of background maintenance job. Implementations walk their collection in _id order and must be
+ * idempotent per batch: after a crash the batch following the last checkpoint is processed again.
+ */
+public interface MaintenanceJobHandler {
+
+    // Stable identifier stored on the job document and used when submitting
+    String type();
+
+    // Rejects unusable params at submission time (BadRequestException), before anything is persisted
+    default void validate(Map<String, String> params) {
+    }
+
+    // Identifies the job's target when at most one job of this type may be active for it (e.g. the userId); null
+    // allows any number of concurrent jobs
+    default @Nullable String dedupeKey(Map<String, String> params) {
+        return null;
+    }
+
+    // Processes up to batchSize documents with _id greater than afterId (all when afterId is null)
+    BatchResult processBatch(Map<String, String> params, @Nullable String afterId, int batchSize);
+
+    record BatchResult(
+            int processed,
+            int updated,
+            // Last _id read in this batch; becomes the job cursor
+            @Nullable String lastId,
+            boolean done
+    ) {
+        public static BatchResult of(int processed, int updated, @Nullable String lastId, int batchSize) {
+            return new BatchResult(processed, updated, lastId, processed < batchSize);
+        }
+    }
+}
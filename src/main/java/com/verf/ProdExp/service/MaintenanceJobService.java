@@ -0,0 +1,23 @@
+package com.verf.ProdExp.service;
+
+import com.verf.ProdExp.dto.MaintenanceJobResponse;
+import com.verf.ProdExp.entity.MaintenanceJobStatus;
+import org.jspecify.annotations.Nullable;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+
+import java.util.Map;
+
+public interface MaintenanceJobService {
+    // Persists a pending job; a worker picks it up on its next poll. When the handler has a dedupeKey and a job for
+    // the same target is already pending or running, that job is returned instead.
+    MaintenanceJobResponse submit(String type, @Nullable Map<String, String> params, @Nullable String requestedBy);
+    // Submits unless a job of the same type is already pending or running (for scheduled jobs); null when skipped
+    @Nullable MaintenanceJobResponse submitIfIdle(String type, @Nullable Map<String, String> params, @Nullable String requestedBy);
+    MaintenanceJobResponse get(String id);
+    Page<MaintenanceJobResponse> list(@Nullable MaintenanceJobStatus status, Pageable pageable);
+    // Pending jobs are cancelled at once; running jobs stop after their current batch
+    MaintenanceJobResponse cancel(String id);
+    // Re-queues a failed or cancelled job; it resumes from its checkpoint
+    MaintenanceJobResponse retry(String id);
+}
@@ -0,0 +1,10 @@
+package com.verf.ProdExp.service;
+
+import com.verf.ProdExp.dto.AutocompleteSuggestion;
+
+import java.util.List;
+
+public interface ProductAutocompleteService {
+    // Top suggestions (product names and tags) starting with the typed prefix, most common first.
+    List<AutocompleteSuggestion> suggest(String userId, String prefix, int limit);
+}
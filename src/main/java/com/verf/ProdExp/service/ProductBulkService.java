@@ -0,0 +1,13 @@
+package com.verf.ProdExp.service;
+
+import com.verf.ProdExp.dto.BulkProductOperation;
+import com.verf.ProdExp.dto.BulkProductResponse;
+import org.jspecify.annotations.Nullable;
+
+import java.util.List;
+
+public interface ProductBulkService {
+    // Applies the operations with one ownership query and one bulk write. Products not owned by ownerId are
+    // reported as not found; a null ownerId (admin) may touch any product. Failures are per operation.
+    BulkProductResponse apply(List<BulkProductOperation> operations, @Nullable String ownerId);
+}
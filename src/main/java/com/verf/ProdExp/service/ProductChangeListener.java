@@ -0,0 +1,16 @@
+package com.verf.ProdExp.service;
+
+import com.verf.ProdExp.entity.Product;
+
+/**
+ * Callbacks for in-memory views that must follow product writes. Invoked after the write has been persisted.
+ */
+public interface ProductChangeListener {
+    void onProductSaved(Product product);
+
+    void onProductDeleted(Product product);
+
+    // All products of the user were removed (account deletion)
+    default void onUserProductsDeleted(String userId) {
+    }
+}
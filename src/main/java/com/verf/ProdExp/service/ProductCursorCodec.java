@@ -0,0 +1,115 @@
+package com.verf.ProdExp.service;
+
+import com.verf.ProdExp.exception.BadRequestException;
+import com.verf.ProdExp.repository.ProductCursor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Base64;
+
+/**
+ * Encodes keyset positions as opaque, HMAC-signed continuation tokens.
+ * A token is bound to the user and filter set it was issued for, so it cannot be replayed against another listing.
+ */
+@Component
+public class ProductCursorCodec {
+
+    private static final String VERSION = "1";
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    private final SecretKeySpec key;
+
+    public ProductCursorCodec(@Value("${app.products.cursor.secret:}") String secret) {
+        // A key of its own: sharing the JWT secret would make every cursor an HMAC oracle for that key, and a
+        // built-in default would let anyone forge cursors
+        if (secret == null || secret.isBlank()) {
+            throw new IllegalStateException("app.products.cursor.secret (PRODUCTS_CURSOR_SECRET) is required");
+        }
+        this.key = new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), HMAC_ALGORITHM);
+    }
+
+    public String encode(String userId, String filterKey, ProductCursor cursor) {
+        String payload = String.join("|",
+                VERSION,
+                b64(userId),
+                b64(filterKey),
+                cursor.sortBy(),
+                cursor.direction().name(),
+                typeTag(cursor.lastValue()),
+                b64(cursor.lastValue() == null ? "" : cursor.lastValue().toString()),
+                cursor.lastId()
+        );
+        byte[] payloadBytes = payload.getBytes(StandardCharsets.UTF_8);
+        return ENCODER.encodeToString(payloadBytes) + "." + ENCODER.encodeToString(sign(payloadBytes));
+    }
+
+    public ProductCursor decode(String token, String userId, String filterKey) {
+        try {
+            int dot = token.indexOf('.');
+            if (dot <= 0) throw new BadRequestException("Invalid cursor");
+            byte[] payloadBytes = DECODER.decode(token.substring(0, dot));
+            byte[] signature = DECODER.decode(token.substring(dot + 1));
+            if (!MessageDigest.isEqual(sign(payloadBytes), signature)) throw new BadRequestException("Invalid cursor");
+
+            String[] parts = new String(payloadBytes, StandardCharsets.UTF_8).split("\\|", -1);
+            if (parts.length != 8 || !VERSION.equals(parts[0])) throw new BadRequestException("Invalid cursor");
+            if (!userId.equals(unb64(parts[1])) || !filterKey.equals(unb64(parts[2]))) {
+                throw new BadRequestException("Cursor does not match this listing; restart from the first page");
+            }
+
+            Sort.Direction direction = Sort.Direction.valueOf(parts[4]);
+            Object lastValue = parseValue(parts[5], unb64(parts[6]));
+            return new ProductCursor(parts[3], direction, lastValue, parts[7]);
+        } catch (IllegalArgumentException | java.time.format.DateTimeParseException e) {
+            throw new BadRequestException("Invalid cursor", e);
+        }
+    }
+
+    private String typeTag(Object value) {
+        if (value == null) return "z";
+        if (value instanceof String) return "s";
+        if (value instanceof LocalDate) return "d";
+        if (value instanceof Instant) return "i";
+        if (value instanceof Double) return "n";
+        throw new IllegalArgumentException("Unsupported cursor value type: " + value.getClass());
+    }
+
+    private Object parseValue(String tag, String raw) {
+        return switch (tag) {
+            case "z" -> null;
+            case "s" -> raw;
+            case "d" -> LocalDate.parse(raw);
+            case "i" -> Instant.parse(raw);
+            case "n" -> Double.valueOf(raw);
+            default -> throw new IllegalArgumentException("Unknown cursor value type: " + tag);
+        };
+    }
+
+    private byte[] sign(byte[] payload) {
+        try {
+            Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+            mac.init(key);
+            return mac.doFinal(payload);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Failed to sign cursor", e);
+        }
+    }
+
+    private static String b64(String value) {
+        return ENCODER.encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String unb64(String value) {
+        return new String(DECODER.decode(value), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,15 @@
+package com.verf.ProdExp.service;
+
+import org.jspecify.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+public interface ProductExportService {
+    /**
+     * Writes every product of userId (all users when null) to out as NDJSON, one ProductResponse per line, in id
+     * order, reading from a Mongo cursor so memory use does not depend on the number of products. With gzip the
+     * output is a gzip stream. Returns the number of products written.
+     */
+    long exportNdjson(@Nullable String userId, boolean includeArchived, boolean gzip, OutputStream out) throws IOException;
+}
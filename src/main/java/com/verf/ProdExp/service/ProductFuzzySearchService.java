@@ -0,0 +1,10 @@
+package com.verf.ProdExp.service;
+
+import com.verf.ProdExp.dto.ProductSearchHit;
+
+import java.util.List;
+
+public interface ProductFuzzySearchService {
+    // Typo-tolerant search over product names and tags, best matches first.
+    List<ProductSearchHit> search(String userId, String query, int limit);
+}
@@ -0,0 +1,18 @@
+package com.verf.ProdExp.service;
+
+import com.verf.ProdExp.dto.ProductImportSummary;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+public interface ProductImportService {
+
+    enum Format { NDJSON, CSV }
+
+    /**
+     * Reads products for userId from in and inserts them in batches. One NDJSON result line per row is written to
+     * report as each batch completes, then a summary line. Memory use is bounded by the batch size, not the input.
+     */
+    ProductImportSummary importProducts(String userId, InputStream in, Format format, OutputStream report) throws IOException;
+}
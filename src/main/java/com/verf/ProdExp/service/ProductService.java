@@ -1,5 +1,7 @@
 package com.verf.ProdExp.service;
 
+import com.verf.ProdExp.dto.CursorPage;
+import com.verf.ProdExp.dto.MaintenanceJobResponse;
 import com.verf.ProdExp.dto.ProductRequest;
 import com.verf.ProdExp.dto.ProductResponse;
 import com.verf.ProdExp.dto.QuantityConsumedUpdateRequest;
@@ -8,13 +10,18 @@ import com.verf.ProdExp.entity.Status;
 import org.jspecify.annotations.Nullable;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
 
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 public interface ProductService {
     ProductResponse create(ProductRequest request);
+    // Falls back to the archive, so links from includeArchived listings keep working
     ProductResponse getById(String id);
+    // Materializes the whole collection; prefer ProductExportService for anything beyond small data sets
     List<ProductResponse> getAll();
     ProductResponse update(String id, ProductRequest request);
     void delete(String id);
@@ -22,10 +29,18 @@ public interface ProductService {
     ProductResponse updateQuantityConsumed(String id, QuantityConsumedUpdateRequest request);
     // Retrieve all products for a given user (paginated)
     Page<ProductResponse> getByUser(Pageable pageable, String userId);
-    // Retrieve all products for a given user (paginated) with optional filters
-    Page<ProductResponse> getByUser(Pageable pageable, String userId, @Nullable List<Status> statuses, @Nullable List<NotificationFrequency> frequencies);
+    // Retrieve all products for a given user (paginated) with optional filters. When fields is set, only those
+    // response fields are loaded and populated (see ProductFields). includeArchived also returns archived products.
+    Page<ProductResponse> getByUser(Pageable pageable, String userId, @Nullable List<Status> statuses, @Nullable List<NotificationFrequency> frequencies, @Nullable Set<String> fields, boolean includeArchived);
+    // Same as getByUser but without computing the total (no count query)
+    Slice<ProductResponse> getSliceByUser(Pageable pageable, String userId, @Nullable List<Status> statuses, @Nullable List<NotificationFrequency> frequencies, @Nullable Set<String> fields, boolean includeArchived);
+    // Keyset (cursor) pagination; cursor is null for the first page. Cost per page is independent of depth.
+    CursorPage<ProductResponse> getByUserCursor(String userId, @Nullable List<Status> statuses, @Nullable List<NotificationFrequency> frequencies,
+                                                String sortBy, Sort.Direction direction, @Nullable String cursor, int size);
     // Recompute and persist statuses for all products of a user. Returns number of products updated.
     int recomputeStatusesForUser(String userId);
+    // Same as recomputeStatusesForUser but as a background maintenance job; returns the queued job
+    MaintenanceJobResponse submitRecomputeStatusesJob(String userId, @Nullable String requestedBy);
     // Update notification frequency for a product
     ProductResponse updateNotificationFrequency(String id, NotificationFrequency frequency);
     // Clear manual notification frequency override and return to auto mode
@@ -39,6 +54,8 @@ public interface ProductService {
     Map<String, Object> analyzeById(String id);
 
     // Search products by name for a specific user (paginated). Query is matched against nameLower as a prefix for index-friendly searching.
-    Page<ProductResponse> searchByUser(Pageable pageable, String userId, String query);
+    Page<ProductResponse> searchByUser(Pageable pageable, String userId, String query, @Nullable Set<String> fields, boolean includeArchived);
+    // Same as searchByUser but without computing the total (no count query)
+    Slice<ProductResponse> searchSliceByUser(Pageable pageable, String userId, String query, @Nullable Set<String> fields, boolean includeArchived);
 }
 
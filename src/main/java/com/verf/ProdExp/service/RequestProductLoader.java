@@ -0,0 +1,87 @@
+package com.verf.ProdExp.service;
+
+import com.verf.ProdExp.entity.Product;
+import com.verf.ProdExp.repository.ProductRepository;
+import lombok.RequiredArgsConstructor;
+import org.jspecify.annotations.Nullable;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Product reads memoized for the current HTTP request, so the ownership check in
+ * {@link com.verf.ProdExp.security.SecurityService} and the service call behind it share one Mongo read.
+ * Outside a request (jobs, schedulers, streamed bodies) every call goes to Mongo.
+ * <p>
+ * Code that writes a product and reads it again in the same request must {@link #forget} it first.
+ */
+@Component
+@RequiredArgsConstructor
+public class RequestProductLoader {
+
+    private static final String PRODUCTS = RequestProductLoader.class.getName() + ".products";
+    private static final String OWNERS = RequestProductLoader.class.getName() + ".owners";
+
+    private final ProductRepository repository;
+
+    // product is null when the id was looked up and does not exist
+    private record Loaded(@Nullable Product product, boolean archived) {
+    }
+
+    // Live product, or null
+    public @Nullable Product findLive(String id) {
+        Loaded loaded = load(id);
+        return loaded.archived() ? null : loaded.product();
+    }
+
+    // Live product, falling back to the archive, or null
+    public @Nullable Product findLiveOrArchived(String id) {
+        return load(id).product();
+    }
+
+    // Owner of the product, without reading the document unless this request already has it
+    public @Nullable String findOwnerId(String id) {
+        Map<String, Loaded> products = memo(PRODUCTS);
+        Loaded loaded = products == null ? null : products.get(id);
+        if (loaded != null) return loaded.product() == null ? null : loaded.product().getUserId();
+
+        Map<String, String> owners = memo(OWNERS);
+        if (owners == null) return repository.findOwnerId(id);
+        if (owners.containsKey(id)) return owners.get(id);
+        String owner = repository.findOwnerId(id);
+        owners.put(id, owner);
+        return owner;
+    }
+
+    public void forget(String id) {
+        Map<String, Loaded> products = memo(PRODUCTS);
+        if (products != null) products.remove(id);
+    }
+
+    private Loaded load(String id) {
+        Map<String, Loaded> products = memo(PRODUCTS);
+        Loaded cached = products == null ? null : products.get(id);
+        if (cached != null) return cached;
+
+        Product live = repository.findById(id).orElse(null);
+        Loaded loaded = live != null ? new Loaded(live, false)
+                : new Loaded(repository.findArchivedById(id).orElse(null), true);
+        if (products != null) products.put(id, loaded);
+        return loaded;
+    }
+
+    // The request's map for the given attribute, or null when there is no current request
+    @SuppressWarnings("unchecked")
+    private static <V> @Nullable Map<String, V> memo(String attribute) {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes == null) return null;
+        Object existing = attributes.getAttribute(attribute, RequestAttributes.SCOPE_REQUEST);
+        if (existing != null) return (Map<String, V>) existing;
+        Map<String, V> created = new HashMap<>();
+        attributes.setAttribute(attribute, created, RequestAttributes.SCOPE_REQUEST);
+        return created;
+    }
+}
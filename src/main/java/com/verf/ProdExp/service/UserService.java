@@ -1,11 +1,13 @@
 package com.verf.ProdExp.service;
 
+import com.verf.ProdExp.dto.MaintenanceJobResponse;
 import com.verf.ProdExp.dto.RegisterRequest;
 import com.verf.ProdExp.dto.UserResponse;
 import com.verf.ProdExp.dto.UpdateUserRequest;
 import com.verf.ProdExp.dto.UpdateEmailRequest;
 import com.verf.ProdExp.dto.UpdatePasswordRequest;
 import com.verf.ProdExp.dto.UpdateDisplayNameRequest;
+import org.jspecify.annotations.Nullable;
 
 public interface UserService {
 
@@ -15,7 +17,8 @@ public interface UserService {
 
     UserResponse update(String id, UpdateUserRequest request);
 
-    void delete(String id);
+    // Disables the account now and queues a background job that removes the user and their data
+    MaintenanceJobResponse delete(String id, @Nullable String requestedBy);
 
     // New methods for field-specific updates
     UserResponse updateEmail(String id, UpdateEmailRequest request);
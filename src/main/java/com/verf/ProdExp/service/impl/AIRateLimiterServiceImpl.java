@@ -54,6 +54,12 @@ public class AIRateLimiterServiceImpl implements AIRateLimiterService {
         }
     }
 
+    @Override
+    public void reset(String userId) {
+        if (userId == null || userId.isBlank()) return;
+        redis.delete(buildKey(userId));
+    }
+
     private String buildKey(String userId) {
         String today = LocalDate.now(ZoneId.systemDefault()).toString(); // yyyy-MM-dd
         return String.format("rate_limit:ai:%s:%s", userId, today);
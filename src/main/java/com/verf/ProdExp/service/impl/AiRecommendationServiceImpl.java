@@ -27,7 +27,8 @@ public class AiRecommendationServiceImpl implements AiRecommendationService {
     }
 
     private String buildCacheKey(RecommendationRequest req) {
-        return String.format("ai:recommend:%s:%d:%.2f:%s",
+        // The cache's key prefix already names the cache
+        return String.format("%s:%d:%.2f:%s",
                 req.productName().trim(),
                 req.daysLeft(),
                 req.quantityLeft(),
@@ -0,0 +1,102 @@
+package com.verf.ProdExp.service.impl;
+
+import com.verf.ProdExp.dto.ConsumptionWeekResponse;
+import com.verf.ProdExp.entity.ConsumptionDaily;
+import com.verf.ProdExp.entity.ConsumptionWeekly;
+import com.verf.ProdExp.entity.Product;
+import com.verf.ProdExp.exception.BadRequestException;
+import com.verf.ProdExp.repository.ConsumptionDailyRepository;
+import com.verf.ProdExp.repository.ConsumptionDailyRepositoryCustom;
+import com.verf.ProdExp.repository.ConsumptionWeeklyRepository;
+import com.verf.ProdExp.service.ConsumptionService;
+import lombok.RequiredArgsConstructor;
+import org.jspecify.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAdjusters;
+import java.util.*;
+
+@Service
+@RequiredArgsConstructor
+public class ConsumptionServiceImpl implements ConsumptionService {
+
+    private static final Logger log = LoggerFactory.getLogger(ConsumptionServiceImpl.class);
+
+    // Days of history behind the "recent" pace
+    static final int PACE_WINDOW_DAYS = 14;
+    private static final int MAX_WEEKS = 104;
+
+    private final ConsumptionDailyRepository dailyRepository;
+    private final ConsumptionWeeklyRepository weeklyRepository;
+
+    @Override
+    public void record(Product product, double delta) {
+        if (delta == 0.0 || product.getId() == null) return;
+        try {
+            dailyRepository.recordConsumption(product.getUserId(), product.getId(), product.getUnit(), delta, LocalDate.now(), Instant.now());
+        } catch (Exception ex) {
+            // The product write already succeeded; a missed event only makes the pace slightly less accurate
+            log.warn("Could not record consumption for productId={}: {}", product.getId(), ex.getMessage());
+        }
+    }
+
+    @Override
+    public void recordAll(List<Delta> deltas) {
+        List<ConsumptionDailyRepositoryCustom.Consumption> consumptions = new ArrayList<>(deltas.size());
+        for (Delta d : deltas) {
+            Product p = d.product();
+            if (d.delta() == 0.0 || p.getId() == null) continue;
+            consumptions.add(new ConsumptionDailyRepositoryCustom.Consumption(p.getUserId(), p.getId(), p.getUnit(), d.delta()));
+        }
+        if (consumptions.isEmpty()) return;
+        try {
+            dailyRepository.recordConsumptions(consumptions, LocalDate.now(), Instant.now());
+        } catch (Exception ex) {
+            log.warn("Could not record consumption for {} products: {}", consumptions.size(), ex.getMessage());
+        }
+    }
+
+    @Override
+    public @Nullable Double recentDailyAverage(Product product) {
+        LocalDate today = LocalDate.now();
+        LocalDate from = today.minusDays(PACE_WINDOW_DAYS - 1);
+        List<ConsumptionDaily> days = dailyRepository.findByProductIdAndDayGreaterThanEqual(product.getId(), from);
+        if (days.isEmpty() && !dailyRepository.existsByProductId(product.getId())) return null;
+
+        // A product bought inside the window is averaged over the days it has actually been around
+        long window = PACE_WINDOW_DAYS;
+        if (product.getPurchaseDate() != null && product.getPurchaseDate().isAfter(from)) {
+            window = Math.max(1, ChronoUnit.DAYS.between(product.getPurchaseDate(), today) + 1);
+        }
+        double consumed = days.stream().mapToDouble(ConsumptionDaily::getConsumed).sum();
+        return Math.max(0.0, consumed) / window;
+    }
+
+    @Override
+    public List<ConsumptionWeekResponse> weeklyByUser(String userId, int weeks) {
+        if (userId == null || userId.trim().isEmpty()) throw new BadRequestException("userId is required");
+        if (weeks <= 0 || weeks > MAX_WEEKS) throw new BadRequestException("weeks must be between 1 and " + MAX_WEEKS);
+
+        LocalDate currentWeek = LocalDate.now().with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+        LocalDate from = currentWeek.minusWeeks(weeks - 1);
+        Map<LocalDate, ConsumptionWeekly> byWeek = new HashMap<>();
+        for (ConsumptionWeekly w : weeklyRepository.findByUserIdAndWeekStartGreaterThanEqualOrderByWeekStartAsc(userId, from)) {
+            byWeek.put(w.getWeekStart(), w);
+        }
+
+        List<ConsumptionWeekResponse> out = new ArrayList<>(weeks);
+        for (LocalDate week = from; !week.isAfter(currentWeek); week = week.plusWeeks(1)) {
+            ConsumptionWeekly w = byWeek.get(week);
+            out.add(w == null
+                    ? new ConsumptionWeekResponse(week, Map.of(), 0)
+                    : new ConsumptionWeekResponse(week, w.getConsumedByUnit() == null ? Map.of() : w.getConsumedByUnit(), w.getEvents()));
+        }
+        return out;
+    }
+}
@@ -0,0 +1,56 @@
+package com.verf.ProdExp.service.impl;
+
+import com.verf.ProdExp.entity.Product;
+import com.verf.ProdExp.mapper.ProductMapper;
+import com.verf.ProdExp.repository.ProductRepository;
+import com.verf.ProdExp.repository.ProductSearchTermRepository;
+import com.verf.ProdExp.repository.ProductSearchTermRepositoryCustom.Postings;
+import com.verf.ProdExp.service.MaintenanceJobHandler;
+import lombok.RequiredArgsConstructor;
+import org.jspecify.annotations.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+// Moves products still carrying the legacy nameTokens array onto product_search_terms, then drops the old field
+// and, after the last batch, its index. Postings are written before the field is dropped, so a retried batch only
+// rewrites postings that are already there.
+@Component
+@RequiredArgsConstructor
+public class LegacyNameTokenMigrationJobHandler implements MaintenanceJobHandler {
+
+    public static final String TYPE = "migrate-name-tokens";
+
+    private final ProductRepository productRepository;
+    private final ProductSearchTermRepository searchTermRepository;
+
+    @Override
+    public String type() {
+        return TYPE;
+    }
+
+    @Override
+    public BatchResult processBatch(Map<String, String> params, @Nullable String afterId, int batchSize) {
+        List<Product> legacy = productRepository.findWithLegacyNameTokensAfterId(afterId, batchSize);
+        migrate(legacy);
+        String last = legacy.isEmpty() ? null : legacy.get(legacy.size() - 1).getId();
+        BatchResult result = BatchResult.of(legacy.size(), legacy.size(), last, batchSize);
+        // Nothing writes the field anymore, so once the last batch is through the index is dead weight
+        if (result.done()) productRepository.dropLegacyNameTokensIndex();
+        return result;
+    }
+
+    private void migrate(List<Product> products) {
+        if (products.isEmpty()) return;
+        List<Postings> postings = new ArrayList<>(products.size());
+        List<String> ids = new ArrayList<>(products.size());
+        for (Product p : products) {
+            postings.add(new Postings(p.getUserId(), p.getId(), ProductMapper.searchTerms(p)));
+            ids.add(p.getId());
+        }
+        searchTermRepository.replaceTerms(postings);
+        productRepository.clearLegacyNameTokens(ids);
+    }
+}
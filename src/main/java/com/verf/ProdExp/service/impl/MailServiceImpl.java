@@ -1,29 +1,32 @@
 // java
 package com.verf.ProdExp.service.impl;
 
-import com.verf.ProdExp.entity.NotificationFrequency;
 import com.verf.ProdExp.entity.Product;
 import com.verf.ProdExp.entity.User;
 import com.verf.ProdExp.service.MailService;
 import jakarta.mail.MessagingException;
 import jakarta.mail.internet.MimeMessage;
 import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.mail.javamail.MimeMessageHelper;
 import org.springframework.stereotype.Service;
 
 import java.time.ZoneId;
-import java.time.format.DateTimeFormatter;
-import java.util.Comparator;
+import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.Locale;
+import java.util.Set;
 
 @Service
 @RequiredArgsConstructor
 public class MailServiceImpl implements MailService {
 
+    private static final Logger log = LoggerFactory.getLogger(MailServiceImpl.class);
+
     private final JavaMailSender mailSender;
+    private final ReminderDigestRenderer digestRenderer;
 
     // Backend base URL (where /api/auth/verify-email is hosted)
     @Value("${app.backendBaseUrl:http://localhost:8080}")
@@ -137,84 +140,28 @@ public class MailServiceImpl implements MailService {
 
             helper.setTo(user.getEmail());
             helper.setFrom(fromAddress);
-            helper.setSubject("Verfalarm reminder: " + dueProducts.size() + " products due");
-
-            DateTimeFormatter dateFormatter = DateTimeFormatter.ofPattern("yyyy-MM-dd").withZone(zoneId);
-
-            List<Product> sorted = dueProducts.stream()
-                    .sorted(Comparator.comparing(Product::getExpirationDate))
-                    .toList();
-
-            StringBuilder rows = new StringBuilder();
-            for (Product p : sorted) {
-                double bought = p.getQuantityBought() == null ? 0.0 : p.getQuantityBought();
-                double consumed = p.getQuantityConsumed() == null ? 0.0 : p.getQuantityConsumed();
-                double remaining = Math.max(0.0, bought - consumed);
-                String freqLabel = frequencyLabel(p.getNotificationFrequency());
-                String expiryLabel = p.getExpirationDate() == null ? "-" : p.getExpirationDate().format(java.time.format.DateTimeFormatter.ISO_DATE);
-                String nextLabel = p.getNextNotificationAt() == null ? "-" : dateFormatter.format(p.getNextNotificationAt());
-
-                rows.append("<tr>")
-                        .append("<td style=\"padding:8px;border-bottom:1px solid #e5e7eb;\">").append(escapeHtml(p.getName())).append("</td>")
-                        .append("<td style=\"padding:8px;border-bottom:1px solid #e5e7eb;\">").append(expiryLabel).append("</td>")
-                        .append("<td style=\"padding:8px;border-bottom:1px solid #e5e7eb;\">")
-                        .append(String.format(Locale.US, "%.2f %s", remaining, p.getUnit()))
-                        .append("</td>")
-                        .append("<td style=\"padding:8px;border-bottom:1px solid #e5e7eb;\">").append(freqLabel).append("</td>")
-                        .append("<td style=\"padding:8px;border-bottom:1px solid #e5e7eb;\">").append(nextLabel).append("</td>")
-                        .append("</tr>");
-            }
-
-            String html = """
-                    <div style="font-family: Arial, sans-serif; line-height: 1.6;">
-                      <h2>Hi %s, reminders are due</h2>
-                      <p>These products are due for a reminder in this run:</p>
-                      <table style="border-collapse: collapse; width: 100%%; max-width: 760px;">
-                        <thead>
-                          <tr style="background: #f3f4f6;">
-                            <th style="text-align:left;padding:8px;border-bottom:1px solid #d1d5db;">Product</th>
-                            <th style="text-align:left;padding:8px;border-bottom:1px solid #d1d5db;">Expires</th>
-                            <th style="text-align:left;padding:8px;border-bottom:1px solid #d1d5db;">Remaining</th>
-                            <th style="text-align:left;padding:8px;border-bottom:1px solid #d1d5db;">Frequency</th>
-                            <th style="text-align:left;padding:8px;border-bottom:1px solid #d1d5db;">Next Reminder</th>
-                          </tr>
-                        </thead>
-                        <tbody>
-                          %s
-                        </tbody>
-                      </table>
-                      <p style="margin-top:16px;">You can review or update product details in the app.</p>
-                      <hr style="margin: 24px 0;" />
-                      <p style="font-size: 12px; color: #666;">Verfalarm - Product Expiry Reminder</p>
-                    </div>
-                    """.formatted(escapeHtml(user.getDisplayName()), rows.toString());
-
-            helper.setText(html, true);
+            helper.setSubject(digestRenderer.subject(dueProducts));
+            helper.setText(digestRenderer.html(user, dueProducts, zoneId), true);
             mailSender.send(message);
         } catch (MessagingException e) {
             throw new RuntimeException("Failed to send reminder digest email", e);
         }
     }
 
-    private String frequencyLabel(NotificationFrequency frequency) {
-        if (frequency == null) return "Monthly";
-        return switch (frequency) {
-            case DAILY -> "Daily";
-            case WEEKLY -> "Weekly";
-            case MONTHLY -> "Monthly";
-            case QUARTERLY -> "Quarterly";
-            case NEVER -> "Never";
-        };
-    }
-
-    private String escapeHtml(String value) {
-        if (value == null) return "";
-        return value
-                .replace("&", "&amp;")
-                .replace("<", "&lt;")
-                .replace(">", "&gt;")
-                .replace("\"", "&quot;")
-                .replace("'", "&#x27;");
+    // SMTP has no batch send: one message per digest, and a failure only affects that user
+    @Override
+    public Set<String> sendProductReminderDigests(List<ReminderDigest> digests, ZoneId zoneId) {
+        Set<String> delivered = new LinkedHashSet<>();
+        for (ReminderDigest digest : digests) {
+            try {
+                sendProductReminderDigest(digest.user(), digest.dueProducts(), zoneId);
+                delivered.add(digest.user().getId());
+            } catch (Exception ex) {
+                log.error("Failed to send reminder digest for userId={} dueCount={}",
+                        digest.user().getId(), digest.dueProducts().size(), ex);
+            }
+        }
+        return delivered;
     }
 
 }
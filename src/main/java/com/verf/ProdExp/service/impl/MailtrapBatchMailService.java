@@ -0,0 +1,202 @@
+package com.verf.ProdExp.service.impl;
+
+import com.verf.ProdExp.config.MailDeliveryProperties;
+import com.verf.ProdExp.entity.Product;
+import com.verf.ProdExp.entity.User;
+import com.verf.ProdExp.service.MailService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestClient;
+import org.springframework.web.client.RestClientResponseException;
+
+import java.time.Duration;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * MailService backend that delivers reminder digests through Mailtrap's batch sending API, so one HTTP
+ * request carries up to {@code batchSize} digests instead of one SMTP session each.
+ * Verification and welcome emails are single messages and keep going through SMTP.
+ * Enabled with {@code app.mail.provider=mailtrap}.
+ */
+@Service
+@Primary
+@ConditionalOnProperty(prefix = "app.mail", name = "provider", havingValue = "mailtrap")
+public class MailtrapBatchMailService implements MailService {
+
+    private static final Logger log = LoggerFactory.getLogger(MailtrapBatchMailService.class);
+    private static final String BATCH_PATH = "/api/batch";
+
+    private final MailServiceImpl smtpMailService;
+    private final ReminderDigestRenderer digestRenderer;
+    private final MailDeliveryProperties.Mailtrap config;
+    private final RestClient restClient;
+
+    public MailtrapBatchMailService(MailServiceImpl smtpMailService,
+                                    ReminderDigestRenderer digestRenderer,
+                                    MailDeliveryProperties mailDeliveryProperties) {
+        this.smtpMailService = smtpMailService;
+        this.digestRenderer = digestRenderer;
+        this.config = mailDeliveryProperties.getMailtrap();
+        // Without a token every batch would be rejected and silently go out over SMTP instead
+        if (config.getToken() == null || config.getToken().isBlank()) {
+            throw new IllegalStateException("app.mail.provider=mailtrap requires app.mail.mailtrap.token (MAILTRAP_TOKEN)");
+        }
+
+        SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+        requestFactory.setConnectTimeout(Duration.ofMillis(config.getConnectTimeoutMs()));
+        requestFactory.setReadTimeout(Duration.ofMillis(config.getReadTimeoutMs()));
+
+        this.restClient = RestClient.builder()
+                .baseUrl(config.getBaseUrl())
+                .requestFactory(requestFactory)
+                .defaultHeader(HttpHeaders.AUTHORIZATION, "Bearer " + config.getToken())
+                .build();
+    }
+
+    @Override
+    public void sendVerificationEmail(User user, String rawToken) {
+        smtpMailService.sendVerificationEmail(user, rawToken);
+    }
+
+    @Override
+    public void sendWelcomeEmail(User user) {
+        smtpMailService.sendWelcomeEmail(user);
+    }
+
+    @Override
+    public void sendProductReminderDigest(User user, List<Product> dueProducts, ZoneId zoneId) {
+        if (user == null || dueProducts == null || dueProducts.isEmpty()) return;
+        Set<String> delivered = sendProductReminderDigests(List.of(new ReminderDigest(user, dueProducts)), zoneId);
+        if (!delivered.contains(user.getId())) {
+            throw new RuntimeException("Failed to send reminder digest email");
+        }
+    }
+
+    @Override
+    public Set<String> sendProductReminderDigests(List<ReminderDigest> digests, ZoneId zoneId) {
+        Set<String> delivered = new LinkedHashSet<>();
+        if (digests == null || digests.isEmpty()) return delivered;
+
+        int batchSize = Math.max(1, Math.min(500, config.getBatchSize()));
+        for (int from = 0; from < digests.size(); from += batchSize) {
+            List<ReminderDigest> batch = digests.subList(from, Math.min(from + batchSize, digests.size()));
+            List<ReminderDigest> failed = sendBatch(batch, zoneId, delivered);
+            if (!failed.isEmpty()) {
+                fallback(failed, zoneId, delivered);
+            }
+        }
+        return delivered;
+    }
+
+    // Returns the digests of this batch that were not accepted by Mailtrap.
+    private List<ReminderDigest> sendBatch(List<ReminderDigest> batch, ZoneId zoneId, Set<String> delivered) {
+        Map<String, Object> payload = buildPayload(batch, zoneId);
+
+        Map<String, Object> response = null;
+        int attempt = 0;
+        while (response == null) {
+            attempt++;
+            try {
+                response = restClient.post()
+                        .uri(BATCH_PATH)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .body(payload)
+                        .retrieve()
+                        .body(new ParameterizedTypeReference<Map<String, Object>>() {});
+                if (response == null) response = Map.of();
+            } catch (RestClientResponseException ex) {
+                boolean retryable = ex.getStatusCode().is5xxServerError() || ex.getStatusCode().value() == 429;
+                log.warn("Mailtrap batch attempt {} failed: status={} batchSize={}", attempt, ex.getStatusCode().value(), batch.size());
+                if (!retryable || attempt > config.getMaxRetries() || !backoff(attempt)) return batch;
+            } catch (ResourceAccessException ex) {
+                log.warn("Mailtrap batch attempt {} failed: {} batchSize={}", attempt, ex.getMessage(), batch.size());
+                if (attempt > config.getMaxRetries() || !backoff(attempt)) return batch;
+            }
+        }
+
+        // The batch endpoint reports success per message, in request order.
+        Object responses = response.get("responses");
+        if (!(responses instanceof List<?> results) || results.size() != batch.size()) {
+            if (Boolean.TRUE.equals(response.get("success"))) {
+                batch.forEach(d -> delivered.add(d.user().getId()));
+                return List.of();
+            }
+            log.warn("Mailtrap batch returned an unexpected response; treating all {} digests as failed: {}", batch.size(), response);
+            return batch;
+        }
+
+        List<ReminderDigest> failed = new ArrayList<>();
+        for (int i = 0; i < batch.size(); i++) {
+            ReminderDigest digest = batch.get(i);
+            Object result = results.get(i);
+            if (result instanceof Map<?, ?> r && Boolean.TRUE.equals(r.get("success"))) {
+                delivered.add(digest.user().getId());
+            } else {
+                log.warn("Mailtrap rejected reminder digest for userId={}: {}", digest.user().getId(), result);
+                failed.add(digest);
+            }
+        }
+        return failed;
+    }
+
+    private void fallback(List<ReminderDigest> failed, ZoneId zoneId, Set<String> delivered) {
+        if (!config.isFallbackToSmtp()) {
+            log.error("Dropping {} reminder digests for this run; SMTP fallback is disabled", failed.size());
+            return;
+        }
+        log.info("Falling back to SMTP for {} reminder digests", failed.size());
+        delivered.addAll(smtpMailService.sendProductReminderDigests(failed, zoneId));
+    }
+
+    private Map<String, Object> buildPayload(List<ReminderDigest> batch, ZoneId zoneId) {
+        Map<String, Object> from = new LinkedHashMap<>();
+        from.put("email", config.getFromEmail());
+        from.put("name", config.getFromName());
+
+        Map<String, Object> base = new LinkedHashMap<>();
+        base.put("from", from);
+        base.put("category", config.getCategory());
+
+        List<Map<String, Object>> requests = new ArrayList<>(batch.size());
+        for (ReminderDigest digest : batch) {
+            Map<String, Object> to = new LinkedHashMap<>();
+            to.put("email", digest.user().getEmail());
+            if (digest.user().getDisplayName() != null) to.put("name", digest.user().getDisplayName());
+
+            Map<String, Object> request = new LinkedHashMap<>();
+            request.put("to", List.of(to));
+            request.put("subject", digestRenderer.subject(digest.dueProducts()));
+            request.put("html", digestRenderer.html(digest.user(), digest.dueProducts(), zoneId));
+            requests.add(request);
+        }
+
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("base", base);
+        payload.put("requests", requests);
+        return payload;
+    }
+
+    private boolean backoff(int attempt) {
+        try {
+            Thread.sleep(config.getRetryBackoffMs() * (1L << Math.min(attempt - 1, 6)));
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
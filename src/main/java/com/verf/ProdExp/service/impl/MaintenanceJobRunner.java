@@ -0,0 +1,137 @@
+package com.verf.ProdExp.service.impl;
+
+import com.verf.ProdExp.config.JobProperties;
+import com.verf.ProdExp.entity.MaintenanceJob;
+import com.verf.ProdExp.entity.MaintenanceJobStatus;
+import com.verf.ProdExp.repository.MaintenanceJobRepository;
+import com.verf.ProdExp.service.MaintenanceJobHandler;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Polls maintenance_jobs and runs claimed jobs on a small worker pool, one batch and one checkpoint at a time.
+ * Claims are leases: a job whose worker stops checkpointing (crash, kill -9) is picked up again once the lease
+ * expires and continues from its cursor.
+ */
+@Component
+public class MaintenanceJobRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(MaintenanceJobRunner.class);
+
+    private final MaintenanceJobRepository repository;
+    private final Map<String, MaintenanceJobHandler> handlers;
+    private final JobProperties jobProperties;
+    private final String owner = "worker-" + UUID.randomUUID();
+    private final ExecutorService workers;
+    private final AtomicInteger active = new AtomicInteger();
+    private volatile boolean stopping;
+
+    public MaintenanceJobRunner(MaintenanceJobRepository repository, List<MaintenanceJobHandler> handlers, JobProperties jobProperties) {
+        this.repository = repository;
+        this.handlers = handlers.stream().collect(Collectors.toMap(MaintenanceJobHandler::type, Function.identity()));
+        this.jobProperties = jobProperties;
+        AtomicInteger threadNo = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(Math.max(1, jobProperties.getWorkers()), r -> {
+            Thread t = new Thread(r, "maintenance-job-" + threadNo.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${app.jobs.pollIntervalMs:2000}")
+    public void poll() {
+        if (!jobProperties.isEnabled() || stopping) return;
+
+        while (active.get() < Math.max(1, jobProperties.getWorkers())) {
+            Instant now = Instant.now();
+            MaintenanceJob job = repository.claimNext(owner, now, leaseFrom(now));
+            if (job == null) return;
+
+            active.incrementAndGet();
+            workers.execute(() -> {
+                try {
+                    run(job);
+                } finally {
+                    active.decrementAndGet();
+                }
+            });
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        stopping = true;
+        workers.shutdown();
+        // Workers hand their job back after the current batch; anything still running is resumed after its lease expires.
+        workers.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    private void run(MaintenanceJob job) {
+        MaintenanceJobHandler handler = handlers.get(job.getType());
+        if (handler == null) {
+            repository.finish(job.getId(), owner, MaintenanceJobStatus.FAILED, "No handler for job type " + job.getType(), Instant.now());
+            return;
+        }
+
+        log.info("Running job id={} type={} from cursor={} (attempt {})", job.getId(), job.getType(), job.getCursor(), job.getAttempts());
+        Map<String, String> params = job.getParams() == null ? Map.of() : job.getParams();
+        int batchSize = Math.max(1, jobProperties.getBatchSize());
+        String cursor = job.getCursor();
+        try {
+            while (true) {
+                if (job.isCancelRequested()) {
+                    repository.finish(job.getId(), owner, MaintenanceJobStatus.CANCELLED, null, Instant.now());
+                    log.info("Job id={} cancelled at cursor={}", job.getId(), cursor);
+                    return;
+                }
+                if (stopping) {
+                    repository.release(job.getId(), owner, Instant.now());
+                    return;
+                }
+
+                MaintenanceJobHandler.BatchResult batch = handler.processBatch(params, cursor, batchSize);
+                if (batch.lastId() != null) cursor = batch.lastId();
+
+                job = repository.checkpoint(job.getId(), owner, cursor, batch.processed(), batch.updated(), leaseFrom(Instant.now()));
+                if (job == null) {
+                    // Lease expired and another worker took over; it continues from the last checkpoint
+                    log.warn("Lost lease on job at cursor={}; stopping this worker", cursor);
+                    return;
+                }
+                if (batch.done()) {
+                    repository.finish(job.getId(), owner, MaintenanceJobStatus.COMPLETED, null, Instant.now());
+                    log.info("Job id={} type={} completed: processed={} updated={}", job.getId(), job.getType(), job.getProcessed(), job.getUpdated());
+                    return;
+                }
+
+                long throttle = jobProperties.getThrottleMs();
+                if (throttle > 0) Thread.sleep(throttle);
+            }
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            repository.release(job.getId(), owner, Instant.now());
+        } catch (Exception ex) {
+            // Cursor stays at the last good checkpoint, so a retry resumes rather than restarts
+            log.error("Job id={} type={} failed at cursor={}: {}", job.getId(), job.getType(), cursor, ex.getMessage(), ex);
+            repository.finish(job.getId(), owner, MaintenanceJobStatus.FAILED, ex.getMessage(), Instant.now());
+        }
+    }
+
+    private Instant leaseFrom(Instant now) {
+        return now.plusSeconds(Math.max(1, jobProperties.getLeaseSeconds()));
+    }
+}
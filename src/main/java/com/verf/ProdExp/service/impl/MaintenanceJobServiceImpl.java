@@ -0,0 +1,120 @@
+package com.verf.ProdExp.service.impl;
+
+import com.verf.ProdExp.dto.MaintenanceJobResponse;
+import com.verf.ProdExp.entity.MaintenanceJob;
+import com.verf.ProdExp.entity.MaintenanceJobStatus;
+import com.verf.ProdExp.exception.BadRequestException;
+import com.verf.ProdExp.exception.ResourceNotFoundException;
+import com.verf.ProdExp.repository.MaintenanceJobRepository;
+import com.verf.ProdExp.service.MaintenanceJobHandler;
+import com.verf.ProdExp.service.MaintenanceJobService;
+import org.jspecify.annotations.Nullable;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+@Service
+public class MaintenanceJobServiceImpl implements MaintenanceJobService {
+
+    private final MaintenanceJobRepository repository;
+    private final Map<String, MaintenanceJobHandler> handlers;
+
+    public MaintenanceJobServiceImpl(MaintenanceJobRepository repository, List<MaintenanceJobHandler> handlers) {
+        this.repository = repository;
+        this.handlers = handlers.stream().collect(Collectors.toMap(MaintenanceJobHandler::type, Function.identity()));
+    }
+
+    @Override
+    public MaintenanceJobResponse submit(String type, @Nullable Map<String, String> params, @Nullable String requestedBy) {
+        MaintenanceJobHandler handler = handlers.get(type);
+        if (handler == null) {
+            throw new BadRequestException("Unknown job type: " + type + ". Allowed: " + new TreeMap<>(handlers).keySet());
+        }
+        Map<String, String> p = params == null ? Map.of() : Map.copyOf(params);
+        handler.validate(p);
+
+        String targetKey = handler.dedupeKey(p);
+        String dedupeKey = targetKey == null ? null : type + ":" + targetKey;
+
+        Instant now = Instant.now();
+        MaintenanceJob job = MaintenanceJob.builder()
+                .type(type)
+                .params(p)
+                .status(MaintenanceJobStatus.PENDING)
+                .dedupeKey(dedupeKey)
+                .activeKey(dedupeKey)
+                .requestedBy(requestedBy)
+                .createdAt(now)
+                .updatedAt(now)
+                .build();
+        try {
+            return toResponse(repository.insert(job));
+        } catch (DuplicateKeyException ex) {
+            // Already queued or running for this target: hand back that job. It may have finished in between,
+            // in which case a new one is queued.
+            return repository.findByActiveKey(dedupeKey)
+                    .map(this::toResponse)
+                    .orElseGet(() -> submit(type, params, requestedBy));
+        }
+    }
+
+    @Override
+    public @Nullable MaintenanceJobResponse submitIfIdle(String type, @Nullable Map<String, String> params, @Nullable String requestedBy) {
+        if (repository.existsByTypeAndStatusIn(type, List.of(MaintenanceJobStatus.PENDING, MaintenanceJobStatus.RUNNING))) {
+            return null;
+        }
+        return submit(type, params, requestedBy);
+    }
+
+    @Override
+    public MaintenanceJobResponse get(String id) {
+        return toResponse(find(id));
+    }
+
+    @Override
+    public Page<MaintenanceJobResponse> list(@Nullable MaintenanceJobStatus status, Pageable pageable) {
+        Page<MaintenanceJob> page = status == null ? repository.findAll(pageable) : repository.findByStatus(status, pageable);
+        return page.map(this::toResponse);
+    }
+
+    @Override
+    public MaintenanceJobResponse cancel(String id) {
+        MaintenanceJob job = repository.requestCancel(id, Instant.now());
+        if (job == null) throw new ResourceNotFoundException("Job with id '" + id + "' not found");
+        return toResponse(job);
+    }
+
+    @Override
+    public MaintenanceJobResponse retry(String id) {
+        MaintenanceJob job;
+        try {
+            job = repository.resetForRetry(id, Instant.now());
+        } catch (DuplicateKeyException ex) {
+            throw new BadRequestException("Another job for the same target is already pending or running");
+        }
+        if (job == null) {
+            MaintenanceJob existing = find(id);
+            throw new BadRequestException("Only failed or cancelled jobs can be retried; job is " + existing.getStatus());
+        }
+        return toResponse(job);
+    }
+
+    private MaintenanceJob find(String id) {
+        return repository.findById(id)
+                .orElseThrow(() -> new ResourceNotFoundException("Job with id '" + id + "' not found"));
+    }
+
+    private MaintenanceJobResponse toResponse(MaintenanceJob j) {
+        return new MaintenanceJobResponse(j.getId(), j.getType(), j.getParams(), j.getStatus(), j.getCursor(),
+                j.getProcessed(), j.getUpdated(), j.getAttempts(), j.isCancelRequested(), j.getLastError(),
+                j.getRequestedBy(), j.getCreatedAt(), j.getStartedAt(), j.getUpdatedAt(), j.getFinishedAt());
+    }
+}
@@ -24,6 +24,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 @Service
 @RequiredArgsConstructor
@@ -98,7 +99,7 @@ public class NotificationSchedulerService {
             return;
         }
 
-        List<Product> sentProducts = new ArrayList<>();
+        List<MailService.ReminderDigest> digests = new ArrayList<>();
         for (Map.Entry<String, List<Product>> entry : dueByUserId.entrySet()) {
             String userId = entry.getKey();
             List<Product> dueProducts = entry.getValue();
@@ -115,19 +116,21 @@ public class NotificationSchedulerService {
                         userId, user.isEnabled(), user.isEmailVerified());
                 continue;
             }
+            digests.add(new MailService.ReminderDigest(user, dueProducts));
+        }
 
-            try {
-                mailService.sendProductReminderDigest(user, dueProducts, notificationSchedulePolicy.zoneId());
-                for (Product product : dueProducts) {
-                    product.setLastNotificationSentAt(now);
-                    product.setNextNotificationAt(
-                            notificationSchedulePolicy.computeNextNotificationAt(product.getNotificationFrequency(), now)
-                    );
-                    sentProducts.add(product);
-                }
-            } catch (Exception ex) {
-                // Keep due timestamps unchanged; scheduler will retry on next run.
-                log.error("Failed to send reminder digest for userId={} dueCount={}", userId, dueProducts.size(), ex);
+        // Users missing from the delivered set keep their due timestamps; scheduler will retry on next run.
+        Set<String> delivered = mailService.sendProductReminderDigests(digests, notificationSchedulePolicy.zoneId());
+
+        List<Product> sentProducts = new ArrayList<>();
+        for (MailService.ReminderDigest digest : digests) {
+            if (!delivered.contains(digest.user().getId())) continue;
+            for (Product product : digest.dueProducts()) {
+                product.setLastNotificationSentAt(now);
+                product.setNextNotificationAt(
+                        notificationSchedulePolicy.computeNextNotificationAt(product.getNotificationFrequency(), now)
+                );
+                sentProducts.add(product);
             }
         }
 
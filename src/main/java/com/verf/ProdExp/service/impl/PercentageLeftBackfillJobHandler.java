@@ -0,0 +1,34 @@
+package com.verf.ProdExp.service.impl;
+
+import com.verf.ProdExp.repository.ProductRepository;
+import com.verf.ProdExp.service.MaintenanceJobHandler;
+import lombok.RequiredArgsConstructor;
+import org.jspecify.annotations.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+
+// Fills in percentageLeft on products written before the field existed; until then they sort first.
+@Component
+@RequiredArgsConstructor
+public class PercentageLeftBackfillJobHandler implements MaintenanceJobHandler {
+
+    public static final String TYPE = "backfill-percentage-left";
+
+    private final ProductRepository productRepository;
+
+    @Override
+    public String type() {
+        return TYPE;
+    }
+
+    @Override
+    public BatchResult processBatch(Map<String, String> params, @Nullable String afterId, int batchSize) {
+        List<String> ids = productRepository.findIdsWithoutPercentageLeft(afterId, batchSize);
+        if (ids.isEmpty()) return BatchResult.of(0, 0, null, batchSize);
+
+        long updated = productRepository.backfillPercentageLeft(ids);
+        return BatchResult.of(ids.size(), (int) updated, ids.get(ids.size() - 1), batchSize);
+    }
+}
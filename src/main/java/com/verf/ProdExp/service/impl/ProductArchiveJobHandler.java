@@ -0,0 +1,50 @@
+package com.verf.ProdExp.service.impl;
+
+import com.verf.ProdExp.config.ProductProperties;
+import com.verf.ProdExp.entity.Product;
+import com.verf.ProdExp.repository.ProductRepository;
+import com.verf.ProdExp.service.MaintenanceJobHandler;
+import com.verf.ProdExp.service.ProductChangeListener;
+import lombok.RequiredArgsConstructor;
+import org.jspecify.annotations.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+// Moves products that have been FINISHED or EXPIRED for app.products.archive.afterDays from products to
+// products_archive. Search postings are kept so includeArchived searches still find them.
+@Component
+@RequiredArgsConstructor
+public class ProductArchiveJobHandler implements MaintenanceJobHandler {
+
+    public static final String TYPE = "archive-products";
+
+    private final ProductRepository productRepository;
+    private final ProductProperties productProperties;
+    private final List<ProductChangeListener> changeListeners;
+
+    @Override
+    public String type() {
+        return TYPE;
+    }
+
+    @Override
+    public BatchResult processBatch(Map<String, String> params, @Nullable String afterId, int batchSize) {
+        int afterDays = Math.max(0, productProperties.getArchive().getAfterDays());
+        Instant now = Instant.now();
+        List<Product> candidates = productRepository.findArchivableAfterId(afterId,
+                LocalDate.now().minusDays(afterDays), now.minus(Duration.ofDays(afterDays)), batchSize);
+        if (candidates.isEmpty()) return BatchResult.of(0, 0, null, batchSize);
+
+        List<Product> moved = productRepository.archive(candidates, now);
+        // In-memory indexes only cover hot products
+        for (Product p : moved) {
+            changeListeners.forEach(l -> l.onProductDeleted(p));
+        }
+        return BatchResult.of(candidates.size(), moved.size(), candidates.get(candidates.size() - 1).getId(), batchSize);
+    }
+}
@@ -0,0 +1,51 @@
+package com.verf.ProdExp.service.impl;
+
+import com.verf.ProdExp.config.ProductProperties;
+import com.verf.ProdExp.dto.MaintenanceJobResponse;
+import com.verf.ProdExp.repository.ProductRepository;
+import com.verf.ProdExp.service.MaintenanceJobService;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+
+// Queues the archive job on a schedule; the move itself runs batched and resumable on the job workers.
+@Service
+@RequiredArgsConstructor
+public class ProductArchiveScheduler {
+
+    private static final Logger log = LoggerFactory.getLogger(ProductArchiveScheduler.class);
+
+    private final ProductRepository productRepository;
+    private final MaintenanceJobService maintenanceJobService;
+    private final ProductProperties productProperties;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void ensureIndexes() {
+        try {
+            productRepository.ensureArchiveIndexes();
+        } catch (Exception ex) {
+            log.error("Could not create products_archive indexes: {}", ex.getMessage(), ex);
+        }
+    }
+
+    @Scheduled(cron = "${app.products.archive.cron:0 30 1 * * *}")
+    public void queueArchiveJob() {
+        if (!productProperties.getArchive().isEnabled()) {
+            log.debug("Product archiving is disabled.");
+            return;
+        }
+
+        MaintenanceJobResponse job = maintenanceJobService.submitIfIdle(ProductArchiveJobHandler.TYPE, Map.of(), "scheduler");
+        if (job == null) {
+            log.debug("Archive job already queued or running; skipping.");
+        } else {
+            log.info("Queued archive job id={}", job.id());
+        }
+    }
+}
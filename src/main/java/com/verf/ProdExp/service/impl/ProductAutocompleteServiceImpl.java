@@ -0,0 +1,103 @@
+package com.verf.ProdExp.service.impl;
+
+import com.verf.ProdExp.config.ProductProperties;
+import com.verf.ProdExp.dto.AutocompleteSuggestion;
+import com.verf.ProdExp.entity.Product;
+import com.verf.ProdExp.repository.ProductRepository;
+import com.verf.ProdExp.service.ProductAutocompleteService;
+import com.verf.ProdExp.util.CompressedTrie;
+import com.verf.ProdExp.util.SearchTokenizer;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+
+/**
+ * Type-ahead over product names and tags from a per-user compressed trie held in memory (lifecycle in
+ * {@link UserIndexCache}).
+ */
+@Service
+public class ProductAutocompleteServiceImpl extends UserIndexCache<ProductAutocompleteServiceImpl.UserIndex>
+        implements ProductAutocompleteService {
+
+    private static final Comparator<Map.Entry<Suggestion, Integer>> RANKING =
+            Map.Entry.<Suggestion, Integer>comparingByValue().reversed()
+                    .thenComparing(e -> e.getKey().text());
+
+    private final int maxLimit;
+
+    public ProductAutocompleteServiceImpl(ProductRepository productRepository, ProductProperties productProperties) {
+        super(productRepository, productProperties.getAutocomplete().getMaxUsers(), productProperties.getAutocomplete().getTtlSeconds());
+        this.maxLimit = Math.max(1, productProperties.getAutocomplete().getMaxLimit());
+    }
+
+    @Override
+    protected UserIndex newIndex() {
+        return new UserIndex();
+    }
+
+    @Override
+    public List<AutocompleteSuggestion> suggest(String userId, String prefix, int limit) {
+        String p = prefix == null ? "" : SearchTokenizer.fold(prefix.trim());
+        if (p.isEmpty()) return List.of();
+        int k = Math.min(Math.max(1, limit), maxLimit);
+        return indexFor(userId).suggest(p, k);
+    }
+
+    private record Suggestion(String text, String type) {
+    }
+
+    // Trie plus each product's contributions, so an update can retract exactly what the product added.
+    static final class UserIndex implements UserIndexCache.Index {
+        private final CompressedTrie<Suggestion> trie = new CompressedTrie<>(RANKING);
+        private final Map<String, Set<Map.Entry<String, Suggestion>>> byProduct = new HashMap<>();
+
+        @Override
+        public synchronized void put(Product p) {
+            remove(p.getId());
+            Set<Map.Entry<String, Suggestion>> entries = entriesFor(p);
+            entries.forEach(e -> trie.add(e.getKey(), e.getValue()));
+            byProduct.put(p.getId(), entries);
+        }
+
+        @Override
+        public synchronized void remove(String productId) {
+            Set<Map.Entry<String, Suggestion>> previous = byProduct.remove(productId);
+            if (previous != null) previous.forEach(e -> trie.remove(e.getKey(), e.getValue()));
+        }
+
+        synchronized List<AutocompleteSuggestion> suggest(String prefix, int k) {
+            List<AutocompleteSuggestion> out = new ArrayList<>(k);
+            for (Map.Entry<Suggestion, Integer> e : trie.topK(prefix, k)) {
+                out.add(new AutocompleteSuggestion(e.getKey().text(), e.getKey().type(), e.getValue()));
+            }
+            return out;
+        }
+
+        // (key, suggestion) pairs. Names and tags are reachable from the start of every word, so "cream" finds "Strawberries & Cream".
+        private static Set<Map.Entry<String, Suggestion>> entriesFor(Product p) {
+            Set<Map.Entry<String, Suggestion>> entries = new HashSet<>();
+            if (p.getName() != null) {
+                Suggestion name = new Suggestion(p.getName().trim(), "NAME");
+                for (String key : wordSuffixes(SearchTokenizer.fold(p.getName().trim()))) entries.add(Map.entry(key, name));
+            }
+            if (p.getTags() != null) {
+                for (String tag : p.getTags()) {
+                    if (tag == null || tag.isBlank()) continue;
+                    Suggestion s = new Suggestion(tag.trim(), "TAG");
+                    for (String key : wordSuffixes(SearchTokenizer.fold(tag.trim()))) entries.add(Map.entry(key, s));
+                }
+            }
+            return entries;
+        }
+
+        private static List<String> wordSuffixes(String text) {
+            List<String> out = new ArrayList<>();
+            for (int i = 0; i < text.length(); i++) {
+                boolean wordStart = Character.isLetterOrDigit(text.charAt(i))
+                        && (i == 0 || !Character.isLetterOrDigit(text.charAt(i - 1)));
+                if (wordStart) out.add(text.substring(i));
+            }
+            return out;
+        }
+    }
+}
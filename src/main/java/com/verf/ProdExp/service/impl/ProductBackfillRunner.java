@@ -0,0 +1,59 @@
+package com.verf.ProdExp.service.impl;
+
+import com.verf.ProdExp.config.ProductProperties;
+import com.verf.ProdExp.dto.MaintenanceJobResponse;
+import com.verf.ProdExp.service.MaintenanceJobService;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * Fills in derived product fields for documents written before those fields existed. The work runs batched and
+ * resumable on the job workers; every instance only queues it at startup, and a job already pending or running is
+ * not queued twice. Each job only touches documents that still need it, so repeated runs are cheap no-ops.
+ */
+@Component
+@RequiredArgsConstructor
+public class ProductBackfillRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(ProductBackfillRunner.class);
+
+    private final MaintenanceJobService maintenanceJobService;
+    private final ProductProperties productProperties;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfill() {
+        if (!productProperties.getBackfill().isEnabled()) {
+            log.debug("Product backfill is disabled.");
+            return;
+        }
+
+        // Unfilled documents simply sort first until the job has run
+        queue(PercentageLeftBackfillJobHandler.TYPE);
+
+        // Unmigrated products are not found by search until the job has run; everything else keeps working
+        queue(LegacyNameTokenMigrationJobHandler.TYPE);
+
+        // Outdated postings still match plain ASCII queries; accented queries improve once the job has run
+        queue(SearchTermReindexJobHandler.TYPE);
+    }
+
+    private void queue(String type) {
+        try {
+            MaintenanceJobResponse job = maintenanceJobService.submitIfIdle(type, Map.of(), "startup");
+            if (job == null) {
+                log.debug("{} job already queued or running; skipping.", type);
+            } else {
+                log.info("Queued {} job id={}", type, job.id());
+            }
+        } catch (Exception ex) {
+            // Never block startup; the next instance to start queues it again
+            log.error("Could not queue {} job: {}", type, ex.getMessage(), ex);
+        }
+    }
+}
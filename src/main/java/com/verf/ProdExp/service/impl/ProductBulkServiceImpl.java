@@ -0,0 +1,261 @@
+package com.verf.ProdExp.service.impl;
+
+import com.verf.ProdExp.dto.BulkProductOperation;
+import com.verf.ProdExp.dto.BulkProductResponse;
+import com.verf.ProdExp.dto.BulkProductResult;
+import com.verf.ProdExp.entity.Product;
+import com.verf.ProdExp.exception.BadRequestException;
+import com.verf.ProdExp.mapper.ProductMapper;
+import com.verf.ProdExp.repository.ConsumptionDailyRepository;
+import com.verf.ProdExp.repository.ProductPatch;
+import com.verf.ProdExp.repository.ProductRepository;
+import com.verf.ProdExp.repository.ProductRepositoryCustom;
+import com.verf.ProdExp.repository.ProductSearchTermRepository;
+import com.verf.ProdExp.repository.ProductSearchTermRepositoryCustom;
+import com.verf.ProdExp.service.ConsumptionService;
+import com.verf.ProdExp.service.NotificationSchedulePolicy;
+import com.verf.ProdExp.service.ProductBulkService;
+import com.verf.ProdExp.service.ProductChangeListener;
+import lombok.RequiredArgsConstructor;
+import org.jspecify.annotations.Nullable;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+
+/**
+ * Bulk PATCH/DELETE for many products. All targeted products are loaded (and their ownership checked) with one
+ * $in query and every operation is applied to the loaded copy in request order, with the same rules as the single
+ * endpoints. Each product then becomes one entry of an unordered bulk write that touches only what its operations
+ * changed: tag additions/removals go in as $addToSet/$pullAll, anything else is $set under a guard on the updatedAt
+ * that was read, so a write that landed after the read is never overwritten (the product is reported as 409).
+ */
+@Service
+@RequiredArgsConstructor
+public class ProductBulkServiceImpl implements ProductBulkService {
+
+    private static final List<String> QUANTITY_FIELDS =
+            List.of("quantityConsumed", "status", "percentageLeft", "notificationFrequency", "nextNotificationAt");
+    private static final List<String> SCHEDULE_FIELDS =
+            List.of("notificationFrequency", "notificationFrequencyOverride", "nextNotificationAt");
+
+    private final ProductRepository repository;
+    private final ProductSearchTermRepository searchTermRepository;
+    private final ConsumptionDailyRepository consumptionDailyRepository;
+    private final NotificationSchedulePolicy notificationSchedulePolicy;
+    private final ConsumptionService consumptionService;
+    private final List<ProductChangeListener> changeListeners;
+    private final QuantityConsumedCoalescer quantityCoalescer;
+
+    // What the operations of one request did to one loaded product
+    private static final class Changes {
+        final Product product;
+        final @Nullable Instant readUpdatedAt;
+        final double consumedBefore;
+        final Set<String> fields = new LinkedHashSet<>();
+        final Set<String> addTags = new LinkedHashSet<>();
+        final Set<String> removeTags = new LinkedHashSet<>();
+        final List<Integer> ops = new ArrayList<>();
+        boolean retagged;
+
+        Changes(Product product) {
+            this.product = product;
+            this.readUpdatedAt = product.getUpdatedAt();
+            this.consumedBefore = product.getQuantityConsumed();
+        }
+
+        ProductPatch toPatch() {
+            // Once anything else is $set under the guard, the tags go along as the final list of the loaded copy
+            if (!fields.isEmpty() && (!addTags.isEmpty() || !removeTags.isEmpty())) fields.add("tags");
+            return new ProductPatch(product, readUpdatedAt, fields, addTags, removeTags);
+        }
+    }
+
+    @Override
+    public BulkProductResponse apply(List<BulkProductOperation> operations, @Nullable String ownerId) {
+        Set<String> ids = new LinkedHashSet<>();
+        for (BulkProductOperation op : operations) ids.add(op.id());
+        // Buffered quantity taps must land first, or they would change updatedAt under the guarded writes below.
+        // Only products with taps still buffered on this instance cost a write; for the rest this is a map lookup.
+        if (quantityCoalescer.isEnabled()) ids.forEach(quantityCoalescer::flush);
+
+        Map<String, Changes> live = new HashMap<>();
+        for (Product p : repository.findAllByIdAndOwner(ids, ownerId)) live.put(p.getId(), new Changes(p));
+        // Like the single DELETE, a delete also reaches archived products; nothing else does
+        Set<String> missing = new LinkedHashSet<>(ids);
+        missing.removeAll(live.keySet());
+        Set<String> archived = new HashSet<>();
+        for (Product p : repository.findArchivedByIdAndOwner(missing, ownerId)) archived.add(p.getId());
+
+        BulkProductResult[] results = new BulkProductResult[operations.size()];
+        Set<String> deleted = new LinkedHashSet<>();
+        Map<String, Integer> archivedDeletes = new LinkedHashMap<>();
+        Instant now = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+
+        for (int i = 0; i < operations.size(); i++) {
+            BulkProductOperation op = operations.get(i);
+            boolean gone = deleted.contains(op.id()) || archivedDeletes.containsKey(op.id());
+            if (!gone && op.op() == BulkProductOperation.Op.DELETE && archived.contains(op.id())) {
+                archivedDeletes.put(op.id(), i);
+                continue;
+            }
+            Changes changes = gone ? null : live.get(op.id());
+            if (changes == null) {
+                String error = gone
+                        ? "Product was deleted by an earlier operation in this request"
+                        : "Product with id '" + op.id() + "' not found";
+                results[i] = new BulkProductResult(i, op.id(), op.op(), 404, error, null);
+                continue;
+            }
+            try {
+                applyTo(changes, op, now);
+                if (op.op() == BulkProductOperation.Op.DELETE) deleted.add(op.id());
+                changes.ops.add(i);
+            } catch (BadRequestException ex) {
+                results[i] = new BulkProductResult(i, op.id(), op.op(), 400, ex.getMessage(), null);
+            }
+        }
+
+        List<ProductPatch> patches = new ArrayList<>();
+        for (Changes c : live.values()) {
+            if (c.ops.isEmpty() || deleted.contains(c.product.getId())) continue;
+            ProductPatch patch = c.toPatch();
+            // e.g. only empty tag lists: nothing to write
+            if (patch.guarded() || !patch.addTags().isEmpty() || !patch.removeTags().isEmpty()) patches.add(patch);
+        }
+        ProductRepositoryCustom.BulkOutcome outcome = repository.bulkApply(patches, deleted, now);
+        Map<String, String> failures = new HashMap<>(outcome.errors());
+
+        if (!archivedDeletes.isEmpty()) {
+            try {
+                repository.deleteArchivedByIds(archivedDeletes.keySet());
+            } catch (RuntimeException ex) {
+                for (String id : archivedDeletes.keySet()) failures.put(id, ex.getMessage());
+            }
+        }
+
+        // Side effects only for writes that landed
+        List<String> removed = new ArrayList<>();
+        for (String id : deleted) if (!failures.containsKey(id)) removed.add(id);
+        for (String id : archivedDeletes.keySet()) if (!failures.containsKey(id)) removed.add(id);
+        if (!removed.isEmpty()) {
+            searchTermRepository.deleteByProductIdIn(removed);
+            consumptionDailyRepository.deleteByProductIdIn(removed);
+            // Archived products are not in any in-memory index
+            for (String id : deleted) {
+                if (failures.containsKey(id)) continue;
+                Product p = live.get(id).product;
+                changeListeners.forEach(l -> l.onProductDeleted(p));
+            }
+        }
+        // One bulk write per collection for all the products, not a few round trips per product
+        List<ConsumptionService.Delta> consumed = new ArrayList<>();
+        List<ProductSearchTermRepositoryCustom.Postings> retagged = new ArrayList<>();
+        List<Product> saved = new ArrayList<>();
+        for (ProductPatch patch : patches) {
+            Product p = patch.product();
+            if (failures.containsKey(p.getId()) || outcome.conflicts().contains(p.getId())) continue;
+            Changes c = live.get(p.getId());
+            consumed.add(new ConsumptionService.Delta(p, p.getQuantityConsumed() - c.consumedBefore));
+            if (c.retagged) retagged.add(new ProductSearchTermRepositoryCustom.Postings(p.getUserId(), p.getId(), ProductMapper.searchTerms(p)));
+            saved.add(p);
+        }
+        consumptionService.recordAll(consumed);
+        if (!retagged.isEmpty()) searchTermRepository.replaceTerms(retagged);
+        for (Product p : saved) changeListeners.forEach(l -> l.onProductSaved(p));
+
+        for (Changes c : live.values()) {
+            String id = c.product.getId();
+            String failure = failures.get(id);
+            boolean conflict = outcome.conflicts().contains(id);
+            boolean isDeleted = deleted.contains(id);
+            for (int i : c.ops) {
+                BulkProductOperation op = operations.get(i);
+                if (failure != null) {
+                    results[i] = new BulkProductResult(i, id, op.op(), 500, failure, null);
+                } else if (conflict) {
+                    results[i] = new BulkProductResult(i, id, op.op(), 409,
+                            "Product was changed or deleted by another request while this one ran; retry", null);
+                } else if (isDeleted) {
+                    // Operations before the delete count as applied, but there is no product left to return
+                    int status = op.op() == BulkProductOperation.Op.DELETE ? 204 : 200;
+                    results[i] = new BulkProductResult(i, id, op.op(), status, null, null);
+                } else {
+                    results[i] = new BulkProductResult(i, id, op.op(), 200, null, ProductMapper.toResponse(c.product));
+                }
+            }
+        }
+        for (Map.Entry<String, Integer> e : archivedDeletes.entrySet()) {
+            int i = e.getValue();
+            String failure = failures.get(e.getKey());
+            results[i] = new BulkProductResult(i, e.getKey(), BulkProductOperation.Op.DELETE,
+                    failure == null ? 204 : 500, failure, null);
+        }
+
+        int succeeded = 0;
+        for (BulkProductResult r : results) if (r.status() < 300) succeeded++;
+        return new BulkProductResponse(succeeded, results.length - succeeded, List.of(results));
+    }
+
+    // Applies one operation to the loaded product and records which stored fields it changed.
+    private void applyTo(Changes changes, BulkProductOperation op, Instant now) {
+        Product p = changes.product;
+        switch (op.op()) {
+            case CONSUME -> {
+                Double q = op.quantityConsumed();
+                if (q == null) throw new BadRequestException("quantityConsumed is required");
+                if (q < 0) throw new BadRequestException("quantityConsumed must be non-negative");
+                if (q > p.getQuantityBought()) throw new BadRequestException("quantityConsumed cannot exceed quantityBought");
+                p.setQuantityConsumed(q);
+                p.setStatus(ProductMapper.computeStatus(p));
+                p.setPercentageLeft(ProductMapper.computePercentageLeft(p));
+                notificationSchedulePolicy.reconcileAfterDataChange(p, now);
+                changes.fields.addAll(QUANTITY_FIELDS);
+            }
+            case ADD_TAGS, REMOVE_TAGS -> {
+                if (op.tags() == null || op.tags().isEmpty()) throw new BadRequestException("tags are required");
+                boolean add = op.op() == BulkProductOperation.Op.ADD_TAGS;
+                Set<String> tags = p.getTags() == null ? new LinkedHashSet<>() : new LinkedHashSet<>(p.getTags());
+                for (String t : op.tags()) {
+                    if (t == null || t.isBlank()) continue;
+                    String tag = t.trim();
+                    // Net effect per tag: the last operation on it wins, and the add/remove sets stay disjoint
+                    if (add) {
+                        tags.add(tag);
+                        changes.addTags.add(tag);
+                        changes.removeTags.remove(tag);
+                    } else {
+                        tags.remove(tag);
+                        changes.removeTags.add(tag);
+                        changes.addTags.remove(tag);
+                    }
+                }
+                p.setTags(tags.isEmpty() ? null : new ArrayList<>(tags));
+                changes.retagged = true;
+            }
+            case REPLACE_TAGS -> {
+                if (op.tags() == null) throw new BadRequestException("tags are required");
+                List<String> tags = op.tags().stream().filter(Objects::nonNull).toList();
+                p.setTags(tags.isEmpty() ? null : tags);
+                changes.fields.add("tags");
+                changes.addTags.clear();
+                changes.removeTags.clear();
+                changes.retagged = true;
+            }
+            case SET_FREQUENCY -> {
+                if (op.notificationFrequency() == null) throw new BadRequestException("notificationFrequency is required");
+                notificationSchedulePolicy.applyManualOverride(p, op.notificationFrequency(), now);
+                changes.fields.addAll(SCHEDULE_FIELDS);
+            }
+            case CLEAR_FREQUENCY_OVERRIDE -> {
+                notificationSchedulePolicy.clearManualOverride(p, now);
+                changes.fields.addAll(SCHEDULE_FIELDS);
+            }
+            case DELETE -> {
+                return;
+            }
+        }
+        p.setUpdatedAt(now);
+    }
+}
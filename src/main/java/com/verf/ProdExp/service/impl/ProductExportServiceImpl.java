@@ -0,0 +1,51 @@
+package com.verf.ProdExp.service.impl;
+
+import com.verf.ProdExp.entity.Product;
+import com.verf.ProdExp.mapper.ProductMapper;
+import com.verf.ProdExp.repository.ProductRepository;
+import com.verf.ProdExp.service.ProductExportService;
+import lombok.RequiredArgsConstructor;
+import org.jspecify.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+@Service
+@RequiredArgsConstructor
+public class ProductExportServiceImpl implements ProductExportService {
+
+    private static final Logger log = LoggerFactory.getLogger(ProductExportServiceImpl.class);
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final ProductRepository repository;
+    private final JsonMapper jsonMapper;
+
+    @Override
+    public long exportNdjson(@Nullable String userId, boolean includeArchived, boolean gzip, OutputStream out) throws IOException {
+        // Not closed here: the servlet container owns the response stream
+        OutputStream target = gzip ? new GZIPOutputStream(out, BUFFER_SIZE) : out;
+        OutputStream buffered = new BufferedOutputStream(target, BUFFER_SIZE);
+
+        long written = 0;
+        try (Stream<Product> products = repository.streamAll(userId, includeArchived)) {
+            Iterator<Product> it = products.iterator();
+            while (it.hasNext()) {
+                buffered.write(jsonMapper.writeValueAsBytes(ProductMapper.toResponse(it.next())));
+                buffered.write('\n');
+                written++;
+            }
+        }
+        buffered.flush();
+        if (target instanceof GZIPOutputStream g) g.finish();
+        log.debug("Exported {} products for userId={} (includeArchived={}, gzip={})", written, userId, includeArchived, gzip);
+        return written;
+    }
+}
@@ -0,0 +1,76 @@
+package com.verf.ProdExp.service.impl;
+
+import com.verf.ProdExp.config.ProductProperties;
+import com.verf.ProdExp.dto.ProductSearchHit;
+import com.verf.ProdExp.entity.Product;
+import com.verf.ProdExp.mapper.ProductMapper;
+import com.verf.ProdExp.repository.ProductRepository;
+import com.verf.ProdExp.service.ProductFuzzySearchService;
+import com.verf.ProdExp.util.TrigramIndex;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.util.*;
+
+/**
+ * Fuzzy product search from a per-user in-memory trigram index (lifecycle in {@link UserIndexCache}). Ranking
+ * happens entirely in memory; only the top hits are loaded from Mongo.
+ */
+@Service
+public class ProductFuzzySearchServiceImpl extends UserIndexCache<ProductFuzzySearchServiceImpl.UserIndex>
+        implements ProductFuzzySearchService {
+
+    private final int maxLimit;
+
+    public ProductFuzzySearchServiceImpl(ProductRepository productRepository, ProductProperties productProperties) {
+        super(productRepository, productProperties.getFuzzy().getMaxUsers(), productProperties.getFuzzy().getTtlSeconds());
+        this.maxLimit = Math.max(1, productProperties.getFuzzy().getMaxLimit());
+    }
+
+    @Override
+    protected UserIndex newIndex() {
+        return new UserIndex();
+    }
+
+    @Override
+    public List<ProductSearchHit> search(String userId, String query, int limit) {
+        List<String> words = ProductMapper.tokenizeWords(query);
+        if (words.isEmpty()) return List.of();
+        int k = Math.min(Math.max(1, limit), maxLimit);
+
+        List<TrigramIndex.Hit> hits = indexFor(userId).search(words, k, LocalDate.now());
+        if (hits.isEmpty()) return List.of();
+
+        Map<String, Product> loaded = new HashMap<>();
+        for (Product p : productRepository.findAllById(hits.stream().map(TrigramIndex.Hit::id).toList())) {
+            loaded.put(p.getId(), p);
+        }
+
+        List<ProductSearchHit> out = new ArrayList<>(hits.size());
+        for (TrigramIndex.Hit hit : hits) {
+            Product p = loaded.get(hit.id());
+            // Skip hits deleted or moved by another instance since the index was built
+            if (p == null || !userId.equals(p.getUserId())) continue;
+            out.add(new ProductSearchHit(ProductMapper.toResponse(p), hit.score()));
+        }
+        return out;
+    }
+
+    static final class UserIndex implements UserIndexCache.Index {
+        private final TrigramIndex index = new TrigramIndex();
+
+        @Override
+        public synchronized void put(Product p) {
+            index.put(p.getId(), ProductMapper.searchTerms(p), p.getExpirationDate());
+        }
+
+        @Override
+        public synchronized void remove(String productId) {
+            index.remove(productId);
+        }
+
+        synchronized List<TrigramIndex.Hit> search(List<String> words, int k, LocalDate today) {
+            return index.search(words, k, today);
+        }
+    }
+}
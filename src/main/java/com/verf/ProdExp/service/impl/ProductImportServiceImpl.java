@@ -0,0 +1,297 @@
+package com.verf.ProdExp.service.impl;
+
+import com.verf.ProdExp.config.ProductProperties;
+import com.verf.ProdExp.dto.ProductImportRowResult;
+import com.verf.ProdExp.dto.ProductImportSummary;
+import com.verf.ProdExp.dto.ProductRequest;
+import com.verf.ProdExp.entity.Product;
+import com.verf.ProdExp.entity.Unit;
+import com.verf.ProdExp.exception.BadRequestException;
+import com.verf.ProdExp.mapper.ProductMapper;
+import com.verf.ProdExp.repository.ProductRepository;
+import com.verf.ProdExp.repository.ProductSearchTermRepository;
+import com.verf.ProdExp.service.NotificationSchedulePolicy;
+import com.verf.ProdExp.service.ProductChangeListener;
+import com.verf.ProdExp.service.ProductImportService;
+import com.verf.ProdExp.util.CsvReader;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.RequiredArgsConstructor;
+import org.jspecify.annotations.Nullable;
+import org.springframework.stereotype.Service;
+import tools.jackson.core.JacksonException;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Streaming product import. Rows are parsed one at a time, validated like POST /api/products, and inserted with
+ * one unordered insertMany per batch; search postings for a batch go in one bulk write. Only the current batch is
+ * held in memory.
+ */
+@Service
+@RequiredArgsConstructor
+public class ProductImportServiceImpl implements ProductImportService {
+
+    // CSV columns (header names, case-insensitive). quantityConsumed defaults to 0; tags are ';'-separated.
+    private static final List<String> CSV_REQUIRED = List.of("name", "quantitybought", "unit", "purchasedate", "expirationdate");
+    // Longest NDJSON line read; the same bound CsvReader puts on a CSV record
+    static final int MAX_LINE_CHARS = 64 * 1024;
+
+    private final ProductRepository repository;
+    private final ProductSearchTermRepository searchTermRepository;
+    private final NotificationSchedulePolicy notificationSchedulePolicy;
+    private final List<ProductChangeListener> changeListeners;
+    private final ProductProperties productProperties;
+    private final JsonMapper jsonMapper;
+    private final Validator validator;
+
+    private record ParsedRow(long row, @Nullable ProductRequest request, @Nullable String error) {
+    }
+
+    private interface RowSource {
+        // Next row, or null at end of input
+        @Nullable ParsedRow next() throws IOException;
+    }
+
+    private record Pending(long row, @Nullable Product product, @Nullable String error) {
+    }
+
+    // A line without its terminator; text is empty when the line was longer than allowed
+    record BoundedLine(String text, boolean tooLong) {
+    }
+
+    @Override
+    public ProductImportSummary importProducts(String userId, InputStream in, Format format, OutputStream report) throws IOException {
+        ProductProperties.BulkImport config = productProperties.getBulkImport();
+        int batchSize = Math.max(1, config.getBatchSize());
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        RowSource source = format == Format.CSV ? csvSource(userId, new CsvReader(reader)) : ndjsonSource(userId, reader);
+
+        long rows = 0;
+        long imported = 0;
+        boolean truncated = false;
+        List<Pending> batch = new ArrayList<>(batchSize);
+        ParsedRow parsed;
+        while ((parsed = source.next()) != null) {
+            if (rows == config.getMaxRows()) {
+                truncated = true;
+                break;
+            }
+            rows++;
+            batch.add(prepare(parsed));
+            if (batch.size() >= batchSize) {
+                imported += flush(userId, batch, report);
+                batch.clear();
+            }
+        }
+        imported += flush(userId, batch, report);
+
+        ProductImportSummary summary = new ProductImportSummary(rows, imported, rows - imported, truncated);
+        writeLine(report, Map.of("summary", summary));
+        report.flush();
+        return summary;
+    }
+
+    private Pending prepare(ParsedRow parsed) {
+        if (parsed.request() == null) return new Pending(parsed.row(), null, parsed.error());
+        ProductRequest request = parsed.request();
+        try {
+            Set<ConstraintViolation<ProductRequest>> violations = validator.validate(request);
+            if (!violations.isEmpty()) {
+                String message = violations.stream()
+                        .map(v -> v.getPropertyPath() + " " + v.getMessage())
+                        .sorted()
+                        .collect(Collectors.joining("; "));
+                return new Pending(parsed.row(), null, message);
+            }
+            ProductServiceImpl.validateRequest(request);
+        } catch (BadRequestException ex) {
+            return new Pending(parsed.row(), null, ex.getMessage());
+        }
+
+        // Same derivations as ProductServiceImpl.create
+        Product product = ProductMapper.toEntity(request);
+        product.setStatus(ProductMapper.computeStatus(product));
+        notificationSchedulePolicy.reconcileAfterDataChange(product, Instant.now());
+        return new Pending(parsed.row(), product, null);
+    }
+
+    // Inserts the batch, indexes what went in, and reports every row in input order. Returns the number inserted.
+    private long flush(String userId, List<Pending> batch, OutputStream report) throws IOException {
+        if (batch.isEmpty()) return 0;
+
+        List<Product> products = new ArrayList<>(batch.size());
+        for (Pending p : batch) if (p.product() != null) products.add(p.product());
+        Map<Integer, String> failures = repository.insertAll(products);
+
+        Map<String, Set<String>> terms = new HashMap<>();
+        for (int i = 0; i < products.size(); i++) {
+            if (!failures.containsKey(i)) terms.put(products.get(i).getId(), ProductMapper.searchTerms(products.get(i)));
+        }
+        searchTermRepository.addTerms(userId, terms);
+
+        long inserted = 0;
+        int index = 0;
+        for (Pending p : batch) {
+            ProductImportRowResult result;
+            String failure = p.product() == null ? null : failures.get(index++);
+            if (p.product() == null) {
+                result = new ProductImportRowResult(p.row(), 400, null, p.error());
+            } else if (failure != null) {
+                result = new ProductImportRowResult(p.row(), 500, null, failure);
+            } else {
+                inserted++;
+                Product saved = p.product();
+                changeListeners.forEach(l -> l.onProductSaved(saved));
+                result = new ProductImportRowResult(p.row(), 201, saved.getId(), null);
+            }
+            writeLine(report, result);
+        }
+        report.flush();
+        return inserted;
+    }
+
+    private RowSource ndjsonSource(String userId, BufferedReader reader) {
+        long[] line = {0};
+        return () -> {
+            BoundedLine next;
+            while ((next = readLine(reader, MAX_LINE_CHARS)) != null) {
+                line[0]++;
+                if (next.tooLong()) {
+                    return new ParsedRow(line[0], null, "Line " + line[0] + " exceeds " + MAX_LINE_CHARS + " characters");
+                }
+                if (next.text().isBlank()) continue;
+                try {
+                    ProductRequest r = jsonMapper.readValue(next.text(), ProductRequest.class);
+                    // A "null" line parses to null rather than failing
+                    if (r == null) return new ParsedRow(line[0], null, "Row must be a JSON object");
+                    return new ParsedRow(line[0], withUser(userId, r), null);
+                } catch (JacksonException ex) {
+                    return new ParsedRow(line[0], null, "Invalid JSON: " + ex.getOriginalMessage());
+                }
+            }
+            return null;
+        };
+    }
+
+    // Like BufferedReader.readLine, but keeps at most maxChars of a line: the rest is read past and dropped, so one
+    // huge line cannot take the heap with it. Null at end of input.
+    static @Nullable BoundedLine readLine(Reader reader, int maxChars) throws IOException {
+        StringBuilder text = new StringBuilder();
+        boolean tooLong = false;
+        int c;
+        while ((c = reader.read()) != -1 && c != '\n') {
+            // One spare character for the '\r' of a CRLF line end
+            if (text.length() <= maxChars) text.append((char) c);
+            else tooLong = true;
+        }
+        if (c == -1 && text.isEmpty() && !tooLong) return null;
+        if (!text.isEmpty() && text.charAt(text.length() - 1) == '\r') text.setLength(text.length() - 1);
+        if (tooLong || text.length() > maxChars) return new BoundedLine("", true);
+        return new BoundedLine(text.toString(), false);
+    }
+
+    private RowSource csvSource(String userId, CsvReader csv) throws IOException {
+        List<String> header;
+        try {
+            header = csv.next();
+        } catch (CsvReader.MalformedCsvException ex) {
+            header = null;
+        }
+        Map<String, Integer> columns = new HashMap<>();
+        if (header != null) {
+            for (int i = 0; i < header.size(); i++) columns.putIfAbsent(header.get(i).trim().toLowerCase(Locale.ROOT), i);
+        }
+        List<String> missing = CSV_REQUIRED.stream().filter(c -> !columns.containsKey(c)).toList();
+        if (!missing.isEmpty()) {
+            // Reported as a single failed row; nothing else is read
+            boolean[] done = {false};
+            String error = "CSV header is missing required columns: " + missing;
+            return () -> {
+                if (done[0]) return null;
+                done[0] = true;
+                return new ParsedRow(1, null, error);
+            };
+        }
+
+        boolean[] broken = {false};
+        return () -> {
+            if (broken[0]) return null;
+            List<String> fields;
+            try {
+                fields = csv.next();
+            } catch (CsvReader.MalformedCsvException ex) {
+                // The reader cannot resynchronise after this, so it is the last row
+                broken[0] = true;
+                return new ParsedRow(csv.recordLine(), null, ex.getMessage());
+            }
+            if (fields == null) return null;
+            long row = csv.recordLine();
+            try {
+                String tags = column(fields, columns, "tags");
+                String consumed = column(fields, columns, "quantityconsumed");
+                ProductRequest r = ProductRequest.of(
+                        userId,
+                        column(fields, columns, "name"),
+                        number(column(fields, columns, "quantitybought"), "quantityBought"),
+                        consumed == null || consumed.isBlank() ? 0.0 : number(consumed, "quantityConsumed"),
+                        unit(column(fields, columns, "unit")),
+                        date(column(fields, columns, "purchasedate"), "purchaseDate"),
+                        date(column(fields, columns, "expirationdate"), "expirationDate"),
+                        tags == null || tags.isBlank() ? null
+                                : Arrays.stream(tags.split(";")).map(String::trim).filter(t -> !t.isEmpty()).toList());
+                return new ParsedRow(row, r, null);
+            } catch (IllegalArgumentException ex) {
+                return new ParsedRow(row, null, ex.getMessage());
+            }
+        };
+    }
+
+    // The import always belongs to the caller, whatever the row says
+    private static ProductRequest withUser(String userId, ProductRequest r) {
+        return ProductRequest.of(userId, r.name(), r.quantityBought(), r.quantityConsumed(), r.unit(),
+                r.purchaseDate(), r.expirationDate(), r.tags());
+    }
+
+    private static @Nullable String column(List<String> fields, Map<String, Integer> columns, String name) {
+        Integer i = columns.get(name);
+        if (i == null || i >= fields.size()) return null;
+        String v = fields.get(i).trim();
+        return v.isEmpty() ? null : v;
+    }
+
+    private static @Nullable Double number(@Nullable String value, String field) {
+        if (value == null) return null;
+        try {
+            return Double.valueOf(value);
+        } catch (NumberFormatException ex) {
+            throw new IllegalArgumentException(field + " must be a number");
+        }
+    }
+
+    // Missing values are left to bean validation so the message matches the JSON path
+    private static @Nullable Unit unit(@Nullable String value) {
+        return value == null ? null : Unit.fromValue(value);
+    }
+
+    private static @Nullable LocalDate date(@Nullable String value, String field) {
+        if (value == null) return null;
+        try {
+            return LocalDate.parse(value);
+        } catch (DateTimeParseException ex) {
+            throw new IllegalArgumentException(field + " must be a date (yyyy-MM-dd)");
+        }
+    }
+
+    private void writeLine(OutputStream out, Object value) throws IOException {
+        out.write(jsonMapper.writeValueAsBytes(value));
+        out.write('\n');
+    }
+}
@@ -1,5 +1,7 @@
 package com.verf.ProdExp.service.impl;
 
+import com.verf.ProdExp.dto.CursorPage;
+import com.verf.ProdExp.dto.MaintenanceJobResponse;
 import com.verf.ProdExp.dto.ProductRequest;
 import com.verf.ProdExp.dto.ProductResponse;
 import com.verf.ProdExp.dto.QuantityConsumedUpdateRequest;
@@ -9,18 +11,31 @@ import com.verf.ProdExp.entity.Status;
 import com.verf.ProdExp.exception.BadRequestException;
 import com.verf.ProdExp.exception.ResourceNotFoundException;
 import com.verf.ProdExp.mapper.ProductMapper;
+import com.verf.ProdExp.repository.ConsumptionDailyRepository;
+import com.verf.ProdExp.repository.ProductCursor;
 import com.verf.ProdExp.repository.ProductRepository;
+import com.verf.ProdExp.repository.ProductSearchTermRepository;
+import com.verf.ProdExp.service.ConsumptionService;
+import com.verf.ProdExp.service.MaintenanceJobService;
 import com.verf.ProdExp.service.NotificationSchedulePolicy;
+import com.verf.ProdExp.service.ProductChangeListener;
+import com.verf.ProdExp.service.ProductCursorCodec;
 import com.verf.ProdExp.service.ProductService;
+import com.verf.ProdExp.service.RequestProductLoader;
 import com.verf.ProdExp.util.AnalysisUtil;
+import com.verf.ProdExp.util.SearchTokenizer;
 import lombok.RequiredArgsConstructor;
 import org.jspecify.annotations.Nullable;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 
 import java.time.Instant;
+import java.time.LocalDate;
 import java.util.*;
 import java.util.stream.Collectors;
 
@@ -30,7 +45,15 @@ public class ProductServiceImpl implements ProductService {
     @Value("${spring.data.redis.url}")
     private String check;
     private final ProductRepository repository;
+    private final ProductSearchTermRepository searchTermRepository;
+    private final ConsumptionDailyRepository consumptionDailyRepository;
     private final NotificationSchedulePolicy notificationSchedulePolicy;
+    private final ProductCursorCodec cursorCodec;
+    private final List<ProductChangeListener> changeListeners;
+    private final MaintenanceJobService maintenanceJobService;
+    private final ConsumptionService consumptionService;
+    private final QuantityConsumedCoalescer quantityCoalescer;
+    private final RequestProductLoader productLoader;
 
     @Override
     public ProductResponse create(ProductRequest request) {
@@ -39,23 +62,28 @@ public class ProductServiceImpl implements ProductService {
         // ensure status is correct
         product.setStatus(ProductMapper.computeStatus(product));
         notificationSchedulePolicy.reconcileAfterDataChange(product, Instant.now());
-        // nameLower/nameTokens are already set by ProductMapper.toEntity
+        // nameLower is already set by ProductMapper.toEntity
         Product saved = repository.save(product);
+        indexSearchTerms(saved);
         return ProductMapper.toResponse(saved);
     }
 
     @Override
     public ProductResponse getById(String id) {
-        Product p = repository.findById(id)
-                .orElseThrow(() -> new ResourceNotFoundException("Product with id '" + id + "' not found"));
+        ProductResponse buffered = quantityCoalescer.peek(id);
+        if (buffered != null) return buffered;
+        Product p = productLoader.findLiveOrArchived(id);
+        if (p == null) throw new ResourceNotFoundException("Product with id '" + id + "' not found");
         return ProductMapper.toResponse(p);
     }
 
     @Override
     public Map<String, Object> analyzeById(String id) {
-        Product p = repository.findById(id)
-                .orElseThrow(() -> new ResourceNotFoundException("Product with id '" + id + "' not found"));
-        return AnalysisUtil.analyze(p);
+        // The pace comes from the consumption log, which only sees buffered taps once they are written
+        if (quantityCoalescer.flush(id)) productLoader.forget(id);
+        Product p = productLoader.findLive(id);
+        if (p == null) throw new ResourceNotFoundException("Product with id '" + id + "' not found");
+        return AnalysisUtil.analyze(p, consumptionService.recentDailyAverage(p));
     }
 
     @Override
@@ -69,10 +97,15 @@ public class ProductServiceImpl implements ProductService {
     @Override
     public ProductResponse update(String id, ProductRequest request) {
         validateRequest(request);
-        Product existing = repository.findById(id)
-                .orElseThrow(() -> new ResourceNotFoundException("Product with id '" + id + "' not found"));
+        if (quantityCoalescer.flush(id)) productLoader.forget(id);
+        Product existing = productLoader.findLive(id);
+        if (existing == null) throw new ResourceNotFoundException("Product with id '" + id + "' not found");
+        // existing is about to be modified in place
+        productLoader.forget(id);
 
-        // Copy fields that can change and normalize name/token fields in one place
+        double consumedBefore = existing.getQuantityConsumed();
+
+        // Copy fields that can change and normalize name fields in one place
         existing.setUserId(request.userId());
         ProductMapper.applyNameFields(existing, request.name());
         existing.setQuantityBought(request.quantityBought());
@@ -80,24 +113,38 @@ public class ProductServiceImpl implements ProductService {
         existing.setUnit(request.unit());
         existing.setPurchaseDate(request.purchaseDate());
         existing.setExpirationDate(request.expirationDate());
-        // Normalize tags (persist null for empty) and recompute tokens to include tags
+        // Normalize tags (persist null for empty)
         existing.setTags(request.tags() == null || request.tags().isEmpty() ? null : List.copyOf(request.tags()));
-        ProductMapper.recomputeNameTokens(existing);
 
         // Recompute status after all field changes
         existing.setStatus(ProductMapper.computeStatus(existing));
+        existing.setPercentageLeft(ProductMapper.computePercentageLeft(existing));
         notificationSchedulePolicy.reconcileAfterDataChange(existing, Instant.now());
 
         Product saved = repository.save(existing);
+        indexSearchTerms(saved);
+        consumptionService.record(saved, saved.getQuantityConsumed() - consumedBefore);
         return ProductMapper.toResponse(saved);
     }
 
     @Override
     public void delete(String id) {
-        if (!repository.existsById(id)) {
-            throw new ResourceNotFoundException("Product with id '" + id + "' not found");
+        quantityCoalescer.discard(id);
+        Product existing = productLoader.findLive(id);
+        productLoader.forget(id);
+        if (existing == null) {
+            // Archived products are not in any in-memory index; only the document and its postings go
+            if (!repository.deleteArchivedById(id)) {
+                throw new ResourceNotFoundException("Product with id '" + id + "' not found");
+            }
+            searchTermRepository.deleteByProductId(id);
+            consumptionDailyRepository.deleteByProductId(id);
+            return;
         }
         repository.deleteById(id);
+        searchTermRepository.deleteByProductId(id);
+        consumptionDailyRepository.deleteByProductId(id);
+        changeListeners.forEach(l -> l.onProductDeleted(existing));
     }
 
     @Override
@@ -105,20 +152,14 @@ public class ProductServiceImpl implements ProductService {
         if (request == null) throw new BadRequestException("Request body is required");
         if (request.quantityConsumed() == null) throw new BadRequestException("quantityConsumed is required");
         if (request.quantityConsumed() < 0) throw new BadRequestException("quantityConsumed must be non-negative");
+        if (quantityCoalescer.isEnabled()) return quantityCoalescer.apply(id, request.quantityConsumed());
 
-        Product existing = repository.findById(id)
-                .orElseThrow(() -> new ResourceNotFoundException("Product with id '" + id + "' not found"));
-
-        if (request.quantityConsumed() > existing.getQuantityBought()) {
+        // Unbuffered: the same single pipeline write the buffer flushes with
+        Product saved = quantityCoalescer.persist(id, request.quantityConsumed());
+        if (saved == null) {
+            if (!repository.existsById(id)) throw new ResourceNotFoundException("Product with id '" + id + "' not found");
             throw new BadRequestException("quantityConsumed cannot exceed quantityBought");
         }
-
-        existing.setQuantityConsumed(request.quantityConsumed());
-        // Recompute status after quantity change
-        existing.setStatus(ProductMapper.computeStatus(existing));
-        notificationSchedulePolicy.reconcileAfterDataChange(existing, Instant.now());
-
-        Product saved = repository.save(existing);
         return ProductMapper.toResponse(saved);
     }
 
@@ -131,76 +172,133 @@ public class ProductServiceImpl implements ProductService {
     }
 
     @Override
-    public Page<ProductResponse> getByUser(Pageable pageable, String userId, @Nullable List<Status> statuses, @Nullable List<NotificationFrequency> frequencies) {
+    public Page<ProductResponse> getByUser(Pageable pageable, String userId, @Nullable List<Status> statuses, @Nullable List<NotificationFrequency> frequencies, @Nullable Set<String> fields, boolean includeArchived) {
+        if (userId == null || userId.trim().isEmpty()) {
+            throw new BadRequestException("userId is required");
+        }
+
+        // Empty filters are handled by the custom query as well, so paging/total behaviour is the same either way
+        return repository.findByUserIdWithFilters(userId, statuses, frequencies, pageable, fields, includeArchived).map(ProductMapper::toResponse);
+    }
+
+    @Override
+    public Slice<ProductResponse> getSliceByUser(Pageable pageable, String userId, @Nullable List<Status> statuses, @Nullable List<NotificationFrequency> frequencies, @Nullable Set<String> fields, boolean includeArchived) {
+        if (userId == null || userId.trim().isEmpty()) {
+            throw new BadRequestException("userId is required");
+        }
+        return repository.findSliceByUserIdWithFilters(userId, statuses, frequencies, pageable, fields, includeArchived).map(ProductMapper::toResponse);
+    }
+
+    @Override
+    public CursorPage<ProductResponse> getByUserCursor(String userId, @Nullable List<Status> statuses, @Nullable List<NotificationFrequency> frequencies,
+                                                       String sortBy, Sort.Direction direction, @Nullable String cursor, int size) {
         if (userId == null || userId.trim().isEmpty()) {
             throw new BadRequestException("userId is required");
         }
 
-        // if no filters provided, delegate to existing method
-        if ((statuses == null || statuses.isEmpty()) && (frequencies == null || frequencies.isEmpty())) {
-            return getByUser(pageable, userId);
+        String filterKey = cursorFilterKey(statuses, frequencies);
+        ProductCursor position;
+        if (cursor == null || cursor.isBlank()) {
+            cursorValue(sortBy, null);
+            position = ProductCursor.first(sortBy, direction);
+        } else {
+            position = cursorCodec.decode(cursor, userId, filterKey);
+            if (!position.sortBy().equals(sortBy) || position.direction() != direction) {
+                throw new BadRequestException("Cursor was issued for a different sort; restart from the first page");
+            }
         }
 
-        return repository.findByUserIdWithFilters(userId, statuses, frequencies, pageable).map(ProductMapper::toResponse);
+        List<Product> rows = repository.findByUserIdAfterCursor(userId, statuses, frequencies, position, size + 1);
+        boolean hasNext = rows.size() > size;
+        if (hasNext) {
+            rows = rows.subList(0, size);
+        }
+
+        String nextCursor = null;
+        if (hasNext) {
+            Product last = rows.get(rows.size() - 1);
+            ProductCursor next = new ProductCursor(position.sortBy(), position.direction(), cursorValue(position.sortBy(), last), last.getId());
+            nextCursor = cursorCodec.encode(userId, filterKey, next);
+        }
+
+        List<ProductResponse> content = rows.stream().map(ProductMapper::toResponse).toList();
+        return new CursorPage<>(content, size, hasNext, nextCursor);
+    }
+
+    // Sort key of a product as stored in Mongo, for building the next cursor. A null product only validates the sort field.
+    private Object cursorValue(String sortBy, @Nullable Product p) {
+        return switch (sortBy) {
+            case "name" -> p == null ? null : p.getName();
+            case "purchaseDate" -> p == null ? null : p.getPurchaseDate();
+            case "expirationDate" -> p == null ? null : p.getExpirationDate();
+            case "createdAt" -> p == null ? null : p.getCreatedAt();
+            case "percentageLeft" -> p == null ? null : p.getPercentageLeft();
+            default -> throw new BadRequestException("Invalid sortBy field: " + sortBy);
+        };
+    }
+
+    private String cursorFilterKey(@Nullable List<Status> statuses, @Nullable List<NotificationFrequency> frequencies) {
+        String s = statuses == null ? "" : statuses.stream().map(Enum::name).sorted().distinct().collect(Collectors.joining(","));
+        String f = frequencies == null ? "" : frequencies.stream().map(Enum::name).sorted().distinct().collect(Collectors.joining(","));
+        return s + ";" + f;
     }
 
     @Override
     public ProductResponse updateNotificationFrequency(String id, NotificationFrequency frequency) {
         if (frequency == null) throw new BadRequestException("notificationFrequency is required");
-        Product existing = repository.findById(id)
-                .orElseThrow(() -> new ResourceNotFoundException("Product with id '" + id + "' not found"));
-        notificationSchedulePolicy.applyManualOverride(existing, frequency, Instant.now());
-        Product saved = repository.save(existing);
+        quantityCoalescer.flush(id);
+        // An override schedules from now and nothing else, so it is computed up front and written in one go
+        Instant next = notificationSchedulePolicy.computeNextNotificationAt(frequency, Instant.now());
+        Product saved = repository.setNotificationOverride(id, frequency, next);
+        if (saved == null) throw new ResourceNotFoundException("Product with id '" + id + "' not found");
         return ProductMapper.toResponse(saved);
     }
 
     @Override
     public ProductResponse clearNotificationFrequencyOverride(String id) {
-        Product existing = repository.findById(id)
-                .orElseThrow(() -> new ResourceNotFoundException("Product with id '" + id + "' not found"));
-        notificationSchedulePolicy.clearManualOverride(existing, Instant.now());
-        Product saved = repository.save(existing);
+        quantityCoalescer.flush(id);
+        Product saved = repository.clearNotificationOverride(id);
+        if (saved == null) throw new ResourceNotFoundException("Product with id '" + id + "' not found");
+        // The auto frequency depends on the stored quantities and dates, so it is derived from the returned document
+        if (notificationSchedulePolicy.clearManualOverride(saved, Instant.now())) {
+            repository.updateScheduleIfUnchanged(saved);
+        }
         return ProductMapper.toResponse(saved);
     }
 
     @Override
     public ProductResponse replaceTags(String id, List<String> tags) {
-        Product existing = repository.findById(id)
-                .orElseThrow(() -> new ResourceNotFoundException("Product with id '" + id + "' not found"));
-        existing.setTags(tags == null || tags.isEmpty() ? null : List.copyOf(tags));
-        // recompute tokens including newly replaced tags
-        ProductMapper.recomputeNameTokens(existing);
-        Product saved = repository.save(existing);
+        quantityCoalescer.flush(id);
+        Product saved = repository.replaceTags(id, tags == null || tags.isEmpty() ? null : List.copyOf(tags));
+        if (saved == null) throw new ResourceNotFoundException("Product with id '" + id + "' not found");
+        // re-index terms including newly replaced tags
+        indexSearchTerms(saved);
         return ProductMapper.toResponse(saved);
     }
 
     @Override
     public ProductResponse addTags(String id, List<String> tags) {
         if (tags == null || tags.isEmpty()) throw new BadRequestException("tags are required");
-        Product existing = repository.findById(id)
-                .orElseThrow(() -> new ResourceNotFoundException("Product with id '" + id + "' not found"));
-        Set<String> set = new HashSet<>();
-        if (existing.getTags() != null) set.addAll(existing.getTags());
-        for (String t : tags) if (t != null && !t.isBlank()) set.add(t.trim());
-        existing.setTags(set.isEmpty() ? null : new ArrayList<>(set));
-        // Include tag tokens in nameTokens
-        ProductMapper.recomputeNameTokens(existing);
-        Product saved = repository.save(existing);
+        quantityCoalescer.flush(id);
+        Set<String> cleaned = cleanTags(tags);
+        Product saved = cleaned.isEmpty() ? repository.findById(id).orElse(null) : repository.addTags(id, cleaned);
+        if (saved == null) throw new ResourceNotFoundException("Product with id '" + id + "' not found");
+        if (cleaned.isEmpty()) return ProductMapper.toResponse(saved);
+        // Include tag words in the search terms
+        indexSearchTerms(saved);
         return ProductMapper.toResponse(saved);
     }
 
     @Override
     public ProductResponse removeTags(String id, List<String> tags) {
         if (tags == null || tags.isEmpty()) throw new BadRequestException("tags are required");
-        Product existing = repository.findById(id)
-                .orElseThrow(() -> new ResourceNotFoundException("Product with id '" + id + "' not found"));
-        if (existing.getTags() == null || existing.getTags().isEmpty()) return ProductMapper.toResponse(existing);
-        Set<String> set = new HashSet<>(existing.getTags());
-        for (String t : tags) if (t != null && !t.isBlank()) set.remove(t.trim());
-        existing.setTags(set.isEmpty() ? null : new ArrayList<>(set));
-        // Recompute tokens from name + remaining tags after removal
-        ProductMapper.recomputeNameTokens(existing);
-        Product saved = repository.save(existing);
+        quantityCoalescer.flush(id);
+        Set<String> cleaned = cleanTags(tags);
+        Product saved = cleaned.isEmpty() ? repository.findById(id).orElse(null) : repository.removeTags(id, cleaned);
+        if (saved == null) throw new ResourceNotFoundException("Product with id '" + id + "' not found");
+        if (cleaned.isEmpty()) return ProductMapper.toResponse(saved);
+        // Re-index terms from name + remaining tags after removal ($pull can leave an empty array behind)
+        indexSearchTerms(saved);
         return ProductMapper.toResponse(saved);
     }
 
@@ -210,50 +308,68 @@ public class ProductServiceImpl implements ProductService {
             throw new BadRequestException("userId is required");
         }
 
-        // Fetch all products for the user and update only when status changes
-        List<Product> products = repository.findAllByUserId(userId);
-        int changed = 0;
-        List<Product> toSave = new ArrayList<>();
-        for (Product p : products) {
-            Status computed = ProductMapper.computeStatus(p);
-            if (p.getStatus() != computed) {
-                p.setStatus(computed);
-                toSave.add(p);
-            }
-        }
-        if (!toSave.isEmpty()) {
-            repository.saveAll(toSave);
-            changed = toSave.size();
+        // Evaluated by Mongo; only documents whose stored status is wrong are written
+        return (int) repository.recomputeStatuses(userId, null, null, LocalDate.now());
+    }
+
+    @Override
+    public MaintenanceJobResponse submitRecomputeStatusesJob(String userId, @Nullable String requestedBy) {
+        if (userId == null || userId.trim().isEmpty()) {
+            throw new BadRequestException("userId is required");
         }
-        return changed;
+        return maintenanceJobService.submit(StatusRecomputeJobHandler.TYPE, Map.of("userId", userId), requestedBy);
     }
 
     @Override
-    public Page<ProductResponse> searchByUser(Pageable pageable, String userId, String query) {
+    public Page<ProductResponse> searchByUser(Pageable pageable, String userId, String query, @Nullable Set<String> fields, boolean includeArchived) {
         if (userId == null || userId.trim().isEmpty()) throw new BadRequestException("userId is required");
-        // Normalize query; return empty page to avoid full-scan on empty input
-        String q = query == null ? "" : query.trim().toLowerCase();
-        if (q.isEmpty()) {
+        List<String> tokens = searchTokens(query);
+        // Return empty page to avoid full-scan on empty input
+        if (tokens == null) {
             return Page.empty(pageable);
         }
 
-        // Tokenize like ProductMapper.tokenizeName
-        String[] parts = q.split("\\W+");
-        List<String> tokens = new ArrayList<>();
-        for (String p : parts) {
-            if (p == null) continue;
-            String t = p.trim();
-            if (t.isEmpty()) continue;
-            tokens.add(t);
+        Page<Product> page = repository.searchByUserTerms(userId, tokens, pageable, fields, includeArchived);
+        return page.map(ProductMapper::toResponse);
+    }
+
+    @Override
+    public Slice<ProductResponse> searchSliceByUser(Pageable pageable, String userId, String query, @Nullable Set<String> fields, boolean includeArchived) {
+        if (userId == null || userId.trim().isEmpty()) throw new BadRequestException("userId is required");
+        List<String> tokens = searchTokens(query);
+        if (tokens == null) {
+            return new SliceImpl<>(List.of(), pageable, false);
+        }
+
+        return repository.searchSliceByUserTerms(userId, tokens, pageable, fields, includeArchived).map(ProductMapper::toResponse);
+    }
+
+    // Trimmed, non-blank, de-duplicated tags in request order
+    private static Set<String> cleanTags(List<String> tags) {
+        Set<String> out = new LinkedHashSet<>();
+        for (String t : tags) if (t != null && !t.isBlank()) out.add(t.trim());
+        return out;
+    }
+
+    // Keeps search postings and in-memory listeners in step with a persisted write that may change name or tags
+    private void indexSearchTerms(Product saved) {
+        searchTermRepository.replaceTerms(saved.getUserId(), saved.getId(), ProductMapper.searchTerms(saved));
+        changeListeners.forEach(l -> l.onProductSaved(saved));
+    }
+
+    // Tokenize a search query into word prefixes with the same tokenizer used for indexing; null for blank input.
+    private @Nullable List<String> searchTokens(String query) {
+        if (query == null || query.isBlank()) {
+            return null;
         }
-        List<String> effective = tokens.stream().filter(t -> t.length() >= 2).collect(Collectors.toList());
-        if (effective.isEmpty()) effective = tokens;
 
-        Page<Product> page = repository.searchByUserNameTokens(userId, effective, pageable);
-        return page.map(ProductMapper::toResponse);
+        List<String> tokens = SearchTokenizer.tokenize(query);
+        List<String> effective = tokens.stream().filter(t -> t.length() >= 2).collect(Collectors.toList());
+        return effective.isEmpty() ? tokens : effective;
     }
 
-    private void validateRequest(ProductRequest request) {
+    // Also used by the bulk import, so rows are held to the same rules as POST /api/products
+    static void validateRequest(ProductRequest request) {
         if (request == null) throw new BadRequestException("Request body is required");
 
         if (isBlank(request.userId())) throw new BadRequestException("userId is required");
@@ -272,7 +388,7 @@ public class ProductServiceImpl implements ProductService {
             throw new BadRequestException("expirationDate cannot be before purchaseDate");
     }
 
-    private boolean isBlank(String s) {
+    private static boolean isBlank(String s) {
         return s == null || s.trim().isEmpty();
     }
 }
@@ -0,0 +1,38 @@
+package com.verf.ProdExp.service.impl;
+
+import com.verf.ProdExp.config.ProductProperties;
+import com.verf.ProdExp.repository.ProductRepository;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+
+// Corrects stored statuses for every product once a day; the work happens inside Mongo, no documents are loaded.
+@Service
+@RequiredArgsConstructor
+public class ProductStatusScheduler {
+
+    private static final Logger log = LoggerFactory.getLogger(ProductStatusScheduler.class);
+
+    private final ProductRepository productRepository;
+    private final ProductProperties productProperties;
+
+    @Scheduled(cron = "${app.products.statusRecompute.cron:0 5 0 * * *}")
+    public void recomputeAll() {
+        if (!productProperties.getStatusRecompute().isEnabled()) {
+            log.debug("Fleet-wide status recompute is disabled.");
+            return;
+        }
+
+        try {
+            long updated = productRepository.recomputeStatuses(null, null, null, LocalDate.now());
+            log.info("Fleet-wide status recompute updated {} products", updated);
+        } catch (Exception ex) {
+            // Statuses are also corrected per product on the next write or notification tick
+            log.error("Fleet-wide status recompute failed: {}", ex.getMessage(), ex);
+        }
+    }
+}
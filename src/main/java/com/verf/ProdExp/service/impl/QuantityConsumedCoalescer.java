@@ -0,0 +1,211 @@
+package com.verf.ProdExp.service.impl;
+
+import com.verf.ProdExp.config.ProductProperties;
+import com.verf.ProdExp.dto.ProductResponse;
+import com.verf.ProdExp.entity.Product;
+import com.verf.ProdExp.exception.BadRequestException;
+import com.verf.ProdExp.exception.ResourceNotFoundException;
+import com.verf.ProdExp.mapper.ProductMapper;
+import com.verf.ProdExp.repository.ProductRepository;
+import com.verf.ProdExp.service.ConsumptionService;
+import com.verf.ProdExp.service.NotificationSchedulePolicy;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import org.jspecify.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Write-behind buffer for quantity-consumed PATCHes. A burst of stepper taps on one product loads it once, keeps
+ * the latest value (with status, percentageLeft and reminder schedule recomputed) in memory, and writes it back
+ * when the window closes. Reads through {@link #peek} see the buffered value.
+ * <p>
+ * Only quantityConsumed comes from the buffer: the write is the same pipeline update as an unbuffered PATCH
+ * ({@link #persist}), so status and percentageLeft are derived from the document as stored and anything written to
+ * the product meanwhile (a PUT, the reminder scheduler, another instance) is kept.
+ * <p>
+ * Entries are immutable snapshots swapped in with the map's per-key compute, which only ever does CPU work. A flush
+ * takes the entry out of the map, writes it outside any lock and puts it back if the write failed; while the write
+ * is in flight, new taps build on the value being written rather than on the stored one. Buffers are per instance:
+ * run a single instance or route a user's requests sticky.
+ */
+@Service
+@RequiredArgsConstructor
+public class QuantityConsumedCoalescer {
+
+    private static final Logger log = LoggerFactory.getLogger(QuantityConsumedCoalescer.class);
+
+    private final ProductRepository repository;
+    private final NotificationSchedulePolicy notificationSchedulePolicy;
+    private final ConsumptionService consumptionService;
+    private final ProductProperties productProperties;
+
+    private final ConcurrentHashMap<String, Pending> pending = new ConcurrentHashMap<>();
+    // Entries taken out of pending whose write has not finished yet
+    private final ConcurrentHashMap<String, InFlight> flushing = new ConcurrentHashMap<>();
+
+    private record Pending(Product product, long flushAtMillis) {
+    }
+
+    // done completes with the result of the write; discarded stops a failed write from being queued again
+    private record InFlight(Pending entry, CompletableFuture<Boolean> done, AtomicBoolean discarded) {
+    }
+
+    public boolean isEnabled() {
+        return productProperties.getCoalescing().isEnabled();
+    }
+
+    public ProductResponse apply(String id, double quantityConsumed) {
+        while (true) {
+            // The first tap of a burst starts from the value being flushed, if any, else pays for one read
+            Pending fresh = pending.containsKey(id) ? null : startBurst(id);
+            ProductResponse[] out = new ProductResponse[1];
+            Pending next = pending.compute(id, (key, current) -> {
+                Pending from = current != null ? current : fresh;
+                // Flushed between the check and here: start over from a fresh read
+                if (from == null) return null;
+                Product product = from.product().toBuilder().build();
+                if (quantityConsumed > product.getQuantityBought()) {
+                    throw new BadRequestException("quantityConsumed cannot exceed quantityBought");
+                }
+                Instant now = Instant.now();
+                product.setQuantityConsumed(quantityConsumed);
+                product.setStatus(ProductMapper.computeStatus(product));
+                product.setPercentageLeft(ProductMapper.computePercentageLeft(product));
+                notificationSchedulePolicy.reconcileAfterDataChange(product, now);
+                product.setUpdatedAt(now);
+                out[0] = ProductMapper.toResponse(product);
+                return new Pending(product, from.flushAtMillis());
+            });
+            if (next != null) return out[0];
+        }
+    }
+
+    private Pending startBurst(String id) {
+        long flushAt = System.currentTimeMillis() + Math.max(0, productProperties.getCoalescing().getWindowMs());
+        InFlight inFlight = flushing.get(id);
+        if (inFlight != null) return new Pending(inFlight.entry().product(), flushAt);
+        Product base = repository.findById(id)
+                .orElseThrow(() -> new ResourceNotFoundException("Product with id '" + id + "' not found"));
+        return new Pending(base, flushAt);
+    }
+
+    // Buffered view of the product, or null when nothing is pending for it.
+    public @Nullable ProductResponse peek(String id) {
+        Pending entry = pending.get(id);
+        if (entry == null) {
+            InFlight inFlight = flushing.get(id);
+            if (inFlight == null) return null;
+            entry = inFlight.entry();
+        }
+        return ProductMapper.toResponse(entry.product());
+    }
+
+    // Writes any buffered value now. Called before other writes to the product so they start from current data.
+    // Returns true when something was written, i.e. earlier reads of the product are stale.
+    public boolean flush(String id) {
+        Pending entry = pending.remove(id);
+        if (entry == null) {
+            // Another thread is writing it; wait, since callers rely on the write having landed
+            InFlight running = flushing.get(id);
+            return running != null && running.done().join();
+        }
+        InFlight inFlight = new InFlight(entry, new CompletableFuture<>(), new AtomicBoolean());
+        flushing.put(id, inFlight);
+        boolean written = false;
+        try {
+            written = write(entry.product());
+        } finally {
+            if (!written && !inFlight.discarded().get()) {
+                // Keep it for a retry; taps that arrived meanwhile built on it and already carry the newer value
+                pending.merge(id, entry, (newer, failed) ->
+                        new Pending(newer.product(), Math.min(newer.flushAtMillis(), failed.flushAtMillis())));
+            }
+            flushing.remove(id, inFlight);
+            inFlight.done().complete(written);
+        }
+        return written;
+    }
+
+    // Drops a buffered value without writing it, e.g. when the product is being deleted. A write already in flight
+    // is waited for, so it cannot land (or log consumption) after the caller's delete.
+    public void discard(String id) {
+        pending.remove(id);
+        InFlight running = flushing.get(id);
+        if (running != null) {
+            running.discarded().set(true);
+            running.done().join();
+            // A failed write may have been queued again just before the flag was set
+            pending.remove(id);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.products.coalescing.flushIntervalMs:250}")
+    public void flushDue() {
+        if (pending.isEmpty()) return;
+        long now = System.currentTimeMillis();
+        pending.forEach((id, entry) -> {
+            if (entry.flushAtMillis() <= now) flush(id);
+        });
+    }
+
+    @PreDestroy
+    public void flushAll() {
+        if (pending.isEmpty()) return;
+        log.info("Flushing {} buffered quantity updates before shutdown", pending.size());
+        for (String id : pending.keySet()) flush(id);
+    }
+
+    /**
+     * Writes quantityConsumed with one pipeline update that derives status and percentageLeft from the stored
+     * document, then the reminder schedule if its auto frequency moved, and logs the consumption delta. Returns the
+     * product as written, or null when it is gone or its quantityBought is now below the value.
+     */
+    public @Nullable Product persist(String id, double quantityConsumed) {
+        // The quantityBought bound is part of the filter; the pre-update document comes back
+        Product saved = repository.setQuantityConsumed(id, quantityConsumed, LocalDate.now());
+        if (saved == null) return null;
+
+        // Bring saved in line with what the pipeline wrote
+        double consumedBefore = saved.getQuantityConsumed();
+        Instant now = Instant.now();
+        saved.setQuantityConsumed(quantityConsumed);
+        saved.setStatus(ProductMapper.computeStatus(saved));
+        saved.setPercentageLeft(ProductMapper.computePercentageLeft(saved));
+        saved.setUpdatedAt(now);
+        try {
+            // Guarded on the schedule's inputs, so a concurrent change to them wins
+            if (notificationSchedulePolicy.reconcileAfterDataChange(saved, now)) {
+                repository.updateScheduleIfUnchanged(saved);
+            }
+            consumptionService.record(saved, quantityConsumed - consumedBefore);
+        } catch (RuntimeException ex) {
+            // The quantity has landed; repeating the write would only lose the consumption delta
+            log.error("Follow-up writes after setting quantityConsumed on product {} failed", id, ex);
+        }
+        return saved;
+    }
+
+    // True when the value is done with (written, or the product can no longer take it); false keeps it for a retry.
+    private boolean write(Product product) {
+        try {
+            if (persist(product.getId(), product.getQuantityConsumed()) == null) {
+                // Deleted or archived while buffered, or a PUT lowered quantityBought below the buffered value
+                log.warn("Dropped buffered quantity {} for product {}: it is gone or its quantityBought is now lower",
+                        product.getQuantityConsumed(), product.getId());
+            }
+            return true;
+        } catch (Exception ex) {
+            log.warn("Flushing buffered quantity for product {} failed, will retry: {}", product.getId(), ex.getMessage());
+            return false;
+        }
+    }
+}
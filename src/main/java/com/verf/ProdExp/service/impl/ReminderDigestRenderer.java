@@ -0,0 +1,177 @@
+package com.verf.ProdExp.service.impl;
+
+import com.verf.ProdExp.config.NotificationProperties;
+import com.verf.ProdExp.entity.NotificationFrequency;
+import com.verf.ProdExp.entity.Product;
+import com.verf.ProdExp.entity.User;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Formatter;
+import java.util.List;
+import java.util.Locale;
+import java.util.PriorityQueue;
+
+/**
+ * Renders the reminder digest subject and HTML body. Shared by every MailService backend so SMTP and
+ * HTTP deliveries produce identical messages.
+ *
+ * Digests are capped at {@code app.notifications.digestMaxRows} rows: only the most urgent products are
+ * listed and the rest are summarized as counts, so very large inventories don't produce multi-megabyte
+ * messages. Rows are written straight into a single pre-sized buffer.
+ */
+@Component
+@RequiredArgsConstructor
+public class ReminderDigestRenderer {
+
+    private static final String CELL = "<td style=\"padding:8px;border-bottom:1px solid #e5e7eb;\">";
+    // Rough per-row size of the rendered HTML, used to pre-size the output buffer.
+    private static final int ROW_SIZE_HINT = 420;
+
+    // Most urgent first: earliest expiry, then name for a stable order.
+    private static final Comparator<Product> URGENCY = Comparator
+            .comparing(Product::getExpirationDate, Comparator.nullsLast(Comparator.naturalOrder()))
+            .thenComparing(Product::getName, Comparator.nullsLast(Comparator.naturalOrder()));
+
+    private final NotificationProperties notificationProperties;
+
+    public String subject(List<Product> dueProducts) {
+        return "Verfalarm reminder: " + dueProducts.size() + " products due";
+    }
+
+    public String html(User user, List<Product> dueProducts, ZoneId zoneId) {
+        List<Product> rows = mostUrgent(dueProducts, maxRows());
+        StringBuilder out = new StringBuilder(2048 + rows.size() * ROW_SIZE_HINT);
+        writeHtml(user, dueProducts, rows, zoneId, out);
+        return out.toString();
+    }
+
+    /**
+     * Returns the {@code limit} most urgent products in urgency order, without sorting (or copying) the
+     * full list: a bounded max-heap keeps only the current top rows.
+     */
+    static List<Product> mostUrgent(List<Product> products, int limit) {
+        if (products.size() <= limit) {
+            List<Product> all = new ArrayList<>(products);
+            all.sort(URGENCY);
+            return all;
+        }
+        PriorityQueue<Product> heap = new PriorityQueue<>(limit + 1, URGENCY.reversed());
+        for (Product p : products) {
+            heap.offer(p);
+            if (heap.size() > limit) heap.poll();
+        }
+        List<Product> top = new ArrayList<>(heap);
+        top.sort(URGENCY);
+        return top;
+    }
+
+    private void writeHtml(User user, List<Product> dueProducts, List<Product> rows, ZoneId zoneId, StringBuilder out) {
+        DateTimeFormatter dateFormatter = DateTimeFormatter.ofPattern("yyyy-MM-dd").withZone(zoneId);
+        Formatter formatter = new Formatter(out, Locale.US);
+
+        out.append("<div style=\"font-family: Arial, sans-serif; line-height: 1.6;\">")
+                .append("<h2>Hi ").append(escapeHtml(user.getDisplayName())).append(", reminders are due</h2>");
+
+        if (rows.size() < dueProducts.size()) {
+            writeSummary(dueProducts, rows.size(), zoneId, out);
+        } else {
+            out.append("<p>These products are due for a reminder in this run:</p>");
+        }
+
+        out.append("<table style=\"border-collapse: collapse; width: 100%; max-width: 760px;\">")
+                .append("<thead><tr style=\"background: #f3f4f6;\">")
+                .append("<th style=\"text-align:left;padding:8px;border-bottom:1px solid #d1d5db;\">Product</th>")
+                .append("<th style=\"text-align:left;padding:8px;border-bottom:1px solid #d1d5db;\">Expires</th>")
+                .append("<th style=\"text-align:left;padding:8px;border-bottom:1px solid #d1d5db;\">Remaining</th>")
+                .append("<th style=\"text-align:left;padding:8px;border-bottom:1px solid #d1d5db;\">Frequency</th>")
+                .append("<th style=\"text-align:left;padding:8px;border-bottom:1px solid #d1d5db;\">Next Reminder</th>")
+                .append("</tr></thead><tbody>");
+
+        for (Product p : rows) {
+            double bought = p.getQuantityBought() == null ? 0.0 : p.getQuantityBought();
+            double consumed = p.getQuantityConsumed() == null ? 0.0 : p.getQuantityConsumed();
+            double remaining = Math.max(0.0, bought - consumed);
+
+            out.append("<tr>");
+            out.append(CELL).append(escapeHtml(p.getName())).append("</td>");
+            out.append(CELL);
+            if (p.getExpirationDate() == null) out.append('-');
+            else DateTimeFormatter.ISO_DATE.formatTo(p.getExpirationDate(), out);
+            out.append("</td>");
+            out.append(CELL);
+            formatter.format("%.2f %s", remaining, p.getUnit());
+            out.append("</td>");
+            out.append(CELL).append(frequencyLabel(p.getNotificationFrequency())).append("</td>");
+            out.append(CELL);
+            if (p.getNextNotificationAt() == null) out.append('-');
+            else dateFormatter.formatTo(p.getNextNotificationAt(), out);
+            out.append("</td>");
+            out.append("</tr>");
+        }
+
+        out.append("</tbody></table>")
+                .append("<p style=\"margin-top:16px;\">You can review or update product details in the app.</p>")
+                .append("<hr style=\"margin: 24px 0;\" />")
+                .append("<p style=\"font-size: 12px; color: #666;\">Verfalarm - Product Expiry Reminder</p>")
+                .append("</div>");
+    }
+
+    private void writeSummary(List<Product> dueProducts, int shown, ZoneId zoneId, StringBuilder out) {
+        LocalDate today = LocalDate.now(zoneId);
+        int withinThreeDays = 0;
+        int withinWeek = 0;
+        int later = 0;
+        for (Product p : dueProducts) {
+            if (p.getExpirationDate() == null) {
+                later++;
+                continue;
+            }
+            long days = ChronoUnit.DAYS.between(today, p.getExpirationDate());
+            if (days <= 3) withinThreeDays++;
+            else if (days <= 7) withinWeek++;
+            else later++;
+        }
+
+        out.append("<p>").append(dueProducts.size()).append(" products are due for a reminder in this run. ")
+                .append("Showing the ").append(shown).append(" most urgent:</p>")
+                .append("<ul>")
+                .append("<li>Expiring within 3 days: <strong>").append(withinThreeDays).append("</strong></li>")
+                .append("<li>Expiring within 7 days: <strong>").append(withinWeek).append("</strong></li>")
+                .append("<li>Expiring later: <strong>").append(later).append("</strong></li>")
+                .append("</ul>")
+                .append("<p>").append(dueProducts.size() - shown)
+                .append(" more products are not listed; open the app to see your full inventory.</p>");
+    }
+
+    private int maxRows() {
+        return Math.max(1, notificationProperties.getDigestMaxRows());
+    }
+
+    private String frequencyLabel(NotificationFrequency frequency) {
+        if (frequency == null) return "Monthly";
+        return switch (frequency) {
+            case DAILY -> "Daily";
+            case WEEKLY -> "Weekly";
+            case MONTHLY -> "Monthly";
+            case QUARTERLY -> "Quarterly";
+            case NEVER -> "Never";
+        };
+    }
+
+    private String escapeHtml(String value) {
+        if (value == null) return "";
+        return value
+                .replace("&", "&amp;")
+                .replace("<", "&lt;")
+                .replace(">", "&gt;")
+                .replace("\"", "&quot;")
+                .replace("'", "&#x27;");
+    }
+}
@@ -0,0 +1,62 @@
+package com.verf.ProdExp.service.impl;
+
+import com.verf.ProdExp.entity.Product;
+import com.verf.ProdExp.entity.ProductSearchTerm;
+import com.verf.ProdExp.mapper.ProductMapper;
+import com.verf.ProdExp.repository.ProductRepository;
+import com.verf.ProdExp.repository.ProductSearchTermRepository;
+import com.verf.ProdExp.repository.ProductSearchTermRepositoryCustom.Postings;
+import com.verf.ProdExp.service.MaintenanceJobHandler;
+import lombok.RequiredArgsConstructor;
+import org.jspecify.annotations.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Rewrites postings produced by an older SearchTokenizer version so stored terms match what queries produce. Walks
+ * the outdated postings in _id order; re-indexed postings are stamped with the current version (new ones get later
+ * ids), so a batch never sees the same product twice and a retried batch finds nothing left to do.
+ */
+@Component
+@RequiredArgsConstructor
+public class SearchTermReindexJobHandler implements MaintenanceJobHandler {
+
+    public static final String TYPE = "reindex-search-terms";
+
+    private final ProductRepository productRepository;
+    private final ProductSearchTermRepository searchTermRepository;
+
+    @Override
+    public String type() {
+        return TYPE;
+    }
+
+    @Override
+    public BatchResult processBatch(Map<String, String> params, @Nullable String afterId, int batchSize) {
+        List<ProductSearchTerm> outdated = searchTermRepository.findOutdatedAfterId(afterId, batchSize);
+        if (outdated.isEmpty()) return BatchResult.of(0, 0, null, batchSize);
+
+        Set<String> ids = new LinkedHashSet<>();
+        for (ProductSearchTerm t : outdated) ids.add(t.getProductId());
+
+        List<Postings> postings = new ArrayList<>();
+        for (Product p : productRepository.findAllById(ids)) {
+            postings.add(new Postings(p.getUserId(), p.getId(), ProductMapper.searchTerms(p)));
+            ids.remove(p.getId());
+        }
+        // Archived products stay searchable with includeArchived; anything else no longer exists
+        for (Product p : productRepository.findArchivedByIdAndOwner(ids, null)) {
+            postings.add(new Postings(p.getUserId(), p.getId(), ProductMapper.searchTerms(p)));
+            ids.remove(p.getId());
+        }
+        searchTermRepository.replaceTerms(postings);
+        if (!ids.isEmpty()) searchTermRepository.deleteByProductIdIn(ids);
+
+        return BatchResult.of(outdated.size(), postings.size(), outdated.get(outdated.size() - 1).getId(), batchSize);
+    }
+}
@@ -0,0 +1,45 @@
+package com.verf.ProdExp.service.impl;
+
+import com.verf.ProdExp.exception.BadRequestException;
+import com.verf.ProdExp.repository.ProductRepository;
+import com.verf.ProdExp.service.MaintenanceJobHandler;
+import lombok.RequiredArgsConstructor;
+import org.jspecify.annotations.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+// Recomputes product statuses batch by batch, for one user (param userId) or every product when userId is absent.
+@Component
+@RequiredArgsConstructor
+public class StatusRecomputeJobHandler implements MaintenanceJobHandler {
+
+    public static final String TYPE = "recompute-statuses";
+
+    private final ProductRepository productRepository;
+
+    @Override
+    public String type() {
+        return TYPE;
+    }
+
+    @Override
+    public void validate(Map<String, String> params) {
+        String userId = params.get("userId");
+        if (userId != null && userId.isBlank()) throw new BadRequestException("userId must not be blank");
+    }
+
+    @Override
+    public BatchResult processBatch(Map<String, String> params, @Nullable String afterId, int batchSize) {
+        String userId = params.get("userId");
+        // Only ids cross the wire: the batch bounds an _id range that the server-side recompute then updates
+        List<String> ids = productRepository.findIdsAfterId(userId, afterId, batchSize);
+        if (ids.isEmpty()) return BatchResult.of(0, 0, null, batchSize);
+
+        String last = ids.get(ids.size() - 1);
+        long updated = productRepository.recomputeStatuses(userId, afterId, last, LocalDate.now());
+        return BatchResult.of(ids.size(), (int) updated, last, batchSize);
+    }
+}
@@ -0,0 +1,101 @@
+package com.verf.ProdExp.service.impl;
+
+import com.verf.ProdExp.exception.BadRequestException;
+import com.verf.ProdExp.repository.*;
+import com.verf.ProdExp.security.AuthVersionRegistry;
+import com.verf.ProdExp.service.AIRateLimiterService;
+import com.verf.ProdExp.service.MaintenanceJobHandler;
+import com.verf.ProdExp.service.ProductChangeListener;
+import lombok.RequiredArgsConstructor;
+import org.jspecify.annotations.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Removes a user (param userId) and everything they own, one batch of products at a time. The user is already
+ * disabled when the job is queued. The cursor holds the phase rather than an id: every batch deletes what it read,
+ * so the next batch simply reads from the start again, and a restart or retry carries on from the checkpoint.
+ */
+@Component
+@RequiredArgsConstructor
+public class UserDeletionJobHandler implements MaintenanceJobHandler {
+
+    public static final String TYPE = "delete-user";
+
+    private static final String PRODUCTS = "PRODUCTS";
+    private static final String ARCHIVE = "ARCHIVE";
+    private static final String CLEANUP = "CLEANUP";
+
+    private final UserRepository userRepository;
+    private final ProductRepository productRepository;
+    private final ProductSearchTermRepository productSearchTermRepository;
+    private final ConsumptionDailyRepository consumptionDailyRepository;
+    private final ConsumptionWeeklyRepository consumptionWeeklyRepository;
+    private final VerificationTokenRepository verificationTokenRepository;
+    private final AIRateLimiterService aiRateLimiterService;
+    private final List<ProductChangeListener> productChangeListeners;
+    private final AuthVersionRegistry authVersionRegistry;
+
+    @Override
+    public String type() {
+        return TYPE;
+    }
+
+    @Override
+    public void validate(Map<String, String> params) {
+        String userId = params.get("userId");
+        if (userId == null || userId.isBlank()) throw new BadRequestException("userId is required");
+    }
+
+    // Repeated delete requests for one user share the job that is already queued or running
+    @Override
+    public @Nullable String dedupeKey(Map<String, String> params) {
+        return params.get("userId");
+    }
+
+    @Override
+    public BatchResult processBatch(Map<String, String> params, @Nullable String afterId, int batchSize) {
+        String userId = params.get("userId");
+        String phase = afterId == null ? PRODUCTS : afterId;
+        switch (phase) {
+            case PRODUCTS -> {
+                List<String> ids = productRepository.findIdsAfterId(userId, null, batchSize);
+                if (!ids.isEmpty()) {
+                    productRepository.deleteAllById(ids);
+                    deleteProductData(ids);
+                }
+                return new BatchResult(ids.size(), ids.size(), ids.size() < batchSize ? ARCHIVE : PRODUCTS, false);
+            }
+            case ARCHIVE -> {
+                List<String> ids = productRepository.findArchivedIdsByUserId(userId, batchSize);
+                if (!ids.isEmpty()) {
+                    productRepository.deleteArchivedByIds(ids);
+                    deleteProductData(ids);
+                }
+                return new BatchResult(ids.size(), ids.size(), ids.size() < batchSize ? CLEANUP : ARCHIVE, false);
+            }
+            case CLEANUP -> {
+                // Per-user leftovers (e.g. rows written for a product while it was being deleted), then the user
+                productSearchTermRepository.deleteByUserId(userId);
+                consumptionDailyRepository.deleteByUserId(userId);
+                consumptionWeeklyRepository.deleteByUserId(userId);
+                verificationTokenRepository.deleteByUserId(userId);
+                aiRateLimiterService.reset(userId);
+                productChangeListeners.forEach(l -> l.onUserProductsDeleted(userId));
+                // Before the document goes: it is where the registry reloads the revoked version from
+                userRepository.findById(userId).ifPresent(u ->
+                        authVersionRegistry.retire(userId, u.getAuthVersion(), u.getDeletionRequestedAt()));
+                userRepository.deleteById(userId);
+                return new BatchResult(0, 0, CLEANUP, true);
+            }
+            default -> throw new IllegalStateException("Unknown delete-user phase: " + phase);
+        }
+    }
+
+    private void deleteProductData(List<String> productIds) {
+        productSearchTermRepository.deleteByProductIdIn(productIds);
+        consumptionDailyRepository.deleteByProductIdIn(productIds);
+    }
+}
@@ -0,0 +1,92 @@
+package com.verf.ProdExp.service.impl;
+
+import com.verf.ProdExp.entity.Product;
+import com.verf.ProdExp.repository.ProductRepository;
+import com.verf.ProdExp.service.ProductChangeListener;
+import com.verf.ProdExp.util.LruCache;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per-user in-memory product indexes (autocomplete trie, fuzzy trigram index). A user's index is built from Mongo on
+ * first use, kept current from product writes on this instance, and bounded by an LRU whose TTL also bounds
+ * staleness from writes that went to other instances.
+ */
+abstract class UserIndexCache<I extends UserIndexCache.Index> implements ProductChangeListener {
+
+    // Implementations synchronize internally: writes arrive from request threads while searches run
+    interface Index {
+        void put(Product product);
+
+        void remove(String productId);
+    }
+
+    protected final ProductRepository productRepository;
+    private final LruCache<String, I> indexes;
+    // Users with a build in flight. A write for one of them bumps its counter so a build that raced the write is
+    // served once but not cached; writes for anyone else do not touch the builds.
+    private final ConcurrentHashMap<String, Builds> building = new ConcurrentHashMap<>();
+
+    private static final class Builds {
+        final AtomicLong writes = new AtomicLong();
+        // Only changed inside building.compute, which serializes it per user
+        int running;
+    }
+
+    protected UserIndexCache(ProductRepository productRepository, int maxUsers, long ttlSeconds) {
+        this.productRepository = productRepository;
+        this.indexes = new LruCache<>(maxUsers, ttlSeconds * 1000L);
+    }
+
+    protected abstract I newIndex();
+
+    protected I indexFor(String userId) {
+        I cached = indexes.get(userId);
+        if (cached != null) return cached;
+
+        Builds builds = building.compute(userId, (k, b) -> {
+            if (b == null) b = new Builds();
+            b.running++;
+            return b;
+        });
+        boolean raced;
+        I built = newIndex();
+        try {
+            long before = builds.writes.get();
+            for (Product p : productRepository.findSearchFieldsByUserId(userId)) {
+                built.put(p);
+            }
+            raced = builds.writes.get() != before;
+        } finally {
+            building.computeIfPresent(userId, (k, b) -> --b.running == 0 ? null : b);
+        }
+        if (raced) return built;
+        return indexes.putIfAbsent(userId, built);
+    }
+
+    private void written(String userId) {
+        Builds builds = building.get(userId);
+        if (builds != null) builds.writes.incrementAndGet();
+    }
+
+    @Override
+    public void onProductSaved(Product product) {
+        written(product.getUserId());
+        I index = indexes.get(product.getUserId());
+        if (index != null) index.put(product);
+    }
+
+    @Override
+    public void onProductDeleted(Product product) {
+        written(product.getUserId());
+        I index = indexes.get(product.getUserId());
+        if (index != null) index.remove(product.getId());
+    }
+
+    @Override
+    public void onUserProductsDeleted(String userId) {
+        written(userId);
+        indexes.remove(userId);
+    }
+}
@@ -5,17 +5,21 @@ import com.verf.ProdExp.entity.User;
 import com.verf.ProdExp.exception.BadRequestException;
 import com.verf.ProdExp.exception.ResourceNotFoundException;
 import com.verf.ProdExp.repository.UserRepository;
-import com.verf.ProdExp.repository.ProductRepository;
+import com.verf.ProdExp.security.AuthVersionRegistry;
+import com.verf.ProdExp.security.PrincipalCache;
 import com.verf.ProdExp.service.MailService;
+import com.verf.ProdExp.service.MaintenanceJobService;
 import com.verf.ProdExp.service.UserService;
 import lombok.RequiredArgsConstructor;
+import org.jspecify.annotations.Nullable;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.crypto.password.PasswordEncoder;
-import org.springframework.transaction.annotation.Transactional;
 import org.springframework.stereotype.Service;
 
+import java.time.Instant;
+import java.util.Map;
 import java.util.Set;
 
 @Service
@@ -23,9 +27,11 @@ import java.util.Set;
 public class UserServiceImpl implements UserService {
 
     private final UserRepository userRepository;
-    private final ProductRepository productRepository;
     private final PasswordEncoder passwordEncoder;
     private final MailService mailService;
+    private final MaintenanceJobService maintenanceJobService;
+    private final PrincipalCache principalCache;
+    private final AuthVersionRegistry authVersionRegistry;
 
     @Override
     public UserResponse register(RegisterRequest req) {
@@ -72,6 +78,7 @@ public class UserServiceImpl implements UserService {
         if (request.displayName() != null) {
             existing.setDisplayName(request.displayName());
         }
+        boolean revoke = false;
         if (request.enabled() != null) {
             // only allow admins to change the enabled flag
             Authentication auth = SecurityContextHolder.getContext().getAuthentication();
@@ -80,24 +87,31 @@ public class UserServiceImpl implements UserService {
             if (!isAdmin) {
                 throw new AccessDeniedException("Only administrators can change enabled status");
             }
+            // Disabling invalidates tokens already issued (stateless mode); re-enabling does not need to
+            revoke = existing.isEnabled() && !request.enabled();
+            if (revoke) existing.setAuthVersion(existing.getAuthVersion() + 1);
             existing.setEnabled(request.enabled());
         }
         User saved = userRepository.save(existing);
+        principalCache.invalidate(id);
+        if (revoke) authVersionRegistry.publish(id, saved.getAuthVersion());
         return new UserResponse(saved.getId(), saved.getEmail(), saved.getRoles(), saved.isEnabled(), saved.getDisplayName(), saved.getCreatedAt(), saved.getUpdatedAt());
     }
 
     @Override
-    @Transactional
-    public void delete(String id) {
-        if (!userRepository.existsById(id)) throw new ResourceNotFoundException("User not found");
-
-        try {
-            productRepository.deleteByUserId(id);
-        } catch (Exception e) {
-            throw new RuntimeException("Failed to delete user's products", e);
-        }
+    public MaintenanceJobResponse delete(String id, @Nullable String requestedBy) {
+        User existing = userRepository.findById(id).orElseThrow(() -> new ResourceNotFoundException("User not found"));
 
-        userRepository.deleteById(id);
+        // Disabled accounts fail authentication, so the user is gone for clients before the data is
+        if (existing.getDeletionRequestedAt() == null || existing.isEnabled()) {
+            existing.setEnabled(false);
+            existing.setDeletionRequestedAt(Instant.now());
+            existing.setAuthVersion(existing.getAuthVersion() + 1);
+            userRepository.save(existing);
+            principalCache.invalidate(id);
+            authVersionRegistry.publish(id, existing.getAuthVersion());
+        }
+        return maintenanceJobService.submit(UserDeletionJobHandler.TYPE, Map.of("userId", id), requestedBy);
     }
 
     @Override
@@ -125,6 +139,7 @@ public class UserServiceImpl implements UserService {
 
         existing.setPassword(passwordEncoder.encode(request.newPassword()));
         userRepository.save(existing);
+        principalCache.invalidate(id);
     }
 
     @Override
@@ -32,7 +32,10 @@ public class AnalysisUtil {
      * - isExpired (Boolean)
      * - recommendedDailyToFinish (Double) -- null if cannot compute or not needed
      * - recommendedMonthlyToFinish (Double) -- null if cannot compute
-     * - currentAvgDailyConsumption (Double) -- null if cannot compute
+     * - currentAvgDailyConsumption (Double) -- recent pace from the consumption log when available, otherwise the
+     *   lifetime average; null if cannot compute
+     * - lifetimeAvgDailyConsumption (Double) -- only when the recent pace was used
+     * - paceSource (String) -- RECENT or LIFETIME
      * - estimatedFinishDate (String ISO-8601) -- null if cannot compute
      * - statusSuggestion (String)
      * - warnings (List<String>)
@@ -41,7 +44,8 @@ public class AnalysisUtil {
     private static Map<String, Object> analyze(Double quantityBought,
                                                Double quantityConsumed,
                                                LocalDate purchaseDate,
-                                               LocalDate expirationDate) {
+                                               LocalDate expirationDate,
+                                               Double recentDailyConsumption) {
         Objects.requireNonNull(quantityBought, "quantityBought must not be null");
         if (quantityBought <= 0d) {
             throw new IllegalArgumentException("quantityBought must be greater than 0");
@@ -142,6 +146,16 @@ public class AnalysisUtil {
             out.put("currentAvgDailyConsumption", null);
         }
 
+        // Recent pace from the consumption log beats total/days-since-purchase, which hides pauses and bursts
+        if (recentDailyConsumption != null) {
+            out.put("lifetimeAvgDailyConsumption", out.get("currentAvgDailyConsumption"));
+            currentAvgDailyConsumption = recentDailyConsumption;
+            out.put("currentAvgDailyConsumption", round(recentDailyConsumption, 6));
+            out.put("paceSource", "RECENT");
+        } else {
+            out.put("paceSource", "LIFETIME");
+        }
+
         // === SMART RECOMMENDATIONS ===
         Double recommendedDailyToFinish = null;
         Double recommendedMonthlyToFinish = null;
@@ -243,8 +257,13 @@ public class AnalysisUtil {
     }
 
     public static Map<String, Object> analyze(Product p) {
+        return analyze(p, null);
+    }
+
+    // recentDailyConsumption: average per day over a recent window of the consumption log, or null without history
+    public static Map<String, Object> analyze(Product p, Double recentDailyConsumption) {
         if (p == null) throw new IllegalArgumentException("product must not be null");
-        return analyze(p.getQuantityBought(), p.getQuantityConsumed(), p.getPurchaseDate(), p.getExpirationDate());
+        return analyze(p.getQuantityBought(), p.getQuantityConsumed(), p.getPurchaseDate(), p.getExpirationDate(), recentDailyConsumption);
     }
 
     // === HELPER METHODS ===
@@ -0,0 +1,208 @@
+package com.verf.ProdExp.util;
+
+import java.util.*;
+
+/**
+ * Radix (compressed) trie from string keys to reference-counted values.
+ * The same value may be added under several keys and several times under one key; it disappears from a key once
+ * every add has been matched by a remove. Not thread-safe.
+ * <p>
+ * Every node keeps the best (value, count) entry of its subtree under the ranking given at construction, so
+ * {@link #topK} opens only the nodes that can still contribute instead of walking the whole subtree.
+ */
+public final class CompressedTrie<V> {
+
+    private static final class Node<V> {
+        String label;
+        final Map<Character, Node<V>> children = new HashMap<>(4);
+        Map<V, Integer> values;
+        // Best entry in this subtree under the trie's order; null when the subtree holds no values
+        Map.Entry<V, Integer> best;
+
+        Node(String label) {
+            this.label = label;
+        }
+
+        boolean isEmpty() {
+            return (values == null || values.isEmpty()) && children.isEmpty();
+        }
+    }
+
+    // Queue item of topK: a value with its count (node == null), or a subtree keyed by its best entry
+    private record Item<V>(Map.Entry<V, Integer> entry, Node<V> node) {
+    }
+
+    private final Node<V> root = new Node<>("");
+    private final Comparator<Map.Entry<V, Integer>> order;
+    private int size;
+
+    // order ranks (value, count) entries for topK, best first
+    public CompressedTrie(Comparator<Map.Entry<V, Integer>> order) {
+        this.order = order;
+    }
+
+    // Number of (key, value) registrations, counting repeats.
+    public int size() {
+        return size;
+    }
+
+    public void add(String key, V value) {
+        List<Node<V>> path = new ArrayList<>();
+        Node<V> node = root;
+        int i = 0;
+        path.add(node);
+        while (i < key.length()) {
+            char c = key.charAt(i);
+            Node<V> child = node.children.get(c);
+            if (child == null) {
+                child = new Node<>(key.substring(i));
+                node.children.put(c, child);
+                node = child;
+                path.add(node);
+                break;
+            }
+
+            int common = commonPrefix(child.label, key, i);
+            if (common < child.label.length()) {
+                // Split the edge: node -> mid(common part) -> child(rest)
+                Node<V> mid = new Node<>(child.label.substring(0, common));
+                child.label = child.label.substring(common);
+                mid.children.put(child.label.charAt(0), child);
+                node.children.put(c, mid);
+                child = mid;
+            }
+            node = child;
+            path.add(node);
+            i += common;
+        }
+
+        if (node.values == null) node.values = new HashMap<>(2);
+        node.values.merge(value, 1, Integer::sum);
+        size++;
+
+        for (int j = path.size() - 1; j >= 0; j--) refresh(path.get(j));
+    }
+
+    // Removes one registration of value under key; returns false when it was not present.
+    public boolean remove(String key, V value) {
+        Deque<Node<V>> path = new ArrayDeque<>();
+        Node<V> node = root;
+        int i = 0;
+        path.push(node);
+        while (i < key.length()) {
+            Node<V> child = node.children.get(key.charAt(i));
+            if (child == null || !key.startsWith(child.label, i)) return false;
+            i += child.label.length();
+            node = child;
+            path.push(node);
+        }
+
+        if (node.values == null) return false;
+        Integer count = node.values.get(value);
+        if (count == null) return false;
+        if (count == 1) node.values.remove(value);
+        else node.values.put(value, count - 1);
+        size--;
+
+        // Leaf first; nodes that prune detaches are refreshed too, which is harmless
+        List<Node<V>> touched = new ArrayList<>(path);
+        prune(path);
+        touched.forEach(this::refresh);
+        return true;
+    }
+
+    /**
+     * Values registered under any key starting with prefix, the top k by the trie's order. A value reachable from
+     * several keys is listed once, with the count of its best-ranked registration (its largest count when the order
+     * ranks by count).
+     * <p>
+     * Best-first: subtrees are queued under their best entry, so values come out in order and a subtree is only
+     * opened once it can beat what is already listed. The work grows with k and the fanout along the way, not with
+     * the size of the subtree.
+     */
+    public List<Map.Entry<V, Integer>> topK(String prefix, int k) {
+        if (k <= 0) return List.of();
+        Node<V> start = find(prefix);
+        if (start == null || start.best == null) return List.of();
+
+        // On equal entries open the subtree first, so everything ranked at least as high is queued before emitting
+        PriorityQueue<Item<V>> queue = new PriorityQueue<>((a, b) -> {
+            int c = order.compare(a.entry(), b.entry());
+            return c != 0 ? c : Boolean.compare(a.node() == null, b.node() == null);
+        });
+        queue.add(new Item<>(start.best, start));
+
+        List<Map.Entry<V, Integer>> out = new ArrayList<>(k);
+        Set<V> listed = new HashSet<>();
+        while (!queue.isEmpty() && out.size() < k) {
+            Item<V> item = queue.poll();
+            Node<V> n = item.node();
+            if (n == null) {
+                if (listed.add(item.entry().getKey())) out.add(item.entry());
+                continue;
+            }
+            if (n.values != null) n.values.forEach((v, c) -> queue.add(new Item<>(Map.entry(v, c), null)));
+            for (Node<V> child : n.children.values()) {
+                if (child.best != null) queue.add(new Item<>(child.best, child));
+            }
+        }
+        return out;
+    }
+
+    // Node whose subtree holds exactly the keys starting with prefix, or null.
+    private Node<V> find(String prefix) {
+        Node<V> node = root;
+        int i = 0;
+        while (i < prefix.length()) {
+            Node<V> child = node.children.get(prefix.charAt(i));
+            if (child == null) return null;
+            int common = commonPrefix(child.label, prefix, i);
+            if (i + common == prefix.length()) return child;
+            if (common < child.label.length()) return null;
+            i += common;
+            node = child;
+        }
+        return node;
+    }
+
+    // Drops empty nodes bottom-up and re-merges single-child pass-through nodes to keep the trie compressed.
+    private void prune(Deque<Node<V>> path) {
+        Node<V> node = path.pop();
+        while (!path.isEmpty()) {
+            Node<V> parent = path.pop();
+            if (node.isEmpty()) {
+                parent.children.remove(node.label.charAt(0));
+            } else if ((node.values == null || node.values.isEmpty()) && node.children.size() == 1) {
+                Node<V> only = node.children.values().iterator().next();
+                only.label = node.label + only.label;
+                parent.children.put(only.label.charAt(0), only);
+                return;
+            } else {
+                return;
+            }
+            node = parent;
+        }
+    }
+
+    // Recomputes node.best from its own values and its children's best entries
+    private void refresh(Node<V> node) {
+        Map.Entry<V, Integer> best = null;
+        if (node.values != null) {
+            for (Map.Entry<V, Integer> e : node.values.entrySet()) {
+                if (best == null || order.compare(e, best) < 0) best = e;
+            }
+        }
+        for (Node<V> child : node.children.values()) {
+            if (child.best != null && (best == null || order.compare(child.best, best) < 0)) best = child.best;
+        }
+        // Copy own entries: the map's are live and change with later adds/removes
+        node.best = best == null ? null : Map.entry(best.getKey(), best.getValue());
+    }
+
+    private static int commonPrefix(String label, String key, int offset) {
+        int max = Math.min(label.length(), key.length() - offset);
+        int n = 0;
+        while (n < max && label.charAt(n) == key.charAt(offset + n)) n++;
+        return n;
+    }
+}
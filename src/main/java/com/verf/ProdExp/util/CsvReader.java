@@ -0,0 +1,123 @@
+package com.verf.ProdExp.util;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Pull-style RFC 4180 reader: one record per {@link #next()} call, so arbitrarily large input is read with a buffer
+ * the size of one record. Supports quoted fields with embedded separators, doubled quotes and line breaks, and
+ * LF or CRLF record ends. A UTF-8 byte order mark at the start is skipped. Not thread-safe.
+ */
+public final class CsvReader {
+
+    private static final char QUOTE = '"';
+
+    private final Reader in;
+    private final char separator;
+    private final int maxRecordChars;
+    private final StringBuilder field = new StringBuilder(32);
+    private int pushedBack = -2;
+    private long line = 1;
+    private long recordLine;
+    private boolean first = true;
+
+    public CsvReader(Reader in) {
+        this(in, ',', 64 * 1024);
+    }
+
+    public CsvReader(Reader in, char separator, int maxRecordChars) {
+        this.in = in;
+        this.separator = separator;
+        this.maxRecordChars = maxRecordChars;
+    }
+
+    // 1-based line on which the record last returned by next() started.
+    public long recordLine() {
+        return recordLine;
+    }
+
+    /**
+     * Fields of the next record, or null at end of input. Blank lines are skipped.
+     *
+     * @throws MalformedCsvException on an unterminated quote or a record longer than maxRecordChars
+     * @throws IOException on read errors
+     */
+    public List<String> next() throws IOException {
+        int c = read();
+        if (first) {
+            first = false;
+            if (c == '\uFEFF') c = read();
+        }
+        while (c == '\r' || c == '\n') {
+            if (c == '\n') line++;
+            c = read();
+        }
+        if (c == -1) return null;
+        recordLine = line;
+
+        List<String> fields = new ArrayList<>();
+        int chars = 0;
+        field.setLength(0);
+        boolean quoted = false;
+        boolean afterQuoted = false;
+        while (true) {
+            if (++chars > maxRecordChars) throw new MalformedCsvException("Record on line " + recordLine + " exceeds " + maxRecordChars + " characters");
+            if (quoted) {
+                if (c == -1) throw new MalformedCsvException("Unterminated quoted field starting on line " + recordLine);
+                if (c == QUOTE) {
+                    int n = read();
+                    if (n == QUOTE) {
+                        field.append(QUOTE);
+                    } else {
+                        quoted = false;
+                        afterQuoted = true;
+                        c = n;
+                        continue;
+                    }
+                } else {
+                    if (c == '\n') line++;
+                    field.append((char) c);
+                }
+            } else if (c == separator) {
+                fields.add(field.toString());
+                field.setLength(0);
+                afterQuoted = false;
+            } else if (c == '\n' || c == '\r' || c == -1) {
+                if (c == '\r') {
+                    int n = read();
+                    if (n != '\n') unread(n);
+                }
+                if (c != -1) line++;
+                fields.add(field.toString());
+                return fields;
+            } else if (c == QUOTE && field.isEmpty() && !afterQuoted) {
+                quoted = true;
+            } else {
+                // Text after a closing quote is kept as-is rather than rejected
+                field.append((char) c);
+            }
+            c = read();
+        }
+    }
+
+    public static final class MalformedCsvException extends IOException {
+        public MalformedCsvException(String message) {
+            super(message);
+        }
+    }
+
+    private int read() throws IOException {
+        if (pushedBack != -2) {
+            int c = pushedBack;
+            pushedBack = -2;
+            return c;
+        }
+        return in.read();
+    }
+
+    private void unread(int c) {
+        pushedBack = c;
+    }
+}
@@ -0,0 +1,66 @@
+package com.verf.ProdExp.util;
+
+import java.time.Clock;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Small thread-safe LRU map with a size bound and a time-to-live per entry.
+ * Meant for per-user in-memory structures: the least recently used entries are evicted first.
+ */
+public final class LruCache<K, V> {
+
+    private record Timed<V>(V value, long expiresAtMillis) {
+    }
+
+    private final int maxEntries;
+    private final long ttlMillis;
+    private final Clock clock;
+    private final LinkedHashMap<K, Timed<V>> map;
+
+    public LruCache(int maxEntries, long ttlMillis) {
+        this(maxEntries, ttlMillis, Clock.systemUTC());
+    }
+
+    public LruCache(int maxEntries, long ttlMillis, Clock clock) {
+        this.maxEntries = Math.max(1, maxEntries);
+        this.ttlMillis = ttlMillis;
+        this.clock = clock;
+        this.map = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Timed<V>> eldest) {
+                return size() > LruCache.this.maxEntries;
+            }
+        };
+    }
+
+    public synchronized V get(K key) {
+        Timed<V> t = map.get(key);
+        if (t == null) return null;
+        if (t.expiresAtMillis() <= clock.millis()) {
+            map.remove(key);
+            return null;
+        }
+        return t.value();
+    }
+
+    // Stores value unless a live entry already exists; returns the entry that is cached afterwards.
+    public synchronized V putIfAbsent(K key, V value) {
+        V existing = get(key);
+        if (existing != null) return existing;
+        map.put(key, new Timed<>(value, clock.millis() + ttlMillis));
+        return value;
+    }
+
+    public synchronized void remove(K key) {
+        map.remove(key);
+    }
+
+    public synchronized void clear() {
+        map.clear();
+    }
+
+    public synchronized int size() {
+        return map.size();
+    }
+}
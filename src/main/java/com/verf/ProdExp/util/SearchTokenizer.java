@@ -0,0 +1,143 @@
+package com.verf.ProdExp.util;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Single tokenizer for everything that is indexed or searched, so writes and queries always agree.
+ * <p>
+ * A hand-written scanner instead of {@code split("\\W+")}: words are runs of letters, digits and '_', folded to
+ * lower case with diacritics removed ("Jalapeño" -> "jalapeno", "Crème" -> "creme"). ASCII takes a branch-only
+ * fast path; other characters are folded through a precomputed table for Latin ranges and NFD otherwise.
+ * The scratch buffer is per thread and reused.
+ */
+public final class SearchTokenizer {
+
+    // Bump when the token stream changes; stored postings with an older version are re-indexed at startup.
+    public static final int VERSION = 2;
+
+    // Letters that do not decompose under NFD but have a conventional ASCII spelling
+    private static final Map<Integer, String> SPECIAL_FOLDS = Map.of(
+            (int) 'ß', "ss", (int) 'æ', "ae", (int) 'œ', "oe", (int) 'ø', "o",
+            (int) 'ł', "l", (int) 'đ', "d", (int) 'ð', "d", (int) 'þ', "th", (int) 'ı', "i"
+    );
+
+    // Folded form of U+0080..U+024F (Latin-1 Supplement, Latin Extended-A/B); null for non-word characters
+    private static final int TABLE_START = 0x80;
+    private static final int TABLE_END = 0x250;
+    private static final String[] LATIN_FOLDS = new String[TABLE_END - TABLE_START];
+
+    static {
+        for (int cp = TABLE_START; cp < TABLE_END; cp++) {
+            LATIN_FOLDS[cp - TABLE_START] = isWordCodePoint(cp) ? slowFold(cp) : null;
+        }
+    }
+
+    private static final ThreadLocal<StringBuilder> BUFFER = ThreadLocal.withInitial(() -> new StringBuilder(64));
+
+    private SearchTokenizer() {
+    }
+
+    public static List<String> tokenize(CharSequence text) {
+        return tokenize(text, 1);
+    }
+
+    // Folded words of at least minLength characters, in order of appearance (duplicates kept).
+    public static List<String> tokenize(CharSequence text, int minLength) {
+        if (text == null || text.isEmpty()) return List.of();
+
+        List<String> out = new ArrayList<>(4);
+        StringBuilder word = BUFFER.get();
+        word.setLength(0);
+
+        int len = text.length();
+        for (int i = 0; i < len; ) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                i++;
+                if (c >= 'a' && c <= 'z' || c >= '0' && c <= '9' || c == '_') {
+                    word.append(c);
+                } else if (c >= 'A' && c <= 'Z') {
+                    word.append((char) (c + ('a' - 'A')));
+                } else {
+                    flush(word, minLength, out);
+                }
+                continue;
+            }
+
+            int cp = Character.codePointAt(text, i);
+            i += Character.charCount(cp);
+            if (isCombiningMark(cp)) continue; // already-decomposed input: drop the accent, stay in the word
+            String folded = fold(cp);
+            if (folded == null) {
+                flush(word, minLength, out);
+            } else {
+                word.append(folded);
+            }
+        }
+        flush(word, minLength, out);
+        return out;
+    }
+
+    /**
+     * Folds case and strips diacritics but keeps separators, e.g. for prefix keys that must line up with
+     * {@link #tokenize} output ("Crème Brûlée" -> "creme brulee").
+     */
+    public static String fold(CharSequence text) {
+        if (text == null) return null;
+        StringBuilder sb = BUFFER.get();
+        sb.setLength(0);
+        int len = text.length();
+        for (int i = 0; i < len; ) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                sb.append(c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c);
+                i++;
+                continue;
+            }
+            int cp = Character.codePointAt(text, i);
+            i += Character.charCount(cp);
+            if (isCombiningMark(cp)) continue;
+            String folded = fold(cp);
+            if (folded == null) sb.appendCodePoint(cp);
+            else sb.append(folded);
+        }
+        return sb.toString();
+    }
+
+    private static void flush(StringBuilder word, int minLength, List<String> out) {
+        if (word.isEmpty()) return;
+        if (word.length() >= minLength) out.add(word.toString());
+        word.setLength(0);
+    }
+
+    // Folded form of a non-ASCII code point, or null when it is not part of a word.
+    private static String fold(int cp) {
+        if (cp >= TABLE_START && cp < TABLE_END) return LATIN_FOLDS[cp - TABLE_START];
+        return isWordCodePoint(cp) ? slowFold(cp) : null;
+    }
+
+    private static String slowFold(int cp) {
+        int lower = Character.toLowerCase(Character.toUpperCase(cp));
+        String special = SPECIAL_FOLDS.get(lower);
+        if (special != null) return special;
+
+        String decomposed = Normalizer.normalize(new String(Character.toChars(lower)), Normalizer.Form.NFD);
+        StringBuilder sb = new StringBuilder(decomposed.length());
+        decomposed.codePoints().filter(c -> !isCombiningMark(c)).forEach(sb::appendCodePoint);
+        return sb.isEmpty() ? new String(Character.toChars(lower)) : sb.toString();
+    }
+
+    // Spacing marks (e.g. Devanagari vowel signs) carry meaning and stay part of the word
+    private static boolean isWordCodePoint(int cp) {
+        return Character.isLetterOrDigit(cp) || cp == '_' || Character.getType(cp) == Character.COMBINING_SPACING_MARK;
+    }
+
+    // Accents that NFD splits off; dropped so "é" and "e\u0301" both fold to "e"
+    private static boolean isCombiningMark(int cp) {
+        int type = Character.getType(cp);
+        return type == Character.NON_SPACING_MARK || type == Character.ENCLOSING_MARK;
+    }
+}
@@ -0,0 +1,183 @@
+package com.verf.ProdExp.util;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+
+/**
+ * In-memory, typo-tolerant index over the words of a user's products.
+ * <p>
+ * Trigrams map to distinct terms (not documents), so a query touches only the vocabulary: candidate terms sharing
+ * enough trigrams with a query word are verified with a bounded edit distance, then expanded to their documents.
+ * Documents are ranked by term coverage and expiry urgency and only the top k are returned. Not thread-safe.
+ */
+public final class TrigramIndex {
+
+    // Relevance = COVERAGE_WEIGHT * coverage + (1 - COVERAGE_WEIGHT) * urgency, both in [0, 1]
+    static final double COVERAGE_WEIGHT = 0.85;
+    private static final double PREFIX_SIMILARITY = 0.85;
+    private static final char PAD = '\u0001';
+
+    public record Hit(String id, double score) {
+    }
+
+    private record Doc(Set<String> terms, LocalDate expirationDate) {
+    }
+
+    private final Map<String, Doc> docs = new HashMap<>();
+    private final Map<String, Set<String>> termDocs = new HashMap<>();
+    private final Map<String, Set<String>> trigramTerms = new HashMap<>();
+
+    public int size() {
+        return docs.size();
+    }
+
+    public void put(String id, Collection<String> terms, LocalDate expirationDate) {
+        remove(id);
+        Set<String> normalized = new HashSet<>(terms);
+        docs.put(id, new Doc(normalized, expirationDate));
+        for (String term : normalized) {
+            Set<String> ids = termDocs.get(term);
+            if (ids == null) {
+                ids = new HashSet<>(2);
+                termDocs.put(term, ids);
+                for (String g : trigrams(term)) trigramTerms.computeIfAbsent(g, k -> new HashSet<>()).add(term);
+            }
+            ids.add(id);
+        }
+    }
+
+    public void remove(String id) {
+        Doc doc = docs.remove(id);
+        if (doc == null) return;
+        for (String term : doc.terms()) {
+            Set<String> ids = termDocs.get(term);
+            if (ids == null) continue;
+            ids.remove(id);
+            if (!ids.isEmpty()) continue;
+            // Last document using the term: drop it from the vocabulary
+            termDocs.remove(term);
+            for (String g : trigrams(term)) {
+                Set<String> ts = trigramTerms.get(g);
+                if (ts == null) continue;
+                ts.remove(term);
+                if (ts.isEmpty()) trigramTerms.remove(g);
+            }
+        }
+    }
+
+    /**
+     * Top k documents for the query words (already lowercased), best first. A document matches when at least one
+     * query word matches one of its terms exactly, as a prefix, or within the allowed edit distance.
+     */
+    public List<Hit> search(List<String> queryWords, int k, LocalDate today) {
+        if (queryWords.isEmpty() || k <= 0) return List.of();
+
+        // Sum over query words of each document's best similarity for that word
+        Map<String, Double> coverage = new HashMap<>();
+        for (String word : queryWords) {
+            Map<String, Double> best = new HashMap<>();
+            for (Map.Entry<String, Double> match : matchingTerms(word).entrySet()) {
+                for (String id : termDocs.get(match.getKey())) {
+                    best.merge(id, match.getValue(), Math::max);
+                }
+            }
+            best.forEach((id, s) -> coverage.merge(id, s, Double::sum));
+        }
+
+        PriorityQueue<Hit> heap = new PriorityQueue<>(k + 1, Comparator.comparingDouble(Hit::score).thenComparing(Hit::id, Comparator.reverseOrder()));
+        for (Map.Entry<String, Double> e : coverage.entrySet()) {
+            double cov = e.getValue() / queryWords.size();
+            double score = COVERAGE_WEIGHT * cov + (1 - COVERAGE_WEIGHT) * urgency(docs.get(e.getKey()).expirationDate(), today);
+            heap.offer(new Hit(e.getKey(), score));
+            if (heap.size() > k) heap.poll();
+        }
+
+        List<Hit> out = new ArrayList<>(heap);
+        out.sort(Comparator.comparingDouble(Hit::score).reversed().thenComparing(Hit::id));
+        return out;
+    }
+
+    // Vocabulary terms matching a query word, with similarity in (0, 1].
+    private Map<String, Double> matchingTerms(String word) {
+        Map<String, Double> out = new HashMap<>();
+        if (termDocs.containsKey(word)) out.put(word, 1.0);
+
+        int maxEdits = maxEdits(word.length());
+        List<String> grams = trigrams(word);
+        // Each edit destroys at most 3 trigrams, so a match within maxEdits shares at least this many
+        int minShared = Math.max(1, grams.size() - 3 * maxEdits);
+
+        Map<String, Integer> shared = new HashMap<>();
+        for (String g : grams) {
+            Set<String> terms = trigramTerms.get(g);
+            if (terms == null) continue;
+            for (String t : terms) shared.merge(t, 1, Integer::sum);
+        }
+
+        for (Map.Entry<String, Integer> e : shared.entrySet()) {
+            String term = e.getKey();
+            if (term.equals(word)) continue;
+            if (word.length() >= 3 && term.startsWith(word)) {
+                out.merge(term, PREFIX_SIMILARITY, Math::max);
+                continue;
+            }
+            if (e.getValue() < minShared || maxEdits == 0) continue;
+            int d = boundedLevenshtein(word, term, maxEdits);
+            if (d <= maxEdits) {
+                out.merge(term, 1.0 - (double) d / Math.max(word.length(), term.length()), Math::max);
+            }
+        }
+        return out;
+    }
+
+    // Same steps as the usual "AUTO" fuzziness: exact for 1-2 chars, 1 edit for 3-5, 2 edits beyond
+    static int maxEdits(int length) {
+        if (length <= 2) return 0;
+        if (length <= 5) return 1;
+        return 2;
+    }
+
+    // Sooner expiry ranks higher; already expired products rank below everything still usable.
+    static double urgency(LocalDate expirationDate, LocalDate today) {
+        if (expirationDate == null) return 0.0;
+        long days = ChronoUnit.DAYS.between(today, expirationDate);
+        if (days < 0) return 0.0;
+        return 1.0 / (1.0 + days / 7.0);
+    }
+
+    static List<String> trigrams(String term) {
+        String padded = PAD + term + PAD;
+        List<String> out = new ArrayList<>(Math.max(1, padded.length() - 2));
+        for (int i = 0; i + 3 <= padded.length(); i++) out.add(padded.substring(i, i + 3));
+        return out;
+    }
+
+    // Levenshtein distance, or max + 1 as soon as it is known to exceed max (only a diagonal band is computed).
+    static int boundedLevenshtein(String a, String b, int max) {
+        if (Math.abs(a.length() - b.length()) > max) return max + 1;
+        int[] prev = new int[b.length() + 1];
+        int[] cur = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) prev[j] = j;
+
+        for (int i = 1; i <= a.length(); i++) {
+            int from = Math.max(1, i - max);
+            int to = Math.min(b.length(), i + max);
+            cur[0] = i;
+            if (from > 1) cur[from - 1] = max + 1;
+            int rowMin = from == 1 ? cur[0] : max + 1;
+            for (int j = from; j <= to; j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                int v = Math.min(prev[j - 1] + cost, Math.min(prev[j] + 1, cur[j - 1] + 1));
+                cur[j] = v;
+                rowMin = Math.min(rowMin, v);
+            }
+            if (to < b.length()) cur[to + 1] = max + 1;
+            if (rowMin > max) return max + 1;
+            int[] tmp = prev;
+            prev = cur;
+            cur = tmp;
+        }
+        return Math.min(prev[b.length()], max + 1);
+    }
+}
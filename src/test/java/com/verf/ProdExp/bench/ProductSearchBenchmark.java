@@ -0,0 +1,87 @@
+package com.verf.ProdExp.bench;
+
+import com.verf.ProdExp.entity.Product;
+import com.verf.ProdExp.mapper.ProductMapper;
+import com.verf.ProdExp.util.TrigramIndex;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Search over one user's inventory: the trigram fuzzy path against the existing prefix-AND path.
+ * The prefix path is modelled in memory as the same range scan product_search_terms runs on (userId, term),
+ * so the comparison is about the algorithms, not Mongo round trips.
+ * <p>
+ * Run with: mvn test-compile && java -cp "target/test-classes:target/classes:$(mvn -q dependency:build-classpath
+ * -Dmdep.outputFile=/dev/stdout)" org.openjdk.jmh.Main ProductSearchBenchmark
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ProductSearchBenchmark {
+
+    private static final String[] WORDS = {
+            "strawberry", "blueberry", "raspberry", "milk", "oat", "almond", "cheddar", "gouda", "yoghurt", "butter",
+            "bread", "sourdough", "rice", "basmati", "pasta", "penne", "tomato", "passata", "olive", "oil", "chicken",
+            "salmon", "tuna", "beans", "lentils", "spinach", "kale", "apple", "banana", "orange", "juice", "coffee",
+            "tea", "honey", "jam", "cereal", "granola", "flour", "sugar", "salt", "pepper", "garlic", "onion", "potato"
+    };
+
+    @Param({"1000", "10000"})
+    public int products;
+
+    @Param({"strawberry jam", "stawberry", "chedar gouda"})
+    public String query;
+
+    private TrigramIndex trigramIndex;
+    private TreeMap<String, Set<String>> termPostings;
+    private List<String> queryWords;
+    private LocalDate today;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        today = LocalDate.parse("2026-03-01");
+        trigramIndex = new TrigramIndex();
+        termPostings = new TreeMap<>();
+
+        for (int i = 0; i < products; i++) {
+            Product p = new Product();
+            p.setId("p" + i);
+            String name = WORDS[random.nextInt(WORDS.length)] + " " + WORDS[random.nextInt(WORDS.length)] + " " + i;
+            p.setNameLower(name);
+            p.setTags(List.of(WORDS[random.nextInt(WORDS.length)]));
+            LocalDate expiry = today.plusDays(random.nextInt(120) - 10);
+
+            Set<String> terms = ProductMapper.searchTerms(p);
+            trigramIndex.put(p.getId(), terms, expiry);
+            for (String t : terms) termPostings.computeIfAbsent(t, k -> new HashSet<>()).add(p.getId());
+        }
+        queryWords = ProductMapper.tokenizeWords(query);
+    }
+
+    @Benchmark
+    public void trigramFuzzyTop20(Blackhole bh) {
+        bh.consume(trigramIndex.search(queryWords, 20, today));
+    }
+
+    // Existing semantics: every word must prefix-match a term (range scan per word, then intersect ids)
+    @Benchmark
+    public void prefixAndIntersect(Blackhole bh) {
+        Set<String> result = null;
+        for (String word : queryWords) {
+            Set<String> ids = new HashSet<>();
+            for (Set<String> postings : termPostings.subMap(word, word + Character.MAX_VALUE).values()) ids.addAll(postings);
+            if (result == null) result = ids;
+            else result.retainAll(ids);
+            if (result.isEmpty()) break;
+        }
+        bh.consume(result);
+    }
+}
@@ -0,0 +1,43 @@
+package com.verf.ProdExp.bench;
+
+import com.verf.ProdExp.util.SearchTokenizer;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * SearchTokenizer against the previous lowercase + split("\\W+") tokenization, on typical product names and tags.
+ * Run like ProductSearchBenchmark, selecting SearchTokenizerBenchmark; add -prof gc to compare allocation rates.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SearchTokenizerBenchmark {
+
+    @Param({"Organic Strawberry Jam 450g", "Jalapeño & Crème-Brûlée (family pack)", "milk"})
+    public String text;
+
+    @Benchmark
+    public void regexSplit(Blackhole bh) {
+        Set<String> tokens = new LinkedHashSet<>();
+        for (String word : text.toLowerCase().trim().split("\\W+")) {
+            if (word.length() < 2) continue;
+            tokens.add(word);
+        }
+        bh.consume(new ArrayList<>(tokens));
+    }
+
+    @Benchmark
+    public void handWrittenScanner(Blackhole bh) {
+        List<String> tokens = SearchTokenizer.tokenize(text, 2);
+        bh.consume(tokens);
+    }
+}
@@ -0,0 +1,98 @@
+package com.verf.ProdExp.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.serializer.SerializationException;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompactValueSerializerTest {
+
+    record Sample(String name, int count) {
+    }
+
+    record Other(String name) {
+    }
+
+    private final CompactValueSerializer serializer = new CompactValueSerializer(JsonMapper.builder().build(), 1024, 1 << 20, Sample.class);
+
+    @Test
+    void shortStringsAreRawUtf8() {
+        byte[] bytes = serializer.serialize("Crème brûlée");
+
+        assertEquals(0x01, bytes[0]);
+        assertEquals("Crème brûlée", new String(bytes, 1, bytes.length - 1, StandardCharsets.UTF_8));
+        assertEquals("Crème brûlée", serializer.deserialize(bytes));
+    }
+
+    @Test
+    void largeStringsAreDeflated() {
+        String markdown = "- Make a smoothie with the **strawberries** and yoghurt.\n".repeat(100);
+
+        byte[] bytes = serializer.serialize(markdown);
+
+        assertEquals((byte) 0x81, bytes[0]);
+        assertTrue(bytes.length < markdown.length() / 4);
+        assertEquals(markdown, serializer.deserialize(bytes));
+    }
+
+    @Test
+    void objectsRoundTripAsJson() {
+        byte[] bytes = serializer.serialize(new Sample("milk", 3));
+
+        assertEquals(0x02, bytes[0]);
+        assertTrue(new String(bytes, StandardCharsets.UTF_8).contains("\"name\":\"milk\""));
+        assertEquals(new Sample("milk", 3), serializer.deserialize(bytes));
+    }
+
+    @Test
+    void compressionCanBeTurnedOff() {
+        CompactValueSerializer plain = new CompactValueSerializer(JsonMapper.builder().build(), 0, 1 << 20, null);
+        String text = "x".repeat(10_000);
+
+        byte[] bytes = plain.serialize(text);
+
+        assertEquals(0x01, bytes[0]);
+        assertEquals(text.length() + 1, bytes.length);
+    }
+
+    @Test
+    void nullsAndUnknownFormats() {
+        assertNull(serializer.serialize(null));
+        assertNull(serializer.deserialize(null));
+        assertNull(serializer.deserialize(new byte[0]));
+        assertThrows(SerializationException.class, () -> serializer.deserialize(new byte[]{0x07, 1, 2}));
+        // Java serialization streams (0xACED...) are not read
+        assertThrows(SerializationException.class, () -> serializer.deserialize(new byte[]{(byte) 0xAC, (byte) 0xED, 0, 5}));
+    }
+
+    @Test
+    void onlyTheCacheValueTypeIsWrittenOrRead() {
+        CompactValueSerializer strings = new CompactValueSerializer(JsonMapper.builder().build(), 1024, 1 << 20, null);
+        byte[] sample = serializer.serialize(new Sample("milk", 3));
+
+        assertThrows(SerializationException.class, () -> serializer.serialize(new Other("milk")));
+        assertThrows(SerializationException.class, () -> strings.serialize(new Sample("milk", 3)));
+        // The recorded class name is compared, not loaded: a name planted in Redis gets nowhere
+        assertThrows(SerializationException.class, () -> strings.deserialize(sample));
+        byte[] forged = new String(sample, StandardCharsets.ISO_8859_1)
+                .replace("$Sample", "$Sampl3")
+                .getBytes(StandardCharsets.ISO_8859_1);
+        assertThrows(SerializationException.class, () -> serializer.deserialize(forged));
+    }
+
+    @Test
+    void inflationIsCapped() {
+        CompactValueSerializer small = new CompactValueSerializer(JsonMapper.builder().build(), 1024, 8 * 1024, null);
+        String text = "x".repeat(100_000);
+
+        byte[] bytes = small.serialize(text);
+
+        // A few hundred bytes on the wire, far past the cap once inflated
+        assertTrue(bytes.length < 1024);
+        assertThrows(SerializationException.class, () -> small.deserialize(bytes));
+        assertEquals(text, serializer.deserialize(bytes));
+    }
+}
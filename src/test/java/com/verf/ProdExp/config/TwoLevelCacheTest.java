@@ -0,0 +1,111 @@
+package com.verf.ProdExp.config;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.Cache;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TwoLevelCacheTest {
+
+    private ConcurrentMapCache shared;
+    private List<String> published;
+    private TwoLevelCache cache;
+
+    @BeforeEach
+    void setUp() {
+        shared = new ConcurrentMapCache("ai", false);
+        published = new ArrayList<>();
+        cache = new TwoLevelCache("ai", shared, 1024 * 1024, Duration.ofMinutes(5),
+                (name, key) -> published.add(name + ":" + key));
+    }
+
+    @Test
+    void missFallsBackToSharedAndFillsLocal() {
+        shared.put("k", "v");
+
+        Cache.ValueWrapper first = cache.get("k");
+        assertNotNull(first);
+        assertEquals("v", first.get());
+        assertEquals(1, cache.localSize());
+
+        // Served locally even after the shared entry is gone
+        shared.evict("k");
+        assertEquals("v", cache.get("k", String.class));
+    }
+
+    @Test
+    void putWritesBothTiersAndPublishes() {
+        cache.put("k", "v");
+
+        assertEquals("v", shared.get("k", String.class));
+        assertEquals("v", cache.get("k", String.class));
+        assertEquals(List.of("ai:k"), published);
+    }
+
+    @Test
+    void remoteInvalidationDropsOnlyTheLocalCopy() {
+        cache.put("k", "old");
+        shared.put("k", "new");
+
+        cache.evictLocal("k");
+
+        assertEquals("new", cache.get("k", String.class));
+    }
+
+    @Test
+    void evictAndClearPublish() {
+        cache.put("a", "1");
+        cache.put("b", "2");
+        published.clear();
+
+        cache.evict("a");
+        assertNull(cache.get("a"));
+        cache.clear();
+        assertNull(cache.get("b"));
+        assertEquals(List.of("ai:a", "ai:null"), published);
+    }
+
+    @Test
+    void loaderRunsOnceAndResultIsKeptLocally() {
+        AtomicInteger calls = new AtomicInteger();
+
+        assertEquals("loaded", cache.get("k", () -> {
+            calls.incrementAndGet();
+            return "loaded";
+        }));
+        assertEquals("loaded", cache.get("k", () -> {
+            calls.incrementAndGet();
+            return "other";
+        }));
+        assertEquals(1, calls.get());
+        assertEquals(1, cache.localSize());
+    }
+
+    @Test
+    void nonStringKeysUseTheirStringForm() {
+        cache.put(42, "v");
+        cache.evictLocal("42");
+        shared.evict(42);
+
+        assertNull(cache.get(42));
+    }
+
+    @Test
+    void weightGrowsWithStringLength() {
+        assertTrue(TwoLevelCache.weigh("k", "x".repeat(1000)) > TwoLevelCache.weigh("k", "x"));
+        assertTrue(TwoLevelCache.weigh("k", new byte[4096]) > 4096);
+    }
+
+    @Test
+    void wrongTypeIsRejected() {
+        cache.put("k", "v");
+        assertThrows(IllegalStateException.class, () -> cache.get("k", Integer.class));
+    }
+}
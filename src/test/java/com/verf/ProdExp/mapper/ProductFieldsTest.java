@@ -0,0 +1,56 @@
+package com.verf.ProdExp.mapper;
+
+import com.verf.ProdExp.dto.ProductResponse;
+import com.verf.ProdExp.entity.NotificationFrequency;
+import com.verf.ProdExp.entity.NotificationFrequencySource;
+import com.verf.ProdExp.entity.Status;
+import com.verf.ProdExp.entity.Unit;
+import com.verf.ProdExp.exception.BadRequestException;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProductFieldsTest {
+
+    @Test
+    void parse_returnsNullWhenNoFieldsRequested() {
+        assertNull(ProductFields.parse(null));
+        assertNull(ProductFields.parse(List.of(" ", "")));
+    }
+
+    @Test
+    void parse_acceptsCommaSeparatedValuesAndAlwaysIncludesId() {
+        Set<String> fields = ProductFields.parse(List.of("name, expirationDate", "status"));
+
+        assertEquals(Set.of("id", "name", "expirationDate", "status"), fields);
+    }
+
+    @Test
+    void parse_rejectsUnknownFields() {
+        assertThrows(BadRequestException.class, () -> ProductFields.parse(List.of("nameTokens")));
+    }
+
+    @Test
+    void documentFields_mapsDerivedSourceToOverride() {
+        assertEquals(List.of("id", "notificationFrequencyOverride"),
+                ProductFields.documentFields(new LinkedHashSet<>(List.of("id", "notificationFrequencySource"))));
+    }
+
+    @Test
+    void select_keepsOnlyRequestedFieldsInResponseOrder() {
+        ProductResponse response = new ProductResponse("p1", "u1", "Rice", 5.0, 1.0, Unit.KILOGRAM,
+                null, LocalDate.parse("2026-05-01"), null, null, Status.AVAILABLE,
+                NotificationFrequency.WEEKLY, NotificationFrequencySource.AUTO, null, null, List.of(), null);
+
+        Map<String, Object> out = ProductFields.select(response, Set.of("status", "name", "id"));
+
+        assertEquals(List.of("id", "name", "status"), List.copyOf(out.keySet()));
+        assertEquals(Status.AVAILABLE, out.get("status"));
+    }
+}
@@ -10,6 +10,8 @@ import org.junit.jupiter.api.Test;
 
 import java.time.Instant;
 import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 
@@ -52,4 +54,13 @@ class ProductMapperTest {
 
         assertEquals(NotificationFrequencySource.MANUAL, response.notificationFrequencySource());
     }
+
+    @Test
+    void searchTerms_storesWholeWordsFromNameAndTags() {
+        Product p = baseProduct();
+        p.setNameLower("strawberries & cream");
+        p.setTags(List.of("Fruit", "x"));
+
+        assertEquals(Set.of("strawberries", "cream", "fruit"), ProductMapper.searchTerms(p));
+    }
 }
@@ -0,0 +1,33 @@
+package com.verf.ProdExp.repository;
+
+import com.verf.ProdExp.entity.Unit;
+import com.verf.ProdExp.repository.ConsumptionDailyRepositoryCustom.Consumption;
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConsumptionDailyRepositoryImplTest {
+
+    @Test
+    void weeklyRollupIsOneIncPerUser() {
+        Map<String, Update> updates = ConsumptionDailyRepositoryImpl.weeklyUpdates(List.of(
+                new Consumption("u1", "p1", Unit.PIECES, 2.0),
+                new Consumption("u2", "p2", Unit.LITER, 0.5),
+                new Consumption("u1", "p3", Unit.PIECES, 1.0),
+                new Consumption("u1", "p4", Unit.LITER, -0.25)));
+
+        assertEquals(List.of("u1", "u2"), List.copyOf(updates.keySet()));
+        Document u1 = (Document) updates.get("u1").getUpdateObject().get("$inc");
+        assertEquals(3, u1.get("events"));
+        assertEquals(3.0, u1.get("consumedByUnit.PIECES"));
+        assertEquals(-0.25, u1.get("consumedByUnit.LITER"));
+        Document u2 = (Document) updates.get("u2").getUpdateObject().get("$inc");
+        assertEquals(1, u2.get("events"));
+        assertEquals(0.5, u2.get("consumedByUnit.LITER"));
+    }
+}
@@ -0,0 +1,86 @@
+package com.verf.ProdExp.repository;
+
+import com.verf.ProdExp.entity.MaintenanceJobStatus;
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MaintenanceJobRepositoryImplTest {
+
+    private static final Instant NOW = Instant.parse("2026-03-01T12:00:00Z");
+
+    // Just enough of Mongo's matching for these filters: field equality, $lt, $in and $or
+    @SuppressWarnings("unchecked")
+    private static boolean matches(Document filter, Map<String, Object> job) {
+        for (Map.Entry<String, Object> e : filter.entrySet()) {
+            if (e.getKey().equals("$or")) {
+                if (((List<Document>) e.getValue()).stream().noneMatch(f -> matches(f, job))) return false;
+                continue;
+            }
+            Object actual = job.get(e.getKey());
+            if (e.getValue() instanceof Document op) {
+                if (op.containsKey("$lt") && (actual == null || ((Comparable<Object>) actual).compareTo(op.get("$lt")) >= 0)) return false;
+                if (op.containsKey("$in") && !((Collection<Object>) op.get("$in")).contains(actual)) return false;
+            } else if (!Objects.equals(e.getValue(), actual)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static Map<String, Object> job(MaintenanceJobStatus status, Instant leaseUntil) {
+        return leaseUntil == null
+                ? Map.of("id", "j1", "status", status)
+                : Map.of("id", "j1", "status", status, "leaseUntil", leaseUntil, "leaseOwner", "worker-a");
+    }
+
+    @Test
+    void pendingJobsCanBeClaimed() {
+        assertTrue(matches(MaintenanceJobRepositoryImpl.claimable(NOW).getQueryObject(), job(MaintenanceJobStatus.PENDING, null)));
+    }
+
+    @Test
+    void runningJobCanBeReclaimedOnlyOnceItsLeaseExpired() {
+        Document filter = MaintenanceJobRepositoryImpl.claimable(NOW).getQueryObject();
+
+        assertTrue(matches(filter, job(MaintenanceJobStatus.RUNNING, NOW.minusSeconds(1))));
+        assertFalse(matches(filter, job(MaintenanceJobStatus.RUNNING, NOW.plusSeconds(60))));
+        assertFalse(matches(filter, job(MaintenanceJobStatus.RUNNING, NOW)));
+    }
+
+    @Test
+    void finishedJobsAreNeverClaimed() {
+        Document filter = MaintenanceJobRepositoryImpl.claimable(NOW).getQueryObject();
+
+        for (MaintenanceJobStatus status : List.of(MaintenanceJobStatus.COMPLETED, MaintenanceJobStatus.FAILED, MaintenanceJobStatus.CANCELLED)) {
+            assertFalse(matches(filter, job(status, NOW.minusSeconds(600))), status.name());
+        }
+    }
+
+    @Test
+    void onlyFailedOrCancelledJobsCanBeRetried() {
+        Document filter = MaintenanceJobRepositoryImpl.retryable("j1").getQueryObject();
+
+        assertTrue(matches(filter, job(MaintenanceJobStatus.FAILED, null)));
+        assertTrue(matches(filter, job(MaintenanceJobStatus.CANCELLED, null)));
+        assertFalse(matches(filter, job(MaintenanceJobStatus.PENDING, null)));
+        assertFalse(matches(filter, job(MaintenanceJobStatus.RUNNING, NOW.plusSeconds(60))));
+        assertFalse(matches(filter, job(MaintenanceJobStatus.COMPLETED, null)));
+    }
+
+    @Test
+    void onlyTheLeaseOwnerCanCheckpointOrFinish() {
+        Document filter = MaintenanceJobRepositoryImpl.heldBy("j1", "worker-a").getQueryObject();
+
+        assertTrue(matches(filter, job(MaintenanceJobStatus.RUNNING, NOW.plusSeconds(60))));
+        assertFalse(matches(MaintenanceJobRepositoryImpl.heldBy("j1", "worker-b").getQueryObject(), job(MaintenanceJobStatus.RUNNING, NOW.plusSeconds(60))));
+        assertFalse(matches(filter, job(MaintenanceJobStatus.PENDING, null)));
+    }
+}
@@ -0,0 +1,106 @@
+package com.verf.ProdExp.repository;
+
+import com.mongodb.bulk.BulkWriteError;
+import com.verf.ProdExp.entity.Product;
+import com.verf.ProdExp.entity.Status;
+import org.bson.BsonDocument;
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProductRepositoryImplBulkTest {
+
+    private static final Instant READ = Instant.parse("2026-01-01T10:00:00Z");
+    private static final Instant STAMP = Instant.parse("2026-01-01T10:05:00Z");
+
+    private Product product() {
+        Product p = new Product();
+        p.setId("p1");
+        p.setUserId("u1");
+        p.setQuantityBought(4.0);
+        p.setQuantityConsumed(1.5);
+        p.setTags(List.of("dairy"));
+        return p;
+    }
+
+    @Test
+    void tagOnlyPatch_addsAndPullsWithoutTouchingOtherFields() {
+        ProductPatch patch = new ProductPatch(product(), READ, Set.of(), Set.of("fridge"), Set.of("old"));
+
+        List<Update> updates = ProductRepositoryImpl.patchUpdates(patch, STAMP);
+
+        assertEquals(2, updates.size());
+        Document add = updates.get(0).getUpdateObject();
+        Document pull = updates.get(1).getUpdateObject();
+        assertTrue(add.containsKey("$addToSet"));
+        assertTrue(pull.containsKey("$pullAll"));
+        for (Update u : updates) {
+            Document set = (Document) u.getUpdateObject().get("$set");
+            assertEquals(Set.of("updatedAt"), set.keySet());
+        }
+    }
+
+    @Test
+    void tagOnlyPatch_isNotGuardedOnUpdatedAt() {
+        ProductPatch patch = new ProductPatch(product(), READ, Set.of(), Set.of("fridge"), Set.of());
+
+        Document filter = ProductRepositoryImpl.patchFilter(patch).getQueryObject();
+
+        assertEquals("p1", filter.get("id"));
+        assertEquals("u1", filter.get("userId"));
+        assertFalse(filter.containsKey("updatedAt"));
+    }
+
+    @Test
+    void fieldPatch_setsOnlyListedFieldsUnderTheReadGuard() {
+        ProductPatch patch = new ProductPatch(product(), READ, Set.of("quantityConsumed", "nextNotificationAt"), Set.of(), Set.of());
+
+        List<Update> updates = ProductRepositoryImpl.patchUpdates(patch, STAMP);
+        Document filter = ProductRepositoryImpl.patchFilter(patch).getQueryObject();
+
+        assertEquals(1, updates.size());
+        Document doc = updates.get(0).getUpdateObject();
+        assertEquals(Set.of("quantityConsumed", "updatedAt"), ((Document) doc.get("$set")).keySet());
+        // Null values are unset rather than written
+        assertEquals(Set.of("nextNotificationAt"), ((Document) doc.get("$unset")).keySet());
+        assertEquals(READ, filter.get("updatedAt"));
+    }
+
+    @Test
+    void fieldPatch_rejectsFieldsItDoesNotKnow() {
+        ProductPatch patch = new ProductPatch(product(), READ, Set.of("userId"), Set.of(), Set.of());
+
+        assertThrows(IllegalArgumentException.class, () -> ProductRepositoryImpl.patchUpdates(patch, STAMP));
+    }
+
+    @Test
+    void bulkErrors_mapOperationIndexesBackToProducts() {
+        List<List<String>> targets = List.of(List.of("p1"), List.of("p1"), List.of("p2"), List.of("p3", "p4"));
+        List<BulkWriteError> errors = List.of(
+                new BulkWriteError(11000, "first", new BsonDocument(), 1),
+                new BulkWriteError(2, "delete failed", new BsonDocument(), 3));
+
+        Map<String, String> failures = ProductRepositoryImpl.bulkErrors(targets, errors);
+
+        assertEquals(Map.of("p1", "first", "p3", "delete failed", "p4", "delete failed"), failures);
+    }
+
+    @Test
+    void archiveRemove_onlyMatchesTheTerminalVersionThatWasRead() {
+        Product p = product();
+        p.setUpdatedAt(READ);
+
+        Document filter = ProductRepositoryImpl.archiveRemoveQuery(p).getQueryObject();
+
+        assertEquals("p1", filter.get("id"));
+        assertEquals(READ, filter.get("updatedAt"));
+        assertEquals(List.of(Status.FINISHED, Status.EXPIRED), ((Document) filter.get("status")).get("$in"));
+    }
+}
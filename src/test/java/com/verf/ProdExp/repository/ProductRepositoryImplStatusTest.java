@@ -0,0 +1,168 @@
+package com.verf.ProdExp.repository;
+
+import com.verf.ProdExp.entity.Product;
+import com.verf.ProdExp.entity.Status;
+import com.verf.ProdExp.mapper.ProductMapper;
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.MongoExpression;
+import org.springframework.data.mongodb.core.query.Criteria;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The server-side status and percentageLeft expressions against ProductMapper, at the boundaries where the two are
+ * easiest to get out of step. The rendered expressions are evaluated here with the semantics of the few operators
+ * they use, on a document holding what Mongo would have stored.
+ */
+class ProductRepositoryImplStatusTest {
+
+    private static final LocalDate TODAY = LocalDate.now();
+
+    private static List<Product> boundaries() {
+        List<Product> out = new ArrayList<>();
+        for (double[] q : new double[][]{{4, 0}, {4, 3.5}, {4, 4}, {0, 0}, {0.5, 0.5}}) {
+            for (LocalDate expiration : List.of(TODAY.minusDays(1), TODAY, TODAY.plusDays(1))) {
+                Product p = new Product();
+                p.setId("p" + out.size());
+                p.setQuantityBought(q[0]);
+                p.setQuantityConsumed(q[1]);
+                p.setExpirationDate(expiration);
+                out.add(p);
+            }
+        }
+        return out;
+    }
+
+    private static Document stored(Product p, Status status) {
+        return new Document("quantityBought", p.getQuantityBought())
+                .append("quantityConsumed", p.getQuantityConsumed())
+                .append("expirationDate", p.getExpirationDate())
+                .append("status", status);
+    }
+
+    @Test
+    void recomputeLeavesEveryStoredStatusAtWhatComputeStatusSays() {
+        Map<Status, Criteria> corrections = ProductRepositoryImpl.statusCorrections(TODAY);
+
+        for (Product p : boundaries()) {
+            Status expected = ProductMapper.computeStatus(p);
+            for (Status before : new Status[]{Status.AVAILABLE, Status.EXPIRED, Status.FINISHED, null}) {
+                Document doc = stored(p, before);
+                List<Status> applied = new ArrayList<>();
+                corrections.forEach((status, criteria) -> {
+                    if (matches(criteria.getCriteriaObject(), doc)) applied.add(status);
+                });
+
+                String at = p.getQuantityConsumed() + "/" + p.getQuantityBought() + " expiring " + p.getExpirationDate() + " from " + before;
+                if (before == expected) {
+                    assertEquals(List.of(), applied, at);
+                } else {
+                    assertEquals(List.of(expected), applied, at);
+                }
+            }
+        }
+    }
+
+    @Test
+    void setQuantityConsumedDerivesWhatTheMapperDoes() {
+        for (Product p : boundaries()) {
+            // The stored document still has the old quantity; the new one only reaches the expressions as a value
+            Document doc = stored(p, Status.AVAILABLE).append("quantityConsumed", 0.0);
+            double consumed = p.getQuantityConsumed();
+
+            Object status = eval(ProductRepositoryImpl.statusAfterConsuming(consumed, TODAY), doc);
+            double percentageLeft = ((Number) eval(ProductRepositoryImpl.percentageLeftAfterConsuming(consumed), doc)).doubleValue();
+
+            String at = consumed + "/" + p.getQuantityBought() + " expiring " + p.getExpirationDate();
+            assertEquals(ProductMapper.computeStatus(p).name(), status, at);
+            assertEquals(ProductMapper.computePercentageLeft(p), percentageLeft, 1e-9, at);
+        }
+    }
+
+    // Query matching for the criteria shapes statusCorrections builds: $expr, $ne, $lte, $gt
+    private static boolean matches(Document criteria, Document doc) {
+        for (Map.Entry<String, Object> e : criteria.entrySet()) {
+            if (e.getKey().equals("$expr")) {
+                if (!truthy(eval(e.getValue(), doc))) return false;
+                continue;
+            }
+            Object actual = doc.get(e.getKey());
+            if (!(e.getValue() instanceof Document ops)) {
+                if (!equal(actual, e.getValue())) return false;
+                continue;
+            }
+            for (Map.Entry<String, Object> op : ops.entrySet()) {
+                boolean ok = switch (op.getKey()) {
+                    case "$ne" -> !equal(actual, op.getValue());
+                    // Range operators never match a missing field
+                    case "$lte" -> actual != null && compare(actual, op.getValue()) <= 0;
+                    case "$gt" -> actual != null && compare(actual, op.getValue()) > 0;
+                    default -> throw new IllegalArgumentException("Unsupported query operator " + op.getKey());
+                };
+                if (!ok) return false;
+            }
+        }
+        return true;
+    }
+
+    private static Object eval(Object expression, Document doc) {
+        Object expr = expression instanceof MongoExpression m ? m.toDocument() : expression;
+        if (expr instanceof String s && s.startsWith("$")) return doc.get(s.substring(1));
+        if (!(expr instanceof Document d) || d.size() != 1 || !d.keySet().iterator().next().startsWith("$")) return expr;
+
+        String op = d.keySet().iterator().next();
+        Object arg = d.get(op);
+        List<?> args = arg instanceof List<?> l ? l : List.of(arg);
+        return switch (op) {
+            case "$and" -> args.stream().allMatch(a -> truthy(eval(a, doc)));
+            case "$not" -> !truthy(eval(args.get(0), doc));
+            case "$gt" -> compare(eval(args.get(0), doc), eval(args.get(1), doc)) > 0;
+            case "$gte" -> compare(eval(args.get(0), doc), eval(args.get(1), doc)) >= 0;
+            case "$lte" -> compare(eval(args.get(0), doc), eval(args.get(1), doc)) <= 0;
+            case "$subtract" -> number(eval(args.get(0), doc)) - number(eval(args.get(1), doc));
+            case "$divide" -> number(eval(args.get(0), doc)) / number(eval(args.get(1), doc));
+            case "$multiply" -> args.stream().mapToDouble(a -> number(eval(a, doc))).reduce(1, (x, y) -> x * y);
+            case "$cond" -> {
+                Document c = (Document) arg;
+                yield eval(truthy(eval(c.get("if"), doc)) ? c.get("then") : c.get("else"), doc);
+            }
+            case "$switch" -> {
+                Document sw = (Document) arg;
+                for (Object branch : (List<?>) sw.get("branches")) {
+                    Document b = (Document) branch;
+                    if (truthy(eval(b.get("case"), doc))) yield eval(b.get("then"), doc);
+                }
+                yield eval(sw.get("default"), doc);
+            }
+            default -> throw new IllegalArgumentException("Unsupported expression operator " + op);
+        };
+    }
+
+    private static boolean truthy(Object value) {
+        return value != null && !Boolean.FALSE.equals(value) && !(value instanceof Number n && n.doubleValue() == 0);
+    }
+
+    private static double number(Object value) {
+        return ((Number) value).doubleValue();
+    }
+
+    private static boolean equal(Object a, Object b) {
+        if (a instanceof Number x && b instanceof Number y) return x.doubleValue() == y.doubleValue();
+        if (a instanceof Enum<?> x && b instanceof String y) return x.name().equals(y);
+        if (a instanceof String x && b instanceof Enum<?> y) return x.equals(y.name());
+        return a == null ? b == null : a.equals(b);
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static int compare(Object a, Object b) {
+        if (a instanceof Number x && b instanceof Number y) return Double.compare(x.doubleValue(), y.doubleValue());
+        if (a instanceof Comparable x && b != null && a.getClass() == b.getClass()) return x.compareTo(b);
+        throw new IllegalArgumentException("Cannot compare " + a + " with " + b);
+    }
+}
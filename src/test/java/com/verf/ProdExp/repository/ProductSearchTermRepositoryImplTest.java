@@ -0,0 +1,69 @@
+package com.verf.ProdExp.repository;
+
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.query.Criteria;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProductSearchTermRepositoryImplTest {
+
+    private static final String MAX = Character.toString(Character.MAX_CODE_POINT);
+
+    @Test
+    void upperBoundIncrementsTheLastCodePoint() {
+        assertEquals("ac", ProductSearchTermRepositoryImpl.prefixUpperBound("ab"));
+        assertEquals("mil\u00e9", ProductSearchTermRepositoryImpl.prefixUpperBound("mil\u00e8"));
+        // Not "a\uFFFF": terms with a supplementary character (e.g. an emoji) after "a" sort above that
+        assertEquals("b", ProductSearchTermRepositoryImpl.prefixUpperBound("a"));
+    }
+
+    @Test
+    void upperBoundSkipsSurrogatesAndCarries() {
+        assertEquals("a\ue000", ProductSearchTermRepositoryImpl.prefixUpperBound("a\ud7ff"));
+        assertEquals("a" + Character.toString(0x10000), ProductSearchTermRepositoryImpl.prefixUpperBound("a\uffff"));
+        assertEquals("b", ProductSearchTermRepositoryImpl.prefixUpperBound("a" + MAX));
+        assertNull(ProductSearchTermRepositoryImpl.prefixUpperBound(MAX + MAX));
+        assertNull(ProductSearchTermRepositoryImpl.prefixUpperBound(""));
+    }
+
+    @Test
+    void regexFallbackMatchesWordStartsInNameOrTags() {
+        List<Criteria> criteria = ProductRepositoryImpl.wordPrefixCriteria(List.of("mil", "a.b"));
+
+        assertEquals(2, criteria.size());
+        @SuppressWarnings("unchecked")
+        List<Document> or = (List<Document>) criteria.get(0).getCriteriaObject().get("$or");
+        assertEquals(2, or.size());
+        Pattern name = (Pattern) or.get(0).get("nameLower");
+        assertTrue(name.matcher("oat milk").find());
+        assertTrue(name.matcher("Milk").find());
+        assertFalse(name.matcher("camille").find());
+        assertTrue(((Pattern) or.get(1).get("tags")).matcher("milk-products").find());
+
+        // Tokens are quoted, not read as regex syntax
+        @SuppressWarnings("unchecked")
+        Pattern dotted = (Pattern) ((List<Document>) criteria.get(1).getCriteriaObject().get("$or")).get(0).get("nameLower");
+        assertFalse(dotted.matcher("axb").find());
+        assertTrue(dotted.matcher("a.b cream").find());
+    }
+
+    @Test
+    void staleQueryNeverMatchesAWantedPostingOfTheOwner() {
+        Document q = ProductSearchTermRepositoryImpl.staleQuery("u1", "p1", Set.of("milk")).getQueryObject();
+
+        @SuppressWarnings("unchecked")
+        List<Document> and = (List<Document>) q.get("$and");
+        assertEquals("p1", and.get(0).get("productId"));
+        @SuppressWarnings("unchecked")
+        List<Document> or = (List<Document>) and.get(1).get("$or");
+        // Upserts key on (userId, term, productId), so they and the removes of one bulk touch disjoint postings
+        assertEquals(Set.of("milk"), Set.copyOf((Collection<?>) ((Document) or.get(0).get("term")).get("$nin")));
+        assertEquals(new Document("$ne", "u1"), or.get(1).get("userId"));
+    }
+}
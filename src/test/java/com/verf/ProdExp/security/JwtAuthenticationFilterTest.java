@@ -0,0 +1,98 @@
+package com.verf.ProdExp.security;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.algorithms.Algorithm;
+import com.verf.ProdExp.config.CachingProperties;
+import com.verf.ProdExp.config.TwoLevelCacheManager;
+import com.verf.ProdExp.entity.User;
+import com.verf.ProdExp.repository.UserRepository;
+import com.verf.ProdExp.support.Fakes;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JwtAuthenticationFilterTest {
+
+    private static final String SECRET = "test-secret";
+
+    private final User user = User.builder().id("u1").email("u1@example.com").password("x").roles(Set.of("USER")).enabled(true).build();
+    private int userLoads;
+
+    private final UserRepository userRepository = Fakes.strict(UserRepository.class, Map.of(
+            "findById", args -> {
+                userLoads++;
+                return Optional.of(user);
+            },
+            "findRevoked", args -> List.of()));
+    private final JwtProvider jwtProvider = new JwtProvider(SECRET, 3600, true);
+    private final AuthVersionRegistry registry = new AuthVersionRegistry(new StringRedisTemplate(),
+            new RedisMessageListenerContainer(), userRepository, 3600);
+    private final JwtAuthenticationFilter filter = new JwtAuthenticationFilter(jwtProvider,
+            new PrincipalCache(new JwtUserDetailsService(userRepository),
+                    new TwoLevelCacheManager(new ConcurrentMapCacheManager(), new CachingProperties(), new StringRedisTemplate()), 100, 30),
+            registry);
+
+    @AfterEach
+    void clearContext() {
+        SecurityContextHolder.clearContext();
+    }
+
+    private Authentication authenticate(String token) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader("Authorization", "Bearer " + token);
+        filter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+        return SecurityContextHolder.getContext().getAuthentication();
+    }
+
+    private void versionChanged(String userId, long version) {
+        registry.onMessage(new DefaultMessage("auth_versions:changed".getBytes(StandardCharsets.UTF_8),
+                (userId + "\t" + version).getBytes(StandardCharsets.UTF_8)), null);
+    }
+
+    @Test
+    void currentStatelessToken_usesRolesFromTheTokenWithoutLoadingTheUser() throws Exception {
+        Authentication auth = authenticate(jwtProvider.generateToken(user));
+
+        assertNotNull(auth);
+        assertEquals("u1", auth.getName());
+        assertEquals(List.of("ROLE_USER"), auth.getAuthorities().stream().map(GrantedAuthority::getAuthority).toList());
+        assertEquals(0, userLoads);
+    }
+
+    @Test
+    void staleAuthVersion_isRejected() throws Exception {
+        String token = jwtProvider.generateToken(user);
+        versionChanged("u1", 1);
+
+        assertNull(authenticate(token));
+
+        user.setAuthVersion(1);
+        assertNotNull(authenticate(jwtProvider.generateToken(user)));
+    }
+
+    @Test
+    void tokenWithoutAuthClaims_fallsBackToThePrincipalCache() throws Exception {
+        String legacy = JWT.create().withSubject("u1").sign(Algorithm.HMAC256(SECRET));
+
+        assertNotNull(authenticate(legacy));
+        assertNotNull(authenticate(legacy));
+        assertEquals(1, userLoads);
+    }
+}
@@ -0,0 +1,75 @@
+package com.verf.ProdExp.security;
+
+import com.verf.ProdExp.config.CachingProperties;
+import com.verf.ProdExp.config.TwoLevelCacheManager;
+import com.verf.ProdExp.entity.User;
+import com.verf.ProdExp.repository.UserRepository;
+import com.verf.ProdExp.support.Fakes;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PrincipalCacheTest {
+
+    private final User user = User.builder().id("u1").email("u1@example.com").password("x").roles(Set.of("USER")).enabled(true).build();
+    private int loads;
+    // Runs in the middle of a load, to simulate an invalidation racing it
+    private Runnable duringLoad = () -> { };
+
+    private final UserRepository userRepository = Fakes.strict(UserRepository.class, Map.of(
+            "findById", args -> {
+                loads++;
+                User snapshot = User.builder().id(user.getId()).email(user.getEmail()).password(user.getPassword())
+                        .roles(user.getRoles()).enabled(user.isEnabled()).build();
+                duringLoad.run();
+                return Optional.of(snapshot);
+            }));
+    // No Redis connection: publishing fails and is logged, which is all these tests need
+    private final TwoLevelCacheManager cacheManager =
+            new TwoLevelCacheManager(new ConcurrentMapCacheManager(), new CachingProperties(), new StringRedisTemplate());
+    private final PrincipalCache cache = new PrincipalCache(new JwtUserDetailsService(userRepository), cacheManager, 100, 30);
+
+    @Test
+    void loadsOnceUntilInvalidated() {
+        cache.get("u1");
+        cache.get("u1");
+        user.setEnabled(false);
+        cache.invalidate("u1");
+
+        assertFalse(cache.get("u1").isEnabled());
+        assertEquals(2, loads);
+    }
+
+    @Test
+    void loadThatRacedAnInvalidationIsNotCached() {
+        duringLoad = () -> {
+            user.setEnabled(false);
+            cache.invalidate("u1");
+        };
+        assertTrue(cache.get("u1").isEnabled());
+
+        duringLoad = () -> { };
+        assertFalse(cache.get("u1").isEnabled());
+        assertEquals(2, loads);
+    }
+
+    @Test
+    void invalidationFromAnotherInstanceEvictsLocally() {
+        cache.get("u1");
+        user.setEnabled(false);
+
+        cacheManager.onMessage(new DefaultMessage("cache:invalidate".getBytes(StandardCharsets.UTF_8),
+                ("other-instance\t" + PrincipalCache.NAME + "\tu1").getBytes(StandardCharsets.UTF_8)), null);
+
+        assertFalse(cache.get("u1").isEnabled());
+        assertEquals(2, loads);
+    }
+}
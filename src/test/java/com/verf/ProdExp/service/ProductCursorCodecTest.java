@@ -0,0 +1,58 @@
+package com.verf.ProdExp.service;
+
+import com.verf.ProdExp.exception.BadRequestException;
+import com.verf.ProdExp.repository.ProductCursor;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Sort;
+
+import java.time.Instant;
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProductCursorCodecTest {
+
+    private final ProductCursorCodec codec = new ProductCursorCodec("test-secret");
+
+    @Test
+    void roundTripsEverySortValueType() {
+        Object[] values = {"Milk | 2% fat", LocalDate.parse("2026-04-01"), Instant.parse("2026-03-01T10:15:30Z"), 42.5, null};
+        for (Object value : values) {
+            ProductCursor cursor = new ProductCursor("name", Sort.Direction.DESC, value, "65f0c0ffee0000000000abcd");
+
+            ProductCursor decoded = codec.decode(codec.encode("u1", "AVAILABLE;", cursor), "u1", "AVAILABLE;");
+
+            assertEquals(cursor, decoded);
+        }
+    }
+
+    @Test
+    void rejectsTamperedToken() {
+        String token = codec.encode("u1", ";", new ProductCursor("name", Sort.Direction.ASC, "Apple", "id1"));
+        String tampered = "x" + token.substring(1);
+
+        assertThrows(BadRequestException.class, () -> codec.decode(tampered, "u1", ";"));
+    }
+
+    @Test
+    void rejectsTokenSignedWithAnotherSecret() {
+        String token = new ProductCursorCodec("other-secret")
+                .encode("u1", ";", new ProductCursor("name", Sort.Direction.ASC, "Apple", "id1"));
+
+        assertThrows(BadRequestException.class, () -> codec.decode(token, "u1", ";"));
+    }
+
+    @Test
+    void rejectsTokenForDifferentUserOrFilters() {
+        String token = codec.encode("u1", ";", new ProductCursor("name", Sort.Direction.ASC, "Apple", "id1"));
+
+        assertThrows(BadRequestException.class, () -> codec.decode(token, "u2", ";"));
+        assertThrows(BadRequestException.class, () -> codec.decode(token, "u1", "EXPIRED;"));
+    }
+
+    @Test
+    void missingSecretFailsAtStartup() {
+        assertThrows(IllegalStateException.class, () -> new ProductCursorCodec(""));
+        assertThrows(IllegalStateException.class, () -> new ProductCursorCodec(" "));
+    }
+}
@@ -0,0 +1,222 @@
+package com.verf.ProdExp.service.impl;
+
+import com.sun.net.httpserver.HttpServer;
+import com.verf.ProdExp.config.MailDeliveryProperties;
+import com.verf.ProdExp.config.NotificationProperties;
+import com.verf.ProdExp.entity.Product;
+import com.verf.ProdExp.entity.Status;
+import com.verf.ProdExp.entity.Unit;
+import com.verf.ProdExp.entity.User;
+import com.verf.ProdExp.service.MailService.ReminderDigest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MailtrapBatchMailServiceTest {
+
+    // Canned replies as "status body"; the last one repeats once the queue runs dry
+    private final Queue<String> replies = new ConcurrentLinkedQueue<>();
+    private final List<String> requests = new CopyOnWriteArrayList<>();
+    private final List<String> smtpSent = new CopyOnWriteArrayList<>();
+    private HttpServer server;
+    private String lastReply;
+
+    @BeforeEach
+    void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/api/batch", exchange -> {
+            requests.add(exchange.getRequestHeaders().getFirst("Authorization") + " "
+                    + new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8));
+            String reply = replies.isEmpty() ? lastReply : replies.poll();
+            lastReply = reply;
+            int space = reply.indexOf(' ');
+            byte[] body = reply.substring(space + 1).getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(Integer.parseInt(reply.substring(0, space)), body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+    }
+
+    @AfterEach
+    void stopServer() {
+        server.stop(0);
+    }
+
+    private MailDeliveryProperties properties() {
+        MailDeliveryProperties props = new MailDeliveryProperties();
+        MailDeliveryProperties.Mailtrap mailtrap = props.getMailtrap();
+        mailtrap.setToken("secret");
+        mailtrap.setBaseUrl("http://127.0.0.1:" + server.getAddress().getPort());
+        mailtrap.setRetryBackoffMs(1);
+        mailtrap.setMaxRetries(2);
+        return props;
+    }
+
+    private MailtrapBatchMailService service(MailDeliveryProperties props) {
+        ReminderDigestRenderer renderer = new ReminderDigestRenderer(new NotificationProperties());
+        // Records what would have gone out over SMTP; the mail sender is never reached
+        MailServiceImpl smtp = new MailServiceImpl(null, renderer) {
+            @Override
+            public Set<String> sendProductReminderDigests(List<ReminderDigest> digests, ZoneId zoneId) {
+                Set<String> delivered = new LinkedHashSet<>();
+                digests.forEach(d -> {
+                    smtpSent.add(d.user().getId());
+                    delivered.add(d.user().getId());
+                });
+                return delivered;
+            }
+        };
+        return new MailtrapBatchMailService(smtp, renderer, props);
+    }
+
+    private static ReminderDigest digest(String userId) {
+        User user = User.builder().id(userId).email(userId + "@example.com").displayName(userId).build();
+        Product product = new Product();
+        product.setUserId(userId);
+        product.setName("milk");
+        product.setQuantityBought(1.0);
+        product.setQuantityConsumed(0.0);
+        product.setUnit(Unit.LITER);
+        product.setPurchaseDate(LocalDate.now().minusDays(3));
+        product.setExpirationDate(LocalDate.now().plusDays(1));
+        product.setStatus(Status.AVAILABLE);
+        return new ReminderDigest(user, List.of(product));
+    }
+
+    private static List<ReminderDigest> digests(String... userIds) {
+        List<ReminderDigest> out = new ArrayList<>();
+        for (String id : userIds) out.add(digest(id));
+        return out;
+    }
+
+    @Test
+    void perMessageResultsDecideWhatWasDelivered() {
+        MailDeliveryProperties props = properties();
+        props.getMailtrap().setFallbackToSmtp(false);
+        replies.add("200 {\"success\":true,\"responses\":[{\"success\":true},{\"success\":false,\"errors\":[\"bad address\"]},{\"success\":true}]}");
+
+        Set<String> delivered = service(props).sendProductReminderDigests(digests("u1", "u2", "u3"), ZoneOffset.UTC);
+
+        assertEquals(Set.of("u1", "u3"), delivered);
+        assertEquals(1, requests.size());
+        assertTrue(requests.get(0).startsWith("Bearer secret "));
+        assertTrue(requests.get(0).contains("u2@example.com"));
+        assertTrue(smtpSent.isEmpty());
+    }
+
+    @Test
+    void rejectedMessagesFallBackToSmtp() {
+        replies.add("200 {\"success\":true,\"responses\":[{\"success\":true},{\"success\":false}]}");
+
+        Set<String> delivered = service(properties()).sendProductReminderDigests(digests("u1", "u2"), ZoneOffset.UTC);
+
+        assertEquals(Set.of("u1", "u2"), delivered);
+        assertEquals(List.of("u2"), smtpSent);
+    }
+
+    @Test
+    void serverErrorsAreRetriedWithBackoff() {
+        MailDeliveryProperties props = properties();
+        props.getMailtrap().setRetryBackoffMs(40);
+        replies.add("503 {}");
+        replies.add("429 {}");
+        replies.add("200 {\"success\":true,\"responses\":[{\"success\":true}]}");
+
+        long start = System.nanoTime();
+        Set<String> delivered = service(props).sendProductReminderDigests(digests("u1"), ZoneOffset.UTC);
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+
+        assertEquals(Set.of("u1"), delivered);
+        assertEquals(3, requests.size());
+        // 40 ms after the first failure, 80 ms after the second
+        assertTrue(elapsedMs >= 120, "elapsed " + elapsedMs + " ms");
+        assertTrue(smtpSent.isEmpty());
+    }
+
+    @Test
+    void exhaustedRetriesFallBackToSmtp() {
+        replies.add("500 {}");
+
+        Set<String> delivered = service(properties()).sendProductReminderDigests(digests("u1", "u2"), ZoneOffset.UTC);
+
+        // First attempt plus maxRetries
+        assertEquals(3, requests.size());
+        assertEquals(List.of("u1", "u2"), smtpSent);
+        assertEquals(Set.of("u1", "u2"), delivered);
+    }
+
+    @Test
+    void clientErrorsAreNotRetried() {
+        MailDeliveryProperties props = properties();
+        props.getMailtrap().setFallbackToSmtp(false);
+        replies.add("401 {\"errors\":[\"Unauthorized\"]}");
+
+        Set<String> delivered = service(props).sendProductReminderDigests(digests("u1"), ZoneOffset.UTC);
+
+        assertEquals(1, requests.size());
+        assertTrue(delivered.isEmpty());
+    }
+
+    @Test
+    void batchLevelSuccessWithoutPerMessageResultsDeliversAll() {
+        replies.add("200 {\"success\":true}");
+
+        Set<String> delivered = service(properties()).sendProductReminderDigests(digests("u1", "u2"), ZoneOffset.UTC);
+
+        assertEquals(Set.of("u1", "u2"), delivered);
+        assertTrue(smtpSent.isEmpty());
+    }
+
+    @Test
+    void unexpectedResponseCountsAsFailed() {
+        replies.add("200 {\"success\":false,\"responses\":[{\"success\":true}]}");
+
+        Set<String> delivered = service(properties()).sendProductReminderDigests(digests("u1", "u2"), ZoneOffset.UTC);
+
+        // One result for two messages: nothing is trusted, both go out over SMTP
+        assertEquals(List.of("u1", "u2"), smtpSent);
+        assertEquals(Set.of("u1", "u2"), delivered);
+    }
+
+    @Test
+    void digestsAreSplitIntoBatches() {
+        MailDeliveryProperties props = properties();
+        props.getMailtrap().setBatchSize(2);
+        replies.add("200 {\"success\":true}");
+
+        Set<String> delivered = service(props).sendProductReminderDigests(digests("u1", "u2", "u3"), ZoneOffset.UTC);
+
+        assertEquals(Set.of("u1", "u2", "u3"), delivered);
+        assertEquals(2, requests.size());
+        assertTrue(requests.get(1).contains("u3@example.com"));
+        assertFalse(requests.get(1).contains("u1@example.com"));
+    }
+
+    @Test
+    void blankTokenFailsAtStartup() {
+        MailDeliveryProperties props = properties();
+        props.getMailtrap().setToken(" ");
+
+        assertThrows(IllegalStateException.class, () -> service(props));
+    }
+}
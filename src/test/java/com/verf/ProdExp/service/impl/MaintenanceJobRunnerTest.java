@@ -0,0 +1,208 @@
+package com.verf.ProdExp.service.impl;
+
+import com.verf.ProdExp.config.JobProperties;
+import com.verf.ProdExp.entity.MaintenanceJob;
+import com.verf.ProdExp.entity.MaintenanceJobStatus;
+import com.verf.ProdExp.repository.MaintenanceJobRepository;
+import com.verf.ProdExp.service.MaintenanceJobHandler;
+import com.verf.ProdExp.support.Fakes;
+import org.jspecify.annotations.Nullable;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntFunction;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MaintenanceJobRunnerTest {
+
+    private final MaintenanceJob job = MaintenanceJob.builder()
+            .id("j1").type("fake").params(Map.of()).status(MaintenanceJobStatus.PENDING).build();
+    private final List<String> checkpoints = Collections.synchronizedList(new ArrayList<>());
+    private final CountDownLatch stopped = new CountDownLatch(1);
+    private volatile boolean released;
+    private volatile boolean leaseLost;
+    private final JobProperties props = new JobProperties();
+    private MaintenanceJobRunner runner;
+
+    // Single-job store with the same transitions as MaintenanceJobRepositoryImpl
+    private final MaintenanceJobRepository repository = Fakes.strict(MaintenanceJobRepository.class, Map.of(
+            "claimNext", args -> {
+                synchronized (job) {
+                    if (job.getStatus() != MaintenanceJobStatus.PENDING) return null;
+                    job.setStatus(MaintenanceJobStatus.RUNNING);
+                    job.setLeaseOwner((String) args[0]);
+                    job.setAttempts(job.getAttempts() + 1);
+                    return job;
+                }
+            },
+            "checkpoint", args -> {
+                synchronized (job) {
+                    if (leaseLost) {
+                        stopped.countDown();
+                        return null;
+                    }
+                    if (args[2] != null) job.setCursor((String) args[2]);
+                    job.setProcessed(job.getProcessed() + (long) args[3]);
+                    job.setUpdated(job.getUpdated() + (long) args[4]);
+                    checkpoints.add(job.getCursor());
+                    return job;
+                }
+            },
+            "finish", args -> {
+                synchronized (job) {
+                    job.setStatus((MaintenanceJobStatus) args[2]);
+                    job.setLastError((String) args[3]);
+                    stopped.countDown();
+                    return null;
+                }
+            },
+            "release", args -> {
+                synchronized (job) {
+                    job.setStatus(MaintenanceJobStatus.PENDING);
+                    job.setLeaseOwner(null);
+                    released = true;
+                    stopped.countDown();
+                    return null;
+                }
+            }));
+
+    // Handler whose n-th batch (from 0) is produced by the given function; records the cursor of every call
+    private final List<String> cursorsSeen = Collections.synchronizedList(new ArrayList<>());
+    private final List<Long> callTimes = Collections.synchronizedList(new ArrayList<>());
+
+    private MaintenanceJobHandler handler(IntFunction<MaintenanceJobHandler.BatchResult> batches) {
+        return new MaintenanceJobHandler() {
+            @Override
+            public String type() {
+                return "fake";
+            }
+
+            @Override
+            public BatchResult processBatch(Map<String, String> params, @Nullable String afterId, int batchSize) {
+                cursorsSeen.add(afterId);
+                callTimes.add(System.nanoTime());
+                return batches.apply(cursorsSeen.size() - 1);
+            }
+        };
+    }
+
+    private void run(MaintenanceJobHandler handler) throws InterruptedException {
+        props.setWorkers(1);
+        runner = new MaintenanceJobRunner(repository, List.of(handler), props);
+        runner.poll();
+        assertTrue(stopped.await(5, TimeUnit.SECONDS), "worker did not stop");
+    }
+
+    @AfterEach
+    void shutdown() throws InterruptedException {
+        if (runner != null) runner.shutdown();
+    }
+
+    @Test
+    void checkpointsEveryBatchAndResumesFromTheCursor() throws Exception {
+        props.setThrottleMs(0);
+        run(handler(n -> new MaintenanceJobHandler.BatchResult(10, n, "id" + n, n == 2)));
+
+        assertEquals(MaintenanceJobStatus.COMPLETED, job.getStatus());
+        assertEquals(List.of("id0", "id1", "id2"), checkpoints);
+        assertEquals(Arrays.asList(null, "id0", "id1"), cursorsSeen);
+        assertEquals(30, job.getProcessed());
+        assertEquals(3, job.getUpdated());
+    }
+
+    @Test
+    void pausesBetweenBatches() throws Exception {
+        props.setThrottleMs(40);
+        run(handler(n -> new MaintenanceJobHandler.BatchResult(1, 0, "id" + n, n == 2)));
+
+        for (int i = 1; i < callTimes.size(); i++) {
+            long gapMs = TimeUnit.NANOSECONDS.toMillis(callTimes.get(i) - callTimes.get(i - 1));
+            assertTrue(gapMs >= 40, "gap was " + gapMs + " ms");
+        }
+    }
+
+    @Test
+    void cancelRequestIsHonouredAtTheNextBatch() throws Exception {
+        props.setThrottleMs(0);
+        run(handler(n -> {
+            // Flagged by requestCancel while the second batch runs
+            if (n == 1) job.setCancelRequested(true);
+            return new MaintenanceJobHandler.BatchResult(1, 0, "id" + n, false);
+        }));
+
+        assertEquals(MaintenanceJobStatus.CANCELLED, job.getStatus());
+        assertEquals(2, cursorsSeen.size());
+        assertEquals("id1", job.getCursor());
+    }
+
+    @Test
+    void handlerFailureKeepsTheLastCheckpoint() throws Exception {
+        props.setThrottleMs(0);
+        run(handler(n -> {
+            if (n == 1) throw new IllegalStateException("boom");
+            return new MaintenanceJobHandler.BatchResult(1, 0, "id" + n, false);
+        }));
+
+        assertEquals(MaintenanceJobStatus.FAILED, job.getStatus());
+        assertEquals("boom", job.getLastError());
+        assertEquals("id0", job.getCursor());
+    }
+
+    @Test
+    void workerStopsWhenItLosesTheLease() throws Exception {
+        props.setThrottleMs(0);
+        leaseLost = true;
+        run(handler(n -> new MaintenanceJobHandler.BatchResult(1, 0, "id" + n, false)));
+        runner.shutdown();
+
+        // Neither finished nor released: the new lease holder owns the job now
+        assertEquals(MaintenanceJobStatus.RUNNING, job.getStatus());
+        assertEquals(1, cursorsSeen.size());
+        assertFalse(released);
+    }
+
+    @Test
+    void shutdownReleasesTheLeaseAfterTheCurrentBatch() throws Exception {
+        props.setThrottleMs(0);
+        props.setWorkers(1);
+        CountDownLatch inBatch = new CountDownLatch(1);
+        CountDownLatch finishBatch = new CountDownLatch(1);
+        runner = new MaintenanceJobRunner(repository, List.of(handler(n -> {
+            inBatch.countDown();
+            try {
+                finishBatch.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            return new MaintenanceJobHandler.BatchResult(1, 0, "id" + n, false);
+        })), props);
+        runner.poll();
+        assertTrue(inBatch.await(5, TimeUnit.SECONDS));
+
+        Thread stopping = new Thread(() -> {
+            try {
+                runner.shutdown();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        stopping.start();
+        // shutdown() flags the runner before it starts waiting for the workers
+        while (stopping.getState() != Thread.State.TIMED_WAITING) Thread.onSpinWait();
+        finishBatch.countDown();
+        stopping.join(5000);
+
+        assertTrue(released);
+        assertEquals(MaintenanceJobStatus.PENDING, job.getStatus());
+        assertEquals("id0", job.getCursor());
+        assertEquals(1, cursorsSeen.size());
+    }
+}
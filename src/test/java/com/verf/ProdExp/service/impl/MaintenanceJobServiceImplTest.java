@@ -0,0 +1,89 @@
+package com.verf.ProdExp.service.impl;
+
+import com.verf.ProdExp.dto.MaintenanceJobResponse;
+import com.verf.ProdExp.entity.MaintenanceJob;
+import com.verf.ProdExp.entity.MaintenanceJobStatus;
+import com.verf.ProdExp.repository.MaintenanceJobRepository;
+import com.verf.ProdExp.service.MaintenanceJobHandler;
+import com.verf.ProdExp.support.Fakes;
+import org.jspecify.annotations.Nullable;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DuplicateKeyException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MaintenanceJobServiceImplTest {
+
+    private final List<MaintenanceJob> jobs = new ArrayList<>();
+
+    // Enforces the unique activeKey index like Mongo would
+    private final MaintenanceJobRepository repository = Fakes.strict(MaintenanceJobRepository.class, Map.of(
+            "insert", args -> {
+                MaintenanceJob job = (MaintenanceJob) args[0];
+                if (job.getActiveKey() != null && jobs.stream().anyMatch(j -> job.getActiveKey().equals(j.getActiveKey()))) {
+                    throw new DuplicateKeyException("E11000 duplicate key activeKey");
+                }
+                job.setId("j" + (jobs.size() + 1));
+                jobs.add(job);
+                return job;
+            },
+            "findByActiveKey", args -> jobs.stream().filter(j -> Objects.equals(args[0], j.getActiveKey())).findFirst()));
+
+    private static MaintenanceJobHandler handler(String type, boolean perUser) {
+        return new MaintenanceJobHandler() {
+            @Override
+            public String type() {
+                return type;
+            }
+
+            @Override
+            public @Nullable String dedupeKey(Map<String, String> params) {
+                return perUser ? params.get("userId") : null;
+            }
+
+            @Override
+            public BatchResult processBatch(Map<String, String> params, @Nullable String afterId, int batchSize) {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    private final MaintenanceJobServiceImpl service = new MaintenanceJobServiceImpl(repository,
+            List.of(handler("delete-user", true), handler("recompute", false)));
+
+    @Test
+    void secondSubmitForAnActiveTargetReturnsTheExistingJob() {
+        MaintenanceJobResponse first = service.submit("delete-user", Map.of("userId", "u1"), "u1");
+        MaintenanceJobResponse second = service.submit("delete-user", Map.of("userId", "u1"), "admin");
+
+        assertEquals(first.id(), second.id());
+        assertEquals(1, jobs.size());
+    }
+
+    @Test
+    void otherTargetsAndFinishedJobsDoNotBlock() {
+        service.submit("delete-user", Map.of("userId", "u1"), null);
+        service.submit("delete-user", Map.of("userId", "u2"), null);
+        // finish() clears activeKey
+        jobs.get(0).setStatus(MaintenanceJobStatus.COMPLETED);
+        jobs.get(0).setActiveKey(null);
+        service.submit("delete-user", Map.of("userId", "u1"), null);
+
+        assertEquals(3, jobs.size());
+        assertEquals("delete-user:u1", jobs.get(2).getActiveKey());
+    }
+
+    @Test
+    void handlersWithoutDedupeKeyAlwaysQueue() {
+        service.submit("recompute", Map.of(), null);
+        service.submit("recompute", Map.of(), null);
+
+        assertEquals(2, jobs.size());
+        assertNull(jobs.get(0).getActiveKey());
+    }
+}
@@ -0,0 +1,175 @@
+package com.verf.ProdExp.service.impl;
+
+import com.verf.ProdExp.config.NotificationProperties;
+import com.verf.ProdExp.config.ProductProperties;
+import com.verf.ProdExp.dto.BulkProductOperation;
+import com.verf.ProdExp.dto.BulkProductOperation.Op;
+import com.verf.ProdExp.dto.BulkProductResponse;
+import com.verf.ProdExp.dto.BulkProductResult;
+import com.verf.ProdExp.entity.Product;
+import com.verf.ProdExp.entity.Unit;
+import com.verf.ProdExp.repository.ConsumptionDailyRepository;
+import com.verf.ProdExp.repository.ProductPatch;
+import com.verf.ProdExp.repository.ProductRepository;
+import com.verf.ProdExp.repository.ProductRepositoryCustom.BulkOutcome;
+import com.verf.ProdExp.repository.ProductSearchTermRepository;
+import com.verf.ProdExp.repository.ProductSearchTermRepositoryCustom.Postings;
+import com.verf.ProdExp.service.ConsumptionService;
+import com.verf.ProdExp.service.NotificationSchedulePolicy;
+import com.verf.ProdExp.service.ProductChangeListener;
+import com.verf.ProdExp.support.Fakes;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProductBulkServiceImplTest {
+
+    private final Map<String, Product> hot = new LinkedHashMap<>();
+    private final Map<String, Product> archive = new LinkedHashMap<>();
+    private final List<ProductPatch> written = new ArrayList<>();
+    private final List<String> archivedDeleted = new ArrayList<>();
+    private final List<String> saved = new ArrayList<>();
+    private final List<List<ConsumptionService.Delta>> consumptionBatches = new ArrayList<>();
+    private final List<List<Postings>> postingBatches = new ArrayList<>();
+    private BulkOutcome outcome = new BulkOutcome(Map.of(), Set.of());
+
+    @SuppressWarnings("unchecked")
+    private ProductBulkServiceImpl service() {
+        ProductRepository repository = Fakes.lenient(ProductRepository.class, Map.of(
+                "findAllByIdAndOwner", args -> ((Collection<String>) args[0]).stream().map(hot::get).filter(Objects::nonNull).toList(),
+                "findArchivedByIdAndOwner", args -> ((Collection<String>) args[0]).stream().map(archive::get).filter(Objects::nonNull).toList(),
+                "bulkApply", args -> {
+                    written.addAll((List<ProductPatch>) args[0]);
+                    return outcome;
+                },
+                "deleteArchivedByIds", args -> {
+                    archivedDeleted.addAll((Collection<String>) args[0]);
+                    return (long) archivedDeleted.size();
+                }));
+        NotificationProperties props = new NotificationProperties();
+        props.setTimezone("UTC");
+        NotificationSchedulePolicy policy = new NotificationSchedulePolicy(props);
+        ConsumptionService consumption = Fakes.lenient(ConsumptionService.class, Map.of(
+                "recordAll", args -> consumptionBatches.add(List.copyOf((List<ConsumptionService.Delta>) args[0]))));
+        ProductChangeListener listener = Fakes.lenient(ProductChangeListener.class, Map.of(
+                "onProductSaved", args -> saved.add(((Product) args[0]).getId())));
+        return new ProductBulkServiceImpl(repository,
+                Fakes.lenient(ProductSearchTermRepository.class, Map.of(
+                        "replaceTerms", args -> args.length == 1 ? postingBatches.add(List.copyOf((List<Postings>) args[0])) : fail("per-product replaceTerms"))),
+                Fakes.lenient(ConsumptionDailyRepository.class),
+                policy, consumption, List.of(listener),
+                new QuantityConsumedCoalescer(repository, policy, consumption, new ProductProperties()));
+    }
+
+    private Product product(String id) {
+        Product p = new Product();
+        p.setId(id);
+        p.setUserId("u1");
+        p.setName(id);
+        p.setQuantityBought(4.0);
+        p.setQuantityConsumed(1.0);
+        p.setUnit(Unit.PIECES);
+        p.setPurchaseDate(LocalDate.now().minusDays(1));
+        p.setExpirationDate(LocalDate.now().plusDays(10));
+        p.setTags(new ArrayList<>(List.of("dairy")));
+        p.setUpdatedAt(Instant.parse("2026-01-01T10:00:00Z"));
+        return p;
+    }
+
+    private static BulkProductOperation op(String id, Op op) {
+        return new BulkProductOperation(id, op, null, null, null);
+    }
+
+    @Test
+    void tagOnlyOperations_becomeAddAndRemoveSetsWithoutGuardedFields() {
+        hot.put("p1", product("p1"));
+
+        BulkProductResponse response = service().apply(List.of(
+                new BulkProductOperation("p1", Op.ADD_TAGS, null, List.of(" fridge ", "old"), null),
+                new BulkProductOperation("p1", Op.REMOVE_TAGS, null, List.of("old", "dairy"), null)), "u1");
+
+        assertEquals(2, response.succeeded());
+        assertEquals(1, written.size());
+        ProductPatch patch = written.get(0);
+        assertFalse(patch.guarded());
+        assertEquals(Set.of("fridge"), patch.addTags());
+        assertEquals(Set.of("old", "dairy"), patch.removeTags());
+        assertEquals(List.of("p1"), saved);
+    }
+
+    @Test
+    void consume_isGuardedOnTheUpdatedAtThatWasRead() {
+        hot.put("p1", product("p1"));
+
+        service().apply(List.of(new BulkProductOperation("p1", Op.CONSUME, 2.0, null, null),
+                new BulkProductOperation("p1", Op.ADD_TAGS, null, List.of("fridge"), null)), "u1");
+
+        ProductPatch patch = written.get(0);
+        assertTrue(patch.guarded());
+        assertEquals(Instant.parse("2026-01-01T10:00:00Z"), patch.readUpdatedAt());
+        assertTrue(patch.fields().containsAll(Set.of("quantityConsumed", "status", "percentageLeft", "tags")));
+        assertEquals(2.0, patch.product().getQuantityConsumed());
+    }
+
+    @Test
+    void partialFailure_mapsErrorsAndConflictsPerProduct() {
+        for (String id : List.of("p1", "p2", "p3")) hot.put(id, product(id));
+        outcome = new BulkOutcome(Map.of("p2", "E11000 write failed"), Set.of("p3"));
+
+        BulkProductResponse response = service().apply(List.of(
+                new BulkProductOperation("p1", Op.CONSUME, 2.0, null, null),
+                new BulkProductOperation("p2", Op.CONSUME, 2.0, null, null),
+                new BulkProductOperation("p3", Op.CONSUME, 2.0, null, null),
+                new BulkProductOperation("p4", Op.CONSUME, 2.0, null, null),
+                new BulkProductOperation("p1", Op.CONSUME, 9.0, null, null)), "u1");
+
+        List<Integer> statuses = response.results().stream().map(BulkProductResult::status).toList();
+        assertEquals(List.of(200, 500, 409, 404, 400), statuses);
+        assertEquals("E11000 write failed", response.results().get(1).error());
+        assertEquals(1, response.succeeded());
+        assertEquals(4, response.failed());
+        // Listeners only hear about the write that landed
+        assertEquals(List.of("p1"), saved);
+    }
+
+    @Test
+    void delete_reachesArchivedProducts_otherOperationsDoNot() {
+        archive.put("a1", product("a1"));
+
+        BulkProductResponse response = service().apply(List.of(op("a1", Op.DELETE), op("a1", Op.CLEAR_FREQUENCY_OVERRIDE)), "u1");
+
+        assertEquals(List.of(204, 404), response.results().stream().map(BulkProductResult::status).toList());
+        assertEquals(List.of("a1"), archivedDeleted);
+        assertTrue(written.isEmpty());
+    }
+
+    @Test
+    void sideEffectsAreOneBatchPerCollection() {
+        for (String id : List.of("p1", "p2", "p3")) hot.put(id, product(id));
+        outcome = new BulkOutcome(Map.of(), Set.of("p3"));
+
+        service().apply(List.of(
+                new BulkProductOperation("p1", Op.CONSUME, 2.0, null, null),
+                new BulkProductOperation("p2", Op.CONSUME, 3.0, null, null),
+                new BulkProductOperation("p2", Op.ADD_TAGS, null, List.of("fridge"), null),
+                new BulkProductOperation("p1", Op.REPLACE_TAGS, null, List.of("pantry"), null),
+                new BulkProductOperation("p3", Op.CONSUME, 2.0, null, null)), "u1");
+
+        // p3 conflicted, so only p1 and p2 have side effects
+        assertEquals(1, consumptionBatches.size());
+        Map<String, Double> deltas = new HashMap<>();
+        consumptionBatches.get(0).forEach(d -> deltas.put(d.product().getId(), d.delta()));
+        assertEquals(Map.of("p1", 1.0, "p2", 2.0), deltas);
+
+        assertEquals(1, postingBatches.size());
+        Map<String, Collection<String>> terms = new HashMap<>();
+        postingBatches.get(0).forEach(p -> terms.put(p.productId(), p.terms()));
+        assertEquals(Set.of("p1", "p2"), terms.keySet());
+        assertTrue(terms.get("p1").contains("pantry"));
+        assertTrue(terms.get("p2").contains("fridge"));
+    }
+}
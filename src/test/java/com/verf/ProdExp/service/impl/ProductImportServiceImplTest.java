@@ -0,0 +1,72 @@
+package com.verf.ProdExp.service.impl;
+
+import com.verf.ProdExp.config.NotificationProperties;
+import com.verf.ProdExp.config.ProductProperties;
+import com.verf.ProdExp.dto.ProductImportSummary;
+import com.verf.ProdExp.repository.ProductRepository;
+import com.verf.ProdExp.repository.ProductSearchTermRepository;
+import com.verf.ProdExp.service.NotificationSchedulePolicy;
+import com.verf.ProdExp.service.ProductImportService.Format;
+import com.verf.ProdExp.support.Fakes;
+import jakarta.validation.Validator;
+import org.junit.jupiter.api.Test;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProductImportServiceImplTest {
+
+    private ProductImportServiceImpl service() {
+        return new ProductImportServiceImpl(
+                Fakes.lenient(ProductRepository.class, Map.of("insertAll", args -> Map.of())),
+                Fakes.lenient(ProductSearchTermRepository.class),
+                new NotificationSchedulePolicy(new NotificationProperties()),
+                List.of(),
+                new ProductProperties(),
+                JsonMapper.builder().build(),
+                Fakes.lenient(Validator.class, Map.of("validate", args -> Set.of())));
+    }
+
+    @Test
+    void nullAndOverlongLinesAreReportedAsInvalidRows() throws IOException {
+        String input = "null\n\n" + "x".repeat(ProductImportServiceImpl.MAX_LINE_CHARS + 1) + "\n[1]\n";
+        ByteArrayOutputStream report = new ByteArrayOutputStream();
+
+        ProductImportSummary summary = service().importProducts("u1",
+                new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8)), Format.NDJSON, report);
+
+        assertEquals(new ProductImportSummary(3, 0, 3, false), summary);
+        List<String> lines = report.toString(StandardCharsets.UTF_8).lines().toList();
+        assertTrue(lines.get(0).contains("\"row\":1") && lines.get(0).contains("\"status\":400"), lines.get(0));
+        assertTrue(lines.get(1).contains("\"row\":3") && lines.get(1).contains("exceeds"), lines.get(1));
+        assertTrue(lines.get(2).contains("\"row\":4") && lines.get(2).contains("\"status\":400"), lines.get(2));
+    }
+
+    @Test
+    void boundedLinesEndAtLfOrCrlf() throws IOException {
+        StringReader in = new StringReader("abc\r\nde\n\n" + "f".repeat(6) + "\nlast");
+
+        assertEquals(new ProductImportServiceImpl.BoundedLine("abc", false), ProductImportServiceImpl.readLine(in, 5));
+        assertEquals(new ProductImportServiceImpl.BoundedLine("de", false), ProductImportServiceImpl.readLine(in, 5));
+        assertEquals(new ProductImportServiceImpl.BoundedLine("", false), ProductImportServiceImpl.readLine(in, 5));
+        // Dropped as a whole, and the next line still starts where it should
+        assertEquals(new ProductImportServiceImpl.BoundedLine("", true), ProductImportServiceImpl.readLine(in, 5));
+        assertEquals(new ProductImportServiceImpl.BoundedLine("last", false), ProductImportServiceImpl.readLine(in, 5));
+        assertNull(ProductImportServiceImpl.readLine(in, 5));
+    }
+
+    @Test
+    void aCrlfLineOfExactlyTheLimitFits() throws IOException {
+        assertEquals(new ProductImportServiceImpl.BoundedLine("12345", false),
+                ProductImportServiceImpl.readLine(new StringReader("12345\r\n"), 5));
+    }
+}
@@ -0,0 +1,200 @@
+package com.verf.ProdExp.service.impl;
+
+import com.verf.ProdExp.config.NotificationProperties;
+import com.verf.ProdExp.config.ProductProperties;
+import com.verf.ProdExp.entity.Product;
+import com.verf.ProdExp.entity.Unit;
+import com.verf.ProdExp.exception.BadRequestException;
+import com.verf.ProdExp.repository.ProductRepository;
+import com.verf.ProdExp.service.ConsumptionService;
+import com.verf.ProdExp.service.NotificationSchedulePolicy;
+import com.verf.ProdExp.support.Fakes;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class QuantityConsumedCoalescerTest {
+
+    private final List<Double> writes = new ArrayList<>();
+    private final List<Double> recorded = new ArrayList<>();
+    private int loads;
+    private int failuresLeft;
+    // The stored document: whether it exists and its quantityConsumed
+    private boolean exists = true;
+    private double storedConsumed = 1.0;
+    // Runs inside the write, before it succeeds or fails
+    private Runnable duringWrite = () -> { };
+
+    private QuantityConsumedCoalescer coalescer(long windowMs) {
+        ProductRepository repository = Fakes.strict(ProductRepository.class, Map.of(
+                "findById", args -> {
+                    loads++;
+                    return Optional.of(product());
+                },
+                // Like the pipeline update: returns the document as it was before the write
+                "setQuantityConsumed", args -> {
+                    duringWrite.run();
+                    if (failuresLeft > 0) {
+                        failuresLeft--;
+                        throw new IllegalStateException("connection reset");
+                    }
+                    if (!exists) return null;
+                    Product before = product();
+                    storedConsumed = (double) args[1];
+                    writes.add(storedConsumed);
+                    return before;
+                },
+                "updateScheduleIfUnchanged", args -> true));
+        ConsumptionService consumption = Fakes.lenient(ConsumptionService.class, Map.of(
+                "record", args -> recorded.add((Double) args[1])));
+        ProductProperties props = new ProductProperties();
+        props.getCoalescing().setEnabled(true);
+        props.getCoalescing().setWindowMs(windowMs);
+        return new QuantityConsumedCoalescer(repository, new NotificationSchedulePolicy(new NotificationProperties()), consumption, props);
+    }
+
+    private Product product() {
+        Product p = new Product();
+        p.setId("p1");
+        p.setUserId("u1");
+        p.setName("Milk");
+        p.setQuantityBought(4.0);
+        p.setQuantityConsumed(storedConsumed);
+        p.setUnit(Unit.PIECES);
+        p.setPurchaseDate(LocalDate.now().minusDays(1));
+        p.setExpirationDate(LocalDate.now().plusDays(10));
+        return p;
+    }
+
+    @Test
+    void tapsWithinTheWindowBecomeOneWrite() {
+        QuantityConsumedCoalescer coalescer = coalescer(60_000);
+
+        coalescer.apply("p1", 1.5);
+        coalescer.apply("p1", 2.0);
+        assertEquals(2.5, coalescer.apply("p1", 2.5).quantityConsumed());
+        coalescer.flushDue();
+
+        assertEquals(1, loads);
+        assertTrue(writes.isEmpty());
+        assertEquals(2.5, coalescer.peek("p1").quantityConsumed());
+    }
+
+    @Test
+    void dueEntriesAreWrittenOnceAsOneConsumptionEvent() {
+        QuantityConsumedCoalescer coalescer = coalescer(0);
+
+        coalescer.apply("p1", 1.5);
+        coalescer.apply("p1", 3.0);
+        coalescer.flushDue();
+        coalescer.flushDue();
+
+        assertEquals(List.of(3.0), writes);
+        assertEquals(List.of(2.0), recorded);
+        assertNull(coalescer.peek("p1"));
+    }
+
+    @Test
+    void flushWritesBeforeAnotherWriteAndReportsIt() {
+        QuantityConsumedCoalescer coalescer = coalescer(60_000);
+        coalescer.apply("p1", 2.0);
+
+        assertTrue(coalescer.flush("p1"));
+        assertFalse(coalescer.flush("p1"));
+        assertEquals(List.of(2.0), writes);
+    }
+
+    @Test
+    void failedFlushKeepsTheValueForARetry() {
+        QuantityConsumedCoalescer coalescer = coalescer(60_000);
+        coalescer.apply("p1", 2.0);
+        failuresLeft = 1;
+
+        assertFalse(coalescer.flush("p1"));
+        assertEquals(2.0, coalescer.peek("p1").quantityConsumed());
+        coalescer.apply("p1", 3.0);
+        assertTrue(coalescer.flush("p1"));
+
+        assertEquals(List.of(3.0), writes);
+        // Still one burst, measured from the value stored before it
+        assertEquals(List.of(2.0), recorded);
+    }
+
+    @Test
+    void discardDropsTheValueWithoutWriting() {
+        QuantityConsumedCoalescer coalescer = coalescer(0);
+        coalescer.apply("p1", 2.0);
+
+        coalescer.discard("p1");
+        coalescer.flushDue();
+
+        assertTrue(writes.isEmpty());
+        assertNull(coalescer.peek("p1"));
+    }
+
+    @Test
+    void discardCoversAWriteInFlight() throws InterruptedException {
+        QuantityConsumedCoalescer coalescer = coalescer(60_000);
+        coalescer.apply("p1", 2.0);
+        failuresLeft = 1;
+        Thread[] discarder = new Thread[1];
+        duringWrite = () -> {
+            duringWrite = () -> { };
+            discarder[0] = new Thread(() -> coalescer.discard("p1"));
+            discarder[0].start();
+            // discard has flagged the write and waits for it to finish
+            long deadline = System.currentTimeMillis() + 5_000;
+            while (discarder[0].getState() != Thread.State.WAITING && System.currentTimeMillis() < deadline) {
+                Thread.onSpinWait();
+            }
+        };
+
+        assertFalse(coalescer.flush("p1"));
+        discarder[0].join(5_000);
+
+        // The failed write was not queued for a retry
+        assertNull(coalescer.peek("p1"));
+        assertFalse(coalescer.flush("p1"));
+        assertTrue(writes.isEmpty());
+    }
+
+    @Test
+    void flushOnlyWritesTheQuantityAndMeasuresFromTheStoredValue() {
+        QuantityConsumedCoalescer coalescer = coalescer(60_000);
+        coalescer.apply("p1", 3.0);
+        // Another instance consumed some while the burst was buffered
+        storedConsumed = 2.5;
+
+        assertTrue(coalescer.flush("p1"));
+
+        assertEquals(List.of(3.0), writes);
+        assertEquals(List.of(0.5), recorded);
+    }
+
+    @Test
+    void productGoneBeforeTheFlushIsNotRecorded() {
+        QuantityConsumedCoalescer coalescer = coalescer(0);
+        coalescer.apply("p1", 2.0);
+        exists = false;
+
+        coalescer.flushDue();
+
+        assertTrue(recorded.isEmpty());
+        assertNull(coalescer.peek("p1"));
+    }
+
+    @Test
+    void rejectedTapLeavesTheBufferAlone() {
+        QuantityConsumedCoalescer coalescer = coalescer(60_000);
+        coalescer.apply("p1", 2.0);
+
+        assertThrows(BadRequestException.class, () -> coalescer.apply("p1", 5.0));
+        assertEquals(2.0, coalescer.peek("p1").quantityConsumed());
+    }
+}
@@ -0,0 +1,76 @@
+package com.verf.ProdExp.service.impl;
+
+import com.verf.ProdExp.config.NotificationProperties;
+import com.verf.ProdExp.entity.Product;
+import com.verf.ProdExp.entity.Status;
+import com.verf.ProdExp.entity.Unit;
+import com.verf.ProdExp.entity.User;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReminderDigestRendererTest {
+
+    private ReminderDigestRenderer newRenderer(int maxRows) {
+        NotificationProperties props = new NotificationProperties();
+        props.setDigestMaxRows(maxRows);
+        return new ReminderDigestRenderer(props);
+    }
+
+    private User user() {
+        return User.builder().id("u1").email("u1@example.com").password("x").roles(Set.of("USER")).displayName("Ana").build();
+    }
+
+    private Product product(String name, int daysToExpiry) {
+        Product p = new Product();
+        p.setUserId("u1");
+        p.setName(name);
+        p.setQuantityBought(2.0);
+        p.setQuantityConsumed(0.5);
+        p.setUnit(Unit.KILOGRAM);
+        p.setPurchaseDate(LocalDate.now().minusDays(1));
+        p.setExpirationDate(LocalDate.now().plusDays(daysToExpiry));
+        p.setStatus(Status.AVAILABLE);
+        return p;
+    }
+
+    @Test
+    void mostUrgent_keepsEarliestExpiriesInOrder() {
+        List<Product> products = new ArrayList<>();
+        for (int i = 20; i >= 1; i--) products.add(product("p" + i, i));
+
+        List<Product> top = ReminderDigestRenderer.mostUrgent(products, 3);
+
+        assertEquals(List.of("p1", "p2", "p3"), top.stream().map(Product::getName).toList());
+    }
+
+    @Test
+    void html_listsAllRowsWhenUnderCap() {
+        String html = newRenderer(10).html(user(), List.of(product("Milk", 2), product("Rice", 40)), ZoneOffset.UTC);
+
+        assertTrue(html.contains("Milk"));
+        assertTrue(html.contains("Rice"));
+        assertTrue(html.contains("1.50 KILOGRAM"));
+        assertFalse(html.contains("most urgent"));
+    }
+
+    @Test
+    void html_capsRowsAndSummarizesTheRest() {
+        List<Product> products = new ArrayList<>();
+        for (int i = 1; i <= 30; i++) products.add(product("item-" + i, i));
+
+        String html = newRenderer(5).html(user(), products, ZoneOffset.UTC);
+
+        assertEquals(5, html.split("<tr>", -1).length - 1);
+        assertTrue(html.contains("item-1<"));
+        assertFalse(html.contains("item-6<"));
+        assertTrue(html.contains("Showing the 5 most urgent"));
+        assertTrue(html.contains("25 more products are not listed"));
+    }
+}
@@ -0,0 +1,89 @@
+package com.verf.ProdExp.service.impl;
+
+import com.verf.ProdExp.entity.Product;
+import com.verf.ProdExp.entity.ProductSearchTerm;
+import com.verf.ProdExp.repository.ProductRepository;
+import com.verf.ProdExp.repository.ProductSearchTermRepository;
+import com.verf.ProdExp.repository.ProductSearchTermRepositoryCustom.Postings;
+import com.verf.ProdExp.service.MaintenanceJobHandler.BatchResult;
+import com.verf.ProdExp.support.Fakes;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SearchTermReindexJobHandlerTest {
+
+    private final Map<String, Product> hot = new HashMap<>();
+    private final Map<String, Product> archive = new HashMap<>();
+    private final List<ProductSearchTerm> outdated = new ArrayList<>();
+    private final List<Postings> replaced = new ArrayList<>();
+    private final List<String> deleted = new ArrayList<>();
+
+    @SuppressWarnings("unchecked")
+    private SearchTermReindexJobHandler handler() {
+        ProductRepository products = Fakes.strict(ProductRepository.class, Map.of(
+                "findAllById", args -> {
+                    List<Product> out = new ArrayList<>();
+                    for (String id : (Iterable<String>) args[0]) if (hot.containsKey(id)) out.add(hot.get(id));
+                    return out;
+                },
+                "findArchivedByIdAndOwner", args -> ((Collection<String>) args[0]).stream()
+                        .map(archive::get).filter(Objects::nonNull).toList()));
+        ProductSearchTermRepository terms = Fakes.strict(ProductSearchTermRepository.class, Map.of(
+                "findOutdatedAfterId", args -> outdated.stream()
+                        .filter(t -> args[0] == null || t.getId().compareTo((String) args[0]) > 0)
+                        .limit((Integer) args[1]).toList(),
+                "replaceTerms", args -> replaced.addAll((List<Postings>) args[0]),
+                "deleteByProductIdIn", args -> deleted.addAll((Collection<String>) args[0])));
+        return new SearchTermReindexJobHandler(products, terms);
+    }
+
+    private static Product product(String id, String name) {
+        Product p = new Product();
+        p.setId(id);
+        p.setUserId("u1");
+        p.setName(name);
+        p.setNameLower(name.toLowerCase());
+        return p;
+    }
+
+    private void posting(String id, String productId) {
+        outdated.add(ProductSearchTerm.builder().id(id).productId(productId).build());
+    }
+
+    @Test
+    void reindexesHotAndArchivedProductsAndDropsPostingsOfGoneOnes() {
+        hot.put("p1", product("p1", "Oat milk"));
+        archive.put("p2", product("p2", "Cream"));
+        posting("t1", "p1");
+        posting("t2", "p1");
+        posting("t3", "p2");
+        posting("t4", "gone");
+
+        BatchResult result = handler().processBatch(Map.of(), null, 10);
+
+        assertEquals(new BatchResult(4, 2, "t4", true), result);
+        assertEquals(List.of("p1", "p2"), replaced.stream().map(Postings::productId).toList());
+        assertEquals(Set.of("oat", "milk"), Set.copyOf(replaced.get(0).terms()));
+        assertEquals(List.of("gone"), deleted);
+    }
+
+    @Test
+    void fullBatchResumesAfterTheLastPostingRead() {
+        hot.put("p1", product("p1", "milk"));
+        hot.put("p2", product("p2", "bread"));
+        posting("t1", "p1");
+        posting("t2", "p2");
+
+        SearchTermReindexJobHandler handler = handler();
+        BatchResult first = handler.processBatch(Map.of(), null, 1);
+        BatchResult second = handler.processBatch(Map.of(), first.lastId(), 1);
+
+        assertEquals(new BatchResult(1, 1, "t1", false), first);
+        assertEquals("t2", second.lastId());
+        assertEquals(List.of("p1", "p2"), replaced.stream().map(Postings::productId).toList());
+        assertTrue(deleted.isEmpty());
+    }
+}
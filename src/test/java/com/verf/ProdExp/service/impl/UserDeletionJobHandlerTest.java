@@ -0,0 +1,145 @@
+package com.verf.ProdExp.service.impl;
+
+import com.verf.ProdExp.entity.User;
+import com.verf.ProdExp.repository.*;
+import com.verf.ProdExp.security.AuthVersionRegistry;
+import com.verf.ProdExp.service.AIRateLimiterService;
+import com.verf.ProdExp.service.MaintenanceJobHandler.BatchResult;
+import com.verf.ProdExp.service.ProductChangeListener;
+import com.verf.ProdExp.support.Fakes;
+import org.jspecify.annotations.Nullable;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+import java.time.Instant;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UserDeletionJobHandlerTest {
+
+    private static final Map<String, String> PARAMS = Map.of("userId", "u1");
+    private static final Instant REQUESTED = Instant.parse("2026-01-01T10:00:00Z");
+
+    private final List<String> hot = new ArrayList<>();
+    private final List<String> archived = new ArrayList<>();
+    // Every write the handler makes, in order
+    private final List<String> calls = new ArrayList<>();
+
+    @SuppressWarnings("unchecked")
+    private UserDeletionJobHandler handler() {
+        User user = User.builder().id("u1").email("u1@example.com").enabled(false).authVersion(3).deletionRequestedAt(REQUESTED).build();
+        UserRepository users = Fakes.strict(UserRepository.class, Map.of(
+                "findById", args -> Optional.of(user),
+                "deleteById", args -> calls.add("deleteUser")));
+        ProductRepository products = Fakes.strict(ProductRepository.class, Map.of(
+                "findIdsAfterId", args -> {
+                    assertNull(args[1], "every batch reads from the start");
+                    return List.copyOf(hot.subList(0, Math.min(hot.size(), (Integer) args[2])));
+                },
+                "deleteAllById", args -> {
+                    Collection<String> ids = (Collection<String>) args[0];
+                    calls.add("deleteHot " + ids);
+                    return hot.removeAll(ids);
+                },
+                "findArchivedIdsByUserId", args -> List.copyOf(archived.subList(0, Math.min(archived.size(), (Integer) args[1]))),
+                "deleteArchivedByIds", args -> {
+                    Collection<String> ids = (Collection<String>) args[0];
+                    calls.add("deleteArchived " + ids);
+                    archived.removeAll(ids);
+                    return (long) ids.size();
+                }));
+        ProductSearchTermRepository terms = Fakes.strict(ProductSearchTermRepository.class, Map.of(
+                "deleteByProductIdIn", args -> calls.add("deleteTerms " + args[0]),
+                "deleteByUserId", args -> calls.add("deleteUserTerms")));
+        ConsumptionDailyRepository daily = Fakes.strict(ConsumptionDailyRepository.class, Map.of(
+                "deleteByProductIdIn", args -> calls.add("deleteDaily " + args[0]),
+                "deleteByUserId", args -> calls.add("deleteUserDaily")));
+        ConsumptionWeeklyRepository weekly = Fakes.strict(ConsumptionWeeklyRepository.class, Map.of(
+                "deleteByUserId", args -> calls.add("deleteUserWeekly")));
+        VerificationTokenRepository tokens = Fakes.strict(VerificationTokenRepository.class, Map.of(
+                "deleteByUserId", args -> calls.add("deleteTokens")));
+        AIRateLimiterService limiter = Fakes.strict(AIRateLimiterService.class, Map.of(
+                "reset", args -> calls.add("resetLimiter")));
+        ProductChangeListener listener = Fakes.strict(ProductChangeListener.class, Map.of(
+                "onUserProductsDeleted", args -> calls.add("listeners")));
+        AuthVersionRegistry registry = new AuthVersionRegistry(new StringRedisTemplate(), new RedisMessageListenerContainer(), users, 3600) {
+            @Override
+            public void retire(String userId, long version, @Nullable Instant deletionRequestedAt) {
+                calls.add("retire " + userId + " v" + version + " " + deletionRequestedAt);
+            }
+        };
+        return new UserDeletionJobHandler(users, products, terms, daily, weekly, tokens, limiter, List.of(listener), registry);
+    }
+
+    @Test
+    void walksProductsThenArchiveThenCleanup() {
+        hot.addAll(List.of("p1", "p2", "p3"));
+        archived.add("a1");
+        UserDeletionJobHandler handler = handler();
+
+        BatchResult first = handler.processBatch(PARAMS, null, 2);
+        BatchResult second = handler.processBatch(PARAMS, first.lastId(), 2);
+        BatchResult third = handler.processBatch(PARAMS, second.lastId(), 2);
+        BatchResult fourth = handler.processBatch(PARAMS, third.lastId(), 2);
+
+        assertEquals(new BatchResult(2, 2, "PRODUCTS", false), first);
+        assertEquals(new BatchResult(1, 1, "ARCHIVE", false), second);
+        assertEquals(new BatchResult(1, 1, "CLEANUP", false), third);
+        assertEquals(new BatchResult(0, 0, "CLEANUP", true), fourth);
+        assertTrue(hot.isEmpty());
+        assertTrue(archived.isEmpty());
+        assertEquals(List.of(
+                "deleteHot [p1, p2]", "deleteTerms [p1, p2]", "deleteDaily [p1, p2]",
+                "deleteHot [p3]", "deleteTerms [p3]", "deleteDaily [p3]",
+                "deleteArchived [a1]", "deleteTerms [a1]", "deleteDaily [a1]",
+                "deleteUserTerms", "deleteUserDaily", "deleteUserWeekly", "deleteTokens", "resetLimiter", "listeners",
+                "retire u1 v3 " + REQUESTED, "deleteUser"), calls);
+    }
+
+    @Test
+    void aBatchOfExactlyBatchSizeStaysInItsPhaseUntilAnEmptyRead() {
+        hot.addAll(List.of("p1", "p2"));
+        archived.addAll(List.of("a1", "a2"));
+        UserDeletionJobHandler handler = handler();
+
+        assertEquals(new BatchResult(2, 2, "PRODUCTS", false), handler.processBatch(PARAMS, null, 2));
+        assertEquals(new BatchResult(0, 0, "ARCHIVE", false), handler.processBatch(PARAMS, "PRODUCTS", 2));
+        assertEquals(new BatchResult(2, 2, "ARCHIVE", false), handler.processBatch(PARAMS, "ARCHIVE", 2));
+        assertEquals(new BatchResult(0, 0, "CLEANUP", false), handler.processBatch(PARAMS, "ARCHIVE", 2));
+        // Empty reads delete nothing
+        assertEquals(List.of("deleteHot [p1, p2]", "deleteTerms [p1, p2]", "deleteDaily [p1, p2]",
+                "deleteArchived [a1, a2]", "deleteTerms [a1, a2]", "deleteDaily [a1, a2]"), calls);
+    }
+
+    @Test
+    void resumesInEachPhaseFromTheCheckpoint() {
+        hot.add("p1");
+        archived.add("a1");
+
+        // A restart in PRODUCTS reads again from the start: what the crashed batch deleted is simply gone
+        assertEquals(new BatchResult(1, 1, "ARCHIVE", false), handler().processBatch(PARAMS, "PRODUCTS", 10));
+        assertEquals(new BatchResult(1, 1, "CLEANUP", false), handler().processBatch(PARAMS, "ARCHIVE", 10));
+        calls.clear();
+        assertEquals(new BatchResult(0, 0, "CLEANUP", true), handler().processBatch(PARAMS, "CLEANUP", 10));
+        assertEquals("deleteUser", calls.get(calls.size() - 1));
+        assertTrue(calls.indexOf("retire u1 v3 " + REQUESTED) < calls.indexOf("deleteUser"));
+    }
+
+    @Test
+    void resumingInArchiveLeavesHotProductsAlone() {
+        hot.add("p1");
+        archived.add("a1");
+
+        handler().processBatch(PARAMS, "ARCHIVE", 10);
+
+        assertEquals(List.of("p1"), hot);
+        assertFalse(calls.contains("deleteHot [p1]"));
+    }
+
+    @Test
+    void unknownPhaseFails() {
+        assertThrows(IllegalStateException.class, () -> handler().processBatch(PARAMS, "BOGUS", 10));
+    }
+}
@@ -0,0 +1,106 @@
+package com.verf.ProdExp.service.impl;
+
+import com.verf.ProdExp.entity.Product;
+import com.verf.ProdExp.repository.ProductRepository;
+import com.verf.ProdExp.support.Fakes;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UserIndexCacheTest {
+
+    static final class Ids implements UserIndexCache.Index {
+        final Set<String> ids = new TreeSet<>();
+
+        @Override
+        public synchronized void put(Product product) {
+            ids.add(product.getId());
+        }
+
+        @Override
+        public synchronized void remove(String productId) {
+            ids.remove(productId);
+        }
+    }
+
+    private final List<Product> stored = new ArrayList<>();
+    private int loads;
+    // Runs in the middle of a load, to simulate a write racing the build
+    private Runnable duringLoad = () -> { };
+
+    private final UserIndexCache<Ids> cache = new UserIndexCache<>(Fakes.strict(ProductRepository.class, Map.of(
+            "findSearchFieldsByUserId", args -> {
+                loads++;
+                duringLoad.run();
+                return List.copyOf(stored);
+            })), 10, 60) {
+        @Override
+        protected Ids newIndex() {
+            return new Ids();
+        }
+    };
+
+    private static Product product(String id) {
+        return product(id, "u1");
+    }
+
+    private static Product product(String id, String userId) {
+        Product p = new Product();
+        p.setId(id);
+        p.setUserId(userId);
+        return p;
+    }
+
+    @Test
+    void builtOnceThenKeptCurrentFromWrites() {
+        stored.add(product("a"));
+
+        assertEquals(Set.of("a"), cache.indexFor("u1").ids);
+        cache.onProductSaved(product("b"));
+        cache.onProductDeleted(product("a"));
+
+        assertEquals(Set.of("b"), cache.indexFor("u1").ids);
+        assertEquals(1, loads);
+    }
+
+    @Test
+    void buildThatRacedAWriteIsServedButNotCached() {
+        stored.add(product("a"));
+        duringLoad = () -> cache.onProductSaved(product("b"));
+
+        cache.indexFor("u1");
+        duringLoad = () -> { };
+        cache.indexFor("u1");
+        cache.indexFor("u1");
+
+        assertEquals(2, loads);
+    }
+
+    @Test
+    void userDeletionDropsTheIndex() {
+        cache.indexFor("u1");
+
+        cache.onUserProductsDeleted("u1");
+        cache.indexFor("u1");
+
+        assertEquals(2, loads);
+    }
+
+    @Test
+    void aWriteForAnotherUserDoesNotStopCaching() {
+        stored.add(product("a"));
+        duringLoad = () -> cache.onProductSaved(product("x", "u2"));
+
+        cache.indexFor("u1");
+        duringLoad = () -> { };
+        cache.indexFor("u1");
+
+        assertEquals(1, loads);
+    }
+}
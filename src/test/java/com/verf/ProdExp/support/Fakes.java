@@ -0,0 +1,63 @@
+package com.verf.ProdExp.support;
+
+import org.jspecify.annotations.Nullable;
+
+import java.lang.reflect.Proxy;
+import java.util.Map;
+
+/**
+ * Interface fakes for tests. Calls are answered by method name (overloads share an answer); equals, hashCode and
+ * toString behave like on a plain object.
+ */
+public final class Fakes {
+
+    @FunctionalInterface
+    public interface Answer {
+        @Nullable Object answer(Object[] args) throws Throwable;
+    }
+
+    private Fakes() {
+    }
+
+    // Methods without an answer throw UnsupportedOperationException, so unexpected calls fail the test
+    public static <T> T strict(Class<T> type, Map<String, Answer> answers) {
+        return create(type, answers, true);
+    }
+
+    // Methods without an answer do nothing and return null, or zero/false for primitives
+    public static <T> T lenient(Class<T> type, Map<String, Answer> answers) {
+        return create(type, answers, false);
+    }
+
+    public static <T> T lenient(Class<T> type) {
+        return create(type, Map.of(), false);
+    }
+
+    private static <T> T create(Class<T> type, Map<String, Answer> answers, boolean strict) {
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+            if (method.getDeclaringClass() == Object.class) {
+                return switch (method.getName()) {
+                    case "equals" -> proxy == args[0];
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    default -> "fake " + type.getSimpleName();
+                };
+            }
+            Answer answer = answers.get(method.getName());
+            if (answer != null) return answer.answer(args == null ? new Object[0] : args);
+            if (strict) throw new UnsupportedOperationException(type.getSimpleName() + "." + method.getName());
+            return defaultValue(method.getReturnType());
+        }));
+    }
+
+    private static @Nullable Object defaultValue(Class<?> type) {
+        if (!type.isPrimitive() || type == void.class) return null;
+        if (type == boolean.class) return false;
+        if (type == char.class) return '\0';
+        if (type == long.class) return 0L;
+        if (type == double.class) return 0.0;
+        if (type == float.class) return 0f;
+        if (type == int.class) return 0;
+        if (type == short.class) return (short) 0;
+        return (byte) 0;
+    }
+}
@@ -0,0 +1,45 @@
+package com.verf.ProdExp.util;
+
+import com.verf.ProdExp.entity.Product;
+import com.verf.ProdExp.entity.Unit;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AnalysisUtilTest {
+
+    private Product product() {
+        Product p = new Product();
+        p.setUserId("u1");
+        p.setName("Rice");
+        p.setQuantityBought(10.0);
+        p.setQuantityConsumed(2.0);
+        p.setUnit(Unit.KILOGRAM);
+        p.setPurchaseDate(LocalDate.now().minusDays(20));
+        p.setExpirationDate(LocalDate.now().plusDays(40));
+        return p;
+    }
+
+    @Test
+    void withoutHistory_usesLifetimeAverage() {
+        Map<String, Object> out = AnalysisUtil.analyze(product());
+
+        assertEquals("LIFETIME", out.get("paceSource"));
+        assertEquals(0.1, (Double) out.get("currentAvgDailyConsumption"), 1e-9);
+        assertFalse(out.containsKey("lifetimeAvgDailyConsumption"));
+    }
+
+    @Test
+    void recentPace_replacesLifetimeAverageAndDrivesEstimate() {
+        Map<String, Object> out = AnalysisUtil.analyze(product(), 0.5);
+
+        assertEquals("RECENT", out.get("paceSource"));
+        assertEquals(0.5, (Double) out.get("currentAvgDailyConsumption"), 1e-9);
+        assertEquals(0.1, (Double) out.get("lifetimeAvgDailyConsumption"), 1e-9);
+        // 8 kg left at 0.5 kg/day
+        assertEquals(16L, out.get("estimatedDaysToFinishFromNow"));
+    }
+}
@@ -0,0 +1,116 @@
+package com.verf.ProdExp.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompressedTrieTest {
+
+    private static final Comparator<Map.Entry<String, Integer>> BY_COUNT =
+            Map.Entry.<String, Integer>comparingByValue().reversed().thenComparing(Map.Entry::getKey);
+
+    private static List<String> values(List<Map.Entry<String, Integer>> entries) {
+        return entries.stream().map(Map.Entry::getKey).toList();
+    }
+
+    @Test
+    void findsValuesByPrefixAcrossSplitEdges() {
+        CompressedTrie<String> trie = new CompressedTrie<>(BY_COUNT);
+        trie.add("strawberry", "Strawberry");
+        trie.add("straw", "Straw");
+        trie.add("stracciatella", "Stracciatella");
+
+        assertEquals(List.of("Stracciatella", "Straw", "Strawberry"), values(trie.topK("stra", 10)));
+        assertEquals(List.of("Straw", "Strawberry"), values(trie.topK("straw", 10)));
+        assertEquals(List.of(), trie.topK("strx", 10));
+    }
+
+    @Test
+    void ranksByCountAndKeepsTopK() {
+        CompressedTrie<String> trie = new CompressedTrie<>(BY_COUNT);
+        trie.add("milk", "Milk");
+        trie.add("milk", "Milk");
+        trie.add("mint", "Mint");
+        trie.add("mango", "Mango");
+
+        List<Map.Entry<String, Integer>> top = trie.topK("m", 2);
+
+        assertEquals(List.of("Milk", "Mango"), values(top));
+        assertEquals(2, top.get(0).getValue());
+    }
+
+    @Test
+    void removeRetractsOneRegistrationAndPrunes() {
+        CompressedTrie<String> trie = new CompressedTrie<>(BY_COUNT);
+        trie.add("bread", "Bread");
+        trie.add("bread", "Bread");
+        trie.add("brie", "Brie");
+
+        assertTrue(trie.remove("bread", "Bread"));
+        assertEquals(List.of("Bread", "Brie"), values(trie.topK("br", 10)));
+
+        assertTrue(trie.remove("bread", "Bread"));
+        assertFalse(trie.remove("bread", "Bread"));
+        assertEquals(List.of("Brie"), values(trie.topK("br", 10)));
+        assertEquals(1, trie.size());
+    }
+
+    @Test
+    void valueUnderSeveralKeysIsListedOnceWithItsLargestCount() {
+        CompressedTrie<String> trie = new CompressedTrie<>(BY_COUNT);
+        trie.add("cream", "Strawberries & Cream");
+        trie.add("cream", "Strawberries & Cream");
+        trie.add("creme", "Strawberries & Cream");
+        trie.add("crepe", "Crepe");
+
+        List<Map.Entry<String, Integer>> top = trie.topK("cr", 10);
+
+        assertEquals(List.of(Map.entry("Strawberries & Cream", 2), Map.entry("Crepe", 1)), top);
+    }
+
+    @Test
+    void topKMatchesAFullSortAndStopsAtK() {
+        Random random = new Random(42);
+        CompressedTrie<String> trie = new CompressedTrie<>(BY_COUNT);
+        // key -> value -> registrations, mirrored to compute the expected answer by brute force
+        Map<String, Map<String, Integer>> added = new HashMap<>();
+        for (int i = 0; i < 2000; i++) {
+            String key = "p" + Integer.toString(random.nextInt(400), 7);
+            String value = "v" + random.nextInt(150);
+            trie.add(key, value);
+            added.computeIfAbsent(key, x -> new HashMap<>()).merge(value, 1, Integer::sum);
+        }
+        // Removals must keep the per-node best entries right
+        for (Map.Entry<String, Map<String, Integer>> e : added.entrySet()) {
+            for (String value : new ArrayList<>(e.getValue().keySet())) {
+                if (random.nextInt(3) > 0) continue;
+                assertTrue(trie.remove(e.getKey(), value));
+                e.getValue().merge(value, -1, Integer::sum);
+                e.getValue().remove(value, 0);
+            }
+        }
+
+        for (String prefix : List.of("", "p", "p1", "p23", "p6")) {
+            Map<String, Integer> counts = new HashMap<>();
+            added.forEach((key, values) -> {
+                if (key.startsWith(prefix)) values.forEach((v, c) -> counts.merge(v, c, Math::max));
+            });
+            List<Map.Entry<String, Integer>> all = new ArrayList<>(counts.entrySet());
+            all.sort(BY_COUNT);
+
+            for (int k : new int[]{1, 5, 20, all.size() + 3}) {
+                List<Map.Entry<String, Integer>> top = trie.topK(prefix, k);
+                assertEquals(Math.min(k, all.size()), top.size(), "prefix=" + prefix + " k=" + k);
+                assertEquals(all.subList(0, top.size()), top, "prefix=" + prefix + " k=" + k);
+            }
+        }
+        assertEquals(List.of(), trie.topK("p", 0));
+    }
+}
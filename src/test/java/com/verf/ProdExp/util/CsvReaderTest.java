@@ -0,0 +1,46 @@
+package com.verf.ProdExp.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CsvReaderTest {
+
+    @Test
+    void readsPlainRecordsWithLfAndCrlf() throws IOException {
+        CsvReader reader = new CsvReader(new StringReader("name,unit\r\nMilk,l\nEggs,pcs"));
+        assertEquals(List.of("name", "unit"), reader.next());
+        assertEquals(List.of("Milk", "l"), reader.next());
+        assertEquals(2, reader.recordLine());
+        assertEquals(List.of("Eggs", "pcs"), reader.next());
+        assertNull(reader.next());
+    }
+
+    @Test
+    void handlesQuotedSeparatorsQuotesAndLineBreaks() throws IOException {
+        CsvReader reader = new CsvReader(new StringReader("\"Strawberries, fresh\",\"say \"\"hi\"\"\",\"two\nlines\"\nnext,row,\n"));
+        assertEquals(List.of("Strawberries, fresh", "say \"hi\"", "two\nlines"), reader.next());
+        assertEquals(List.of("next", "row", ""), reader.next());
+        assertEquals(3, reader.recordLine());
+        assertNull(reader.next());
+    }
+
+    @Test
+    void skipsBomAndBlankLines() throws IOException {
+        CsvReader reader = new CsvReader(new StringReader("\uFEFFa,b\n\n\r\nc,d\n"));
+        assertEquals(List.of("a", "b"), reader.next());
+        assertEquals(List.of("c", "d"), reader.next());
+        assertEquals(4, reader.recordLine());
+        assertNull(reader.next());
+    }
+
+    @Test
+    void rejectsUnterminatedQuoteAndOversizedRecords() {
+        assertThrows(CsvReader.MalformedCsvException.class, () -> new CsvReader(new StringReader("\"open,field\n")).next());
+        assertThrows(CsvReader.MalformedCsvException.class, () -> new CsvReader(new StringReader("abcdef\n"), ',', 3).next());
+    }
+}
@@ -0,0 +1,36 @@
+package com.verf.ProdExp.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SearchTokenizerTest {
+
+    @Test
+    void foldsCaseAndStripsDiacritics() {
+        assertEquals(List.of("jalapeno", "creme", "brulee"), SearchTokenizer.tokenize("Jalapeño & Crème-Brûlée"));
+    }
+
+    @Test
+    void composedAndDecomposedInputProduceSameTokens() {
+        assertEquals(SearchTokenizer.tokenize("Jalape\u00f1o"), SearchTokenizer.tokenize("Jalapen\u0303o"));
+    }
+
+    @Test
+    void foldsLettersWithoutDecomposition() {
+        assertEquals(List.of("strasse", "aeble", "lodz"), SearchTokenizer.tokenize("Straße Æble Łódź"));
+    }
+
+    @Test
+    void splitsOnNonWordCharactersLikeTheOldRegex() {
+        assertEquals(List.of("2", "fat_free", "milk"), SearchTokenizer.tokenize("  2% fat_free--MILK!"));
+        assertEquals(List.of("fat_free", "milk"), SearchTokenizer.tokenize("2% fat_free milk", 2));
+    }
+
+    @Test
+    void foldKeepsSeparators() {
+        assertEquals("creme brulee!", SearchTokenizer.fold("Crème Brûlée!"));
+    }
+}
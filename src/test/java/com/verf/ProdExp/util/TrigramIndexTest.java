@@ -0,0 +1,67 @@
+package com.verf.ProdExp.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TrigramIndexTest {
+
+    private static final LocalDate TODAY = LocalDate.parse("2026-03-01");
+
+    private static List<String> ids(List<TrigramIndex.Hit> hits) {
+        return hits.stream().map(TrigramIndex.Hit::id).toList();
+    }
+
+    @Test
+    void findsTermsWithinEditDistance() {
+        TrigramIndex index = new TrigramIndex();
+        index.put("p1", List.of("strawberry", "jam"), TODAY.plusDays(30));
+        index.put("p2", List.of("milk"), TODAY.plusDays(3));
+
+        assertEquals(List.of("p1"), ids(index.search(List.of("stawberry"), 10, TODAY)));
+        assertEquals(List.of("p2"), ids(index.search(List.of("mlk"), 10, TODAY)));
+        assertEquals(List.of(), ids(index.search(List.of("bread"), 10, TODAY)));
+    }
+
+    @Test
+    void ranksFullCoverageAboveUrgency() {
+        TrigramIndex index = new TrigramIndex();
+        index.put("jam", List.of("strawberry", "jam"), TODAY.plusDays(60));
+        index.put("fresh", List.of("strawberry"), TODAY.plusDays(1));
+
+        // "jam" covers both query words, "fresh" only one; expiry urgency cannot outweigh the missing term
+        assertEquals(List.of("jam", "fresh"), ids(index.search(List.of("strawbery", "jam"), 10, TODAY)));
+    }
+
+    @Test
+    void breaksTiesBySoonerExpiryAndKeepsTopK() {
+        TrigramIndex index = new TrigramIndex();
+        index.put("late", List.of("milk"), TODAY.plusDays(20));
+        index.put("soon", List.of("milk"), TODAY.plusDays(1));
+        index.put("expired", List.of("milk"), TODAY.minusDays(1));
+
+        assertEquals(List.of("soon", "late"), ids(index.search(List.of("milk"), 2, TODAY)));
+    }
+
+    @Test
+    void removeDropsDocumentAndUnusedTerms() {
+        TrigramIndex index = new TrigramIndex();
+        index.put("p1", List.of("cheddar"), TODAY);
+        index.put("p1", List.of("gouda"), TODAY);
+
+        assertTrue(index.search(List.of("cheddar"), 10, TODAY).isEmpty());
+        index.remove("p1");
+        assertTrue(index.search(List.of("gouda"), 10, TODAY).isEmpty());
+        assertEquals(0, index.size());
+    }
+
+    @Test
+    void boundedLevenshteinStopsAboveMax() {
+        assertEquals(1, TrigramIndex.boundedLevenshtein("stawberry", "strawberry", 2));
+        assertEquals(3, TrigramIndex.boundedLevenshtein("kitten", "sitting", 2));
+        assertEquals(2, TrigramIndex.boundedLevenshtein("flaw", "lawn", 3));
+    }
+}